@@ -0,0 +1,211 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.ActivityEndCalendarQueue;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.Facility;
+
+/**
+ * Measures the throughput of the {@link ActivityEndCalendarQueue} used by the activity engine: inserting all agents,
+ * rescheduling the activity end of some of them as within-day replanning does, and polling all agents second by
+ * second. For comparison, the same is done with a priority queue, which has to search an agent linearly to
+ * reschedule it; its rescheduling is therefore only measured on a small sample.
+ * Arguments: number of agents (default 10'000'000), number of reschedules (default 1'000'000).
+ */
+public class ActivityEndQueueBenchmark {
+
+	private static final int PRIORITY_QUEUE_RESCHEDULE_SAMPLE = 100;
+
+	public static void main(String[] args) {
+		int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		int rescheduleCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+		Random random = new Random(4711);
+		MobsimAgent[] agents = new MobsimAgent[agentCount];
+		double[] endTimes = new double[agentCount];
+		for (int i = 0; i < agentCount; i++) {
+			agents[i] = new BenchmarkAgent(Id.createPersonId(i));
+			endTimes[i] = 5 * 3600 + random.nextInt(20 * 3600);
+		}
+		int[] rescheduledAgents = new int[rescheduleCount];
+		double[] rescheduledTimes = new double[rescheduleCount];
+		for (int i = 0; i < rescheduleCount; i++) {
+			rescheduledAgents[i] = random.nextInt(agentCount);
+			rescheduledTimes[i] = 5 * 3600 + random.nextInt(20 * 3600);
+		}
+
+		for (int round = 0; round < 3; round++) {
+			ActivityEndCalendarQueue queue = new ActivityEndCalendarQueue();
+			long start = System.nanoTime();
+			for (int i = 0; i < agentCount; i++) {
+				queue.add(agents[i], endTimes[i]);
+			}
+			double insert = (System.nanoTime() - start) / (double) agentCount;
+			start = System.nanoTime();
+			for (int i = 0; i < rescheduleCount; i++) {
+				MobsimAgent agent = agents[rescheduledAgents[i]];
+				queue.remove(agent);
+				queue.add(agent, rescheduledTimes[i]);
+			}
+			double reschedule = (System.nanoTime() - start) / (double) rescheduleCount;
+			start = System.nanoTime();
+			int polled = 0;
+			for (double time = 0; time <= 30 * 3600; time++) {
+				while (queue.poll(time) != null) {
+					polled++;
+				}
+			}
+			double poll = (System.nanoTime() - start) / (double) polled;
+			System.out.println(String.format("round %d: calendar queue: insert %.1f ns/agent, reschedule %.1f ns/agent, poll %.1f ns/agent",
+					round, insert, reschedule, poll));
+		}
+
+		for (int round = 0; round < 3; round++) {
+			PriorityQueue<QueueEntry> queue = new PriorityQueue<>(500, (e0, e1) -> {
+				int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+				return cmp == 0 ? e1.agent.getId().compareTo(e0.agent.getId()) : cmp;
+			});
+			long start = System.nanoTime();
+			for (int i = 0; i < agentCount; i++) {
+				queue.add(new QueueEntry(agents[i], endTimes[i]));
+			}
+			double insert = (System.nanoTime() - start) / (double) agentCount;
+			int sample = Math.min(rescheduleCount, PRIORITY_QUEUE_RESCHEDULE_SAMPLE);
+			start = System.nanoTime();
+			for (int i = 0; i < sample; i++) {
+				MobsimAgent agent = agents[rescheduledAgents[i]];
+				Iterator<QueueEntry> iter = queue.iterator();
+				while (iter.hasNext()) {
+					if (iter.next().agent == agent) {
+						iter.remove();
+						break;
+					}
+				}
+				queue.add(new QueueEntry(agent, rescheduledTimes[i]));
+			}
+			double reschedule = (System.nanoTime() - start) / (double) sample;
+			start = System.nanoTime();
+			int polled = 0;
+			while (queue.poll() != null) {
+				polled++;
+			}
+			double poll = (System.nanoTime() - start) / (double) polled;
+			System.out.println(String.format("round %d: priority queue: insert %.1f ns/agent, reschedule %.1f ns/agent, poll %.1f ns/agent",
+					round, insert, reschedule, poll));
+		}
+	}
+
+	private static final class QueueEntry {
+		final MobsimAgent agent;
+		final double activityEndTime;
+
+		QueueEntry(MobsimAgent agent, double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+		}
+	}
+
+	private static final class BenchmarkAgent implements MobsimAgent {
+		private final Id<Person> id;
+
+		BenchmarkAgent(Id<Person> id) {
+			this.id = id;
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+
+		@Override
+		public State getState() {
+			return State.ACTIVITY;
+		}
+
+		@Override
+		public double getActivityEndTime() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void endActivityAndComputeNextState(double now) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void endLegAndComputeNextState(double now) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setStateToAbort(double now) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public OptionalTime getExpectedTravelTime() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Double getExpectedTravelDistance() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void notifyArrivalOnLinkByNonNetworkMode(Id<Link> linkId) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Facility getCurrentFacility() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Facility getDestinationFacility() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Id<Link> getCurrentLinkId() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Id<Link> getDestinationLinkId() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getMode() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.EventHandler;
+
+import java.lang.reflect.Method;
+
+/**
+ * Compares the reflective dispatch that was used by the EventsManagerImpl for event types it did not know
+ * (e.g. contrib events) with the dispatch of the current EventsManagerImpl, for an event type defined here.
+ * Both variants call the same handlers, each synchronized on the handler as in the EventsManagerImpl.
+ * Arguments: number of events (default 50M), number of rounds (default 5), number of handlers (default 3).
+ */
+public class EventsDispatchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int numberOfEvents = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int numberOfHandlers = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		BenchmarkEvent event = new BenchmarkEvent(0);
+		Method method = BenchmarkEventHandler.class.getMethod("handleEvent", BenchmarkEvent.class);
+
+		CountingHandler[] handlers = new CountingHandler[numberOfHandlers];
+		EventsManager events = EventsUtils.createEventsManager();
+		for (int h = 0; h < numberOfHandlers; h++) {
+			handlers[h] = new CountingHandler();
+			events.addHandler(handlers[h]);
+		}
+		events.initProcessing();
+
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < numberOfEvents; i++) {
+				for (CountingHandler handler : handlers) {
+					synchronized (handler) {
+						method.invoke(handler, event);
+					}
+				}
+			}
+			long reflection = System.nanoTime() - start;
+			long reflectionCount = getCount(handlers);
+
+			start = System.nanoTime();
+			for (int i = 0; i < numberOfEvents; i++) {
+				events.processEvent(event);
+			}
+			long eventsManager = System.nanoTime() - start;
+			long eventsManagerCount = getCount(handlers);
+
+			System.out.println(String.format("round %d, %d handlers: Method.invoke %.1f M events/s (%d calls), EventsManagerImpl %.1f M events/s (%d calls)",
+					round, numberOfHandlers, numberOfEvents * 1e3 / reflection, reflectionCount,
+					numberOfEvents * 1e3 / eventsManager, eventsManagerCount));
+		}
+		events.finishProcessing();
+	}
+
+	/**
+	 * @return the number of calls of all handlers since the last call of this method
+	 */
+	private static long getCount(CountingHandler[] handlers) {
+		long count = 0;
+		for (CountingHandler handler : handlers) {
+			count += handler.counter;
+			handler.counter = 0;
+		}
+		return count;
+	}
+
+	public static class BenchmarkEvent extends Event {
+		public BenchmarkEvent(double time) {
+			super(time);
+		}
+
+		@Override
+		public String getEventType() {
+			return "benchmark";
+		}
+	}
+
+	public interface BenchmarkEventHandler extends EventHandler {
+		void handleEvent(BenchmarkEvent event);
+	}
+
+	private static class CountingHandler implements BenchmarkEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(BenchmarkEvent event) {
+			this.counter++;
+		}
+	}
+}
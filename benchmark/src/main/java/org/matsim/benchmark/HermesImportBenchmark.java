@@ -0,0 +1,64 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultSelector;
+import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultStrategy;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmark scenario with Hermes and incremental plan imports, where only the given share of persons
+ * (first argument, default 0.1) is replanned in every iteration. Compare the "Hermes generatePlans took" log
+ * entries of runs with different shares to see the import time as a function of the replanning share.
+ */
+public class HermesImportBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		double replanningShare = args.length > 0 ? Double.parseDouble(args[0]) : 0.1;
+
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		config.controler().setMobsim("hermes");
+		config.controler().setLastIteration(10);
+		config.controler().setCreateGraphs(false);
+		config.parallelEventHandling().setOneThreadPerHandler(true);
+		config.hermes().setIncrementalPlanImport(true);
+
+		config.strategy().clearStrategySettings();
+		StrategySettings reRoute = new StrategySettings();
+		reRoute.setStrategyName(DefaultStrategy.ReRoute);
+		reRoute.setWeight(replanningShare);
+		config.strategy().addStrategySettings(reRoute);
+		StrategySettings keep = new StrategySettings();
+		keep.setStrategyName(DefaultSelector.KeepLastSelected);
+		keep.setWeight(1.0 - replanningShare);
+		config.strategy().addStrategySettings(keep);
+
+		Controler ctl = new Controler(config);
+		ctl.run();
+	}
+
+}
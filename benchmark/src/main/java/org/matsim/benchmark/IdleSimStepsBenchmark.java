@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextWakeUpTime;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Measures the run time of the QSim with sparse demand over a long horizon, once simulating every time step and once
+ * skipping the idle time steps.
+ * Arguments: number of agents (default 2'000), horizon in hours (default 48), grid size (default 30), number of
+ * threads (default 1).
+ */
+public class IdleSimStepsBenchmark {
+
+	public static void main(String[] args) {
+		int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+		int hours = args.length > 1 ? Integer.parseInt(args[1]) : 48;
+		int gridSize = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		int numberOfThreads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+		for (int round = 0; round < 3; round++) {
+			for (boolean skipping : new boolean[] { false, true }) {
+				Config config = ConfigUtils.createConfig();
+				config.qsim().setEndTime(hours * 3600);
+				config.qsim().setNumberOfThreads(numberOfThreads);
+				config.qsim().setSkippingIdleSimSteps(skipping);
+				Scenario scenario = ScenarioUtils.createScenario(config);
+				createScenario(scenario, agentCount, hours, gridSize);
+				PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+				EventsManager events = EventsUtils.createEventsManager();
+				QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+				StepCounter counter = new StepCounter();
+				qsim.addQueueSimulationListeners(counter);
+				long start = System.nanoTime();
+				qsim.run();
+				long nanos = System.nanoTime() - start;
+				System.out.println(String.format("round %d: skipping %b: %.0f ms, %d simulated time steps",
+						round, skipping, nanos / 1e6, counter.count));
+			}
+		}
+	}
+
+	/**
+	 * Creates a grid network and agents doing a few car trips each, spread evenly over the whole horizon.
+	 */
+	private static void createScenario(Scenario scenario, int agentCount, int hours, int gridSize) {
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[gridSize][gridSize];
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 500, y * 500));
+			}
+		}
+		Link[] links = new Link[4 * gridSize * (gridSize - 1)];
+		int linkCount = 0;
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				if (x + 1 < gridSize) {
+					links[linkCount++] = addLink(network, nodes[x][y], nodes[x + 1][y]);
+					links[linkCount++] = addLink(network, nodes[x + 1][y], nodes[x][y]);
+				}
+				if (y + 1 < gridSize) {
+					links[linkCount++] = addLink(network, nodes[x][y], nodes[x][y + 1]);
+					links[linkCount++] = addLink(network, nodes[x][y + 1], nodes[x][y]);
+				}
+			}
+		}
+
+		Random random = new Random(4711);
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < agentCount; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			double time = random.nextInt(hours * 3600 / 2);
+			Link homeLink = links[random.nextInt(linkCount)];
+			Activity home = pf.createActivityFromLinkId("home", homeLink.getId());
+			home.setCoord(homeLink.getCoord());
+			home.setEndTime(time);
+			plan.addActivity(home);
+			for (int trip = 0; trip < 3; trip++) {
+				plan.addLeg(pf.createLeg(TransportMode.car));
+				Link link = links[random.nextInt(linkCount)];
+				Activity other = pf.createActivityFromLinkId("other", link.getId());
+				other.setCoord(link.getCoord());
+				time += random.nextInt(hours * 3600 / 6);
+				other.setEndTime(time);
+				plan.addActivity(other);
+			}
+			plan.addLeg(pf.createLeg(TransportMode.car));
+			Activity home2 = pf.createActivityFromLinkId("home", homeLink.getId());
+			home2.setCoord(homeLink.getCoord());
+			plan.addActivity(home2);
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static Link addLink(Network network, Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.create(from.getId() + "-" + to.getId(), Link.class), from, to, 500, 13.9, 1800, 1);
+	}
+
+	private static final class StepCounter implements MobsimBeforeSimStepListener, HasNextWakeUpTime {
+		private int count = 0;
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+			this.count++;
+		}
+
+		@Override
+		public double getNextWakeUpTime(double now) {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+}
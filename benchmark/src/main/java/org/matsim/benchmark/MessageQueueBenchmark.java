@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MessageQueueBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.matsim.core.mobsim.jdeqsim.CalendarMessageQueue;
+import org.matsim.core.mobsim.jdeqsim.Message;
+import org.matsim.core.mobsim.jdeqsim.MessageQueue;
+
+/**
+ * Measures the throughput of the JDEQSim message queues with the classic "hold" model: the queue holds a fixed number
+ * of pending messages, and each handled message schedules a new one a random time later, as a vehicle entering a road
+ * schedules its message for the end of the road. Once with the {@link MessageQueue} and new messages for each step,
+ * once with the {@link CalendarMessageQueue} and the handled messages being reused.
+ * Arguments: number of pending messages (default 1'000'000), number of handled messages (default 50'000'000), mean
+ * time between two messages of the same vehicle in seconds (default 60).
+ */
+public class MessageQueueBenchmark {
+
+	public static void main(String[] args) {
+		int pendingCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		long handledCount = args.length > 1 ? Long.parseLong(args[1]) : 50_000_000L;
+		double meanInterval = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+
+		for (int round = 0; round < 3; round++) {
+			for (boolean calendar : new boolean[] { false, true }) {
+				MessageQueue queue = calendar ? new CalendarMessageQueue() : new MessageQueue();
+				Random random = new Random(4711);
+				for (int i = 0; i < pendingCount; i++) {
+					queue.putMessage(createMessage(random.nextDouble() * 2 * meanInterval, i));
+				}
+
+				long gcCount = getGarbageCollectionCount();
+				long start = System.nanoTime();
+				for (long i = 0; i < handledCount; i++) {
+					Message m = queue.getNextMessage();
+					double time = m.getMessageArrivalTime() - Math.log(1 - random.nextDouble()) * meanInterval;
+					if (calendar) {
+						m.setMessageArrivalTime(time);
+						queue.putMessage(m);
+					} else {
+						queue.putMessage(createMessage(time, (int) i));
+					}
+				}
+				long nanos = System.nanoTime() - start;
+				System.out.println(String.format("round %d: %s: %.0f ms, %.1f million messages/s, %d garbage collections",
+						round, queue.getClass().getSimpleName(), nanos / 1e6, handledCount * 1e3 / nanos,
+						getGarbageCollectionCount() - gcCount));
+			}
+		}
+	}
+
+	private static Message createMessage(double time, int priority) {
+		Message m = new HoldMessage();
+		m.setMessageArrivalTime(time);
+		m.setPriority(priority % 4);
+		return m;
+	}
+
+	private static long getGarbageCollectionCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static final class HoldMessage extends Message {
+		@Override
+		public void processEvent() {
+		}
+
+		@Override
+		public void handleMessage() {
+		}
+	}
+}
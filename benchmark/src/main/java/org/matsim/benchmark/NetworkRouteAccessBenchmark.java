@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRouteAccessBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.DeltaEncodedNetworkRouteFactory;
+import org.matsim.core.population.routes.LinkNetworkRouteFactory;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactory;
+
+/**
+ * Compares the memory footprint and the link access of routes created by the {@link LinkNetworkRouteFactory} with
+ * routes created by the {@link DeltaEncodedNetworkRouteFactory}. The links are accessed by index like in the QSim
+ * (current and next link), and with the iterator like in Hermes.
+ * Arguments: number of routes (default 200'000), links per route (default 100).
+ */
+public class NetworkRouteAccessBenchmark {
+
+	public static void main(String[] args) {
+		int numberOfRoutes = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		int linksPerRoute = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+		// link ids of a network read from file, where consecutive links of a route mostly have close indices
+		int numberOfLinks = 100_000;
+		List<Id<Link>> linkIds = new ArrayList<>(numberOfLinks);
+		for (int i = 0; i < numberOfLinks; i++) {
+			linkIds.add(Id.create(i, Link.class));
+		}
+		Random random = new Random(4711);
+		List<List<Id<Link>>> srcRoutes = new ArrayList<>(1000);
+		for (int r = 0; r < 1000; r++) {
+			List<Id<Link>> srcRoute = new ArrayList<>(linksPerRoute);
+			int index = random.nextInt(numberOfLinks);
+			for (int l = 0; l < linksPerRoute; l++) {
+				index = Math.floorMod(index + random.nextInt(200) - 100, numberOfLinks);
+				srcRoute.add(linkIds.get(index));
+			}
+			srcRoutes.add(srcRoute);
+		}
+
+		for (int round = 0; round < 3; round++) {
+			for (RouteFactory factory : new RouteFactory[] { new LinkNetworkRouteFactory(), new DeltaEncodedNetworkRouteFactory() }) {
+				long usedBefore = getUsedMemory();
+				NetworkRoute[] routes = new NetworkRoute[numberOfRoutes];
+				for (int r = 0; r < numberOfRoutes; r++) {
+					List<Id<Link>> srcRoute = srcRoutes.get(r % srcRoutes.size());
+					Id<Link> startLinkId = srcRoute.get(0);
+					Id<Link> endLinkId = srcRoute.get(srcRoute.size() - 1);
+					routes[r] = (NetworkRoute) factory.createRoute(startLinkId, endLinkId);
+					routes[r].setLinkIds(startLinkId, srcRoute, endLinkId);
+				}
+				long bytesPerRoute = (getUsedMemory() - usedBefore) / numberOfRoutes;
+
+				long gcCount = getGarbageCollectionCount();
+				long start = System.nanoTime();
+				long checksum = 0;
+				for (NetworkRoute route : routes) {
+					List<Id<Link>> ids = route.getLinkIds();
+					for (int i = 0; i < ids.size(); i++) {
+						checksum += ids.get(i).index();
+						if (i + 1 < ids.size()) {
+							checksum += ids.get(i + 1).index();
+						}
+					}
+				}
+				long indexNanos = System.nanoTime() - start;
+				long indexGcCount = getGarbageCollectionCount() - gcCount;
+
+				gcCount = getGarbageCollectionCount();
+				start = System.nanoTime();
+				for (NetworkRoute route : routes) {
+					for (Iterator<Id<Link>> iterator = route.getLinkIdIterator(); iterator.hasNext(); ) {
+						checksum += iterator.next().index();
+					}
+				}
+				long iteratorNanos = System.nanoTime() - start;
+				long iteratorGcCount = getGarbageCollectionCount() - gcCount;
+
+				System.out.println(String.format("round %d: %s: %d bytes per route, by index %.0f ms (%d garbage collections), "
+								+ "by iterator %.0f ms (%d garbage collections), checksum %d",
+						round, routes[0].getClass().getSimpleName(), bytesPerRoute, indexNanos / 1e6, indexGcCount,
+						iteratorNanos / 1e6, iteratorGcCount, checksum));
+			}
+		}
+	}
+
+	private static long getUsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long getGarbageCollectionCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+}
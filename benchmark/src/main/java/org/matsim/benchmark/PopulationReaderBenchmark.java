@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Measures how reading a population_v6 file with plans.parallelReading scales with the number of threads
+ * (global.numberOfThreads).
+ * A synthetic population with network routes and attributes is written to a temporary file first.
+ * Arguments: number of persons (default 1M), maximal number of threads (default: number of cores).
+ */
+public class PopulationReaderBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numberOfPersons = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		File file = File.createTempFile("population", ".xml.gz");
+		file.deleteOnExit();
+		Population population = createPopulation(numberOfPersons);
+		new PopulationWriter(population).writeV6(file.getAbsolutePath());
+		population = null;
+		System.out.println(String.format("written %d persons to %s (%.1f MB)", numberOfPersons, file, file.length() / 1e6));
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			Config config = ConfigUtils.createConfig();
+			config.global().setNumberOfThreads(threads);
+			config.plans().setParallelReading(true);
+			Scenario scenario = ScenarioUtils.createScenario(config);
+			System.gc();
+			long start = System.nanoTime();
+			new PopulationReader(scenario).readFile(file.getAbsolutePath());
+			long duration = System.nanoTime() - start;
+			System.out.println(String.format("threads %d: %.2f s, %.0f persons/s, %d persons read",
+					threads, duration / 1e9, scenario.getPopulation().getPersons().size() * 1e9 / duration, scenario.getPopulation().getPersons().size()));
+		}
+	}
+
+	private static Population createPopulation(int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i % 90);
+			person.getAttributes().putAttribute("subpopulation", "person");
+			for (int p = 0; p < 3; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(100.0 + p);
+				Id<Link> homeLink = Id.create(i % 10000, Link.class);
+				Id<Link> workLink = Id.create((i + 5000) % 10000, Link.class);
+				Activity home = pf.createActivityFromLinkId("home", homeLink);
+				home.setCoord(new Coord(i % 10000, p));
+				home.setEndTime(7 * 3600 + i % 3600);
+				plan.addActivity(home);
+				Leg leg = pf.createLeg("car");
+				leg.setDepartureTime(7 * 3600 + i % 3600);
+				leg.setTravelTime(1200);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(homeLink, workLink);
+				route.setLinkIds(homeLink, Arrays.asList(
+						Id.create(i % 100, Link.class), Id.create(i % 200 + 100, Link.class), Id.create(i % 300 + 300, Link.class)), workLink);
+				route.setTravelTime(1200);
+				route.setDistance(15000);
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				Activity work = pf.createActivityFromLinkId("work", workLink);
+				work.setCoord(new Coord((i + 5000) % 10000, p));
+				plan.addActivity(work);
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(0));
+			population.addPerson(person);
+		}
+		return population;
+	}
+}
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.SubpopulationScoringParameters;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import ch.sbb.matsim.routing.pt.raptor.CapacityDependentInVehicleCostCalculator;
+import ch.sbb.matsim.routing.pt.raptor.DefaultRaptorInVehicleCostCalculator;
+import ch.sbb.matsim.routing.pt.raptor.OccupancyData;
+import ch.sbb.matsim.routing.pt.raptor.OccupancyTracker;
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptor;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+
+/**
+ * Measures the routing throughput of {@link SwissRailRaptor} on a synthetic grid schedule, once with the default
+ * in-vehicle costs and once with the {@link CapacityDependentInVehicleCostCalculator}, which queries the occupancy
+ * of every route segment from the {@link OccupancyData} collected by the {@link OccupancyTracker}.
+ * Arguments: number of lines per direction of the grid (default 30), number of queries (default 2000).
+ */
+public class RaptorOccupancyBenchmark {
+
+	public static void main(String[] args) {
+		int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		TransitStopFacility[][] stops = createGridSchedule(scenario, gridSize);
+
+		OccupancyData occData = new OccupancyData();
+		long start = System.nanoTime();
+		int eventsCount = simulateVehicles(scenario, occData);
+		System.out.println(String.format("%d vehicle events handled in %.2f s", eventsCount, (System.nanoTime() - start) / 1e9));
+
+		SwissRailRaptorData data = SwissRailRaptorData.create(scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(config), scenario.getNetwork(), occData);
+		SwissRailRaptor defaultRaptor = new SwissRailRaptor.Builder(data, config).with(new DefaultRaptorInVehicleCostCalculator()).build();
+		SwissRailRaptor occupancyRaptor = new SwissRailRaptor.Builder(data, config).with(new CapacityDependentInVehicleCostCalculator()).build();
+
+		Random random = new Random(4711);
+		TransitStopFacility[] fromStops = new TransitStopFacility[queries];
+		TransitStopFacility[] toStops = new TransitStopFacility[queries];
+		double[] departureTimes = new double[queries];
+		for (int i = 0; i < queries; i++) {
+			fromStops[i] = stops[random.nextInt(gridSize)][random.nextInt(gridSize)];
+			toStops[i] = stops[random.nextInt(gridSize)][random.nextInt(gridSize)];
+			departureTimes[i] = 6 * 3600 + random.nextInt(3 * 3600);
+		}
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("benchmark", Person.class));
+
+		start = System.nanoTime();
+		occupancyRaptor.calcRoute(fromStops[0], toStops[0], departureTimes[0], person);
+		System.out.println(String.format("first query including occupancy snapshot: %.2f ms", (System.nanoTime() - start) / 1e6));
+
+		for (int round = 0; round < 3; round++) {
+			System.out.println(String.format("round %d: default %.3f ms/query, occupancy %.3f ms/query",
+					round, measure(defaultRaptor, fromStops, toStops, departureTimes, person), measure(occupancyRaptor, fromStops, toStops, departureTimes, person)));
+		}
+	}
+
+	private static double measure(SwissRailRaptor raptor, TransitStopFacility[] fromStops, TransitStopFacility[] toStops, double[] departureTimes, Person person) {
+		long start = System.nanoTime();
+		for (int i = 0; i < fromStops.length; i++) {
+			raptor.calcRoute(fromStops[i], toStops[i], departureTimes[i], person);
+		}
+		return (System.nanoTime() - start) / 1e6 / fromStops.length;
+	}
+
+	/**
+	 * Creates a horizontal and a vertical line in both directions for every row and column of a grid of stops.
+	 * All stops are located on the same link, as the network is irrelevant for the routing.
+	 */
+	private static TransitStopFacility[][] createGridSchedule(Scenario scenario, int size) {
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(size * 500, size * 500));
+		Id<Link> linkId = Id.create("1", Link.class);
+		NetworkUtils.createAndAddLink(network, linkId, node1, node2, 1000, 10, 1000, 1);
+
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory f = schedule.getFactory();
+		TransitStopFacility[][] stops = new TransitStopFacility[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				stops[x][y] = f.createTransitStopFacility(Id.create(x + "_" + y, TransitStopFacility.class), new Coord(x * 500, y * 500), false);
+				stops[x][y].setLinkId(linkId);
+				schedule.addStopFacility(stops[x][y]);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			List<TransitStopFacility> row = new ArrayList<>();
+			List<TransitStopFacility> column = new ArrayList<>();
+			for (int j = 0; j < size; j++) {
+				row.add(stops[j][i]);
+				column.add(stops[i][j]);
+			}
+			addLine(schedule, "row" + i, row, linkId);
+			addLine(schedule, "column" + i, column, linkId);
+		}
+		return stops;
+	}
+
+	private static void addLine(TransitSchedule schedule, String name, List<TransitStopFacility> stops, Id<Link> linkId) {
+		TransitScheduleFactory f = schedule.getFactory();
+		TransitLine line = f.createTransitLine(Id.create(name, TransitLine.class));
+		schedule.addTransitLine(line);
+		for (int direction = 0; direction < 2; direction++) {
+			List<TransitRouteStop> routeStops = new ArrayList<>();
+			for (int i = 0; i < stops.size(); i++) {
+				TransitStopFacility stop = stops.get(direction == 0 ? i : stops.size() - 1 - i);
+				routeStops.add(f.createTransitRouteStop(stop, i * 90.0, i * 90.0 + 30));
+			}
+			TransitRoute route = f.createTransitRoute(Id.create(name + "_" + direction, TransitRoute.class), RouteUtils.createLinkNetworkRouteImpl(linkId, linkId), routeStops, "bus");
+			for (int time = 5 * 3600; time < 11 * 3600; time += 600) {
+				Departure dep = f.createDeparture(Id.create(name + "_" + direction + "_" + time, Departure.class), time);
+				dep.setVehicleId(Id.create(dep.getId().toString(), Vehicle.class));
+				route.addDeparture(dep);
+			}
+			line.addRoute(route);
+		}
+	}
+
+	/**
+	 * Generates the events of the transit vehicles serving all departures. There are no passengers, but the
+	 * occupancy of every departure at every stop is recorded.
+	 */
+	private static int simulateVehicles(Scenario scenario, OccupancyData occData) {
+		OccupancyTracker tracker = new OccupancyTracker(occData, scenario, new DefaultRaptorInVehicleCostCalculator(), EventsUtils.createEventsManager(), new SubpopulationScoringParameters(scenario));
+		int count = 0;
+		for (TransitLine line : scenario.getTransitSchedule().getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				for (Departure dep : route.getDepartures().values()) {
+					double time = dep.getDepartureTime();
+					Id<Vehicle> vehicleId = dep.getVehicleId();
+					tracker.handleEvent(new TransitDriverStartsEvent(time, Id.create("driver_" + vehicleId, Person.class), vehicleId, line.getId(), route.getId(), dep.getId()));
+					count++;
+					for (TransitRouteStop routeStop : route.getStops()) {
+						Id<TransitStopFacility> stopId = routeStop.getStopFacility().getId();
+						tracker.handleEvent(new VehicleArrivesAtFacilityEvent(time + routeStop.getArrivalOffset().seconds(), vehicleId, stopId, 0.0));
+						tracker.handleEvent(new VehicleDepartsAtFacilityEvent(time + routeStop.getDepartureOffset().seconds(), vehicleId, stopId, 0.0));
+						count += 2;
+					}
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.events.RingBufferEventsManager;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares the throughput of the {@link ParallelEventsManager} with the {@link RingBufferEventsManager}, with the
+ * same number of threads and queue size, synchronized on every simulated time step like in the QSim.
+ * Arguments: number of events (default 20'000'000), number of handlers (default 4), number of threads (default 2),
+ * events per time step (default 1000), queue size (default 65536).
+ */
+public class RingBufferEventsBenchmark {
+
+	public static void main(String[] args) {
+		int numberOfEvents = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+		int numberOfHandlers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int numberOfThreads = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int eventsPerStep = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		int queueSize = args.length > 4 ? Integer.parseInt(args[4]) : 65536;
+
+		Id<Vehicle> vehicleId = Id.create(1, Vehicle.class);
+		Id<Link> linkId = Id.create(1, Link.class);
+
+		for (int round = 0; round < 3; round++) {
+			for (boolean ringBuffer : new boolean[] { false, true }) {
+				EventsManager events = ringBuffer
+						? new RingBufferEventsManager(true, numberOfThreads, queueSize)
+						: new ParallelEventsManager(true, numberOfThreads, queueSize);
+				CountingHandler[] handlers = new CountingHandler[numberOfHandlers];
+				for (int h = 0; h < numberOfHandlers; h++) {
+					handlers[h] = new CountingHandler();
+					events.addHandler(handlers[h]);
+				}
+
+				long gcCount = getGarbageCollectionCount();
+				long start = System.nanoTime();
+				events.initProcessing();
+				for (int i = 0; i < numberOfEvents; i++) {
+					double time = i / eventsPerStep;
+					if (i % 2 == 0) {
+						events.processEvent(new LinkEnterEvent(time, vehicleId, linkId));
+					} else {
+						events.processEvent(new LinkLeaveEvent(time, vehicleId, linkId));
+					}
+					if ((i + 1) % eventsPerStep == 0) {
+						events.afterSimStep(time);
+					}
+				}
+				events.finishProcessing();
+				long nanos = System.nanoTime() - start;
+
+				long count = 0;
+				for (CountingHandler handler : handlers) {
+					count += handler.counter;
+				}
+				System.out.println(String.format("round %d: %s: %.0f ms, %.1f million events/s (%d calls), %d garbage collections",
+						round, events.getClass().getSimpleName(), nanos / 1e6, numberOfEvents * 1e3 / nanos, count,
+						getGarbageCollectionCount() - gcCount));
+			}
+		}
+	}
+
+	private static long getGarbageCollectionCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.counter++;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.speedy.SpeedyCostSnapshot;
+import org.matsim.core.router.speedy.SpeedyDijkstra;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares route queries of {@link SpeedyDijkstra} using a {@link TravelTimeCalculator} and the default travel
+ * disutility with queries using a {@link SpeedyCostSnapshot} of them.
+ * Arguments: size of the grid network (default 300), number of queries (default 2000).
+ */
+public class SpeedyCostSnapshotBenchmark {
+
+	public static void main(String[] args) {
+		int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+		Random random = new Random(4711);
+		Network network = createGridNetwork(gridSize, random);
+		Config config = ConfigUtils.createConfig();
+		config.plansCalcRoute().setRoutingRandomness(0.0);
+
+		TravelTimeCalculator ttCalculator = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		addCongestion(network, ttCalculator, random);
+		TravelTime tt = ttCalculator.getLinkTravelTimes();
+		TravelDisutility td = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, config).createTravelDisutility(tt);
+		SpeedyGraph graph = new SpeedyGraph(network);
+
+		long start = System.nanoTime();
+		SpeedyCostSnapshot snapshot = new SpeedyCostSnapshot(graph, tt, td, config.travelTimeCalculator().getTraveltimeBinSize(), 30 * 3600);
+		System.out.println(String.format("snapshot of %d links created in %.2f s", network.getLinks().size(), (System.nanoTime() - start) / 1e9));
+
+		LeastCostPathCalculator original = new SpeedyDijkstra(graph, tt, td);
+		LeastCostPathCalculator compiled = new SpeedyDijkstra(graph, snapshot, snapshot);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Node[] fromNodes = new Node[queries];
+		Node[] toNodes = new Node[queries];
+		double[] departureTimes = new double[queries];
+		for (int i = 0; i < queries; i++) {
+			fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			toNodes[i] = nodes[random.nextInt(nodes.length)];
+			departureTimes[i] = 6 * 3600 + random.nextInt(4 * 3600);
+		}
+
+		int identical = 0;
+		for (int i = 0; i < queries; i++) {
+			Path p1 = original.calcLeastCostPath(fromNodes[i], toNodes[i], departureTimes[i], null, null);
+			Path p2 = compiled.calcLeastCostPath(fromNodes[i], toNodes[i], departureTimes[i], null, null);
+			if (p1.links.equals(p2.links)) {
+				identical++;
+			}
+		}
+		System.out.println(String.format("identical routes: %d of %d", identical, queries));
+
+		for (int round = 0; round < 3; round++) {
+			System.out.println(String.format("round %d: original %.3f ms/query, snapshot %.3f ms/query",
+					round, measure(original, fromNodes, toNodes, departureTimes), measure(compiled, fromNodes, toNodes, departureTimes)));
+		}
+	}
+
+	private static double measure(LeastCostPathCalculator router, Node[] fromNodes, Node[] toNodes, double[] departureTimes) {
+		long start = System.nanoTime();
+		for (int i = 0; i < fromNodes.length; i++) {
+			router.calcLeastCostPath(fromNodes[i], toNodes[i], departureTimes[i], null, null);
+		}
+		return (System.nanoTime() - start) / 1e6 / fromNodes.length;
+	}
+
+	private static Network createGridNetwork(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory nf = network.getFactory();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = nf.createNode(Id.create(x + "_" + y, Node.class), new Coord(x * 200, y * 200));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], random);
+					addLink(network, nodes[x + 1][y], nodes[x][y], random);
+				}
+				if (y + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], random);
+					addLink(network, nodes[x][y + 1], nodes[x][y], random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to, Random random) {
+		Link link = network.getFactory().createLink(Id.create(from.getId() + "-" + to.getId(), Link.class), from, to);
+		link.setLength(200 + random.nextInt(100));
+		link.setFreespeed(8.33 + random.nextInt(4) * 5.55);
+		link.setCapacity(1000);
+		link.setNumberOfLanes(1);
+		network.addLink(link);
+	}
+
+	/**
+	 * Adds observed travel times for a third of all links during the morning peak.
+	 */
+	private static void addCongestion(Network network, TravelTimeCalculator ttCalculator, Random random) {
+		Id<Vehicle> vehicleId = Id.create("probe", Vehicle.class);
+		for (Link link : network.getLinks().values()) {
+			if (random.nextInt(3) == 0) {
+				double freespeedTravelTime = link.getLength() / link.getFreespeed();
+				for (int hour = 6; hour < 10; hour++) {
+					double enterTime = hour * 3600 + random.nextInt(3600);
+					ttCalculator.handleEvent(new LinkEnterEvent(enterTime, vehicleId, link.getId()));
+					ttCalculator.handleEvent(new LinkLeaveEvent(enterTime + freespeedTravelTime * (1 + 3 * random.nextDouble()), vehicleId, link.getId()));
+				}
+			}
+		}
+	}
+}
@@ -13,6 +13,7 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -70,6 +71,9 @@ import org.opengis.feature.simple.SimpleFeature;
  * Main class to calculate skim matrices. Provides a main-method to be directly started from the command line, but the main-method also acts as a template for custom code using the skims calculation.
  * <p>
  * All calculated matrices are written to files with fixed names (see constants in this class) in an output directory.
+ * <p>
+ * If binary output is enabled (see {@link #setBinaryOutput(boolean)}), the matrices are not kept on the heap, but are calculated directly in memory-mapped binary files (see {@link FloatMatrixIO}),
+ * which use the same file names, but with the ending {@value #BINARY_FILENAME_SUFFIX} instead of <code>.csv.gz</code>. This allows calculating skims for models with many zones.
  *
  * @author mrieser / SBB
  */
@@ -87,12 +91,14 @@ public class CalculateSkimMatrices {
     public static final String PT_TRAINSHARE_BYTIME_FILENAME = "pt_trainshare_bytime.csv.gz";
     public static final String PT_TRANSFERCOUNTS_FILENAME = "pt_transfercounts.csv.gz";
     public static final String BEELINE_DISTANCE_FILENAME = "beeline_distances.csv.gz";
+    public static final String BINARY_FILENAME_SUFFIX = ".bin";
     public static final String ZONE_LOCATIONS_FILENAME = "zone_coordinates.csv";
     private static final Logger log = Logger.getLogger(CalculateSkimMatrices.class);
     private final static GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
     private final String outputDirectory;
     private final int numberOfThreads;
+    private boolean binaryOutput = false;
     private Map<String, Coord[]> coordsPerZone = null;
 
     public CalculateSkimMatrices(String outputDirectory, int numberOfThreads) {
@@ -113,13 +119,33 @@ public class CalculateSkimMatrices {
         this.numberOfThreads = numberOfThreads;
     }
 
-    private static <T> void combineMatrices(FloatMatrix<T> matrix1, FloatMatrix<T> matrix2) {
-        Set<T> ids = matrix2.id2index.keySet();
-        for (T fromId : ids) {
-            for (T toId : ids) {
-                float value2 = matrix2.get(fromId, toId);
-                matrix1.add(fromId, toId, value2);
+    /**
+     * @param binaryOutput if <code>true</code>, the matrices are calculated directly in memory-mapped binary files instead of being written as CSV files after the calculation.
+     */
+    public void setBinaryOutput(boolean binaryOutput) {
+        this.binaryOutput = binaryOutput;
+    }
+
+    private FloatMatrix.Factory<String> createMatrixFactory(String prefix) {
+        if (!this.binaryOutput) {
+            return (name, zones, defaultValue) -> new FloatMatrix<>(zones, defaultValue);
+        }
+        return (name, zones, defaultValue) -> {
+            try {
+                return FloatMatrixIO.createBinary(zones, defaultValue, this.outputDirectory + "/" + prefix + name + BINARY_FILENAME_SUFFIX);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        };
+    }
+
+    private void writeMatrix(FloatMatrix<String> matrix, String prefix, String filename) throws IOException {
+        if (matrix.isMemoryMapped()) {
+            matrix.flush();
+        } else if (this.binaryOutput) {
+            FloatMatrixIO.writeAsBinary(matrix, this.outputDirectory + "/" + prefix + filename.replace(".csv.gz", BINARY_FILENAME_SUFFIX));
+        } else {
+            FloatMatrixIO.writeAsCSV(matrix, this.outputDirectory + "/" + prefix + filename);
         }
     }
 
@@ -316,7 +342,7 @@ public class CalculateSkimMatrices {
         FloatMatrix<String> beelineMatrix = BeelineDistanceMatrix.calculateBeelineDistanceMatrix(this.coordsPerZone.keySet(), coordsPerZone, numberOfThreads);
 
         log.info("write beeline distance matrix to " + outputDirectory);
-        FloatMatrixIO.writeAsCSV(beelineMatrix, outputDirectory + "/" + BEELINE_DISTANCE_FILENAME);
+        writeMatrix(beelineMatrix, "", BEELINE_DISTANCE_FILENAME);
     }
 
     public final void calculateNetworkMatrices(String networkFilename, String eventsFilename, double[] times, Config config, String outputPrefix, Predicate<Link> xy2linksPredicate)
@@ -349,29 +375,22 @@ public class CalculateSkimMatrices {
         log.info("filter car-only network for assigning links to locations");
         final Network xy2linksNetwork = extractXy2LinksNetwork(carNetwork, xy2linksPredicate);
 
-        log.info("calc CAR matrix for " + Time.writeTime(times[0]));
-        NetworkIndicators<String> netIndicators = NetworkSkimMatrices.calculateSkimMatrices(
-                xy2linksNetwork, carNetwork, coordsPerZone, times[0], tt, td, this.numberOfThreads);
-
+        // the matrices of all departure times are directly averaged into the same matrices
+        NetworkIndicators<String> netIndicators = new NetworkIndicators<>(coordsPerZone.keySet(), createMatrixFactory(prefix));
+        int timesCount = times.length;
         if (tt instanceof FreeSpeedTravelTime) {
             log.info("Do not calculate CAR matrices for other times as only freespeed is being used");
-        } else {
-            for (int i = 1; i < times.length; i++) {
-                log.info("calc CAR matrices for " + Time.writeTime(times[i]));
-                NetworkIndicators<String> indicators2 = NetworkSkimMatrices.calculateSkimMatrices(
-                        xy2linksNetwork, carNetwork, coordsPerZone, times[i], tt, td, this.numberOfThreads);
-                log.info("merge CAR matrices for " + Time.writeTime(times[i]));
-                combineMatrices(netIndicators.travelTimeMatrix, indicators2.travelTimeMatrix);
-                combineMatrices(netIndicators.distanceMatrix, indicators2.distanceMatrix);
-            }
-            log.info("re-scale CAR matrices after all data is merged.");
-            netIndicators.travelTimeMatrix.multiply((float) (1.0 / times.length));
-            netIndicators.distanceMatrix.multiply((float) (1.0 / times.length));
+            timesCount = 1;
+        }
+        for (int i = 0; i < timesCount; i++) {
+            log.info("calc CAR matrices for " + Time.writeTime(times[i]));
+            NetworkSkimMatrices.calculateSkimMatrices(
+                    xy2linksNetwork, carNetwork, coordsPerZone, times[i], tt, td, this.numberOfThreads, netIndicators, (float) (1.0 / timesCount));
         }
 
         log.info("write CAR matrices to " + outputDirectory + (prefix.isEmpty() ? "" : (" with prefix " + prefix)));
-        FloatMatrixIO.writeAsCSV(netIndicators.travelTimeMatrix, outputDirectory + "/" + prefix + CAR_TRAVELTIMES_FILENAME);
-        FloatMatrixIO.writeAsCSV(netIndicators.distanceMatrix, outputDirectory + "/" + prefix + CAR_DISTANCES_FILENAME);
+        writeMatrix(netIndicators.travelTimeMatrix, prefix, CAR_TRAVELTIMES_FILENAME);
+        writeMatrix(netIndicators.distanceMatrix, prefix, CAR_DISTANCES_FILENAME);
     }
 
     private Network extractXy2LinksNetwork(Network network, Predicate<Link> xy2linksPredicate) {
@@ -420,18 +439,20 @@ public class CalculateSkimMatrices {
 
         log.info("calc PT matrices for " + Time.writeTime(startTime) + " - " + Time.writeTime(endTime));
         PTSkimMatrices.PtIndicators<String> matrices = PTSkimMatrices.calculateSkimMatrices(
-                raptorData, this.coordsPerZone, startTime, endTime, 120, raptorParameters, this.numberOfThreads, trainDetector);
+                raptorData, this.coordsPerZone, startTime, endTime, 120, raptorParameters, this.numberOfThreads, trainDetector, createMatrixFactory(prefix));
 
         log.info("write PT matrices to " + outputDirectory + (prefix.isEmpty() ? "" : (" with prefix " + prefix)));
-        FloatMatrixIO.writeAsCSV(matrices.adaptionTimeMatrix, outputDirectory + "/" + prefix + PT_ADAPTIONTIMES_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.frequencyMatrix, outputDirectory + "/" + prefix + PT_FREQUENCIES_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.distanceMatrix, outputDirectory + "/" + prefix + PT_DISTANCES_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.travelTimeMatrix, outputDirectory + "/" + prefix + PT_TRAVELTIMES_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.accessTimeMatrix, outputDirectory + "/" + prefix + PT_ACCESSTIMES_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.egressTimeMatrix, outputDirectory + "/" + prefix + PT_EGRESSTIMES_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.transferCountMatrix, outputDirectory + "/" + prefix + PT_TRANSFERCOUNTS_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.trainTravelTimeShareMatrix, outputDirectory + "/" + prefix + PT_TRAINSHARE_BYTIME_FILENAME);
-        FloatMatrixIO.writeAsCSV(matrices.trainDistanceShareMatrix, outputDirectory + "/" + prefix + PT_TRAINSHARE_BYDISTANCE_FILENAME);
+        writeMatrix(matrices.adaptionTimeMatrix, prefix, PT_ADAPTIONTIMES_FILENAME);
+        writeMatrix(matrices.frequencyMatrix, prefix, PT_FREQUENCIES_FILENAME);
+        writeMatrix(matrices.distanceMatrix, prefix, PT_DISTANCES_FILENAME);
+        writeMatrix(matrices.travelTimeMatrix, prefix, PT_TRAVELTIMES_FILENAME);
+        writeMatrix(matrices.accessTimeMatrix, prefix, PT_ACCESSTIMES_FILENAME);
+        writeMatrix(matrices.egressTimeMatrix, prefix, PT_EGRESSTIMES_FILENAME);
+        writeMatrix(matrices.transferCountMatrix, prefix, PT_TRANSFERCOUNTS_FILENAME);
+        writeMatrix(matrices.trainTravelTimeShareMatrix, prefix, PT_TRAINSHARE_BYTIME_FILENAME);
+        writeMatrix(matrices.trainDistanceShareMatrix, prefix, PT_TRAINSHARE_BYDISTANCE_FILENAME);
+        // the data counts are only written when using binary output
+        matrices.dataCountMatrix.flush();
     }
 
     private String findZone(Coord coord, SpatialIndex zonesQt, String zonesIdAttributeName) {
@@ -4,7 +4,10 @@
 
 package ch.sbb.matsim.analysis.skims;
 
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -26,18 +29,38 @@ import java.util.Set;
  *         So, as long as the matrix has entries in at least 1/16.5 = 6% or 1/25 = 4% of all cells, the simple float array should be more efficient.
  *         <p>
  *         For larger matrices the absolute volumes become even more impressive. For an 8000x8000 matrix, the float array will use 250MB, while the alternatives will use 4.5 or 6.5 GB respectively.
+ *         <p>
+ *         The cell values are accessed through a {@link FloatBuffer}, which is either backed by a float array on the heap, or by a memory-mapped file (see
+ *         {@link FloatMatrixIO#createBinary(Set, float, String)} and {@link FloatMatrixIO#mapBinary(String, FloatMatrixIO.IdConverter, boolean)}). Memory-mapped matrices do not use any heap
+ *         for the cell values, so many large matrices can be calculated or read at the same time.
  */
 public class FloatMatrix<T> {
 
     final Map<T, Integer> id2index;
     private final int size;
-    private final float[] data;
+    private final FloatBuffer data;
+    private final MappedByteBuffer mappedBuffer;
 
     public FloatMatrix(Set<T> zones, float defaultValue) {
+        this(zones, FloatBuffer.allocate(zones.size() * zones.size()), null);
+        Arrays.fill(this.data.array(), defaultValue);
+    }
+
+    /**
+     * Creates a matrix using the given buffer to store the cell values, in row-major order.
+     *
+     * @param zones the row/column identifiers, in the order of the rows in the buffer
+     * @param data the buffer to store the cell values in, must have a capacity of exactly zones.size() * zones.size()
+     * @param mappedBuffer the memory-mapped file <code>data</code> is a view of, or <code>null</code> if data is stored on the heap
+     */
+    FloatMatrix(Collection<T> zones, FloatBuffer data, MappedByteBuffer mappedBuffer) {
         this.size = zones.size();
+        if (data.capacity() != this.size * this.size) {
+            throw new IllegalArgumentException("The buffer must have a capacity of " + this.size + " x " + this.size + ", but has " + data.capacity());
+        }
         this.id2index = new HashMap<>((int) (this.size * 1.5));
-        this.data = new float[this.size * this.size];
-        Arrays.fill(this.data, defaultValue);
+        this.data = data;
+        this.mappedBuffer = mappedBuffer;
         int index = 0;
         for (T t : zones) {
             this.id2index.put(t, index);
@@ -47,21 +70,21 @@ public class FloatMatrix<T> {
 
     public float set(T from, T to, float value) {
         int index = getIndex(from, to);
-        float oldValue = this.data[index];
-        this.data[index] = value;
+        float oldValue = this.data.get(index);
+        this.data.put(index, value);
         return oldValue;
     }
 
     public float get(T from, T to) {
         int index = getIndex(from, to);
-        return this.data[index];
+        return this.data.get(index);
     }
 
     public float add(T from, T to, float value) {
         int index = getIndex(from, to);
-        float oldValue = this.data[index];
+        float oldValue = this.data.get(index);
         float newValue = oldValue + value;
-        this.data[index] = newValue;
+        this.data.put(index, newValue);
         return newValue;
     }
 
@@ -73,9 +96,9 @@ public class FloatMatrix<T> {
      */
     public float multiply(T from, T to, float factor) {
         int index = getIndex(from, to);
-        float oldValue = this.data[index];
+        float oldValue = this.data.get(index);
         float newValue = oldValue * factor;
-        this.data[index] = newValue;
+        this.data.put(index, newValue);
         return newValue;
     }
 
@@ -85,14 +108,51 @@ public class FloatMatrix<T> {
      * @param factor the multiplication factor
      */
     public void multiply(float factor) {
-        for (int i = 0; i < this.data.length; i++) {
-            this.data[i] *= factor;
+        for (int i = 0, n = this.data.capacity(); i < n; i++) {
+            this.data.put(i, this.data.get(i) * factor);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the cell values are stored in a memory-mapped file instead of on the heap.
+     */
+    public boolean isMemoryMapped() {
+        return this.mappedBuffer != null;
+    }
+
+    /**
+     * Forces all changes of a memory-mapped matrix to be written to its file. Does nothing for matrices stored on the heap.
+     */
+    public void flush() {
+        if (this.mappedBuffer != null) {
+            this.mappedBuffer.force();
         }
     }
 
+    /**
+     * @return a view of all cell values in row-major order, independent of the position and limit of other views.
+     */
+    FloatBuffer getData() {
+        return this.data.duplicate();
+    }
+
     private int getIndex(T from, T to) {
         int fromIndex = this.id2index.get(from);
         int toIndex = this.id2index.get(to);
         return fromIndex * this.size + toIndex;
     }
+
+    /**
+     * Creates the matrices for the skim calculations, allowing to store them either on the heap or in memory-mapped files.
+     *
+     * @param <T> identifier type for matrix entries
+     */
+    @FunctionalInterface
+    public interface Factory<T> {
+
+        /**
+         * @param name the name of the matrix, e.g. <code>car_traveltimes</code>
+         */
+        FloatMatrix<T> create(String name, Set<T> zones, float defaultValue);
+    }
 }
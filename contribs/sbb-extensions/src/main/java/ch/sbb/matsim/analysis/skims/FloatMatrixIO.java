@@ -11,11 +11,32 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.matsim.core.utils.io.IOUtils;
 
 /**
- * Helper methods to write and read matrices as CSV files (well, actually semi-colon separated files).
+ * Helper methods to write and read matrices as CSV files (well, actually semi-colon separated files), or as binary files.
+ * <p>
+ * The binary format is designed to be memory-mapped, so large matrices can be written and read without keeping them on the heap. All values are stored in little-endian byte order:
+ * <ul>
+ * <li>int magic number (<code>0x584D4C46</code>, which reads as "FLMX"), int format version, int number of zones, int offset of the cell values in bytes</li>
+ * <li>for each zone: int length of the zone id in bytes, followed by the UTF-8 encoded zone id</li>
+ * <li>padding up to the offset of the cell values, which is always a multiple of 8</li>
+ * <li>the cell values as 4-byte floats in row-major order, with the rows and columns in the order of the zone ids</li>
+ * </ul>
  *
  * @author mrieser / SBB
  */
@@ -25,6 +46,10 @@ public final class FloatMatrixIO {
     private final static String HEADER = "FROM" + SEP + "TO" + SEP + "VALUE";
     private final static String NL = "\n";
 
+    private final static int BINARY_MAGIC = 0x584D4C46;
+    private final static int BINARY_VERSION = 1;
+    private final static int BINARY_HEADER_SIZE = 16;
+
     public static <T> void writeAsCSV(FloatMatrix<T> matrix, String filename) throws IOException {
         try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
             writeCSV(matrix, writer);
@@ -79,6 +104,107 @@ public final class FloatMatrixIO {
         }
     }
 
+    /**
+     * Creates a new binary matrix file with all cells set to the default value, and returns a matrix that is directly backed by the memory-mapped file.
+     * All changes to the matrix are written to the file, see {@link FloatMatrix#flush()}.
+     */
+    public static <T> FloatMatrix<T> createBinary(Set<T> zones, float defaultValue, String filename) throws IOException {
+        FloatMatrix<T> matrix = createBinary(zones, filename);
+        if (defaultValue != 0.0f) {
+            // the file was newly created, so all cells are 0 already
+            FloatBuffer data = matrix.getData();
+            for (int i = 0, n = data.capacity(); i < n; i++) {
+                data.put(i, defaultValue);
+            }
+        }
+        return matrix;
+    }
+
+    private static <T> FloatMatrix<T> createBinary(Collection<T> zones, String filename) throws IOException {
+        List<byte[]> encodedIds = new ArrayList<>(zones.size());
+        int headerSize = BINARY_HEADER_SIZE;
+        for (T zoneId : zones) {
+            byte[] encodedId = zoneId.toString().getBytes(StandardCharsets.UTF_8);
+            encodedIds.add(encodedId);
+            headerSize += 4 + encodedId.length;
+        }
+        int dataOffset = (headerSize + 7) & ~7;
+        long fileSize = dataOffset + 4L * zones.size() * zones.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A matrix with " + zones.size() + " zones is too large to be memory-mapped.");
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(BINARY_MAGIC);
+        buffer.putInt(BINARY_VERSION);
+        buffer.putInt(zones.size());
+        buffer.putInt(dataOffset);
+        for (byte[] encodedId : encodedIds) {
+            buffer.putInt(encodedId.length);
+            buffer.put(encodedId);
+        }
+        buffer.position(dataOffset);
+        FloatBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        return new FloatMatrix<>(zones, data, buffer);
+    }
+
+    /**
+     * Maps an existing binary matrix file into memory. The returned matrix does not keep the cell values on the heap.
+     *
+     * @param writable if <code>true</code>, changes to the matrix are written to the file; otherwise, the matrix must not be modified.
+     */
+    public static <T> FloatMatrix<T> mapBinary(String filename, IdConverter<T> idConverter, boolean writable) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = writable
+                ? FileChannel.open(Paths.get(filename), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int magic = buffer.getInt();
+        if (magic != BINARY_MAGIC) {
+            throw new IOException("File " + filename + " is not a binary matrix file.");
+        }
+        int version = buffer.getInt();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported version " + version + " of binary matrix file " + filename);
+        }
+        int size = buffer.getInt();
+        int dataOffset = buffer.getInt();
+        List<T> zones = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte[] encodedId = new byte[buffer.getInt()];
+            buffer.get(encodedId);
+            zones.add(idConverter.parse(new String(encodedId, StandardCharsets.UTF_8)));
+        }
+        if (buffer.capacity() != dataOffset + 4L * size * size) {
+            throw new IOException("Binary matrix file " + filename + " has an unexpected size, it might be truncated.");
+        }
+        buffer.position(dataOffset);
+        FloatBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        return new FloatMatrix<>(zones, data, buffer);
+    }
+
+    /**
+     * Reads a binary matrix file into a new matrix stored on the heap.
+     */
+    public static <T> FloatMatrix<T> readAsBinary(String filename, IdConverter<T> idConverter) throws IOException {
+        FloatMatrix<T> mapped = mapBinary(filename, idConverter, false);
+        FloatMatrix<T> matrix = new FloatMatrix<>(Arrays.asList(getSortedIds(mapped)), FloatBuffer.allocate(mapped.getData().capacity()), null);
+        matrix.getData().put(mapped.getData());
+        return matrix;
+    }
+
+    public static <T> void writeAsBinary(FloatMatrix<T> matrix, String filename) throws IOException {
+        FloatMatrix<T> binary = createBinary(Arrays.asList(getSortedIds(matrix)), filename);
+        binary.getData().put(matrix.getData());
+        binary.flush();
+    }
+
     private static <T> T[] getSortedIds(FloatMatrix<T> matrix) {
         // the array-creation is only safe as long as the generated array is only within this class!
         @SuppressWarnings("unchecked")
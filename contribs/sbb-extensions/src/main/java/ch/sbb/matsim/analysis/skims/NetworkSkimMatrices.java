@@ -43,6 +43,17 @@ public final class NetworkSkimMatrices {
 
     public static <T> NetworkIndicators<T> calculateSkimMatrices(Network xy2lNetwork, Network routingNetwork, Map<T, Coord[]> coordsPerZone, double departureTime, TravelTime travelTime,
             TravelDisutility travelDisutility, int numberOfThreads) {
+        NetworkIndicators<T> networkIndicators = new NetworkIndicators<>(coordsPerZone.keySet(), (name, zones, defaultValue) -> new FloatMatrix<>(zones, defaultValue));
+        calculateSkimMatrices(xy2lNetwork, routingNetwork, coordsPerZone, departureTime, travelTime, travelDisutility, numberOfThreads, networkIndicators, 1.0f);
+        return networkIndicators;
+    }
+
+    /**
+     * Adds the skims for the given departure time, multiplied by <code>weight</code>, to the existing values in <code>networkIndicators</code>.
+     * This allows to average the skims of multiple departure times without keeping a separate set of matrices per departure time.
+     */
+    static <T> void calculateSkimMatrices(Network xy2lNetwork, Network routingNetwork, Map<T, Coord[]> coordsPerZone, double departureTime, TravelTime travelTime,
+            TravelDisutility travelDisutility, int numberOfThreads, NetworkIndicators<T> networkIndicators, float weight) {
         SpeedyGraph routingGraph = new SpeedyGraph(routingNetwork);
         Map<T, Node[]> nodesPerZone = new HashMap<>();
         for (Map.Entry<T, Coord[]> e : coordsPerZone.entrySet()) {
@@ -58,10 +69,8 @@ public final class NetworkSkimMatrices {
         }
 
         // prepare calculation
-        NetworkIndicators<T> networkIndicators = new NetworkIndicators<>(coordsPerZone.keySet());
-
         int numberOfPointsPerZone = coordsPerZone.values().iterator().next().length;
-        float avgFactor = (float) (1.0 / numberOfPointsPerZone / numberOfPointsPerZone);
+        float avgFactor = (float) (weight / numberOfPointsPerZone / numberOfPointsPerZone);
 
         // do calculation
         ConcurrentLinkedQueue<T> originZones = new ConcurrentLinkedQueue<>(coordsPerZone.keySet());
@@ -69,7 +78,7 @@ public final class NetworkSkimMatrices {
         Counter counter = new Counter("CAR-TravelTimeMatrix-" + Time.writeTime(departureTime) + " zone ", " / " + coordsPerZone.size());
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
-            RowWorker<T> worker = new RowWorker<>(originZones, coordsPerZone.keySet(), routingGraph, nodesPerZone, networkIndicators, departureTime, travelTime, travelDisutility, counter);
+            RowWorker<T> worker = new RowWorker<>(originZones, coordsPerZone.keySet(), routingGraph, nodesPerZone, networkIndicators, departureTime, travelTime, travelDisutility, avgFactor, counter);
             threads[i] = new Thread(worker, "CAR-TravelTimeMatrix-" + Time.writeTime(departureTime) + "-" + i);
             threads[i].start();
         }
@@ -82,11 +91,6 @@ public final class NetworkSkimMatrices {
                 e.printStackTrace();
             }
         }
-
-        networkIndicators.travelTimeMatrix.multiply(avgFactor);
-        networkIndicators.distanceMatrix.multiply(avgFactor);
-
-        return networkIndicators;
     }
 
     private static class RowWorker<T> implements Runnable {
@@ -101,10 +105,11 @@ public final class NetworkSkimMatrices {
         private final TravelTime travelTime;
         private final TravelDisutility travelDisutility;
         private final double departureTime;
+        private final float avgFactor;
         private final Counter counter;
 
         RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, SpeedyGraph graph, Map<T, Node[]> nodesPerZone, NetworkIndicators<T> networkIndicators, double departureTime,
-                  TravelTime travelTime, TravelDisutility travelDisutility, Counter counter) {
+                  TravelTime travelTime, TravelDisutility travelDisutility, float avgFactor, Counter counter) {
             this.originZones = originZones;
             this.destinationZones = destinationZones;
             this.graph = graph;
@@ -113,6 +118,7 @@ public final class NetworkSkimMatrices {
             this.departureTime = departureTime;
             this.travelTime = travelTime;
             this.travelDisutility = travelDisutility;
+            this.avgFactor = avgFactor;
             this.counter = counter;
         }
 
@@ -140,8 +146,8 @@ public final class NetworkSkimMatrices {
                                     double currTime = currOptionalTime.orElseThrow(() -> new RuntimeException("Undefined Time"));
                                     double tt = currTime - this.departureTime;
                                     double dist = lcpTree.getDistance(nodeIndex);
-                                    this.networkIndicators.travelTimeMatrix.add(fromZoneId, toZoneId, (float) tt);
-                                    this.networkIndicators.distanceMatrix.add(fromZoneId, toZoneId, (float) dist);
+                                    this.networkIndicators.travelTimeMatrix.add(fromZoneId, toZoneId, (float) tt * this.avgFactor);
+                                    this.networkIndicators.distanceMatrix.add(fromZoneId, toZoneId, (float) dist * this.avgFactor);
                                 }
                             } else {
                                 // this might happen if a zone has no geometry, for whatever reason...
@@ -166,9 +172,9 @@ public final class NetworkSkimMatrices {
         final FloatMatrix<T> travelTimeMatrix;
         final FloatMatrix<T> distanceMatrix;
 
-        NetworkIndicators(Set<T> zones) {
-            this.travelTimeMatrix = new FloatMatrix<>(zones, 0);
-            this.distanceMatrix = new FloatMatrix<>(zones, 0);
+        NetworkIndicators(Set<T> zones, FloatMatrix.Factory<T> matrixFactory) {
+            this.travelTimeMatrix = matrixFactory.create("car_traveltimes", zones, 0);
+            this.distanceMatrix = matrixFactory.create("car_distances", zones, 0);
         }
     }
 
@@ -58,9 +58,19 @@ public class PTSkimMatrices {
 
     public static <T> PTSkimMatrices.PtIndicators<T> calculateSkimMatrices(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
             double stepSize_seconds, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector) {
+        return calculateSkimMatrices(raptorData, coordsPerZone, minDepartureTime, maxDepartureTime, stepSize_seconds, parameters, numberOfThreads, trainDetector,
+                (name, zones, defaultValue) -> new FloatMatrix<>(zones, defaultValue));
+    }
+
+    /**
+     * Same as {@link #calculateSkimMatrices(SwissRailRaptorData, Map, double, double, double, RaptorParameters, int, BiPredicate)}, but uses the given factory to create the resulting
+     * matrices, e.g. to write them directly into memory-mapped files.
+     */
+    public static <T> PTSkimMatrices.PtIndicators<T> calculateSkimMatrices(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
+            double stepSize_seconds, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector, FloatMatrix.Factory<T> matrixFactory) {
         // prepare calculation
         Set<T> zoneIds = coordsPerZone.keySet();
-        PtIndicators<T> pti = new PtIndicators<>(zoneIds);
+        PtIndicators<T> pti = new PtIndicators<>(zoneIds, matrixFactory);
         Config config = ConfigUtils.createConfig();
 
         // do calculation
@@ -325,18 +335,18 @@ public class PTSkimMatrices {
 
         public final FloatMatrix<T> dataCountMatrix; // how many values/routes were taken into account to calculate the averages
 
-        PtIndicators(Set<T> zones) {
-            this.adaptionTimeMatrix = new FloatMatrix<>(zones, 0);
-            this.frequencyMatrix = new FloatMatrix<>(zones, 0);
-
-            this.distanceMatrix = new FloatMatrix<>(zones, 0);
-            this.travelTimeMatrix = new FloatMatrix<>(zones, 0);
-            this.accessTimeMatrix = new FloatMatrix<>(zones, 0);
-            this.egressTimeMatrix = new FloatMatrix<>(zones, 0);
-            this.transferCountMatrix = new FloatMatrix<>(zones, 0);
-            this.dataCountMatrix = new FloatMatrix<>(zones, 0);
-            this.trainTravelTimeShareMatrix = new FloatMatrix<>(zones, 0);
-            this.trainDistanceShareMatrix = new FloatMatrix<>(zones, 0);
+        PtIndicators(Set<T> zones, FloatMatrix.Factory<T> matrixFactory) {
+            this.adaptionTimeMatrix = matrixFactory.create("pt_adaptiontimes", zones, 0);
+            this.frequencyMatrix = matrixFactory.create("pt_frequencies", zones, 0);
+
+            this.distanceMatrix = matrixFactory.create("pt_distances", zones, 0);
+            this.travelTimeMatrix = matrixFactory.create("pt_traveltimes", zones, 0);
+            this.accessTimeMatrix = matrixFactory.create("pt_accesstimes", zones, 0);
+            this.egressTimeMatrix = matrixFactory.create("pt_egresstimes", zones, 0);
+            this.transferCountMatrix = matrixFactory.create("pt_transfercounts", zones, 0);
+            this.dataCountMatrix = matrixFactory.create("pt_datacounts", zones, 0);
+            this.trainTravelTimeShareMatrix = matrixFactory.create("pt_trainshare_bytime", zones, 0);
+            this.trainDistanceShareMatrix = matrixFactory.create("pt_trainshare_bydistance", zones, 0);
         }
     }
 
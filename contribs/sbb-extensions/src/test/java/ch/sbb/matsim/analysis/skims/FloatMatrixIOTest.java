@@ -6,17 +6,23 @@ package ch.sbb.matsim.analysis.skims;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * @author mrieser / SBB
  */
 public class FloatMatrixIOTest {
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Test
     public void testIO() throws IOException {
         Set<String> zoneIds = new HashSet<>();
@@ -55,4 +61,56 @@ public class FloatMatrixIOTest {
         Assert.assertEquals(27.0f, matrix2.get("tres", "dos"), epsilon);
         Assert.assertEquals(64.0f, matrix2.get("tres", "tres"), epsilon);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBinaryIO() throws IOException {
+        Set<String> zoneIds = new HashSet<>();
+        zoneIds.add("un");
+        zoneIds.add("dos");
+        zoneIds.add("tres");
+        FloatMatrix<String> matrix = new FloatMatrix<>(zoneIds, 0.0f);
+        matrix.set("un", "dos", 3.0f);
+        matrix.set("dos", "tres", 16.0f);
+        matrix.set("tres", "un", Float.POSITIVE_INFINITY);
+
+        String filename = new File(this.tmpFolder.getRoot(), "matrix.bin").getAbsolutePath();
+        FloatMatrixIO.writeAsBinary(matrix, filename);
+
+        FloatMatrix<String> matrix2 = FloatMatrixIO.readAsBinary(filename, id -> id);
+        Assert.assertFalse(matrix2.isMemoryMapped());
+        FloatMatrix<String> matrix3 = FloatMatrixIO.mapBinary(filename, id -> id, false);
+        Assert.assertTrue(matrix3.isMemoryMapped());
+        for (String fromId : zoneIds) {
+            for (String toId : zoneIds) {
+                Assert.assertEquals(matrix.get(fromId, toId), matrix2.get(fromId, toId), 0.0f);
+                Assert.assertEquals(matrix.get(fromId, toId), matrix3.get(fromId, toId), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void testMemoryMappedMatrix() throws IOException {
+        Set<String> zoneIds = new HashSet<>();
+        zoneIds.add("un");
+        zoneIds.add("dos");
+        zoneIds.add("tres");
+
+        String filename = new File(this.tmpFolder.getRoot(), "matrix.bin").getAbsolutePath();
+        FloatMatrix<String> matrix = FloatMatrixIO.createBinary(zoneIds, 1.0f, filename);
+        Assert.assertTrue(matrix.isMemoryMapped());
+        Assert.assertEquals(1.0f, matrix.get("dos", "un"), 0.0f);
+        matrix.add("un", "dos", 2.0f);
+        matrix.multiply(2.0f);
+        matrix.flush();
+
+        FloatMatrix<String> matrix2 = FloatMatrixIO.mapBinary(filename, id -> id, true);
+        Assert.assertEquals(6.0f, matrix2.get("un", "dos"), 0.0f);
+        Assert.assertEquals(2.0f, matrix2.get("dos", "un"), 0.0f);
+        matrix2.set("tres", "tres", 42.0f);
+        matrix2.flush();
+
+        FloatMatrix<String> matrix3 = FloatMatrixIO.readAsBinary(filename, id -> id);
+        Assert.assertEquals(42.0f, matrix3.get("tres", "tres"), 0.0f);
+        Assert.assertEquals(6.0f, matrix3.get("un", "dos"), 0.0f);
+    }
+}
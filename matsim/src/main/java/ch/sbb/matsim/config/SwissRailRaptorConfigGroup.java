@@ -45,6 +45,10 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_TRANSFER_WALK_MARGIN = "transferWalkMargin";
     private static final String PARAM_TRANSFER_WALK_MARGIN_DESC = "time deducted from transfer walk leg during transfers between pt legs in order to avoid missing a vehicle by a few seconds due to delays.";
 
+    private static final String PARAM_TRANSFER_CACHE_FILE = "transferCacheFile";
+    private static final String PARAM_TRANSFER_CACHE_FILE_DESC = "If set, the transfers between route stops, which can take a long time to calculate for large schedules, are stored in this file and re-used by later runs. "
+            + "The file contains a checksum of the schedule and the relevant config values, so the transfers are re-calculated automatically if any of them changes.";
+
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
     private IntermodalAccessEgressModeSelection intermodalAccessEgressModeSelection = IntermodalAccessEgressModeSelection.CalcLeastCostModePerStop;
@@ -56,6 +60,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferPenaltyMaxCost = Double.POSITIVE_INFINITY;
     private double transferPenaltyHourlyCost = 0;
     private double transferWalkMargin = 5;
+    private String transferCacheFile = null;
 
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
@@ -117,6 +122,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.transferWalkMargin = transferWalkMargin;
     }
 
+    @StringGetter(PARAM_TRANSFER_CACHE_FILE)
+    public String getTransferCacheFile() {
+        return this.transferCacheFile;
+    }
+
+    @StringSetter(PARAM_TRANSFER_CACHE_FILE)
+    public void setTransferCacheFile(String transferCacheFile) {
+        this.transferCacheFile = transferCacheFile;
+    }
+
     @StringGetter(PARAM_USE_MODE_MAPPING)
     public boolean isUseModeMappingForPassengers() {
         return this.useModeMapping;
@@ -611,6 +626,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
         comments.put(PARAM_USE_CAPACITY_CONSTRAINTS, PARAM_USE_CAPACITY_CONSTRAINTS_DESC);
         comments.put(PARAM_TRANSFER_WALK_MARGIN, PARAM_TRANSFER_WALK_MARGIN_DESC);
+        comments.put(PARAM_TRANSFER_CACHE_FILE, PARAM_TRANSFER_CACHE_FILE_DESC);
         return comments;
     }
 
@@ -22,6 +22,13 @@ import java.util.ListIterator;
 import java.util.Map;
 
 /**
+ * Stores the occupancy data collected by the {@link OccupancyTracker} during the mobsim.
+ *
+ * For routing, the data is frozen into an immutable, array-based snapshot indexed by the route stops and
+ * departures of {@link SwissRailRaptorData}. The snapshot is built on first use, and can then be queried
+ * concurrently by all routing threads without any locking or map lookups. Whenever the tracker records new data,
+ * the snapshot is invalidated, so the next query rebuilds it from the current data.
+ *
  * @author mrieser / Simunto GmbH
  */
 public class OccupancyData {
@@ -31,7 +38,8 @@ public class OccupancyData {
 	final IdMap<TransitLine, LineData> lineData = new IdMap<>(TransitLine.class);
 	final Map<Id<Vehicle>, VehicleData> vehicleData = new HashMap<>();
 	final Map<Id<Person>, PassengerData> paxData = new HashMap<>();
-	private CacheData cache = null;
+	private volatile CacheData cache = null;
+	private volatile long version = 0;
 
 	public void reset() {
 		LOG.info("[SwissRailRaptor] Resetting ExecutionData");
@@ -39,6 +47,15 @@ public class OccupancyData {
 		this.vehicleData.clear();
 		this.paxData.clear();
 		this.cache = null;
+		invalidateCache();
+	}
+
+	/**
+	 * Marks the query-cache as outdated, must be called whenever departure data was added or changed.
+	 * Only the {@link OccupancyTracker} modifies the data, from a single thread, so incrementing is safe.
+	 */
+	void invalidateCache() {
+		this.version++;
 	}
 
 	public DepartureData getNextAvailableDeparture(Id<TransitLine> transitLine, Id<TransitRoute> transitRoute, Id<TransitStopFacility> stopFacility, double time) {
@@ -130,22 +147,38 @@ public class OccupancyData {
 		return offset + pos;
 	}
 
+	/**
+	 * @return the number of passengers in the vehicle serving the given departure when it left the given route stop,
+	 * or 0 if no such departure was observed.
+	 */
+	public int getPassengerCount(SwissRailRaptorData data, int routeStopIndex, int departureIndex) {
+		CacheData cache = getCache(data);
+		int[] paxCounts = cache.paxCountPerRouteStopPerDeparture[routeStopIndex];
+		if (paxCounts == null) {
+			return 0;
+		}
+		return paxCounts[departureIndex - data.routes[data.routeStops[routeStopIndex].transitRouteIndex].indexFirstDeparture];
+	}
+
 	private CacheData getCache(SwissRailRaptorData data) {
+		long version = this.version;
 		CacheData cache = this.cache;
-		if (cache == null) {
+		if (cache == null || cache.version != version) {
 			cache = buildCache(data);
 		}
 		return cache;
 	}
 
 	private synchronized CacheData buildCache(SwissRailRaptorData data) {
+		// read the version before the data, so changes during the build lead to another rebuild
+		long version = this.version;
 		CacheData cache = this.cache;
-		if (cache != null) {
+		if (cache != null && cache.version == version) {
 			return cache;
 		}
 		LOG.info("[SwissRailRaptor] build query-cache for ExecutionData");
 
-		cache = new CacheData(data.routeStops.length);
+		cache = new CacheData(data.routeStops.length, version);
 		SwissRailRaptorData.RRouteStop[] routeStops = data.routeStops;
 		for (int routeStopIdx = 0; routeStopIdx < routeStops.length; routeStopIdx++) {
 			SwissRailRaptorData.RRouteStop routeStop = routeStops[routeStopIdx];
@@ -176,6 +209,16 @@ public class OccupancyData {
 				lastValue = latestWaitStart;
 			}
 			cache.latestWaitingTimeStartPerRouteStopPerDeparture[routeStopIdx] = departures;
+
+			if (stopData != null) {
+				// same order as the departure indices in SwissRailRaptorData
+				int[] paxCounts = new int[departuresCount];
+				for (int depIdx = 0; depIdx < departuresCount; depIdx++) {
+					DepartureData dd = stopData.depData.get(data.departureIds[route.indexFirstDeparture + depIdx]);
+					paxCounts[depIdx] = dd == null ? 0 : dd.paxCountAtDeparture;
+				}
+				cache.paxCountPerRouteStopPerDeparture[routeStopIdx] = paxCounts;
+			}
 		}
 		this.cache = cache;
 		LOG.info("[SwissRailRaptor] done (build query-cache for ExecutionData)");
@@ -183,10 +226,14 @@ public class OccupancyData {
 	}
 
 	private static class CacheData {
+		final long version;
 		int[][] latestWaitingTimeStartPerRouteStopPerDeparture;
+		int[][] paxCountPerRouteStopPerDeparture; // null entries for route stops without any observed departure
 
-		private CacheData(int routeStopsCount) {
+		private CacheData(int routeStopsCount, long version) {
+			this.version = version;
 			this.latestWaitingTimeStartPerRouteStopPerDeparture = new int[routeStopsCount][];
+			this.paxCountPerRouteStopPerDeparture = new int[routeStopsCount][];
 		}
 	}
 
@@ -113,6 +113,7 @@ public class OccupancyTracker implements PersonDepartureEventHandler, AgentWaiti
 			DepartureData dep = stop.getOrCreate(vehData.departureId);
 			dep.vehDepTime = event.getTime();
 			dep.paxCountAtDeparture = vehData.currentPaxCount;
+			this.data.invalidateCache();
 		}
 	}
 
@@ -134,6 +135,7 @@ public class OccupancyTracker implements PersonDepartureEventHandler, AgentWaiti
 			RouteData route = line.routeData.get(vehData.routeId);
 			StopData stop = route.stopData.computeIfAbsent(vehData.stopFacilityId, id -> new StopData());
 			stop.getOrCreate(vehData.departureId).addWaitingPerson(waitStart);
+			this.data.invalidateCache();
 			passengerData.vehBoardingTime = event.getTime();
 			passengerData.departureId = vehData.departureId;
 		}
@@ -47,6 +47,9 @@ public class RaptorStaticConfig {
 
     private RaptorOptimization optimization = RaptorOptimization.OneToOneRouting;
 
+    private int numberOfThreads = 1;
+    private String transferCacheFile = null;
+
     public double getBeelineWalkConnectionDistance() {
         return this.beelineWalkConnectionDistance;
     }
@@ -118,4 +121,26 @@ public class RaptorStaticConfig {
     public void setOptimization(RaptorOptimization optimization) {
         this.optimization = optimization;
     }
+
+    /**
+     * @return the number of threads used to calculate the transfers between route stops.
+     */
+    public int getNumberOfThreads() {
+        return this.numberOfThreads;
+    }
+
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * @return the file in which the calculated transfers between route stops are cached, or <code>null</code> if no cache is used.
+     */
+    public String getTransferCacheFile() {
+        return this.transferCacheFile;
+    }
+
+    public void setTransferCacheFile(String transferCacheFile) {
+        this.transferCacheFile = transferCacheFile;
+    }
 }
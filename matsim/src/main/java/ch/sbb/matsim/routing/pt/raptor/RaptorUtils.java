@@ -53,6 +53,8 @@ public final class RaptorUtils {
             }
         }
         staticConfig.setUseCapacityConstraints(srrConfig.isUseCapacityConstraints());
+        staticConfig.setNumberOfThreads(config.global().getNumberOfThreads());
+        staticConfig.setTransferCacheFile(srrConfig.getTransferCacheFile());
 
         return staticConfig;
     }
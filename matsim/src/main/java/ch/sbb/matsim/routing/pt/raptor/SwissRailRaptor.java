@@ -14,16 +14,19 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.ParallelUtils;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.router.TransitRouter;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides public transport route search capabilities using an implementation of the
@@ -40,6 +43,9 @@ public class SwissRailRaptor implements TransitRouter {
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
+    private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
+    private final RaptorTransferCostCalculator transferCostCalculator;
+    private SwissRailRaptorCore[] cores; // for parallel queries, the first one is the same as raptor
 
     private boolean treeWarningShown = false;
 
@@ -51,9 +57,12 @@ public class SwissRailRaptor implements TransitRouter {
 													 RaptorTransferCostCalculator transferCostCalculator) {
         this.data = data;
         this.raptor = new SwissRailRaptorCore(data, inVehicleCostCalculator, transferCostCalculator);
+        this.cores = new SwissRailRaptorCore[] { this.raptor };
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
+        this.inVehicleCostCalculator = inVehicleCostCalculator;
+        this.transferCostCalculator = transferCostCalculator;
     }
 
     @Override
@@ -191,6 +200,25 @@ public class SwissRailRaptor implements TransitRouter {
         List<InitialStop> egressStops = findEgressStops(fromFacility, toFacility, person, desiredDepartureTime, parameters);
 
         List<RaptorRoute> foundRoutes = this.raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters, person);
+        return addDirectWalk(foundRoutes, fromFacility, toFacility, desiredDepartureTime, person, parameters);
+    }
+
+    /**
+     * Same as {@link #calcRoutes(Facility, Facility, double, double, double, Person)}, but the departures within the
+     * time window are handled by multiple threads in parallel. See
+     * {@link SwissRailRaptorCore#calcRoutes(SwissRailRaptorCore[], double, double, double, Facility, Facility, List, List, RaptorParameters, Person)}
+     * for the differences to the sequential range query.
+     */
+    public List<RaptorRoute> calcRoutes(Facility fromFacility, Facility toFacility, double earliestDepartureTime, double desiredDepartureTime, double latestDepartureTime, Person person, int numberOfThreads) {
+        RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
+        List<InitialStop> accessStops = findAccessStops(fromFacility, toFacility, person, desiredDepartureTime, parameters);
+        List<InitialStop> egressStops = findEgressStops(fromFacility, toFacility, person, desiredDepartureTime, parameters);
+
+        List<RaptorRoute> foundRoutes = SwissRailRaptorCore.calcRoutes(getCores(numberOfThreads), earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters, person);
+        return addDirectWalk(foundRoutes, fromFacility, toFacility, desiredDepartureTime, person, parameters);
+    }
+
+    private List<RaptorRoute> addDirectWalk(List<RaptorRoute> foundRoutes, Facility fromFacility, Facility toFacility, double desiredDepartureTime, Person person, RaptorParameters parameters) {
         RaptorRoute directWalk = createDirectWalk(fromFacility, toFacility, desiredDepartureTime, person, parameters);
 
         if (foundRoutes == null) {
@@ -214,10 +242,7 @@ public class SwissRailRaptor implements TransitRouter {
     }
 
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(Collection<TransitStopFacility> fromStops, double departureTime, RaptorParameters parameters, Person person) {
-        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
-            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
-            this.treeWarningShown = true;
-        }
+        checkTreeSupport();
         List<InitialStop> accessStops = new ArrayList<>();
         for (TransitStopFacility stop : fromStops) {
             accessStops.add(new InitialStop(stop, 0, 0, 0, null));
@@ -225,6 +250,13 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters, person);
     }
 
+    private void checkTreeSupport() {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+    }
+
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(Facility fromFacility, double departureTime, Person person) {
         RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
         List<InitialStop> accessStops = findAccessStops(fromFacility, fromFacility, person, departureTime, parameters);
@@ -235,6 +267,47 @@ public class SwissRailRaptor implements TransitRouter {
         return this.raptor.calcLeastCostTree(departureTime, accessStops, parameters, person);
     }
 
+    /**
+     * Calculates the least cost trees for multiple departure times, e.g. for all departure times within a time window.
+     * The departure times are distributed over the given number of threads, each tree is the same as returned by
+     * {@link #calcTree(Collection, double, RaptorParameters, Person)}.
+     *
+     * @return the trees, in the same order as the departure times
+     */
+    public List<Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>> calcTrees(Collection<TransitStopFacility> fromStops, double[] departureTimes, RaptorParameters parameters, Person person, int numberOfThreads) {
+        checkTreeSupport();
+        List<InitialStop> accessStops = new ArrayList<>();
+        for (TransitStopFacility stop : fromStops) {
+            accessStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        SwissRailRaptorCore[] queryCores = getCores(Math.max(1, Math.min(numberOfThreads, departureTimes.length)));
+        List<Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>> trees = new ArrayList<>(Collections.nCopies(departureTimes.length, null));
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        ParallelUtils.runInParallel(queryCores.length, "SwissRailRaptor", thread -> {
+            SwissRailRaptorCore core = queryCores[thread];
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < departureTimes.length) {
+                trees.set(index, core.calcLeastCostTree(departureTimes[index], accessStops, parameters, person));
+            }
+        });
+        return trees;
+    }
+
+    /**
+     * Returns the given number of cores, the first one being the core used for all single-threaded queries.
+     * The additional cores are kept for later parallel queries.
+     */
+    private SwissRailRaptorCore[] getCores(int count) {
+        int oldCount = this.cores.length;
+        if (oldCount < count) {
+            this.cores = Arrays.copyOf(this.cores, count);
+            for (int i = oldCount; i < count; i++) {
+                this.cores[i] = new SwissRailRaptorCore(this.data, this.inVehicleCostCalculator, this.transferCostCalculator);
+            }
+        }
+        return Arrays.copyOf(this.cores, Math.max(1, count));
+    }
+
     public SwissRailRaptorData getUnderlyingData() {
         return this.data;
     }
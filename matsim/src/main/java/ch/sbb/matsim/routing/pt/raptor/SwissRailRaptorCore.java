@@ -4,7 +4,6 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
-import ch.sbb.matsim.routing.pt.raptor.OccupancyData.DepartureData;
 import ch.sbb.matsim.routing.pt.raptor.RaptorInVehicleCostCalculator.RouteSegmentIterator;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.CachingTransferProvider;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
@@ -13,8 +12,8 @@ import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.misc.ParallelUtils;
 import org.matsim.facilities.Facility;
-import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
@@ -24,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -58,6 +58,8 @@ public class SwissRailRaptorCore {
     private final RouteSegmentIteratorImpl routeSegmentIterator;
 
     private final static int TIME_UNDEFINED = Integer.MIN_VALUE;
+    private final static int MAX_TRANSFERS = 20; // sensible defaults, could be made configurable if there is a need for it.
+    private final static int MAX_TRANSFERS_AFTER_FIRST_ARRIVAL = 2;
 
     SwissRailRaptorCore(SwissRailRaptorData data, RaptorInVehicleCostCalculator inVehicleCostCalculator, RaptorTransferCostCalculator transferCostCalculator) {
         this.data = data;
@@ -260,16 +262,77 @@ public class SwissRailRaptorCore {
     }
 
     public List<RaptorRoute> calcRoutes(double earliestDepTime, double desiredDepTime, double latestDepTime, Facility fromFacility, Facility toFacility, List<InitialStop> accessStops, List<InitialStop> egressStops, RaptorParameters parameters, Person person) {
-        List<RaptorRoute> foundRoutes = new ArrayList<>();
-        int maxTransfers = 20; // sensible defaults, could be made configurable if there is a need for it.
-        final int maxTransfersAfterFirstArrival = 2;
-        Map<PathElement, InitialStop> initialStopsPerStartPath = new HashMap<>();
-
         reset();
 
-        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
+        List<DepartureAtRouteStop> departures = collectDepartures(earliestDepTime, latestDepTime, accessStops, parameters);
+        Map<TransitStopFacility, InitialStop> destinationStops = initDestinationStops(egressStops);
+        List<FoundRoute> foundRoutes = scanDepartures(departures, fromFacility, toFacility, destinationStops, parameters, person);
 
-        PathElement lastFoundBestPath = null;
+        List<RaptorRoute> routes = new ArrayList<>();
+        for (FoundRoute foundRoute : foundRoutes) {
+            routes.add(foundRoute.route);
+        }
+        return filterRoutes(routes);
+    }
+
+    /**
+     * Same as {@link #calcRoutes(double, double, double, Facility, Facility, List, List, RaptorParameters, Person)},
+     * but the departures within the time window are split into consecutive chunks, which are handled in parallel by
+     * the given cores, one thread per core. Each chunk is a range query of its own, re-using the labels of the
+     * departures in the same chunk only.
+     *
+     * As each chunk starts with empty labels, additional routes can be found at the start of a chunk that a single
+     * range query would not find, as they do not improve the arrival cost reached with the departures of the previous
+     * chunks. The chunks are thus merged in the order of the departures, and a route of a chunk is only kept if it
+     * improves the least arrival cost of all previous chunks and respects their transfer limit, which is exactly the
+     * pruning a single range query applies at the destination. The kept routes are filtered together, just like the
+     * routes of a single range query.
+     */
+    static List<RaptorRoute> calcRoutes(SwissRailRaptorCore[] cores, double earliestDepTime, double desiredDepTime, double latestDepTime, Facility fromFacility, Facility toFacility, List<InitialStop> accessStops, List<InitialStop> egressStops, RaptorParameters parameters, Person person) {
+        SwissRailRaptorCore mainCore = cores[0];
+        List<DepartureAtRouteStop> departures = mainCore.collectDepartures(earliestDepTime, latestDepTime, accessStops, parameters);
+        int chunkCount = Math.min(cores.length, departures.size());
+        if (chunkCount <= 1) {
+            return mainCore.calcRoutes(earliestDepTime, desiredDepTime, latestDepTime, fromFacility, toFacility, accessStops, egressStops, parameters, person);
+        }
+
+        List<List<FoundRoute>> routesPerChunk = new ArrayList<>(Collections.nCopies(chunkCount, null));
+        ParallelUtils.runInParallel(chunkCount, "SwissRailRaptor", chunk -> {
+            SwissRailRaptorCore core = cores[chunk];
+            List<DepartureAtRouteStop> chunkDepartures = departures.subList(departures.size() * chunk / chunkCount, departures.size() * (chunk + 1) / chunkCount);
+            core.reset();
+            Map<TransitStopFacility, InitialStop> destinationStops = core.initDestinationStops(egressStops);
+            routesPerChunk.set(chunk, core.scanDepartures(chunkDepartures, fromFacility, toFacility, destinationStops, parameters, person));
+        });
+
+        List<RaptorRoute> foundRoutes = new ArrayList<>();
+        double leastCost = Double.POSITIVE_INFINITY;
+        int leastCostTransferCount = Integer.MAX_VALUE;
+        int maxTransfers = MAX_TRANSFERS;
+        for (List<FoundRoute> routes : routesPerChunk) {
+            double chunkLeastCost = leastCost;
+            int chunkLeastCostTransferCount = leastCostTransferCount;
+            int chunkMaxTransfers = maxTransfers;
+            for (FoundRoute route : routes) {
+                boolean improvesCost = route.cost < leastCost || (route.cost == leastCost && route.transferCount < leastCostTransferCount);
+                if (improvesCost && route.transferCount <= maxTransfers) {
+                    foundRoutes.add(route.route);
+                }
+                if (route.cost < chunkLeastCost || (route.cost == chunkLeastCost && route.transferCount < chunkLeastCostTransferCount)) {
+                    chunkLeastCost = route.cost;
+                    chunkLeastCostTransferCount = route.transferCount;
+                }
+                chunkMaxTransfers = Math.min(chunkMaxTransfers, route.transferCount + MAX_TRANSFERS_AFTER_FIRST_ARRIVAL);
+            }
+            leastCost = chunkLeastCost;
+            leastCostTransferCount = chunkLeastCostTransferCount;
+            maxTransfers = chunkMaxTransfers;
+        }
+        return mainCore.filterRoutes(foundRoutes);
+    }
+
+    private List<DepartureAtRouteStop> collectDepartures(double earliestDepTime, double latestDepTime, List<InitialStop> accessStops, RaptorParameters parameters) {
+        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
 
         /* the original algorithm works with time. Starting with the latest departure,
          * it's easy to go backwards in time and potentially improve already visited stops when
@@ -322,7 +385,10 @@ public class SwissRailRaptorCore {
             }
             return -cmp; // negate, we want to order from biggest to smallest
         });
+        return departures;
+    }
 
+    private Map<TransitStopFacility, InitialStop> initDestinationStops(List<InitialStop> egressStops) {
         Map<TransitStopFacility, InitialStop> destinationStops = new HashMap<>();
         for (InitialStop egressStop : egressStops) {
             InitialStop alternative = destinationStops.get(egressStop.stop);
@@ -339,6 +405,19 @@ public class SwissRailRaptorCore {
                 }
             }
         }
+        return destinationStops;
+    }
+
+    /**
+     * Handles the given departures in the given order, re-using the labels of previously handled departures.
+     * Returns all routes found, including dominated ones, in the order they were found.
+     */
+    private List<FoundRoute> scanDepartures(List<DepartureAtRouteStop> departures, Facility fromFacility, Facility toFacility, Map<TransitStopFacility, InitialStop> destinationStops, RaptorParameters parameters, Person person) {
+        List<FoundRoute> foundRoutes = new ArrayList<>();
+        int maxTransfers = MAX_TRANSFERS;
+        Map<PathElement, InitialStop> initialStopsPerStartPath = new HashMap<>();
+
+        PathElement lastFoundBestPath = null;
 
         for (DepartureAtRouteStop depAtRouteStop : departures) {
             this.improvedStops.clear();
@@ -374,9 +453,9 @@ public class SwissRailRaptorCore {
                     leastCostPath.arrivalTravelCost -= depAtRouteStop.costOffset;
                     RaptorRoute raptorRoute = createRaptorRoute(fromFacility, toFacility, leastCostPath, depTime);
                     leastCostPath.arrivalTravelCost += depAtRouteStop.costOffset;
-                    foundRoutes.add(raptorRoute);
+                    foundRoutes.add(new FoundRoute(raptorRoute, leastCostPath.arrivalTravelCost + leastCostPath.arrivalTransferCost, leastCostPath.transferCount));
 
-                    int optimizedTransferLimit = leastCostPath.transferCount + maxTransfersAfterFirstArrival;
+                    int optimizedTransferLimit = leastCostPath.transferCount + MAX_TRANSFERS_AFTER_FIRST_ARRIVAL;
                     if (optimizedTransferLimit < maxTransfers) {
                         maxTransfers = optimizedTransferLimit;
                     }
@@ -399,8 +478,7 @@ public class SwissRailRaptorCore {
             }
         }
 
-        List<RaptorRoute> routes = filterRoutes(foundRoutes);
-        return routes;
+        return foundRoutes;
     }
 
     private double calculateOptimalDepartureTime(PathElement leastCostPath, Map<PathElement, InitialStop> initialStopsPerStartPath) {
@@ -903,6 +981,22 @@ public class SwissRailRaptorCore {
         }
     }
 
+    /**
+     * A route found by a range query, together with its arrival cost including the cost offset of its departure and
+     * its number of transfers, as used for pruning.
+     */
+    private static class FoundRoute {
+        final RaptorRoute route;
+        final double cost;
+        final int transferCount;
+
+        FoundRoute(RaptorRoute route, double cost, int transferCount) {
+            this.route = route;
+            this.cost = cost;
+            this.transferCount = transferCount;
+        }
+    }
+
     public static final class TravelInfo {
         public final Id<TransitStopFacility> departureStop;
         public final int transferCount;
@@ -980,7 +1074,7 @@ public class SwissRailRaptorCore {
         private double currentInVehicleTime = -1;
         private double currentPassengerCount = -1;
         private double currentTimeOfDay = -1;
-        private Id<Departure> currentDepartureId = null;
+        private int currentDepartureIndex = -1;
 
         public RouteSegmentIteratorImpl(SwissRailRaptorData data) {
             this.data = data;
@@ -996,7 +1090,7 @@ public class SwissRailRaptorCore {
             this.currentInVehicleTime = -1;
             this.currentPassengerCount = -1;
             this.currentTimeOfDay = -1;
-            this.currentDepartureId = this.data.departureIds[departureIndex];
+            this.currentDepartureIndex = departureIndex;
         }
 
         @Override
@@ -1026,8 +1120,7 @@ public class SwissRailRaptorCore {
             this.currentInVehicleTime = endTime - startTime;
             this.currentTimeOfDay = startTime;
 
-            DepartureData depData = this.data.occupancyData.getDepartureData(nextRouteStop.line.getId(), nextRouteStop.route.getId(), depRouteStop.routeStop.getStopFacility().getId(), this.currentDepartureId);
-            this.currentPassengerCount = depData == null ? 0 : depData.paxCountAtDeparture;
+            this.currentPassengerCount = this.data.occupancyData.getPassengerCount(this.data, departureRouteStopIndex, this.currentDepartureIndex);
         }
 
         @Override
@@ -13,6 +13,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.ParallelUtils;
 import org.matsim.pt.transitSchedule.TransitScheduleUtils;
 import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
@@ -25,6 +26,20 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.Vehicles;
 
 import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +50,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
@@ -44,6 +60,9 @@ public class SwissRailRaptorData {
 
     private static final Logger log = Logger.getLogger(SwissRailRaptorData.class);
 
+    private static final int TRANSFER_CACHE_MAGIC = 0x52525443; // "RRTC"
+    private static final int TRANSFER_CACHE_VERSION = 1;
+
     final RaptorStaticConfig config;
     final int countStops;
     final int countRouteStops;
@@ -183,26 +202,29 @@ public class SwissRailRaptorData {
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
-        long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
-        }
-        if (countTransfers > Integer.MAX_VALUE) {
-            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        RTransfer[] transfers = null;
+        String transferCacheFile = staticConfig.getTransferCacheFile();
+        byte[] checksum = null;
+        if (transferCacheFile != null) {
+            checksum = calculateTransferChecksum(schedule, routeStops, staticConfig);
+            transfers = readTransferCache(transferCacheFile, checksum, routeStops.length);
+        }
+        if (transfers == null) {
+            transfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routes, routeStops, staticConfig);
+            if (transferCacheFile != null) {
+                writeTransferCache(transferCacheFile, checksum, transfers);
+            }
         }
-        RTransfer[] transfers = new RTransfer[(int) countTransfers];
-        int indexTransfer = 0;
-        for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
-            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
-            if (transferCount > 0) {
-                RRouteStop routeStop = routeStops[routeStopIndex];
-                routeStop.indexFirstTransfer = indexTransfer;
-                routeStop.countTransfers = transferCount;
-                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
-                indexTransfer += transferCount;
+        // the transfers are sorted by their fromRouteStop
+        for (int indexTransfer = 0; indexTransfer < transfers.length; ) {
+            RRouteStop routeStop = routeStops[transfers[indexTransfer].fromRouteStop];
+            int transferCount = 0;
+            while (indexTransfer + transferCount < transfers.length && transfers[indexTransfer + transferCount].fromRouteStop == routeStop.index) {
+                transferCount++;
             }
+            routeStop.indexFirstTransfer = indexTransfer;
+            routeStop.countTransfers = transferCount;
+            indexTransfer += transferCount;
         }
 
         SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, departures, departureVehicles, departureIds, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT, occupancyData);
@@ -217,13 +239,15 @@ public class SwissRailRaptorData {
         return data;
     }
 
-    // calculate possible transfers between TransitRouteStops
-    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
-        Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
+    /**
+     * Calculates the possible transfers between TransitRouteStops. The transfers from the route stops of each stop facility
+     * are calculated independently, so the stop facilities are distributed among multiple threads.
+     *
+     * @return all transfers, sorted by the index of their fromRouteStop.
+     */
+    private static RTransfer[] calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRoute[] routes, RRouteStop[] routeStops, RaptorStaticConfig config) {
+        long startMillis = System.currentTimeMillis();
         double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
-        double beelineWalkSpeed = config.getBeelineWalkSpeed();
-        double beelineDistanceFactor = config.getBeelineWalkDistanceFactor();
-        double minimalTransferTime = config.getMinimalTransferTime();
 
         Map<TransitStopFacility, List<TransitStopFacility>> stopToStopsTransfers = new HashMap<>();
 
@@ -248,53 +272,216 @@ public class SwissRailRaptorData {
             }
         }
 
+        // the earliest and latest departure per route are required for every potential transfer
+        double[] earliestDepartures = new double[routes.length];
+        double[] latestDepartures = new double[routes.length];
+        for (int routeIndex = 0; routeIndex < routes.length; routeIndex++) {
+            if (routes[routeIndex].countRouteStops == 0) {
+                continue;
+            }
+            TransitRoute route = routeStops[routes[routeIndex].indexFirstRouteStop].route;
+            Departure earliestDep = getEarliestDeparture(route);
+            Departure latestDep = getLatestDeparture(route);
+            earliestDepartures[routeIndex] = earliestDep == null ? Double.POSITIVE_INFINITY : earliestDep.getDepartureTime();
+            latestDepartures[routeIndex] = latestDep == null ? Double.NEGATIVE_INFINITY : latestDep.getDepartureTime();
+        }
+
         // now calculate the transfers between the route stops
-        MinimalTransferTimes mtt = schedule.getMinimalTransferTimes();
-        ArrayList<RTransfer> stopTransfers = new ArrayList<>();
-        for (Map.Entry<TransitStopFacility, List<TransitStopFacility>> e : stopToStopsTransfers.entrySet()) {
-            TransitStopFacility fromStop = e.getKey();
-            Coord fromCoord = fromStop.getCoord();
-            int[] fromRouteStopIndices = routeStopsPerStopFacility.get(fromStop);
-            Collection<TransitStopFacility> nearbyStops = e.getValue();
-            for (TransitStopFacility toStop : nearbyStops) {
-                int[] toRouteStopIndices = routeStopsPerStopFacility.get(toStop);
-                double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
-                double transferTime = beelineDistance / beelineWalkSpeed;
-                if (transferTime < minimalTransferTime) {
-                    transferTime = minimalTransferTime;
-                }
+        List<Map.Entry<TransitStopFacility, List<TransitStopFacility>>> entries = new ArrayList<>(stopToStopsTransfers.entrySet());
+        RTransfer[][] transfersPerRouteStop = new RTransfer[routeStops.length][];
+        AtomicInteger nextEntry = new AtomicInteger(0);
+        int numberOfThreads = Math.max(1, config.getNumberOfThreads());
+        ParallelUtils.runInParallel(numberOfThreads, "SwissRailRaptorData-transfers", thread -> {
+            ArrayList<RTransfer> stopTransfers = new ArrayList<>();
+            int entryIndex;
+            while ((entryIndex = nextEntry.getAndIncrement()) < entries.size()) {
+                Map.Entry<TransitStopFacility, List<TransitStopFacility>> e = entries.get(entryIndex);
+                calculateTransfers(e.getKey(), e.getValue(), schedule.getMinimalTransferTimes(), routeStopsPerStopFacility, routeStops, earliestDepartures, latestDepartures, config, stopTransfers, transfersPerRouteStop);
+            }
+        });
 
-                transferTime = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
+        long countTransfers = 0;
+        for (RTransfer[] transfers : transfersPerRouteStop) {
+            countTransfers += transfers == null ? 0 : transfers.length;
+        }
+        if (countTransfers > Integer.MAX_VALUE) {
+            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        }
+        RTransfer[] transfers = new RTransfer[(int) countTransfers];
+        int indexTransfer = 0;
+        for (RTransfer[] stopTransfers : transfersPerRouteStop) {
+            if (stopTransfers != null) {
+                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, stopTransfers.length);
+                indexTransfer += stopTransfers.length;
+            }
+        }
+        log.info("SwissRailRaptor: calculating transfers with " + numberOfThreads + " threads took " + (System.currentTimeMillis() - startMillis) / 1000 + " seconds.");
+        return transfers;
+    }
 
-                final double fixedTransferTime = transferTime; // variables must be effective final to be used in lambdas (below)
+    /**
+     * Calculates the transfers from all route stops at <code>fromStop</code>. As every route stop belongs to exactly one stop facility,
+     * this only modifies entries of <code>transfersPerRouteStop</code> that no other thread modifies.
+     */
+    private static void calculateTransfers(TransitStopFacility fromStop, List<TransitStopFacility> nearbyStops, MinimalTransferTimes mtt, Map<TransitStopFacility, int[]> routeStopsPerStopFacility,
+                                           RRouteStop[] routeStops, double[] earliestDepartures, double[] latestDepartures, RaptorStaticConfig config, ArrayList<RTransfer> stopTransfers,
+                                           RTransfer[][] transfersPerRouteStop) {
+        double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
+        double beelineWalkSpeed = config.getBeelineWalkSpeed();
+        double beelineDistanceFactor = config.getBeelineWalkDistanceFactor();
+        double minimalTransferTime = config.getMinimalTransferTime();
 
-                for (int fromRouteStopIndex : fromRouteStopIndices) {
-                    RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
-                    stopTransfers.clear();
-                    for (int toRouteStopIndex : toRouteStopIndices) {
-                        RRouteStop toRouteStop = routeStops[toRouteStopIndex];
-                        if (isUsefulTransfer(fromRouteStop, toRouteStop, maxBeelineWalkConnectionDistance, config.getOptimization())) {
-                            RTransfer newTransfer = new RTransfer(fromRouteStopIndex, toRouteStopIndex, fixedTransferTime, beelineDistance * beelineDistanceFactor);
-                            stopTransfers.add(newTransfer);
-                        }
+        Coord fromCoord = fromStop.getCoord();
+        int[] fromRouteStopIndices = routeStopsPerStopFacility.get(fromStop);
+        for (TransitStopFacility toStop : nearbyStops) {
+            int[] toRouteStopIndices = routeStopsPerStopFacility.get(toStop);
+            double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
+            double transferTime = beelineDistance / beelineWalkSpeed;
+            if (transferTime < minimalTransferTime) {
+                transferTime = minimalTransferTime;
+            }
+
+            transferTime = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
+
+            for (int fromRouteStopIndex : fromRouteStopIndices) {
+                RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
+                stopTransfers.clear();
+                for (int toRouteStopIndex : toRouteStopIndices) {
+                    RRouteStop toRouteStop = routeStops[toRouteStopIndex];
+                    if (isUsefulTransfer(fromRouteStop, toRouteStop, maxBeelineWalkConnectionDistance, config.getOptimization(), earliestDepartures, latestDepartures)) {
+                        RTransfer newTransfer = new RTransfer(fromRouteStopIndex, toRouteStopIndex, transferTime, beelineDistance * beelineDistanceFactor);
+                        stopTransfers.add(newTransfer);
                     }
-                    RTransfer[] newTransfers = stopTransfers.toArray(new RTransfer[0]);
-                    transfers.compute(fromRouteStopIndex, (routeStopIndex, currentTransfers) -> {
-                        if (currentTransfers == null) {
-                            return newTransfers;
-                        }
-                        RTransfer[] tmp = new RTransfer[currentTransfers.length + newTransfers.length];
-                        System.arraycopy(currentTransfers, 0, tmp, 0, currentTransfers.length);
-                        System.arraycopy(newTransfers, 0, tmp, currentTransfers.length, newTransfers.length);
-                        return tmp;
-                    });
+                }
+                RTransfer[] currentTransfers = transfersPerRouteStop[fromRouteStopIndex];
+                if (currentTransfers == null) {
+                    transfersPerRouteStop[fromRouteStopIndex] = stopTransfers.toArray(new RTransfer[0]);
+                } else {
+                    RTransfer[] tmp = new RTransfer[currentTransfers.length + stopTransfers.size()];
+                    System.arraycopy(currentTransfers, 0, tmp, 0, currentTransfers.length);
+                    for (int i = 0; i < stopTransfers.size(); i++) {
+                        tmp[currentTransfers.length + i] = stopTransfers.get(i);
+                    }
+                    transfersPerRouteStop[fromRouteStopIndex] = tmp;
                 }
             }
         }
-        return transfers;
     }
 
-    private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
+    /**
+     * Calculates a checksum of everything the transfers between route stops depend on, including the order of the route stops.
+     */
+    private static byte[] calculateTransferChecksum(TransitSchedule schedule, RRouteStop[] routeStops, RaptorStaticConfig config) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+                out.writeInt(TRANSFER_CACHE_VERSION);
+                out.writeDouble(config.getBeelineWalkConnectionDistance());
+                out.writeDouble(config.getBeelineWalkSpeed());
+                out.writeDouble(config.getBeelineWalkDistanceFactor());
+                out.writeDouble(config.getMinimalTransferTime());
+                out.writeUTF(config.getOptimization().name());
+                out.writeInt(routeStops.length);
+                for (RRouteStop routeStop : routeStops) {
+                    TransitStopFacility stop = routeStop.routeStop.getStopFacility();
+                    out.writeUTF(routeStop.line.getId().toString());
+                    out.writeUTF(routeStop.route.getId().toString());
+                    out.writeUTF(stop.getId().toString());
+                    out.writeDouble(stop.getCoord().getX());
+                    out.writeDouble(stop.getCoord().getY());
+                    out.writeInt(routeStop.arrivalOffset);
+                    out.writeInt(routeStop.departureOffset);
+                    if (routeStop.routeStop == routeStop.route.getStops().get(0)) {
+                        Departure earliestDep = getEarliestDeparture(routeStop.route);
+                        Departure latestDep = getLatestDeparture(routeStop.route);
+                        out.writeDouble(earliestDep == null ? Double.NaN : earliestDep.getDepartureTime());
+                        out.writeDouble(latestDep == null ? Double.NaN : latestDep.getDepartureTime());
+                    }
+                }
+                MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+                while (iter.hasNext()) {
+                    iter.next();
+                    out.writeUTF(iter.getFromStopId().toString());
+                    out.writeUTF(iter.getToStopId().toString());
+                    out.writeDouble(iter.getSeconds());
+                }
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the cached transfers, or <code>null</code> if the cache file does not exist or does not match the checksum.
+     */
+    private static RTransfer[] readTransferCache(String filename, byte[] checksum, int countRouteStops) {
+        File file = new File(filename);
+        if (!file.exists()) {
+            log.info("SwissRailRaptor: transfer cache " + filename + " does not exist yet, transfers will be calculated.");
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != TRANSFER_CACHE_MAGIC || in.readInt() != TRANSFER_CACHE_VERSION) {
+                log.warn("SwissRailRaptor: " + filename + " is not a transfer cache file or has an unsupported version, transfers will be re-calculated.");
+                return null;
+            }
+            byte[] cachedChecksum = new byte[checksum.length];
+            in.readFully(cachedChecksum);
+            if (!Arrays.equals(checksum, cachedChecksum)) {
+                log.info("SwissRailRaptor: transfer cache " + filename + " was created for a different schedule or config, transfers will be re-calculated.");
+                return null;
+            }
+            RTransfer[] transfers = new RTransfer[in.readInt()];
+            for (int i = 0; i < transfers.length; i++) {
+                int fromRouteStop = in.readInt();
+                int toRouteStop = in.readInt();
+                int transferTime = in.readInt();
+                int transferDistance = in.readInt();
+                if (fromRouteStop >= countRouteStops || toRouteStop >= countRouteStops) {
+                    throw new IOException("invalid route stop index in transfer " + i);
+                }
+                transfers[i] = new RTransfer(fromRouteStop, toRouteStop, transferTime, transferDistance);
+            }
+            log.info("SwissRailRaptor: loaded " + transfers.length + " transfers from cache " + filename);
+            return transfers;
+        } catch (IOException e) {
+            log.warn("SwissRailRaptor: could not read transfer cache " + filename + ", transfers will be re-calculated.", e);
+            return null;
+        }
+    }
+
+    private static void writeTransferCache(String filename, byte[] checksum, RTransfer[] transfers) {
+        File file = new File(filename).getAbsoluteFile();
+        File tmpFile = null;
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            // write to a temporary file first, so concurrent runs never read a partially written file
+            tmpFile = File.createTempFile("transferCache", ".tmp", file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(TRANSFER_CACHE_MAGIC);
+                out.writeInt(TRANSFER_CACHE_VERSION);
+                out.write(checksum);
+                out.writeInt(transfers.length);
+                for (RTransfer transfer : transfers) {
+                    out.writeInt(transfer.fromRouteStop);
+                    out.writeInt(transfer.toRouteStop);
+                    out.writeInt(transfer.transferTime);
+                    out.writeInt(transfer.transferDistance);
+                }
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("SwissRailRaptor: wrote " + transfers.length + " transfers to cache " + filename);
+        } catch (IOException e) {
+            log.warn("SwissRailRaptor: could not write transfer cache " + filename, e);
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization,
+                                            double[] earliestDepartures, double[] latestDepartures) {
         if (fromRouteStop == toRouteStop) {
             return false;
         }
@@ -308,7 +495,7 @@ public class SwissRailRaptorData {
         }
         // if the first departure at fromRouteStop arrives after the last departure at toRouteStop,
         // we'll never get any connection here
-        if (hasNoPossibleDeparture(fromRouteStop, toRouteStop)) {
+        if (hasNoPossibleDeparture(fromRouteStop, toRouteStop, earliestDepartures, latestDepartures)) {
             return false;
         }
         // if the stop facilities are different, and the destination stop is part
@@ -347,14 +534,14 @@ public class SwissRailRaptorData {
         return routeStop.routeStop == lastRouteStop;
     }
 
-    private static boolean hasNoPossibleDeparture(RRouteStop fromRouteStop, RRouteStop toRouteStop) {
-        Departure earliestDep = getEarliestDeparture(fromRouteStop.route);
-        Departure latestDep = getLatestDeparture(toRouteStop.route);
-        if (earliestDep == null || latestDep == null) {
+    private static boolean hasNoPossibleDeparture(RRouteStop fromRouteStop, RRouteStop toRouteStop, double[] earliestDepartures, double[] latestDepartures) {
+        double earliestDep = earliestDepartures[fromRouteStop.transitRouteIndex];
+        double latestDep = latestDepartures[toRouteStop.transitRouteIndex];
+        if (Double.isInfinite(earliestDep) || Double.isInfinite(latestDep)) {
             return true;
         }
-        double earliestArrival = earliestDep.getDepartureTime() + fromRouteStop.arrivalOffset;
-        double latestDeparture = latestDep.getDepartureTime() + toRouteStop.departureOffset;
+        double earliestArrival = earliestDep + fromRouteStop.arrivalOffset;
+        double latestDeparture = latestDep + toRouteStop.departureOffset;
         return earliestArrival > latestDeparture;
     }
 
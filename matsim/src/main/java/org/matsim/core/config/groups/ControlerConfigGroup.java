@@ -33,9 +33,9 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyALT}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyALT, SpeedyCCH}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, binary}
 
 	public enum CompressionType {
 		none(""),
@@ -56,6 +56,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_CACHE_DIRECTORY = "landmarksCacheDirectory";
+	private static final String SPEEDY_COST_SNAPSHOTS = "usingSpeedyCostSnapshots";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
@@ -78,6 +80,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.AStarLandmarks;
+	private String landmarksCacheDirectory = null;
+	private boolean usingSpeedyCostSnapshots = false;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -103,6 +107,11 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + Arrays.toString(RoutingAlgorithmType.values()));
+		map.put(LANDMARKS_CACHE_DIRECTORY, "Default=null. If set, the preprocessed landmarks of the " + RoutingAlgorithmType.SpeedyALT + " router are stored in this directory " +
+				"and re-used as long as the network and the minimal travel disutilities of the links do not change, e.g. when a run is restarted.");
+		map.put(SPEEDY_COST_SNAPSHOTS, "Default=false. If enabled, the travel times and travel disutilities of each network routing mode are sampled once per iteration " +
+				"and time bin of the travel time calculator, and the network routers read them from flat arrays. Mostly useful with the " + RoutingAlgorithmType.SpeedyDijkstra +
+				" and " + RoutingAlgorithmType.SpeedyALT + " routers. Only use this if the travel disutilities do not depend on the person. Snapshots are not used if the routingRandomness is larger than 0.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -179,6 +188,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_CACHE_DIRECTORY )
+	public String getLandmarksCacheDirectory() {
+		return this.landmarksCacheDirectory;
+	}
+
+	@StringSetter( LANDMARKS_CACHE_DIRECTORY )
+	public void setLandmarksCacheDirectory(final String landmarksCacheDirectory) {
+		this.landmarksCacheDirectory = landmarksCacheDirectory;
+	}
+
+	@StringGetter( SPEEDY_COST_SNAPSHOTS )
+	public boolean isUsingSpeedyCostSnapshots() {
+		return this.usingSpeedyCostSnapshots;
+	}
+
+	@StringSetter( SPEEDY_COST_SNAPSHOTS )
+	public void setUsingSpeedyCostSnapshots(final boolean usingSpeedyCostSnapshots) {
+		this.usingSpeedyCostSnapshots = usingSpeedyCostSnapshots;
+	}
+
 	@StringGetter( COMPRESSION_TYPE )
 	public CompressionType getCompressionType() {
 		return this.compressionType;
@@ -38,6 +38,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(WORK_STEALING_REPLANNING, WORK_STEALING_REPLANNING_CMT ) ;
 		return map ;
 	}
 
@@ -93,6 +94,21 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	private boolean workStealingReplanning = false;
+	private static final String WORK_STEALING_REPLANNING = "workStealingReplanning";
+	private static final String WORK_STEALING_REPLANNING_CMT = "Default=false. If true, multi-threaded replanning modules distribute "
+			+ "the plans in small chunks to a persistent pool of threads with work stealing, instead of assigning them to the threads "
+			+ "in a round-robin fashion. This balances the load better, e.g. if some plans take much longer to route than others, "
+			+ "but results are no longer reproducible, as plans may be handled by different threads from run to run.";
+	@StringGetter( WORK_STEALING_REPLANNING )
+	public boolean isWorkStealingReplanning() {
+		return this.workStealingReplanning;
+	}
+	@StringSetter( WORK_STEALING_REPLANNING )
+	public void setWorkStealingReplanning(final boolean workStealingReplanning) {
+		this.workStealingReplanning = workStealingReplanning;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
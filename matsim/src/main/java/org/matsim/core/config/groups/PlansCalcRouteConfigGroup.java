@@ -85,6 +85,17 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 																		"settings for helper modes such as for " + TransportMode.non_network_walk;
 	private boolean clearingDefaultModeRoutingParams = false ;
 	// ---
+	private static final String ROUTE_CACHE_SIZE = "routeCacheSize";
+	private static final String ROUTE_CACHE_SIZE_CMT = "Maximum number of trips kept in a cache that is shared by all trip routers and cleared at the start of every iteration. " +
+																"Trips with the same routing mode, origin, destination, subpopulation and departure time bin are then only routed once per iteration. " +
+																"Person-specific routing (e.g. person attributes) is thus ignored for all but the first person. The cache is not used if the routingRandomness is larger than 0. " +
+																"Trips with schedule-based or other time-dependent routes (e.g. pt) are only reused for exactly the same departure time. " +
+																"0 (default) disables the cache.";
+	private int routeCacheSize = 0;
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE = "routeCacheTimeBinSize";
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE_CMT = "Size of the departure time bins of the route cache, in seconds.";
+	private double routeCacheTimeBinSize = 900.0;
+	// ---
 
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
 		public static final String SET_TYPE = "teleportedModeParameters";
@@ -443,6 +454,10 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			this.setClearingDefaultModeRoutingParams( Boolean.parseBoolean( value ) );
 		} else if (RANDOMNESS.equals( key ) ) {
 			this.setRoutingRandomness( Double.parseDouble( value ) );
+		} else if (ROUTE_CACHE_SIZE.equals( key ) ) {
+			this.setRouteCacheSize( Integer.parseInt( value ) );
+		} else if (ROUTE_CACHE_TIME_BIN_SIZE.equals( key ) ) {
+			this.setRouteCacheTimeBinSize( Double.parseDouble( value ) );
 		}
 //		else if (ISINSERTINGACCESSEGRESSWALK.equals( key ) ) {
 //			this.setInsertingAccessEgressWalk(AccessEgressType.valueOf(value));
@@ -459,6 +474,8 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray( new String[0] ) ) );
 		map.put(  CLEAR_MODE_ROUTING_PARAMS, Boolean.toString( this.clearingDefaultModeRoutingParams ) ) ;
 		map.put(  RANDOMNESS, Double.toString( this.routingRandomness ) ) ;
+		map.put(  ROUTE_CACHE_SIZE, Integer.toString( this.routeCacheSize ) ) ;
+		map.put(  ROUTE_CACHE_TIME_BIN_SIZE, Double.toString( this.routeCacheTimeBinSize ) ) ;
 //		map.put(  ISINSERTINGACCESSEGRESSWALK,getAccessEgressType().toString()) ;
 //TODO: uncomment this for release 13.0
 		return map;
@@ -476,6 +493,8 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
 		map.put( CLEAR_MODE_ROUTING_PARAMS, CLEAR_MODE_ROUTING_PARAMS_CMT ) ;
 		map.put(ACCESSEGRESSTYPE, ACCESSEGRESSTYPE_CMT);
+		map.put(ROUTE_CACHE_SIZE, ROUTE_CACHE_SIZE_CMT);
+		map.put(ROUTE_CACHE_TIME_BIN_SIZE, ROUTE_CACHE_TIME_BIN_SIZE_CMT);
 		return map;
 	}
 
@@ -579,6 +598,32 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	/**
+	 * {@value ROUTE_CACHE_SIZE_CMT}
+	 */
+	@StringGetter(ROUTE_CACHE_SIZE)
+	public int getRouteCacheSize() {
+		return routeCacheSize;
+	}
+	/**
+	 * {@value ROUTE_CACHE_SIZE_CMT}
+	 */
+	@StringSetter(ROUTE_CACHE_SIZE)
+	public void setRouteCacheSize(int routeCacheSize) {
+		testForLocked();
+		this.routeCacheSize = routeCacheSize;
+	}
+
+	@StringGetter(ROUTE_CACHE_TIME_BIN_SIZE)
+	public double getRouteCacheTimeBinSize() {
+		return routeCacheTimeBinSize;
+	}
+	@StringSetter(ROUTE_CACHE_TIME_BIN_SIZE)
+	public void setRouteCacheTimeBinSize(double routeCacheTimeBinSize) {
+		testForLocked();
+		this.routeCacheTimeBinSize = routeCacheTimeBinSize;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 		Set<String> modesRoutedAsTeleportation = this.getModeRoutingParams().keySet();
@@ -38,6 +38,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String DeltaEncodedNetworkRoute = "DeltaEncodedNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -71,7 +72,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.DeltaEncodedNetworkRoute + ". " +
+				NetworkRouteType.DeltaEncodedNetworkRoute + " stores the links of a route as differences of the link indices, " +
+				"which needs considerably less memory than " + NetworkRouteType.LinkNetworkRoute + " and does not need the network.");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -91,6 +95,13 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(COMPACT_PLANS, "If true, plans are stored in primitive arrays, which needs much less memory. Activities and legs of " +
+				"a plan are created when they are accessed, and are compacted again at the end of every iteration. default=false.");
+
+		comments.put(PARALLEL_READING, "If true, population_v6 files are read with global.numberOfThreads threads. The persons are " +
+				"added in file order, but ids are created in parallel, so the indices of the ids (and anything ordered by them) " +
+				"can differ from run to run. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -217,6 +228,32 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String COMPACT_PLANS = "compactPlans";
+	private boolean compactPlans = false;
+	@StringGetter(COMPACT_PLANS)
+	public boolean isCompactPlans() {
+		return this.compactPlans;
+	}
+	@StringSetter(COMPACT_PLANS)
+	public void setCompactPlans(final boolean compactPlans) {
+		this.compactPlans = compactPlans;
+	}
+
+	// ---
+
+	private static final String PARALLEL_READING = "parallelReading";
+	private boolean parallelReading = false;
+	@StringGetter(PARALLEL_READING)
+	public boolean isParallelReading() {
+		return this.parallelReading;
+	}
+	@StringSetter(PARALLEL_READING)
+	public void setParallelReading(final boolean parallelReading) {
+		this.parallelReading = parallelReading;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -306,6 +306,18 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 			map.put( VEHICLES_SOURCE, "If vehicles should all be the same default vehicle, or come from the vehicles file, "
 					+ "or something else.  Possible values: " + stb );
 		}
+		map.put(USING_SHARDED_ACTIVITY_AND_TELEPORTATION_ENGINES, "If true and numberOfThreads is larger than 1, the activity and teleportation "
+				+ "engines let the agents ending an activity or a teleported leg compute their next state in parallel.  Events and "
+				+ "departures remain in the same order as with sequential processing.  Requires agents whose state transitions only "
+				+ "modify the agent itself, which is the case for the default plan-based agents.  Default is false.");
+		map.put(NETSIM_LOAD_BALANCING_INTERVAL, "Only used if numberOfThreads is larger than 1.  If positive, the nodes and links of the network "
+				+ "are assigned to the threads in spatially contiguous blocks, and every this many seconds of simulated time the blocks "
+				+ "are re-assigned based on the measured run times if the threads are unevenly loaded.  If 0 (default), the nodes are "
+				+ "assigned round-robin once at the start of the simulation.");
+		map.put(SKIPPING_IDLE_SIM_STEPS, "If true, the QSim asks its engines for the next time at which they have something to do, and "
+				+ "jumps over the time steps in between, e.g. during the night.  Only takes effect if all mobsim engines and all "
+				+ "before/after sim step listeners can provide this time; otherwise all time steps are simulated as usual.  "
+				+ "The listeners are not called for the skipped time steps.  Default is false.");
 		map.put(SEEP_MODE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set a seep mode. Default is bike.");
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to true if seep mode do not consumes any space on the link. Default is false.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to false if all seep modes should perform seepage. Default is true (better option).");
@@ -605,6 +617,45 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		return this.usingTravelTimeCheckInTeleportation = val ;
 	}
 	
+	// ---
+	private static final String USING_SHARDED_ACTIVITY_AND_TELEPORTATION_ENGINES = "usingShardedActivityAndTeleportationEngines";
+	private boolean usingShardedActivityAndTeleportationEngines = false;
+	@StringGetter(USING_SHARDED_ACTIVITY_AND_TELEPORTATION_ENGINES)
+	public boolean isUsingShardedActivityAndTeleportationEngines() {
+		return this.usingShardedActivityAndTeleportationEngines;
+	}
+	@StringSetter(USING_SHARDED_ACTIVITY_AND_TELEPORTATION_ENGINES)
+	public void setUsingShardedActivityAndTeleportationEngines(boolean usingShardedActivityAndTeleportationEngines) {
+		this.usingShardedActivityAndTeleportationEngines = usingShardedActivityAndTeleportationEngines;
+	}
+	
+	// ---
+	private static final String NETSIM_LOAD_BALANCING_INTERVAL = "netsimLoadBalancingInterval";
+	private double netsimLoadBalancingInterval = 0.0;
+	@StringGetter(NETSIM_LOAD_BALANCING_INTERVAL)
+	public double getNetsimLoadBalancingInterval() {
+		return this.netsimLoadBalancingInterval;
+	}
+	@StringSetter(NETSIM_LOAD_BALANCING_INTERVAL)
+	public void setNetsimLoadBalancingInterval(double netsimLoadBalancingInterval) {
+		if (netsimLoadBalancingInterval < 0) {
+			throw new IllegalArgumentException("netsim load balancing interval must not be negative, but is " + netsimLoadBalancingInterval);
+		}
+		this.netsimLoadBalancingInterval = netsimLoadBalancingInterval;
+	}
+	
+	// ---
+	private static final String SKIPPING_IDLE_SIM_STEPS = "skippingIdleSimSteps";
+	private boolean skippingIdleSimSteps = false;
+	@StringGetter(SKIPPING_IDLE_SIM_STEPS)
+	public boolean isSkippingIdleSimSteps() {
+		return this.skippingIdleSimSteps;
+	}
+	@StringSetter(SKIPPING_IDLE_SIM_STEPS)
+	public void setSkippingIdleSimSteps(boolean skippingIdleSimSteps) {
+		this.skippingIdleSimSteps = skippingIdleSimSteps;
+	}
+	
 	static final String PCU_THRESHOLD_FOR_FLOW_CAPACITY_EASING = //
 			"Flow capacity easing is activated for vehicles of size equal or smaller than the specified threshold. "
 			+ "Introduced to minimise the chances of buses being severely delayed in downsampled scenarios";
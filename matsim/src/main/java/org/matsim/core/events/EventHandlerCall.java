@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerCall.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Calls the <code>handleEvent</code> method of one event handler for one event class.
+ *
+ * Calls are generated once, when the handler is registered, using {@link LambdaMetafactory}. They invoke the
+ * handler method directly, so every event type (including the ones defined in contribs) gets the performance
+ * of a direct method call instead of {@link Method#invoke}. If the handler interface is not accessible from this
+ * package, reflection is used as a fallback.
+ *
+ * Exceptions thrown by the handler are passed on unchanged.
+ */
+@FunctionalInterface
+interface EventHandlerCall {
+
+	void handleEvent(Event event);
+
+	/**
+	 * @param method the <code>handleEvent</code> method of one of the {@link EventHandler} interfaces implemented by the handler.
+	 */
+	static EventHandlerCall create(EventHandler handler, Method method) {
+		Class<?> handlerInterface = method.getDeclaringClass();
+		Class<?> eventClass = method.getParameterTypes()[0];
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "handleEvent",
+					MethodType.methodType(EventHandlerCall.class, handlerInterface),
+					MethodType.methodType(void.class, Event.class),
+					target,
+					MethodType.methodType(void.class, eventClass));
+			return (EventHandlerCall) site.getTarget().invoke(handler);
+		} catch (Throwable e) {
+			Logger.getLogger(EventHandlerCall.class).warn("could not generate call of " + method + " for " + handler.getClass().getName()
+					+ ", falling back to reflection: " + e.getMessage());
+			return event -> invoke(handler, method, event);
+		}
+	}
+
+	private static void invoke(EventHandler handler, Method method, Event event) {
+		try {
+			method.invoke(handler, event);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+}
@@ -0,0 +1,437 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.HasFacilityId;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events written by {@link org.matsim.core.events.algorithms.EventWriterBinary}.
+ *
+ * The file is memory-mapped and the columns of each block are read directly from the mapped memory. Strings are
+ * decoded once per file, and ids and numbers once per distinct value, so the most frequent event types (link,
+ * traffic, vehicle, departure/arrival and activity events) are created without any per-event parsing. All other
+ * event types are passed on to {@link EventsReaderXMLv1}, so they are created exactly as if they were read from an
+ * xml file, including custom event mappers.
+ *
+ * <p>File layout (all numbers little-endian):</p>
+ * <pre>
+ * header:  byte[8] "MATSIMEB", int version
+ * blocks:  int blockLength (bytes following this field)
+ *          int dictionaryStart (code of the first new string), int newStrings,
+ *          newStrings * (int byteLength, byte[byteLength] utf-8)
+ *          int n (events), int m (attributes)
+ *          double[n] time, int[n] type, int[n] attributeCount, int[m] key, int[m] value
+ * </pre>
+ * Types, keys and values refer to the string dictionary, which grows with every block. A block with a
+ * dictionaryStart of 0 starts a new dictionary. A value of -1 represents <code>null</code>. Ids are stored as strings
+ * because {@link Id#index()} is not stable across runs.
+ */
+public final class EventsReaderBinary {
+
+	public static final byte[] MAGIC = "MATSIMEB".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = 12;
+
+	private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+	private static final int KEY_PERSON = 0;
+	private static final int KEY_VEHICLE = 1;
+	private static final int KEY_LINK = 2;
+	private static final int KEY_LEGMODE = 3;
+	private static final int KEY_NETWORKMODE = 4;
+	private static final int KEY_POSITION = 5;
+	private static final int KEY_FACILITY = 6;
+	private static final int KEY_ACTTYPE = 7;
+	private static final int KEY_X = 8;
+	private static final int KEY_Y = 9;
+	private static final int KEY_OTHER = 10;
+
+	private static final int TYPE_OTHER = 0;
+	private static final int TYPE_LINK_ENTER = 1;
+	private static final int TYPE_LINK_LEAVE = 2;
+	private static final int TYPE_VEHICLE_ENTERS_TRAFFIC = 3;
+	private static final int TYPE_VEHICLE_LEAVES_TRAFFIC = 4;
+	private static final int TYPE_PERSON_ENTERS_VEHICLE = 5;
+	private static final int TYPE_PERSON_LEAVES_VEHICLE = 6;
+	private static final int TYPE_DEPARTURE = 7;
+	private static final int TYPE_ARRIVAL = 8;
+	private static final int TYPE_ACTIVITY_START = 9;
+	private static final int TYPE_ACTIVITY_END = 10;
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 fallback;
+	private final AttributesImpl fallbackAttributes = new AttributesImpl();
+
+	private final List<String> strings = new ArrayList<>();
+	private int[] keyKinds = new int[0];
+	private int[] typeKinds = new int[0];
+	private Id<?>[] personIds = new Id<?>[0];
+	private Id<?>[] vehicleIds = new Id<?>[0];
+	private Id<?>[] linkIds = new Id<?>[0];
+	private Id<?>[] facilityIds = new Id<?>[0];
+	private double[] numbers = new double[0];
+	private final int[] slots = new int[KEY_OTHER];
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.fallback = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, MatsimEventsReader.CustomEventMapper cem) {
+		this.fallback.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * @return <code>true</code> if the file exists and starts with the header of a binary events file.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		Path path = Paths.get(filename);
+		if (!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (InputStream in = Files.newInputStream(path)) {
+			byte[] magic = new byte[MAGIC.length];
+			int read = in.readNBytes(magic, 0, magic.length);
+			return read == magic.length && Arrays.equals(magic, MAGIC);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public void readFile(final String filename) {
+		// the dictionary is specific to each file
+		clearDictionary();
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					throw new IllegalArgumentException("File " + filename + " is not a binary events file.");
+				}
+			}
+			header.flip();
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IllegalArgumentException("File " + filename + " is not a binary events file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + filename);
+			}
+
+			long position = HEADER_SIZE;
+			long windowStart = 0;
+			ByteBuffer window = null;
+			while (position < size) {
+				if (window == null || position + 4 > windowStart + window.capacity()) {
+					windowStart = position;
+					window = map(channel, windowStart, Math.min(size - windowStart, MAX_WINDOW_SIZE));
+				}
+				int blockLength = window.getInt((int) (position - windowStart));
+				long blockEnd = position + 4 + blockLength;
+				if (blockEnd > size) {
+					throw new RuntimeException("Binary events file " + filename + " is truncated.");
+				}
+				if (blockEnd > windowStart + window.capacity()) {
+					windowStart = position;
+					window = map(channel, windowStart, Math.max(blockEnd - windowStart, Math.min(size - windowStart, MAX_WINDOW_SIZE)));
+				}
+				readBlock(window, (int) (position - windowStart) + 4);
+				position = blockEnd;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void clearDictionary() {
+		this.strings.clear();
+		Arrays.fill(this.personIds, null);
+		Arrays.fill(this.vehicleIds, null);
+		Arrays.fill(this.linkIds, null);
+		Arrays.fill(this.facilityIds, null);
+		Arrays.fill(this.numbers, Double.NaN);
+	}
+
+	private void readBlock(final ByteBuffer buf, final int offset) {
+		int pos = offset;
+		int dictionaryStart = buf.getInt(pos);
+		if (dictionaryStart == 0) {
+			clearDictionary();
+		} else if (dictionaryStart != this.strings.size()) {
+			throw new RuntimeException("Binary events block refers to " + dictionaryStart + " strings, but only " + this.strings.size() + " are known.");
+		}
+		int newStrings = buf.getInt(pos + 4);
+		pos += 8;
+		ByteBuffer view = buf.duplicate();
+		for (int i = 0; i < newStrings; i++) {
+			int length = buf.getInt(pos);
+			pos += 4;
+			byte[] bytes = new byte[length];
+			view.position(pos);
+			view.get(bytes);
+			pos += length;
+			addString(new String(bytes, StandardCharsets.UTF_8).intern());
+		}
+		int n = buf.getInt(pos);
+		int m = buf.getInt(pos + 4);
+		int timesOffset = pos + 8;
+		int typesOffset = timesOffset + 8 * n;
+		int countsOffset = typesOffset + 4 * n;
+		int keysOffset = countsOffset + 4 * n;
+		int valuesOffset = keysOffset + 4 * m;
+
+		int attribute = 0;
+		for (int i = 0; i < n; i++) {
+			double time = buf.getDouble(timesOffset + 8 * i);
+			int type = buf.getInt(typesOffset + 4 * i);
+			int count = buf.getInt(countsOffset + 4 * i);
+			int keys = keysOffset + 4 * attribute;
+			int values = valuesOffset + 4 * attribute;
+			Event event = null;
+			if (this.typeKinds[type] != TYPE_OTHER) {
+				event = createEvent(time, this.typeKinds[type], buf, keys, values, count);
+			}
+			if (event != null) {
+				this.events.processEvent(event);
+			} else {
+				processFallback(time, type, buf, keys, values, count);
+			}
+			attribute += count;
+		}
+	}
+
+	private void addString(String string) {
+		int code = this.strings.size();
+		this.strings.add(string);
+		if (code == this.keyKinds.length) {
+			int capacity = Math.max(16, code * 2);
+			this.keyKinds = Arrays.copyOf(this.keyKinds, capacity);
+			this.typeKinds = Arrays.copyOf(this.typeKinds, capacity);
+			this.personIds = Arrays.copyOf(this.personIds, capacity);
+			this.vehicleIds = Arrays.copyOf(this.vehicleIds, capacity);
+			this.linkIds = Arrays.copyOf(this.linkIds, capacity);
+			this.facilityIds = Arrays.copyOf(this.facilityIds, capacity);
+			this.numbers = Arrays.copyOf(this.numbers, capacity);
+			Arrays.fill(this.numbers, code, capacity, Double.NaN);
+		}
+		this.keyKinds[code] = keyKind(string);
+		this.typeKinds[code] = typeKind(string);
+	}
+
+	private Event createEvent(double time, int typeKind, ByteBuffer buf, int keys, int values, int count) {
+		int[] slots = this.slots;
+		Arrays.fill(slots, -1);
+		for (int j = 0; j < count; j++) {
+			int key = this.keyKinds[buf.getInt(keys + 4 * j)];
+			if (key == KEY_OTHER) {
+				// unexpected attribute, let the xml reader decide what to do with it
+				return null;
+			}
+			slots[key] = buf.getInt(values + 4 * j);
+		}
+		switch (typeKind) {
+			case TYPE_LINK_ENTER:
+				if (missing(KEY_VEHICLE, KEY_LINK)) return null;
+				return new LinkEnterEvent(time, vehicleId(slots[KEY_VEHICLE]), linkId(slots[KEY_LINK]));
+			case TYPE_LINK_LEAVE:
+				if (missing(KEY_VEHICLE, KEY_LINK)) return null;
+				return new LinkLeaveEvent(time, vehicleId(slots[KEY_VEHICLE]), linkId(slots[KEY_LINK]));
+			case TYPE_VEHICLE_ENTERS_TRAFFIC:
+				if (missing(KEY_PERSON, KEY_LINK) || missing(KEY_VEHICLE, KEY_POSITION)) return null;
+				return new VehicleEntersTrafficEvent(time, personId(slots[KEY_PERSON]), linkId(slots[KEY_LINK]), vehicleId(slots[KEY_VEHICLE]),
+						string(slots[KEY_NETWORKMODE]), number(slots[KEY_POSITION]));
+			case TYPE_VEHICLE_LEAVES_TRAFFIC:
+				if (missing(KEY_PERSON, KEY_LINK) || slots[KEY_POSITION] < 0) return null;
+				return new VehicleLeavesTrafficEvent(time, personId(slots[KEY_PERSON]), linkId(slots[KEY_LINK]),
+						slots[KEY_VEHICLE] < 0 ? null : vehicleId(slots[KEY_VEHICLE]), string(slots[KEY_NETWORKMODE]), number(slots[KEY_POSITION]));
+			case TYPE_PERSON_ENTERS_VEHICLE:
+				if (missing(KEY_PERSON, KEY_VEHICLE)) return null;
+				return new PersonEntersVehicleEvent(time, personId(slots[KEY_PERSON]), vehicleId(slots[KEY_VEHICLE]));
+			case TYPE_PERSON_LEAVES_VEHICLE:
+				if (missing(KEY_PERSON, KEY_VEHICLE)) return null;
+				return new PersonLeavesVehicleEvent(time, personId(slots[KEY_PERSON]), vehicleId(slots[KEY_VEHICLE]));
+			case TYPE_DEPARTURE:
+				if (missing(KEY_PERSON, KEY_LINK)) return null;
+				return new PersonDepartureEvent(time, personId(slots[KEY_PERSON]), linkId(slots[KEY_LINK]), string(slots[KEY_LEGMODE]));
+			case TYPE_ARRIVAL:
+				if (missing(KEY_PERSON, KEY_LINK)) return null;
+				return new PersonArrivalEvent(time, personId(slots[KEY_PERSON]), linkId(slots[KEY_LINK]), string(slots[KEY_LEGMODE]));
+			case TYPE_ACTIVITY_START:
+				if (missing(KEY_PERSON, KEY_LINK) || (slots[KEY_X] >= 0) != (slots[KEY_Y] >= 0)) return null;
+				return new ActivityStartEvent(time, personId(slots[KEY_PERSON]), linkId(slots[KEY_LINK]), facilityId(slots[KEY_FACILITY]),
+						string(slots[KEY_ACTTYPE]), coord(slots[KEY_X], slots[KEY_Y]));
+			case TYPE_ACTIVITY_END:
+				if (missing(KEY_PERSON, KEY_LINK) || (slots[KEY_X] >= 0) != (slots[KEY_Y] >= 0)) return null;
+				return new ActivityEndEvent(time, personId(slots[KEY_PERSON]), linkId(slots[KEY_LINK]), facilityId(slots[KEY_FACILITY]),
+						string(slots[KEY_ACTTYPE]), coord(slots[KEY_X], slots[KEY_Y]));
+			default:
+				return null;
+		}
+	}
+
+	private boolean missing(int key1, int key2) {
+		return this.slots[key1] < 0 || this.slots[key2] < 0;
+	}
+
+	private void processFallback(double time, int type, ByteBuffer buf, int keys, int values, int count) {
+		AttributesImpl atts = this.fallbackAttributes;
+		atts.clear();
+		atts.addAttribute("", Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, "CDATA", Double.toString(time));
+		atts.addAttribute("", Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, "CDATA", this.strings.get(type));
+		for (int j = 0; j < count; j++) {
+			String key = this.strings.get(buf.getInt(keys + 4 * j));
+			atts.addAttribute("", key, key, "CDATA", string(buf.getInt(values + 4 * j)));
+		}
+		this.fallback.startTag(EventsReaderXMLv1.EVENT, atts, null);
+	}
+
+	private String string(int code) {
+		return code < 0 ? null : this.strings.get(code);
+	}
+
+	private double number(int code) {
+		double value = this.numbers[code];
+		if (Double.isNaN(value)) {
+			value = Double.parseDouble(this.strings.get(code));
+			this.numbers[code] = value;
+		}
+		return value;
+	}
+
+	private Coord coord(int x, int y) {
+		return x < 0 ? null : new Coord(number(x), number(y));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Id<Person> personId(int code) {
+		Id<?> id = this.personIds[code];
+		if (id == null) {
+			id = Id.create(this.strings.get(code), Person.class);
+			this.personIds[code] = id;
+		}
+		return (Id<Person>) id;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Id<Vehicle> vehicleId(int code) {
+		Id<?> id = this.vehicleIds[code];
+		if (id == null) {
+			id = Id.create(this.strings.get(code), Vehicle.class);
+			this.vehicleIds[code] = id;
+		}
+		return (Id<Vehicle>) id;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Id<Link> linkId(int code) {
+		Id<?> id = this.linkIds[code];
+		if (id == null) {
+			id = Id.create(this.strings.get(code), Link.class);
+			this.linkIds[code] = id;
+		}
+		return (Id<Link>) id;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Id<ActivityFacility> facilityId(int code) {
+		if (code < 0) {
+			return null;
+		}
+		Id<?> id = this.facilityIds[code];
+		if (id == null) {
+			id = Id.create(this.strings.get(code), ActivityFacility.class);
+			this.facilityIds[code] = id;
+		}
+		return (Id<ActivityFacility>) id;
+	}
+
+	private static int keyKind(String key) {
+		switch (key) {
+			case LinkEnterEvent.ATTRIBUTE_VEHICLE: return KEY_VEHICLE;
+			case LinkEnterEvent.ATTRIBUTE_LINK: return KEY_LINK;
+			case PersonDepartureEvent.ATTRIBUTE_PERSON: return KEY_PERSON;
+			case PersonDepartureEvent.ATTRIBUTE_LEGMODE: return KEY_LEGMODE;
+			case VehicleEntersTrafficEvent.ATTRIBUTE_NETWORKMODE: return KEY_NETWORKMODE;
+			case VehicleEntersTrafficEvent.ATTRIBUTE_POSITION: return KEY_POSITION;
+			case HasFacilityId.ATTRIBUTE_FACILITY: return KEY_FACILITY;
+			case ActivityStartEvent.ATTRIBUTE_ACTTYPE: return KEY_ACTTYPE;
+			case Event.ATTRIBUTE_X: return KEY_X;
+			case Event.ATTRIBUTE_Y: return KEY_Y;
+			default: return KEY_OTHER;
+		}
+	}
+
+	private static int typeKind(String type) {
+		switch (type) {
+			case LinkEnterEvent.EVENT_TYPE: return TYPE_LINK_ENTER;
+			case LinkLeaveEvent.EVENT_TYPE: return TYPE_LINK_LEAVE;
+			case VehicleEntersTrafficEvent.EVENT_TYPE: return TYPE_VEHICLE_ENTERS_TRAFFIC;
+			case VehicleLeavesTrafficEvent.EVENT_TYPE: return TYPE_VEHICLE_LEAVES_TRAFFIC;
+			case PersonEntersVehicleEvent.EVENT_TYPE: return TYPE_PERSON_ENTERS_VEHICLE;
+			case PersonLeavesVehicleEvent.EVENT_TYPE: return TYPE_PERSON_LEAVES_VEHICLE;
+			case PersonDepartureEvent.EVENT_TYPE: return TYPE_DEPARTURE;
+			case PersonArrivalEvent.EVENT_TYPE: return TYPE_ARRIVAL;
+			case ActivityStartEvent.EVENT_TYPE: return TYPE_ACTIVITY_START;
+			case ActivityEndEvent.EVENT_TYPE: return TYPE_ACTIVITY_END;
+			default: return TYPE_OTHER;
+		}
+	}
+}
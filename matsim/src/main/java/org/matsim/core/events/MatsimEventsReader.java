@@ -21,7 +21,9 @@
 package org.matsim.core.events;
 
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -81,6 +83,10 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".bin") || EventsReaderBinary.isBinaryEventsFile(filename)) {
+			EventsReaderBinary reader = new EventsReaderBinary(this.events);
+			customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -101,6 +107,9 @@ public final class MatsimEventsReader implements MatsimReader {
 			case pb:
 				throw new UnsupportedOperationException(
 						"PB (Protobuf) is currently not supported to read from a stream");
+			case binary:
+				throw new UnsupportedOperationException(
+						"Binary events are memory-mapped and can only be read from a file");
 			case json:
 				EventsReaderJson reader = new EventsReaderJson(this.events);
 				customEventMappers.forEach(reader::addCustomEventMapper);
@@ -117,6 +126,17 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(url);
+		} else if (url.getFile().endsWith(".bin")) {
+			if (!"file".equals(url.getProtocol())) {
+				throw new UnsupportedOperationException("Binary events are memory-mapped and can only be read from a file, not from " + url);
+			}
+			EventsReaderBinary reader = new EventsReaderBinary(this.events);
+			customEventMappers.forEach(reader::addCustomEventMapper);
+			try {
+				reader.readFile(Paths.get(url.toURI()).toString());
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException(e);
+			}
 		}
 	}
 
@@ -0,0 +1,321 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An EventsManager that publishes every event exactly once into a ring buffer, from which a fixed number of
+ * consumer threads read it without any locking. Every event handler is pinned to one consumer thread, so handlers
+ * are never called concurrently and need no synchronization. Each consumer dispatches events through arrays of
+ * {@link EventHandlerCall}s precomputed per event class.
+ *
+ * Publishing is serialized, so several mobsim threads may create events concurrently. Consumers only block the
+ * producer if the slowest of them is a whole buffer behind. Slots processed by all consumers are cleared by the
+ * producer when it publishes the next event or flushes, so the buffer does not keep events alive.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	private final Set<EventHandler> eventHandlers = new LinkedHashSet<>();
+	private final boolean syncOnTimeSteps;
+	private final int numOfThreads;
+	private final Event[] ring;
+	private final int mask;
+	// sequence number of the last published event
+	private final AtomicLong published = new AtomicLong(-1);
+	private long nextSequence = 0;
+	// sequence number of the last cleared slot, only accessed by the producer
+	private long cleared = -1;
+	private Consumer[] consumers = new Consumer[0];
+	private volatile Throwable exception = null;
+	private boolean init = false;
+
+	@Inject
+	RingBufferEventsManager(Config config) {
+		this(config.parallelEventHandling().getSynchronizeOnSimSteps() != null ? config.parallelEventHandling().getSynchronizeOnSimSteps() : true,
+				config.parallelEventHandling().getNumberOfThreads() != null ? config.parallelEventHandling().getNumberOfThreads() : config.global().getNumberOfThreads(),
+				config.parallelEventHandling().getEventsQueueSize());
+	}
+
+	/**
+	 * @param numOfThreads number of consumer threads. Handlers are distributed round-robin over the consumers.
+	 * @param bufferSize minimal number of events that can be buffered, rounded up to the next power of two.
+	 */
+	public RingBufferEventsManager(final boolean syncOnTimeSteps, final int numOfThreads, final int bufferSize) {
+		this.syncOnTimeSteps = syncOnTimeSteps;
+		this.numOfThreads = Math.max(1, numOfThreads);
+		int size = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+		this.ring = new Event[size];
+		this.mask = size - 1;
+	}
+
+	@Override
+	public synchronized void processEvent(final Event event) {
+		if (!init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		long sequence = this.nextSequence;
+		long wrapPoint = sequence - this.ring.length;
+		long processed = minConsumerSequence();
+		int idleCount = 0;
+		while (wrapPoint >= processed) {
+			checkException();
+			idleCount = idle(idleCount);
+			processed = minConsumerSequence();
+		}
+		clearSlots(processed);
+		this.ring[(int) sequence & this.mask] = event;
+		this.nextSequence = sequence + 1;
+		this.published.lazySet(sequence);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (init)
+			throw new IllegalStateException("Handlers can not be added after .initProcessing() was called!");
+		this.eventHandlers.add(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		if (init)
+			throw new IllegalStateException("Handlers can not be removed after .initProcessing() was called!");
+		this.eventHandlers.remove(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		log.info("resetting Event-Handlers");
+		for (EventHandler handler : this.eventHandlers) {
+			handler.reset(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		int numConsumers = Math.min(this.numOfThreads, Math.max(1, this.eventHandlers.size()));
+		this.consumers = new Consumer[numConsumers];
+		long start = this.nextSequence - 1;
+		for (int i = 0; i < numConsumers; i++) {
+			this.consumers[i] = new Consumer(start);
+			this.consumers[i].setName("RingBufferEventsConsumer" + i);
+			this.consumers[i].setDaemon(true);
+		}
+		int i = 0;
+		for (EventHandler handler : this.eventHandlers) {
+			this.consumers[i++ % numConsumers].handlers.add(handler);
+		}
+		this.exception = null;
+		this.init = true;
+		for (Consumer consumer : this.consumers) {
+			consumer.start();
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.syncOnTimeSteps) {
+			flush();
+		}
+		checkException();
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		if (!init) {
+			return;
+		}
+		flush();
+		for (Consumer consumer : this.consumers) {
+			consumer.running = false;
+			LockSupport.unpark(consumer);
+		}
+		try {
+			for (Consumer consumer : this.consumers) {
+				consumer.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Exception while waiting on join...", e);
+		}
+		this.init = false;
+		checkException();
+	}
+
+	/**
+	 * Waits until all published events have been processed by all consumers.
+	 */
+	public void flush() {
+		// consumers keep consuming after an exception in a handler, so this always terminates
+		long sequence = this.published.get();
+		int idleCount = 0;
+		while (minConsumerSequence() < sequence) {
+			idleCount = idle(idleCount);
+		}
+		clearSlots(sequence);
+	}
+
+	/**
+	 * Removes the events up to the given sequence number, which all consumers have processed, from the buffer.
+	 */
+	private synchronized void clearSlots(long sequence) {
+		for (long s = this.cleared + 1; s <= sequence; s++) {
+			this.ring[(int) s & this.mask] = null;
+		}
+		this.cleared = Math.max(this.cleared, sequence);
+	}
+
+	/**
+	 * @return the number of events still referenced by the buffer
+	 */
+	/*package*/ synchronized int getBufferedEventsCount() {
+		int count = 0;
+		for (Event event : this.ring) {
+			if (event != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private long minConsumerSequence() {
+		long min = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			min = Math.min(min, consumer.sequence.get());
+		}
+		return min;
+	}
+
+	private void checkException() {
+		Throwable e = this.exception;
+		if (e != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", e);
+		}
+	}
+
+	private static int idle(int idleCount) {
+		if (idleCount < 100) {
+			Thread.onSpinWait();
+		} else if (idleCount < 200) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(10_000);
+		}
+		return idleCount + 1;
+	}
+
+	private final class Consumer extends Thread {
+
+		private final List<EventHandler> handlers = new ArrayList<>();
+		// handlers of this consumer per event class, including handlers for super classes of the event
+		private final Map<Class<? extends Event>, EventHandlerCall[]> callsByEventClass = new HashMap<>();
+		// sequence number of the last event processed by this consumer
+		private final AtomicLong sequence;
+		private volatile boolean running = true;
+
+		Consumer(long sequence) {
+			this.sequence = new AtomicLong(sequence);
+		}
+
+		@Override
+		public void run() {
+			long next = this.sequence.get() + 1;
+			int idleCount = 0;
+			while (true) {
+				long available = published.get();
+				if (available < next) {
+					if (!this.running) {
+						return;
+					}
+					idleCount = idle(idleCount);
+					continue;
+				}
+				idleCount = 0;
+				for (; next <= available; next++) {
+					Event event = ring[(int) next & mask];
+					try {
+						for (EventHandlerCall call : getCalls(event.getClass())) {
+							call.handleEvent(event);
+						}
+					} catch (Throwable e) {
+						// keep consuming so the producer does not block, the exception is reported to the producer.
+						if (exception == null) {
+							exception = e;
+						}
+					}
+				}
+				this.sequence.lazySet(available);
+			}
+		}
+
+		private EventHandlerCall[] getCalls(Class<? extends Event> eventClass) {
+			EventHandlerCall[] calls = this.callsByEventClass.get(eventClass);
+			if (calls == null) {
+				List<EventHandlerCall> list = new ArrayList<>();
+				Class<?> klass = eventClass;
+				do {
+					for (EventHandler handler : this.handlers) {
+						Method method = findHandleEventMethod(handler, klass);
+						if (method != null) {
+							list.add(EventHandlerCall.create(handler, method));
+						}
+					}
+					klass = klass.getSuperclass();
+				} while (Event.class.isAssignableFrom(klass));
+				calls = list.toArray(new EventHandlerCall[0]);
+				this.callsByEventClass.put(eventClass, calls);
+			}
+			return calls;
+		}
+	}
+
+	private static Method findHandleEventMethod(EventHandler handler, Class<?> eventClass) {
+		Class<?> test = handler.getClass();
+		do {
+			for (Class<?> theInterface : test.getInterfaces()) {
+				if (EventHandler.class.isAssignableFrom(theInterface)) {
+					try {
+						return theInterface.getMethod("handleEvent", eventClass);
+					} catch (NoSuchMethodException e) {
+						// try the next interface
+					}
+				}
+			}
+			test = test.getSuperclass();
+		} while (test != null && EventHandler.class.isAssignableFrom(test));
+		return null;
+	}
+}
@@ -0,0 +1,203 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact, column-oriented binary format that can be read back with
+ * {@link EventsReaderBinary} (or {@link org.matsim.core.events.MatsimEventsReader}).
+ *
+ * All strings (event types, attribute names and values) are stored only once in a dictionary and referenced
+ * by their index. Events are written in blocks; every block stores its columns (time, type, number of attributes,
+ * attribute keys, attribute values) one after the other, preceded by the dictionary entries that were added since
+ * the previous block. Once the dictionary has more than about a million entries, the next block starts
+ * a new one, so values that only occur a few times (e.g. amounts) do not accumulate in the writer and the readers.
+ * See {@link EventsReaderBinary} for the exact layout.
+ *
+ * The file is never compressed, as it is memory-mapped when read.
+ */
+public final class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	private static final int BLOCK_SIZE = 65536;
+	private static final int MAX_DICTIONARY_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final int maxDictionarySize;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<byte[]> newStrings = new ArrayList<>();
+
+	private final double[] times = new double[BLOCK_SIZE];
+	private final int[] types = new int[BLOCK_SIZE];
+	private final int[] attributeCounts = new int[BLOCK_SIZE];
+	private int[] keys = new int[BLOCK_SIZE * 4];
+	private int[] values = new int[BLOCK_SIZE * 4];
+	private int eventCount = 0;
+	private int attributeCount = 0;
+	private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+	public EventWriterBinary(final File outfile) {
+		this(outfile, MAX_DICTIONARY_SIZE);
+	}
+
+	/*package*/ EventWriterBinary(final File outfile, final int maxDictionarySize) {
+		this.maxDictionarySize = maxDictionarySize;
+		try {
+			this.channel = FileChannel.open(outfile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			ByteBuffer header = ByteBuffer.allocate(EventsReaderBinary.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.put(EventsReaderBinary.MAGIC);
+			header.putInt(EventsReaderBinary.VERSION);
+			header.flip();
+			write(header);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		if (this.eventCount == BLOCK_SIZE) {
+			writeBlock();
+		}
+		if (this.eventCount == 0 && this.dictionary.size() > this.maxDictionarySize) {
+			this.dictionary.clear();
+		}
+		int index = this.eventCount;
+		this.times[index] = event.getTime();
+		this.types[index] = code(event.getEventType());
+		int count = 0;
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			String key = entry.getKey();
+			if (key.equals(Event.ATTRIBUTE_TIME) || key.equals(Event.ATTRIBUTE_TYPE)) {
+				continue;
+			}
+			if (this.attributeCount == this.keys.length) {
+				this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			}
+			this.keys[this.attributeCount] = code(key);
+			this.values[this.attributeCount] = entry.getValue() == null ? -1 : code(entry.getValue());
+			this.attributeCount++;
+			count++;
+		}
+		this.attributeCounts[index] = count;
+		this.eventCount++;
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.eventCount > 0) {
+				writeBlock();
+			}
+			this.channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	private int code(String string) {
+		Integer code = this.dictionary.get(string);
+		if (code == null) {
+			code = this.dictionary.size();
+			this.dictionary.put(string, code);
+			this.newStrings.add(string.getBytes(StandardCharsets.UTF_8));
+		}
+		return code;
+	}
+
+	private void writeBlock() {
+		int n = this.eventCount;
+		int m = this.attributeCount;
+		long length = 4L + 4 + 4 + 4 + n * (8L + 4 + 4) + m * (4L + 4);
+		for (byte[] string : this.newStrings) {
+			length += 4 + string.length;
+		}
+		if (length > Integer.MAX_VALUE - 4) {
+			throw new RuntimeException("events block too large: " + length + " bytes.");
+		}
+		int capacity = (int) length + 4;
+		if (this.buffer.capacity() < capacity) {
+			this.buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		ByteBuffer buf = this.buffer;
+		buf.clear();
+		buf.putInt((int) length);
+		buf.putInt(this.dictionary.size() - this.newStrings.size());
+		buf.putInt(this.newStrings.size());
+		for (byte[] string : this.newStrings) {
+			buf.putInt(string.length);
+			buf.put(string);
+		}
+		buf.putInt(n);
+		buf.putInt(m);
+		for (int i = 0; i < n; i++) {
+			buf.putDouble(this.times[i]);
+		}
+		for (int i = 0; i < n; i++) {
+			buf.putInt(this.types[i]);
+		}
+		for (int i = 0; i < n; i++) {
+			buf.putInt(this.attributeCounts[i]);
+		}
+		for (int i = 0; i < m; i++) {
+			buf.putInt(this.keys[i]);
+		}
+		for (int i = 0; i < m; i++) {
+			buf.putInt(this.values[i]);
+		}
+		buf.flip();
+		write(buf);
+		this.newStrings.clear();
+		this.eventCount = 0;
+		this.attributeCount = 0;
+	}
+
+	private void write(ByteBuffer buf) {
+		try {
+			while (buf.hasRemaining()) {
+				this.channel.write(buf);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -308,6 +308,13 @@ class Agent {
     public void reset() {
         plan.clear();
         events.clear();
+        resetState();
+    }
+
+    /**
+     * Resets the simulation state of the agent but keeps its plan and events, so that the same plan can be executed again.
+     */
+    public void resetState() {
         planIndex = 0;
         eventsIndex = 0;
         linkFinishTime = 0;
@@ -31,6 +31,7 @@ final class Hermes implements Mobsim {
 
 	final private static Logger log = Logger.getLogger(Hermes.class);
 	private Realm realm;
+	private PartitionedRealm partitionedRealm;
 	private Agent[] agents;
 	private ScenarioImporter si;
 	private final Scenario scenario;
@@ -45,11 +46,12 @@ final class Hermes implements Mobsim {
 		si = ScenarioImporter.instance(scenario, eventsManager);
 		si.generate();
 		this.realm = si.realm;
+		this.partitionedRealm = si.partitionedRealm;
 		this.agents = si.hermes_agents;
 	}
 
 	private void processEvents() {
-        eventsManager.processEvents(realm.getSortedEvents());
+		eventsManager.processEvents(partitionedRealm == null ? realm.getSortedEvents() : partitionedRealm.getSortedEvents());
 
 		for (Agent agent : agents) {
 			if (agent != null && !agent.finished() && !agent.isTransitVehicle()) {
@@ -61,6 +63,13 @@ final class Hermes implements Mobsim {
 		}
 	}
 
+	/**
+	 * @return the maximal number of events that were buffered at once during the last run
+	 */
+	int getPeakBufferedEvents() {
+		return partitionedRealm == null ? realm.getPeakBufferedEvents() : partitionedRealm.getPeakBufferedEvents();
+	}
+
 	@Override
 	public void run() {
 		long time;
@@ -72,7 +81,11 @@ final class Hermes implements Mobsim {
 			eventsManager.initProcessing();
 
 			time = System.currentTimeMillis();
-			realm.run();
+			if (partitionedRealm == null) {
+				realm.run();
+			} else {
+				partitionedRealm.run();
+			}
 			log.info(String.format(
 					"Hermes took %d ms", System.currentTimeMillis() - time));
 
@@ -21,6 +21,7 @@ package org.matsim.core.mobsim.hermes;
 import java.util.Map;
 import java.util.Set;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -59,11 +60,28 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     private static final String MAINMODESPARAMDESC = "[comma-separated list] Modes that are handled in the mobsim along links. By default: car";
     private Set<String> mainModes = Set.of(TransportMode.car);
 
+    private static final String REGIONSPARAM = "numberOfRegions";
+    private static final String REGIONSPARAMDESC = "Number of regions the network is partitioned into. Each region is simulated by one thread (global.numberOfThreads "
+            + "threads are used at most). Results only depend on the number of regions, not on the number of threads. Default: 1 (no partitioning)";
+
+    private static final String EVENTSFLUSHINTERVALPARAM = "eventsFlushInterval";
+    private static final String EVENTSFLUSHINTERVALPARAMDESC = "time in seconds. Events of completed time windows of this length are handed to the events manager while the simulation "
+            + "is still running, which bounds the number of buffered events and lets event handlers run concurrently to the simulation when "
+            + "parallel event handling is used. Set to 0 to hand over all events after the simulation. Default: 3600";
+
+    private static final String MAXBUFFEREDEVENTSPARAM = "maxBufferedEvents";
+    private static final String MAXBUFFEREDEVENTSPARAMDESC = "maximum number of events buffered by the simulation. Once it is reached, the buffered events "
+            + "are handed to the events manager after the current time step, independent of the events flush interval. Set to 0 for no limit. Default: 1000000";
+
+    private static final String INCREMENTALIMPORTPARAM = "incrementalPlanImport";
+    private static final String INCREMENTALIMPORTPARAMDESC = "if true, the plans of persons whose selected plan did not change since the last iteration are not imported again. "
+            + "Note that the event objects of these persons are reused, so event handlers must not keep references to events across iterations. Default: false";
+    private boolean incrementalPlanImport = false;
+
     private static final String DETPTDESC = "treats PT as deterministic. PT vehicles will run with a steady speed. Should be used with separate network layers for PT and other network modes.";
     private boolean deterministicPt = false;
     public static final boolean DEBUG_REALMS = false;
     public static final boolean DEBUG_EVENTS = false;
-    public static final boolean CONCURRENT_EVENT_PROCESSING = true;
 
     @Positive
     private double storageCapacityFactor = 1.0;
@@ -74,6 +92,15 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     @Positive
     private int stuckTime = 10;
 
+    @Positive
+    private int numberOfRegions = 1;
+
+    @PositiveOrZero
+    private int eventsFlushInterval = 3600;
+
+    @PositiveOrZero
+    private int maxBufferedEvents = 1_000_000;
+
     public Set<String> getMainModes() {
         return mainModes;
     }
@@ -110,6 +137,16 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         this.deterministicPt = deterministicPt;
     }
 
+    @StringGetter(INCREMENTALIMPORTPARAM)
+    public boolean isIncrementalPlanImport() {
+        return incrementalPlanImport;
+    }
+
+    @StringSetter(INCREMENTALIMPORTPARAM)
+    public void setIncrementalPlanImport(boolean incrementalPlanImport) {
+        this.incrementalPlanImport = incrementalPlanImport;
+    }
+
     @StringGetter(STUCKTIMEPARAM)
     public int getStuckTime() {
         return stuckTime;
@@ -120,6 +157,36 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         this.stuckTime = stuckTime;
     }
 
+    @StringGetter(REGIONSPARAM)
+    public int getNumberOfRegions() {
+        return numberOfRegions;
+    }
+
+    @StringSetter(REGIONSPARAM)
+    public void setNumberOfRegions(int numberOfRegions) {
+        this.numberOfRegions = numberOfRegions;
+    }
+
+    @StringGetter(EVENTSFLUSHINTERVALPARAM)
+    public int getEventsFlushInterval() {
+        return eventsFlushInterval;
+    }
+
+    @StringSetter(EVENTSFLUSHINTERVALPARAM)
+    public void setEventsFlushInterval(int eventsFlushInterval) {
+        this.eventsFlushInterval = eventsFlushInterval;
+    }
+
+    @StringGetter(MAXBUFFEREDEVENTSPARAM)
+    public int getMaxBufferedEvents() {
+        return maxBufferedEvents;
+    }
+
+    @StringSetter(MAXBUFFEREDEVENTSPARAM)
+    public void setMaxBufferedEvents(int maxBufferedEvents) {
+        this.maxBufferedEvents = maxBufferedEvents;
+    }
+
     @StringSetter(FLOW_CAPACITY_FACTOR)
     public void setFlowCapacityFactor(double flowCapacityFactor) {
         this.flowCapacityFactor = flowCapacityFactor;
@@ -156,6 +223,10 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(REGIONSPARAM, REGIONSPARAMDESC);
+        comments.put(EVENTSFLUSHINTERVALPARAM, EVENTSFLUSHINTERVALPARAMDESC);
+        comments.put(MAXBUFFEREDEVENTSPARAM, MAXBUFFEREDEVENTSPARAMDESC);
+        comments.put(INCREMENTALIMPORTPARAM, INCREMENTALIMPORTPARAMDESC);
         return comments;
     }
 
@@ -164,7 +235,7 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     @Override
     protected void checkConsistency(Config config) {
         super.checkConsistency(config);
-        if (config.parallelEventHandling().getOneThreadPerHandler()!=true && config.controler().getMobsim().equals("hermes")){
+        if (config.parallelEventHandling().getOneThreadPerHandler()!=true && config.parallelEventHandling().getUseRingBuffer()!=true && config.controler().getMobsim().equals("hermes")){
             throw new RuntimeException("Hermes should be run with one thread per handler.");
         }
     }
@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Splits the Hermes links into a fixed number of regions. Each region is simulated by its own {@link Realm}.
+ *
+ * The links are partitioned using recursive coordinate bisection: the set of links is split along the
+ * wider extent of its bounding box into two halves, proportionally to the number of regions each half
+ * receives, until every half corresponds to exactly one region. This keeps regions spatially compact
+ * (few boundary links) and balanced with respect to the number of links.
+ *
+ * Transit stops belong to the region of their link, so that vehicles serving a stop and passengers
+ * waiting at it are always handled by the same realm.
+ */
+final class HermesPartitioning {
+
+	// Returned for plan entries that can be executed in any region (sleeps, for example).
+	static final int ANY_REGION = -1;
+
+	private final int regions;
+	// Region of each link, indexed by Id<Link>.index().
+	private final int[] regionOfLink;
+	// Region of each stop, indexed by Id<TransitStopFacility>.index().
+	private final int[] regionOfStop;
+
+	private HermesPartitioning(int regions, int[] regionOfLink, int[] regionOfStop) {
+		this.regions = regions;
+		this.regionOfLink = regionOfLink;
+		this.regionOfStop = regionOfStop;
+	}
+
+	static HermesPartitioning create(Scenario scenario, int regions) {
+		int[] regionOfLink = new int[Id.getNumberOfIds(Link.class)];
+		int[] regionOfStop = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+
+		Link[] links = scenario.getNetwork().getLinks().values().toArray(new Link[0]);
+		double[] xs = new double[regionOfLink.length];
+		double[] ys = new double[regionOfLink.length];
+		Integer[] linkIds = new Integer[links.length];
+		for (int i = 0; i < links.length; i++) {
+			Link link = links[i];
+			int linkId = link.getId().index();
+			Coord from = link.getFromNode().getCoord();
+			Coord to = link.getToNode().getCoord();
+			xs[linkId] = (from.getX() + to.getX()) / 2;
+			ys[linkId] = (from.getY() + to.getY()) / 2;
+			linkIds[i] = linkId;
+		}
+		bisect(linkIds, 0, linkIds.length, 0, regions, xs, ys, regionOfLink);
+
+		for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+			Id<Link> linkId = stop.getLinkId();
+			regionOfStop[stop.getId().index()] = linkId == null ? 0 : regionOfLink[linkId.index()];
+		}
+
+		return new HermesPartitioning(regions, regionOfLink, regionOfStop);
+	}
+
+	private static void bisect(Integer[] linkIds, int from, int to, int firstRegion, int regions,
+							   double[] xs, double[] ys, int[] regionOfLink) {
+		if (regions == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				regionOfLink[linkIds[i]] = firstRegion;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			int linkId = linkIds[i];
+			minX = Math.min(minX, xs[linkId]);
+			maxX = Math.max(maxX, xs[linkId]);
+			minY = Math.min(minY, ys[linkId]);
+			maxY = Math.max(maxY, ys[linkId]);
+		}
+		double[] coords = (maxX - minX) >= (maxY - minY) ? xs : ys;
+		// ties are broken by link index to keep the partitioning deterministic
+		Arrays.sort(linkIds, from, to, Comparator.<Integer>comparingDouble(linkId -> coords[linkId]).thenComparingInt(linkId -> linkId));
+
+		int leftRegions = regions / 2;
+		int split = from + (int) ((long) (to - from) * leftRegions / regions);
+		bisect(linkIds, from, split, firstRegion, leftRegions, xs, ys, regionOfLink);
+		bisect(linkIds, split, to, firstRegion + leftRegions, regions - leftRegions, xs, ys, regionOfLink);
+	}
+
+	int regions() {
+		return this.regions;
+	}
+
+	int regionOfLink(int linkId) {
+		return this.regionOfLink[linkId];
+	}
+
+	int regionOfStop(int stopId) {
+		return this.regionOfStop[stopId];
+	}
+
+	/**
+	 * Returns the region that must execute the given plan entry, or {@link #ANY_REGION} if the entry does not
+	 * touch any region-owned state.
+	 */
+	int regionOfPlanEntry(long planentry) {
+		switch (Agent.getPlanHeader(planentry)) {
+			case Agent.LinkType:
+				return regionOfLink(Agent.getLinkPlanEntry(planentry));
+			case Agent.WaitType:
+			case Agent.StopArriveType:
+			case Agent.StopDelayType:
+			case Agent.StopDepartType:
+				return regionOfStop(Agent.getStopPlanEntry(planentry));
+			default:
+				return ANY_REGION;
+		}
+	}
+
+	/**
+	 * Returns the region in which an agent starts its day, i.e. the region of the first region-owned entry of its
+	 * plan. Agents without any such entry are assigned to the first region.
+	 */
+	int regionOfAgent(Agent agent) {
+		for (int i = 0; i < agent.plan().size(); i++) {
+			int region = regionOfPlanEntry(agent.plan().get(i));
+			if (region != ANY_REGION) {
+				return region;
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.utils.misc.Time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs Hermes on several {@link Realm}s in parallel, one per region of a {@link HermesPartitioning}.
+ *
+ * Every tick is executed in three phases separated by barriers:
+ * <ol>
+ *     <li>each region processes its delayed agents and links. Agents that need to continue on a link (or stop)
+ *     owned by another region are put into that region's exchange buffer instead, and stay where they are;</li>
+ *     <li>each region tries to execute the agents handed over to it during the first phase, e.g. to push them onto
+ *     its link if the storage capacity allows;</li>
+ *     <li>each region removes the accepted agents from their previous links. Rejected agents stay queued and retry
+ *     in the next tick.</li>
+ * </ol>
+ * Afterwards, the events of the tick are collected region by region. Since regions are statically assigned to
+ * threads and exchange buffers are always drained in region order, the results only depend on the number of
+ * regions, not on the number of threads.
+ *
+ * Note that an agent waiting behind an agent which is handed over to another region can only leave its link in the
+ * next tick, so congestion at region boundaries can differ slightly from a simulation with a single region.
+ */
+final class PartitionedRealm {
+
+	final private static Logger log = Logger.getLogger(PartitionedRealm.class);
+
+	private final ScenarioImporter si;
+	private final Realm[] regions;
+	private final List<RegionRunner> runners;
+	private final EventsManager eventsManager;
+	private final int numberOfThreads;
+	// queue of sorted events by time
+	private EventArray sorted_events;
+	// Maximal number of events that were buffered at once, only used for testing.
+	private int peakBufferedEvents = 0;
+	private int secs;
+
+	PartitionedRealm(ScenarioImporter scenario, EventsManager eventsManager, HermesPartitioning partitioning, int numberOfThreads) throws Exception {
+		this.si = scenario;
+		this.eventsManager = eventsManager;
+		this.sorted_events = new EventArray();
+		this.regions = new Realm[partitioning.regions()];
+		for (int i = 0; i < regions.length; i++) {
+			regions[i] = new Realm(scenario, eventsManager, partitioning, i);
+		}
+		for (Realm realm : regions) {
+			realm.connect(regions);
+		}
+
+		// each region is owned by exactly one thread
+		this.numberOfThreads = Math.max(1, Math.min(numberOfThreads, regions.length));
+		this.runners = new ArrayList<>(this.numberOfThreads);
+		for (int i = 0; i < this.numberOfThreads; i++) {
+			runners.add(new RegionRunner());
+		}
+		for (Realm realm : regions) {
+			runners.get(realm.region() % this.numberOfThreads).regions.add(realm);
+		}
+	}
+
+	Realm region(int region) {
+		return this.regions[region];
+	}
+
+	public void run() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads, new NamedThreadFactory());
+		try {
+			while (secs != HermesConfigGroup.SIM_STEPS) {
+				if (secs % 3600 == 0) {
+					log.info("Hermes running at " + Time.writeTime(secs) + " on " + regions.length + " regions");
+				}
+				int size = sorted_events.size();
+				peakBufferedEvents = Math.max(peakBufferedEvents, size);
+				if (size > 0 && Realm.isFlushing(si, secs, size)) {
+					// the events of all previous ticks are final, see Realm
+					eventsManager.processEvents(sorted_events);
+					sorted_events = new EventArray();
+				}
+				for (Realm realm : regions) {
+					realm.setTime(secs);
+				}
+				runPhase(pool, Phase.LOCAL);
+				runPhase(pool, Phase.HANDOVERS);
+				runPhase(pool, Phase.COMPLETION);
+
+				for (Realm realm : regions) {
+					realm.moveSortedEventsTo(sorted_events);
+				}
+				if (si.isDeterministicPt()) {
+					for (Event e : si.getDeterministicPtEvents().get(secs)) {
+						sorted_events.add(e);
+					}
+					si.getDeterministicPtEvents().get(secs).clear();
+				}
+				secs += 1;
+			}
+			peakBufferedEvents = Math.max(peakBufferedEvents, sorted_events.size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void runPhase(ExecutorService pool, Phase phase) throws InterruptedException {
+		for (RegionRunner runner : runners) {
+			runner.phase = phase;
+		}
+		try {
+			for (Future<Boolean> future : pool.invokeAll(runners)) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	EventArray getSortedEvents() {
+		return this.sorted_events;
+	}
+
+	int getPeakBufferedEvents() {
+		return this.peakBufferedEvents;
+	}
+
+	private enum Phase { LOCAL, HANDOVERS, COMPLETION }
+
+	private static class RegionRunner implements Callable<Boolean> {
+		private final List<Realm> regions = new ArrayList<>();
+		private Phase phase;
+
+		@Override
+		public Boolean call() {
+			for (Realm realm : regions) {
+				switch (phase) {
+					case LOCAL:
+						realm.processDelayedAgents();
+						realm.processDelayedLinks();
+						break;
+					case HANDOVERS:
+						realm.processHandovers();
+						break;
+					case COMPLETION:
+						realm.completeHandovers();
+						break;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new Thread(r, "Hermes_RealmThread_" + count++);
+		}
+	}
+}
@@ -37,6 +37,7 @@ import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 
 class Realm {
 	private final ScenarioImporter si;
@@ -45,9 +46,13 @@ class Realm {
     private final HLink[] links;
     // Internal realm links on hold until a specific timestamp (in seconds).
     // Internal means that the source and destination realm of are the same.
+    // Slots are only allocated once a link is delayed until that timestamp.
     private final ArrayList<ArrayDeque<HLink>> delayedLinksByWakeupTime;
-    // Agents on hold until a specific timestamp (in seconds).
+    // Agents on hold until a specific timestamp (in seconds). Slots are allocated lazily, as for links.
     private final ArrayList<ArrayDeque<Agent>> delayedAgentsByWakeupTime;
+    // Emptied slots, reused for later timestamps.
+    private final ArrayDeque<ArrayDeque<HLink>> spareLinkSlots = new ArrayDeque<>();
+    private final ArrayDeque<ArrayDeque<Agent>> spareAgentSlots = new ArrayDeque<>();
     // Agents waiting in pt stations. Should be used as follows:
     // agent_stops.get(curr station id).get(line id) -> queue of agents
     private final IdMap<TransitStopFacility, IntArrayMap<ArrayDeque<Agent>>> agent_stops;
@@ -57,29 +62,42 @@ class Realm {
     private final int[] line_of_route;
     // queue of sorted events by time
     private EventArray sorted_events;
+    // Maximal number of events that were buffered at once, only used for testing.
+    private int peakBufferedEvents = 0;
     // MATSim event manager.
     private final EventsManager eventsManager;
     // Current timestamp
     private int secs;
+    // Partitioning of the links when this realm is one of several regions, null otherwise.
+    private final HermesPartitioning partitioning;
+    // Region simulated by this realm.
+    private final int region;
+    // All regions of the simulation, used to hand over agents to other regions.
+    private Realm[] regions;
+    // Agents handed over to this region by other regions, one queue per source region. A queue is filled by the
+    // source region in the first phase of a tick, executed by this region in the second phase, and completed by the
+    // source region in the third phase.
+    private ArrayDeque<Handover>[] handovers;
     Logger log = Logger.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
+        this(scenario, eventsManager, null, 0);
+    }
+
+    Realm(ScenarioImporter scenario, EventsManager eventsManager, HermesPartitioning partitioning, int region) throws Exception {
     	this.si = scenario;
+        this.partitioning = partitioning;
+        this.region = region;
         this.links = scenario.hermes_links;
         // The plus one is necessary because we peek into the next slot on each tick.
-        this.delayedLinksByWakeupTime = new ArrayList<>();
-        this.delayedAgentsByWakeupTime = new ArrayList<>();
+        // the last position is to store events that will not happen...
+        this.delayedLinksByWakeupTime = new ArrayList<>(Collections.nCopies(HermesConfigGroup.SIM_STEPS + 2, null));
+        this.delayedAgentsByWakeupTime = new ArrayList<>(Collections.nCopies(HermesConfigGroup.SIM_STEPS + 2, null));
         this.agent_stops = scenario.agent_stops;
         this.route_stops_by_route_no = scenario.route_stops_by_route_no;
         this.line_of_route = scenario.line_of_route;
         this.sorted_events = new EventArray();
         this.eventsManager = eventsManager;
-
-	// the last position is to store events that will not happen...
-        for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
-        }
     }
 
     public void log(int time, String s) {
@@ -88,15 +106,27 @@ class Realm {
         }
     }
 
-    private void add_delayed_agent(Agent agent, int until) {
+    void add_delayed_agent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(slot);
+        if (agents == null) {
+            agents = spareAgentSlots.isEmpty() ? new ArrayDeque<>() : spareAgentSlots.poll();
+            delayedAgentsByWakeupTime.set(slot, agents);
+        }
+        agents.add(agent);
     }
 
-    private void add_delayed_link(HLink link, int until) {
+    void add_delayed_link(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<HLink> delayedLinks = delayedLinksByWakeupTime.get(slot);
+        if (delayedLinks == null) {
+            delayedLinks = spareLinkSlots.isEmpty() ? new ArrayDeque<>() : spareLinkSlots.poll();
+            delayedLinksByWakeupTime.set(slot, delayedLinks);
+        }
+        delayedLinks.add(link);
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
@@ -279,6 +309,9 @@ class Realm {
         if (finished) {
             setEventTime(agent, agent.events().size() - 1, secs, true);
         }
+        if (!finished && requestHandover(agent, -1)) {
+            return 0;
+        }
         // -1 is used in the processAgent because the agent is not in a link currently.
         if (!finished && !processAgent(agent, -1)) {
             add_delayed_agent(agent, secs + 1);
@@ -295,6 +328,10 @@ class Realm {
             // if finished, install times on last event.
             if (finished) {
                 setEventTime(agent, agent.events().size() - 1, secs, true);
+            } else if (requestHandover(agent, link.id())) {
+                // The agent stays at the head of the link until the owning region has executed the entry, the link
+                // is delayed again once the handover is completed.
+                return routed;
             }
             if (finished || processAgent(agent, link.id())) {
                 float storageCapacityPCE = agent.getStorageCapacityPCUE();
@@ -315,48 +352,153 @@ class Realm {
         return routed;
     }
 
-    public void run() throws Exception {
-    	int routed = 0;
-        Agent agent = null;
-        HLink link = null;
+    /**
+     * Hands the agent over to the region owning its next plan entry, if that is not this region. The agent stays where
+     * it is (at the head of its link, or outside of the network) until the owning region has tried to execute the
+     * entry in {@link #processHandovers()}, so the storage capacity of the next link is respected as within a region.
+     * The handover is completed in {@link #completeHandovers()}.
+     *
+     * @return true if the agent was handed over
+     */
+    private boolean requestHandover(Agent agent, int currLinkId) {
+        if (partitioning == null) {
+            return false;
+        }
+        int target = partitioning.regionOfPlanEntry(agent.plan.get(agent.planIndex + 1));
+        if (target == HermesPartitioning.ANY_REGION || target == region) {
+            return false;
+        }
+        if (HermesConfigGroup.DEBUG_REALMS) {
+            log(secs, String.format("agent %d handed over from region %d to region %d", agent.id, region, target));
+        }
+        regions[target].handovers[region].add(new Handover(agent, currLinkId));
+        return true;
+    }
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
-            }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
+    protected int processDelayedAgents() {
+        int routed = 0;
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(secs);
+        if (agents != null) {
+            Agent agent;
+            while ((agent = agents.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing agent %d", agent.id));
                 }
                 routed += processAgentActivities(agent);
-
             }
             delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sorted_events.add(e);
-                }
-                si.getDeterministicPtEvents().get(secs).clear();
-            }
+            spareAgentSlots.add(agents);
+        }
+        return routed;
+    }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
+    protected int processDelayedLinks() {
+        int routed = 0;
+        ArrayDeque<HLink> delayedLinks = delayedLinksByWakeupTime.get(secs);
+        if (delayedLinks != null) {
+            HLink link;
+            while ((link = delayedLinks.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing link %d", link.id()));
                 }
                 routed += processLinks(link);
             }
             delayedLinksByWakeupTime.set(secs, null);
+            spareLinkSlots.add(delayedLinks);
+        }
+        return routed;
+    }
+
+    /**
+     * Second phase of a tick: tries to execute the next plan entry of the agents handed over by other regions during
+     * the first phase. Source regions are always visited in the same order, which keeps the simulation deterministic
+     * for a given number of regions.
+     */
+    protected int processHandovers() {
+        int routed = 0;
+        for (ArrayDeque<Handover> queue : handovers) {
+            for (Handover handover : queue) {
+                handover.accepted = processAgent(handover.agent, handover.linkId);
+                if (handover.accepted) {
+                    routed += 1;
+                }
+            }
+        }
+        return routed;
+    }
+
+    /**
+     * Third phase of a tick: completes the handovers requested by this region. Accepted agents leave their link, the
+     * others retry in the next tick, as if they had failed to execute the entry within this region.
+     */
+    protected void completeHandovers() {
+        for (Realm target : regions) {
+            ArrayDeque<Handover> queue = target.handovers[region];
+            Handover handover;
+            while ((handover = queue.poll()) != null) {
+                Agent agent = handover.agent;
+                if (handover.linkId < 0) {
+                    if (!handover.accepted) {
+                        add_delayed_agent(agent, secs + 1);
+                    }
+                    continue;
+                }
+                HLink link = links[handover.linkId];
+                if (handover.accepted) {
+                    link.pop(agent.getStorageCapacityPCUE());
+                }
+                Agent head = link.queue().peek();
+                if (head != null) {
+                    add_delayed_link(link, Math.max(head.linkFinishTime, secs + 1));
+                }
+            }
+        }
+    }
+
+    public void run() throws Exception {
+    	int routed = 0;
+
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            if (secs % 3600 == 0) {
+                log.info("Hermes running at " + Time.writeTime(secs));
+            }
+            flushEvents();
+            routed += processDelayedAgents();
+            if (si.isDeterministicPt()) {
+                for (Event e : si.getDeterministicPtEvents().get(secs)) {
+                    sorted_events.add(e);
+                }
+                si.getDeterministicPtEvents().get(secs).clear();
+            }
+            routed += processDelayedLinks();
             if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
                 log(secs, String.format("Processed %d agents", routed));
             }
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
-                eventsManager.processEvents(sorted_events);
-                sorted_events = new EventArray();
-            }
 
             routed = 0;
             secs += 1;
         }
+        peakBufferedEvents = Math.max(peakBufferedEvents, sorted_events.size());
+    }
+
+    /**
+     * Called before simulating a tick. Hands the buffered events over to the events manager at the start of every
+     * time window of the flush interval, and whenever their number has reached the configured maximum. The events of
+     * all previous ticks are final at this point, so handlers can process them while the simulation continues.
+     */
+    private void flushEvents() {
+        int size = sorted_events.size();
+        peakBufferedEvents = Math.max(peakBufferedEvents, size);
+        if (size > 0 && isFlushing(si, secs, size)) {
+            eventsManager.processEvents(sorted_events);
+            sorted_events = new EventArray();
+        }
+    }
+
+    static boolean isFlushing(ScenarioImporter si, int secs, int bufferedEvents) {
+        int interval = si.getEventsFlushInterval();
+        int maxBufferedEvents = si.getMaxBufferedEvents();
+        return (interval > 0 && secs % interval == 0) || (maxBufferedEvents > 0 && bufferedEvents >= maxBufferedEvents);
     }
 
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
@@ -403,7 +545,36 @@ class Realm {
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
-    ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
+    @SuppressWarnings("unchecked")
+    void connect(Realm[] regions) {
+        this.regions = regions;
+        this.handovers = new ArrayDeque[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            this.handovers[i] = new ArrayDeque<>();
+        }
+    }
+
+    void setTime(int secs) { this.secs = secs; }
+    int region() { return this.region; }
     EventArray getSortedEvents() { return this.sorted_events; }
+    int getPeakBufferedEvents() { return this.peakBufferedEvents; }
+
+    void moveSortedEventsTo(EventArray target) {
+        for (int i = 0; i < sorted_events.size(); i++) {
+            target.add(sorted_events.get(i));
+        }
+        sorted_events.clear();
+    }
+
+    private static final class Handover {
+        private final Agent agent;
+        // Link the agent leaves once the handover is accepted, -1 if the agent is not on a link.
+        private final int linkId;
+        private boolean accepted;
+
+        private Handover(Agent agent, int linkId) {
+            this.agent = agent;
+            this.linkId = linkId;
+        }
+    }
 }
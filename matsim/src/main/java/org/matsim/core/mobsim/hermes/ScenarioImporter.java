@@ -41,6 +41,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
@@ -74,8 +75,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 class ScenarioImporter {
 
@@ -115,7 +119,15 @@ class ScenarioImporter {
 	protected Agent[] hermes_agents;
 
 	protected Realm realm;
+	// Only set if the network is split into several regions.
+	protected PartitionedRealm partitionedRealm;
+	private HermesPartitioning partitioning;
 	private final boolean deterministicPt;
+	private final int eventsFlushInterval;
+	private final int maxBufferedEvents;
+	// Selected plan from which each person agent was generated and its fingerprint, indexed by hermes id. Only used for incremental imports.
+	private final Plan[] importedPlans;
+	private final long[] importedPlanFingerprints;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
 	protected IdMap<TransitStopFacility, IntArrayMap<ArrayDeque<Agent>>> agent_stops;
@@ -130,6 +142,8 @@ class ScenarioImporter {
 	private ScenarioImporter(Scenario scenario, EventsManager eventsManager) {
 		numberOfThreads = Math.min(scenario.getConfig().global().getNumberOfThreads(), Runtime.getRuntime().availableProcessors());
 		this.deterministicPt = scenario.getConfig().hermes().isDeterministicPt();
+		this.eventsFlushInterval = scenario.getConfig().hermes().getEventsFlushInterval();
+		this.maxBufferedEvents = scenario.getConfig().hermes().getMaxBufferedEvents();
 		if (deterministicPt) {
 			deterministicPtEvents = new ArrayList<>(scenario.getConfig().hermes().getEndTime());
 			for (int i = 0; i < scenario.getConfig().hermes().getEndTime(); i++) {
@@ -144,7 +158,17 @@ class ScenarioImporter {
 		generateLinks();
 		generatePT();
 		generateAgents();
+		importedPlans = scenario.getConfig().hermes().isIncrementalPlanImport() ? new Plan[agent_persons] : null;
+		importedPlanFingerprints = importedPlans != null ? new long[agent_persons] : null;
+		generatePartitioning();
+	}
 
+	private void generatePartitioning() {
+		int regions = scenario.getConfig().hermes().getNumberOfRegions();
+		if (regions > 1) {
+			partitioning = HermesPartitioning.create(scenario, regions);
+			log.info(String.format("Hermes partitioned the network into %d regions, simulated by %d threads", regions, Math.min(regions, numberOfThreads)));
+		}
 	}
 
 	private void generateVehicleCategories() {
@@ -211,7 +235,12 @@ class ScenarioImporter {
 				// reset agent plans and events
 				for (int i = 0; i < hermes_agents.length; i++) {
 					if (hermes_agents[i] != null) {
-						hermes_agents[i].reset();
+						if (importedPlans != null && i < agent_persons) {
+							// plans are only regenerated if the selected plan changed, see generatePersonPlans
+							hermes_agents[i].resetState();
+						} else {
+							hermes_agents[i].reset();
+						}
 					}
 				}
 				// reset agent_stops
@@ -308,7 +337,11 @@ class ScenarioImporter {
 	}
 
 	private void generateRealms() throws Exception {
-		realm = new Realm(this, eventsManager);
+		if (partitioning == null) {
+			realm = new Realm(this, eventsManager);
+		} else {
+			partitionedRealm = new PartitionedRealm(this, eventsManager, partitioning, numberOfThreads);
+		}
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermes_agents) {
@@ -330,7 +363,8 @@ class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					Realm agentRealm = partitioning == null ? realm : partitionedRealm.region(partitioning.regionOfAgent(agent));
+					agentRealm.add_delayed_agent(agent, Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1));
 					break;
 				default:
 					Logger.getLogger(getClass()).error(String.format("ERROR -> unknown plan element type %d", type));
@@ -341,7 +375,8 @@ class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					Realm linkRealm = partitioning == null ? realm : partitionedRealm.region(partitioning.regionOfLink(link.id()));
+					linkRealm.add_delayed_link(link, nextwakeup);
 				}
 			}
 		}
@@ -421,16 +456,17 @@ class ScenarioImporter {
 		}
 		events.add(new PersonEntersVehicleEvent(0, id, vid));
 		events.add(new VehicleEntersTrafficEvent(0, id, startLId, vid, leg.getMode(), 1));
-		if (netroute.getLinkIds().size() > 1 || !startLId.equals(endLId)) {
+		if (netroute.getNumberOfLinks() > 1 || !startLId.equals(endLId)) {
 			events.add(new LinkLeaveEvent(0, vid, startLId));
 		}
-		for (Id<org.matsim.api.core.v01.network.Link> linkid : netroute.getLinkIds()) {
+		for (Iterator<Id<org.matsim.api.core.v01.network.Link>> iterator = netroute.getLinkIdIterator(); iterator.hasNext(); ) {
+			Id<org.matsim.api.core.v01.network.Link> linkid = iterator.next();
 			int linkId = linkid.index();
 			events.add(new LinkEnterEvent(0, vid, linkid));
 			flatplan.add(Agent.prepareLinkEntry(events.size() - 1, linkId, velocity, pcuCategory));
 			events.add(new LinkLeaveEvent(0, vid, linkid));
 		}
-		if (netroute.getLinkIds().size() > 1 || !startLId.equals(endLId)) {
+		if (netroute.getNumberOfLinks() > 1 || !startLId.equals(endLId)) {
 			events.add(new LinkEnterEvent(0, vid, endLId));
 			flatplan.add(Agent.prepareLinkEntry(events.size() - 1, egressId, velocity, pcuCategory));
 		}
@@ -584,8 +620,8 @@ class ScenarioImporter {
 			NetworkRoute route = this.tr.getRoute();
 			List<Link> links = new ArrayList<>();
 			links.add(network.getLinks().get(route.getStartLinkId()));
-			for (Id<Link> linkId : route.getLinkIds()) {
-				links.add(network.getLinks().get(linkId));
+			for (Iterator<Id<Link>> iterator = route.getLinkIdIterator(); iterator.hasNext(); ) {
+				links.add(network.getLinks().get(iterator.next()));
 			}
 			links.add(network.getLinks().get(route.getEndLinkId()));
 
@@ -765,8 +801,8 @@ class ScenarioImporter {
 		generateDeterministicVehicleOnLink(context, nr.getStartLinkId(), false, true);
 
 		// links
-		for (Id<org.matsim.api.core.v01.network.Link> link : nr.getLinkIds()) {
-			generateDeterministicVehicleOnLink(context, link, true, true);
+		for (Iterator<Id<org.matsim.api.core.v01.network.Link>> iterator = nr.getLinkIdIterator(); iterator.hasNext(); ) {
+			generateDeterministicVehicleOnLink(context, iterator.next(), true, true);
 		}
 
 		// last link
@@ -847,8 +883,8 @@ class ScenarioImporter {
 
 		generateNondeterministicVehicleOnLink(context, nr.getStartLinkId(), false, true, velocity, pcuCategory);
 
-		for (Id<org.matsim.api.core.v01.network.Link> link : nr.getLinkIds()) {
-			generateNondeterministicVehicleOnLink(context, link, true, true, velocity, pcuCategory);
+		for (Iterator<Id<org.matsim.api.core.v01.network.Link>> iterator = nr.getLinkIdIterator(); iterator.hasNext(); ) {
+			generateNondeterministicVehicleOnLink(context, iterator.next(), true, true, velocity, pcuCategory);
 		}
 
 		generateNondeterministicVehicleOnLink(context, nr.getEndLinkId(), true, false, velocity, pcuCategory);
@@ -884,14 +920,74 @@ class ScenarioImporter {
 
 	private void generatePersonPlans() {
 		Population population = scenario.getPopulation();
+		LongAdder generated = new LongAdder();
 		population.getPersons().values().parallelStream().forEach((person) -> {
 			int hermes_id = hermes_id(person.getId().index(), false);
+			Plan selectedPlan = person.getSelectedPlan();
 			PlanArray plan = hermes_agents[hermes_id].plan();
 			EventArray events = hermes_agents[hermes_id].events();
-			for (PlanElement element : person.getSelectedPlan().getPlanElements()) {
+			if (importedPlans != null) {
+				// Some strategies (e.g. re-routing or time mutation) modify the selected plan in place, so the same plan
+				// object is only skipped if its content did not change either.
+				long fingerprint = fingerprint(selectedPlan);
+				if (importedPlans[hermes_id] == selectedPlan && importedPlanFingerprints[hermes_id] == fingerprint) {
+					return;
+				}
+				plan.clear();
+				events.clear();
+				importedPlans[hermes_id] = selectedPlan;
+				importedPlanFingerprints[hermes_id] = fingerprint;
+			}
+			for (PlanElement element : selectedPlan.getPlanElements()) {
 				processPlanElement(person, plan, events, element, hermes_agents[hermes_id]);
 			}
+			generated.increment();
 		});
+		log.info(String.format("Hermes generated plans of %d out of %d persons", generated.sum(), population.getPersons().size()));
+	}
+
+	/**
+	 * Hash of everything Hermes imports from a plan: the activities with their locations and times, and the legs with
+	 * their times and routes.
+	 */
+	static long fingerprint(Plan plan) {
+		long hash = 1;
+		for (PlanElement element : plan.getPlanElements()) {
+			if (element instanceof Activity) {
+				Activity act = (Activity) element;
+				hash = 31 * hash + Objects.hashCode(act.getType());
+				hash = 31 * hash + Objects.hashCode(act.getLinkId());
+				hash = 31 * hash + Objects.hashCode(act.getFacilityId());
+				hash = 31 * hash + Objects.hashCode(act.getCoord());
+				hash = 31 * hash + fingerprint(act.getStartTime());
+				hash = 31 * hash + fingerprint(act.getEndTime());
+				hash = 31 * hash + fingerprint(act.getMaximumDuration());
+			} else if (element instanceof Leg) {
+				Leg leg = (Leg) element;
+				hash = 31 * hash + Objects.hashCode(leg.getMode());
+				hash = 31 * hash + fingerprint(leg.getDepartureTime());
+				hash = 31 * hash + fingerprint(leg.getTravelTime());
+				Route route = leg.getRoute();
+				if (route != null) {
+					hash = 31 * hash + route.getClass().hashCode();
+					hash = 31 * hash + Objects.hashCode(route.getStartLinkId());
+					hash = 31 * hash + Objects.hashCode(route.getEndLinkId());
+					hash = 31 * hash + fingerprint(route.getTravelTime());
+					hash = 31 * hash + Double.hashCode(route.getDistance());
+					hash = 31 * hash + Objects.hashCode(route.getRouteDescription());
+					if (route instanceof NetworkRoute) {
+						NetworkRoute networkRoute = (NetworkRoute) route;
+						hash = 31 * hash + networkRoute.getLinkIds().hashCode();
+						hash = 31 * hash + Objects.hashCode(networkRoute.getVehicleId());
+					}
+				}
+			}
+		}
+		return hash;
+	}
+
+	private static long fingerprint(OptionalTime time) {
+		return time.isDefined() ? Double.hashCode(time.seconds()) : -1;
 	}
 
 	private void generateAgents() {
@@ -954,4 +1050,20 @@ class ScenarioImporter {
 	public boolean isDeterministicPt() {
 		return deterministicPt;
 	}
+
+	/**
+	 * Returns the length (in seconds) of the time windows whose events are handed over to the events manager while
+	 * the simulation is running, or 0 if all events are handed over after the simulation.
+	 */
+	public int getEventsFlushInterval() {
+		return eventsFlushInterval;
+	}
+
+	/**
+	 * Returns the number of buffered events at which they are handed over to the events manager independent of the
+	 * flush interval, or 0 if there is no limit.
+	 */
+	public int getMaxBufferedEvents() {
+		return maxBufferedEvents;
+	}
 }
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarMessageQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * A message queue based on a calendar queue: the messages are stored in buckets of a fixed time width (by default one
+ * second), arranged in a ring of buckets which covers a time window of (by default) about 18 hours. Each bucket is a
+ * singly-linked list threaded through the messages themselves, so putting a message into the queue neither allocates
+ * nor compares. Messages beyond the time window are kept in an overflow heap, and are moved to the ring once the
+ * window has advanced far enough.
+ *
+ * Only the messages of the buckets that are due are moved to a small heap, which provides them in the same order as
+ * {@link MessageQueue}: by arrival time and, for equal times, by descending priority. Messages which are equal in both
+ * are returned in the order in which they were put into the queue, while {@link MessageQueue} returns them in an
+ * arbitrary order.
+ *
+ * Removed messages are only marked as dead and skipped once their bucket is due. Dead messages are handed back to the
+ * message pool of their {@link Scheduler} when they are discarded.
+ *
+ * @see MessageQueue
+ */
+public class CalendarMessageQueue extends MessageQueue {
+
+	public static final double DEFAULT_BUCKET_WIDTH = 1.0;
+	private static final int DEFAULT_NUMBER_OF_BUCKETS = 1 << 16; // about 18 hours of one-second buckets
+	// keeps the bucket arithmetic clear of overflows, also for infinite arrival times
+	private static final long MAX_BUCKET = 1L << 62;
+
+	static final Comparator<Message> COMPARATOR = (m0, m1) -> {
+		int cmp = m0.compareTo(m1);
+		return cmp != 0 ? cmp : Long.compare(m0.sequence, m1.sequence);
+	};
+
+	private final double bucketWidth;
+	private final Message[] buckets;
+	private final int mask;
+	private final PriorityQueue<Message> due = new PriorityQueue<>(COMPARATOR);
+	private final PriorityQueue<Message> overflow = new PriorityQueue<>(COMPARATOR);
+
+	/** the next bucket to be moved to the heap of due messages, all previous buckets were already moved */
+	private long cursor = 0;
+	private int bucketedCount = 0;
+	/** all messages in the queue, including the dead ones */
+	private int size = 0;
+	/** the live messages in the queue, counted the same way as by {@link MessageQueue} */
+	private int queueSize = 0;
+	private long nextSequence = 0;
+
+	public CalendarMessageQueue() {
+		this(DEFAULT_BUCKET_WIDTH, DEFAULT_NUMBER_OF_BUCKETS);
+	}
+
+	/**
+	 * @param bucketWidth the time width of one bucket
+	 * @param numberOfBuckets the number of buckets in the ring, is rounded up to the next power of two
+	 */
+	public CalendarMessageQueue(double bucketWidth, int numberOfBuckets) {
+		if (bucketWidth <= 0) {
+			throw new IllegalArgumentException("bucket width must be positive, but is " + bucketWidth);
+		}
+		int capacity = Integer.highestOneBit(Math.max(1, numberOfBuckets - 1)) << 1;
+		this.bucketWidth = bucketWidth;
+		this.buckets = new Message[capacity];
+		this.mask = capacity - 1;
+	}
+
+	@Override
+	public void putMessage(Message m) {
+		long bucket = bucketOf(m.getMessageArrivalTime());
+		if (this.size == 0) {
+			// the queue is empty, so the calendar can simply start at this message
+			this.cursor = bucket;
+		}
+		m.sequence = this.nextSequence++;
+		this.size++;
+		this.queueSize++;
+		insert(m, bucket);
+	}
+
+	@Override
+	public void removeMessage(Message m) {
+		m.killMessage();
+		this.queueSize--;
+	}
+
+	@Override
+	public Message getNextMessage() {
+		Message m = peekNextMessage();
+		if (m != null) {
+			this.due.poll();
+			this.size--;
+			this.queueSize--;
+		}
+		return m;
+	}
+
+	@Override
+	public Message peekNextMessage() {
+		while (true) {
+			Message m = this.due.peek();
+			if (m != null && !m.isAlive()) {
+				this.due.poll();
+				discard(m);
+			} else if (m != null) {
+				return m;
+			} else if (this.bucketedCount == 0 && this.overflow.isEmpty()) {
+				return null;
+			} else {
+				advance();
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	private long bucketOf(double time) {
+		double bucket = Math.floor(time / this.bucketWidth);
+		return (long) Math.max(-MAX_BUCKET, Math.min(MAX_BUCKET, bucket));
+	}
+
+	private void insert(Message m, long bucket) {
+		if (bucket < this.cursor) {
+			this.due.add(m);
+		} else if (bucket - this.cursor >= this.buckets.length) {
+			this.overflow.add(m);
+		} else {
+			int slot = (int) (bucket & this.mask);
+			m.nextInBucket = this.buckets[slot];
+			this.buckets[slot] = m;
+			this.bucketedCount++;
+		}
+	}
+
+	/**
+	 * Moves the bucket at the cursor to the heap of due messages and advances the cursor by one bucket, or directly to
+	 * the first message of the overflow heap if the ring is empty.
+	 */
+	private void advance() {
+		if (this.bucketedCount == 0) {
+			this.cursor = Math.max(this.cursor, bucketOf(this.overflow.peek().getMessageArrivalTime()));
+		}
+		Message m;
+		while ((m = this.overflow.peek()) != null) {
+			long bucket = bucketOf(m.getMessageArrivalTime());
+			if (bucket - this.cursor >= this.buckets.length) {
+				break;
+			}
+			this.overflow.poll();
+			if (m.isAlive()) {
+				insert(m, bucket);
+			} else {
+				discard(m);
+			}
+		}
+
+		int slot = (int) (this.cursor & this.mask);
+		m = this.buckets[slot];
+		this.buckets[slot] = null;
+		while (m != null) {
+			Message next = m.nextInBucket;
+			m.nextInBucket = null;
+			this.bucketedCount--;
+			if (m.isAlive()) {
+				this.due.add(m);
+			} else {
+				discard(m);
+			}
+			m = next;
+		}
+		this.cursor++;
+	}
+
+	private void discard(Message m) {
+		this.size--;
+		if (m instanceof EventMessage) {
+			Scheduler scheduler = ((EventMessage) m).scheduler;
+			if (scheduler != null) {
+				scheduler.recycleMessage(m);
+			}
+		}
+	}
+
+}
@@ -41,6 +41,10 @@ public abstract class Message implements Comparable<Message> {
 	protected int priority = 0;
 	private boolean isAlive = true;
 
+	// only used by the CalendarMessageQueue
+	Message nextInBucket = null;
+	long sequence = 0;
+
 	public Message() {
 	}
 
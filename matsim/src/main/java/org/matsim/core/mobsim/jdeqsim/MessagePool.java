@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MessagePool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayDeque;
+
+/**
+ * Recycles the messages of one {@link Scheduler}, like the {@link MessageFactory} does, but without static state.
+ * Each scheduler has a pool of its own, so several simulations can run concurrently. A pool must only be used by the
+ * thread running its scheduler. Messages are not recycled if {@link JDEQSimConfigGroup#isGC_MESSAGES()} is set.
+ */
+final class MessagePool {
+
+	private final Scheduler scheduler;
+
+	private final ArrayDeque<EndLegMessage> endLegMessages = new ArrayDeque<>();
+	private final ArrayDeque<EnterRoadMessage> enterRoadMessages = new ArrayDeque<>();
+	private final ArrayDeque<StartingLegMessage> startingLegMessages = new ArrayDeque<>();
+	private final ArrayDeque<LeaveRoadMessage> leaveRoadMessages = new ArrayDeque<>();
+	private final ArrayDeque<EndRoadMessage> endRoadMessages = new ArrayDeque<>();
+	private final ArrayDeque<DeadlockPreventionMessage> deadlockPreventionMessages = new ArrayDeque<>();
+
+	MessagePool(Scheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Hands a message back to the pool once it was handled or discarded by the message queue, so that it can be
+	 * reused. Messages of other types than the ones provided by the pool are left to the garbage collection.
+	 */
+	void dispose(Message message) {
+		if (JDEQSimConfigGroup.isGC_MESSAGES()) {
+			return;
+		}
+		Class<?> type = message.getClass();
+		if (type == EnterRoadMessage.class) {
+			this.enterRoadMessages.add((EnterRoadMessage) message);
+		} else if (type == EndRoadMessage.class) {
+			this.endRoadMessages.add((EndRoadMessage) message);
+		} else if (type == LeaveRoadMessage.class) {
+			this.leaveRoadMessages.add((LeaveRoadMessage) message);
+		} else if (type == DeadlockPreventionMessage.class) {
+			this.deadlockPreventionMessages.add((DeadlockPreventionMessage) message);
+		} else if (type == StartingLegMessage.class) {
+			this.startingLegMessages.add((StartingLegMessage) message);
+		} else if (type == EndLegMessage.class) {
+			this.endLegMessages.add((EndLegMessage) message);
+		}
+	}
+
+	EndLegMessage getEndLegMessage(Vehicle vehicle) {
+		EndLegMessage message = this.endLegMessages.poll();
+		if (message == null) {
+			return new EndLegMessage(this.scheduler, vehicle);
+		}
+		message.resetMessage(this.scheduler, vehicle);
+		return message;
+	}
+
+	EnterRoadMessage getEnterRoadMessage(Vehicle vehicle) {
+		EnterRoadMessage message = this.enterRoadMessages.poll();
+		if (message == null) {
+			return new EnterRoadMessage(this.scheduler, vehicle);
+		}
+		message.resetMessage(this.scheduler, vehicle);
+		return message;
+	}
+
+	StartingLegMessage getStartingLegMessage(Vehicle vehicle) {
+		StartingLegMessage message = this.startingLegMessages.poll();
+		if (message == null) {
+			return new StartingLegMessage(this.scheduler, vehicle);
+		}
+		message.resetMessage(this.scheduler, vehicle);
+		return message;
+	}
+
+	LeaveRoadMessage getLeaveRoadMessage(Vehicle vehicle) {
+		LeaveRoadMessage message = this.leaveRoadMessages.poll();
+		if (message == null) {
+			return new LeaveRoadMessage(this.scheduler, vehicle);
+		}
+		message.resetMessage(this.scheduler, vehicle);
+		return message;
+	}
+
+	EndRoadMessage getEndRoadMessage(Vehicle vehicle) {
+		EndRoadMessage message = this.endRoadMessages.poll();
+		if (message == null) {
+			return new EndRoadMessage(this.scheduler, vehicle);
+		}
+		message.resetMessage(this.scheduler, vehicle);
+		return message;
+	}
+
+	DeadlockPreventionMessage getDeadlockPreventionMessage(Vehicle vehicle) {
+		DeadlockPreventionMessage message = this.deadlockPreventionMessages.poll();
+		if (message == null) {
+			return new DeadlockPreventionMessage(this.scheduler, vehicle);
+		}
+		message.resetMessage(this.scheduler, vehicle);
+		return message;
+	}
+
+	/*package*/ int size() {
+		return this.endLegMessages.size() + this.enterRoadMessages.size() + this.startingLegMessages.size()
+				+ this.leaveRoadMessages.size() + this.endRoadMessages.size() + this.deadlockPreventionMessages.size();
+	}
+
+}
@@ -85,6 +85,21 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * 
+	 * get the first message in the queue (with least time stamp) without removing it
+	 *
+	 * @return the message, or <code>null</code> if the queue is empty
+	 */
+	public Message peekNextMessage() {
+		Message m;
+		// skip over dead messages
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m;
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
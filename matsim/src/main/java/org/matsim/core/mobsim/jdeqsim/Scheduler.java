@@ -35,6 +35,7 @@ public class Scheduler {
 	private double simulationStartTime = System.currentTimeMillis();
 	private final double simulationEndTime;
 	private double hourlyLogTime = 3600;
+	final MessagePool messagePool = new MessagePool(this);
 
 	public Scheduler(MessageQueue queue) {
 		this(queue, Double.MAX_VALUE);
@@ -61,11 +62,20 @@ public class Scheduler {
 				simTime = m.getMessageArrivalTime();
 				m.processEvent();
 				m.handleMessage();
+				recycleMessage(m);
 			}
 			printLog();
 		}
 	}
 
+	/**
+	 * Hands a message back to the message pool of this scheduler once it was handled or discarded by the message
+	 * queue, so that it can be reused for the messages scheduled later on.
+	 */
+	protected void recycleMessage(Message m) {
+		this.messagePool.dispose(m);
+	}
+
 	public double getSimTime() {
 		return simTime;
 	}
@@ -267,27 +267,27 @@ public class Vehicle extends SimUnit {
 	}
 
 	protected void _scheduleEnterRoadMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getEnterRoadMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.messagePool.getEnterRoadMessage(this), road, scheduleTime);
 	}
 
 	public void scheduleEndRoadMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getEndRoadMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.messagePool.getEndRoadMessage(this), road, scheduleTime);
 	}
 
 	public void scheduleLeaveRoadMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getLeaveRoadMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.messagePool.getLeaveRoadMessage(this), road, scheduleTime);
 	}
 
 	public void scheduleEndLegMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getEndLegMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.messagePool.getEndLegMessage(this), road, scheduleTime);
 	}
 
 	public void scheduleStartingLegMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getStartingLegMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.messagePool.getStartingLegMessage(this), road, scheduleTime);
 	}
 
 	public DeadlockPreventionMessage scheduleDeadlockPreventionMessage(double scheduleTime, Road road) {
-		DeadlockPreventionMessage dpMessage = MessageFactory.getDeadlockPreventionMessage(road.scheduler, this);
+		DeadlockPreventionMessage dpMessage = road.scheduler.messagePool.getDeadlockPreventionMessage(this);
 		sendMessage(dpMessage, road, scheduleTime);
 		return dpMessage;
 	}
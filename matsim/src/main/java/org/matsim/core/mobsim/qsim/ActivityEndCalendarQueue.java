@@ -0,0 +1,278 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndCalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * Keeps agents ordered by the end time of their current activity, using a calendar queue: the agents are stored in
+ * buckets of a fixed time width (by default one second), arranged in a ring of buckets which covers one "year" of
+ * the calendar. Agents further in the future than one year share the bucket with the agents of the same time of the
+ * year, and are skipped until their year has come.
+ *
+ * Adding an agent, and removing or rescheduling an agent through its handle, takes constant time. Only the agents
+ * of the buckets that are due are moved to a small heap, which provides them in the same order as a priority queue
+ * would: by activity end time and, for equal times, by descending agent id.
+ *
+ * The queue is not thread-safe; callers that modify it from several threads need to synchronize.
+ */
+public final class ActivityEndCalendarQueue {
+
+	public static final double DEFAULT_BUCKET_SIZE = 1.0;
+	private static final int DEFAULT_NUMBER_OF_BUCKETS = 1 << 17; // about 36 hours of one-second buckets
+
+	static final Comparator<Entry> COMPARATOR = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	};
+
+	private final double bucketSize;
+	private final Entry[] buckets;
+	private final int mask;
+	private final Map<MobsimAgent, Entry> entries = new IdentityHashMap<>();
+	private final PriorityQueue<Entry> due = new PriorityQueue<>(COMPARATOR);
+
+	/** the next bucket to be moved to the heap of due entries, all previous buckets were already moved */
+	private long cursor = Long.MAX_VALUE;
+	private int bucketedCount = 0;
+
+	public ActivityEndCalendarQueue() {
+		this(DEFAULT_BUCKET_SIZE, DEFAULT_NUMBER_OF_BUCKETS);
+	}
+
+	/**
+	 * @param bucketSize the time width of one bucket
+	 * @param numberOfBuckets the number of buckets in the ring, is rounded up to the next power of two
+	 */
+	public ActivityEndCalendarQueue(double bucketSize, int numberOfBuckets) {
+		if (bucketSize <= 0) {
+			throw new IllegalArgumentException("bucket size must be positive, but is " + bucketSize);
+		}
+		int capacity = Integer.highestOneBit(Math.max(1, numberOfBuckets - 1)) << 1;
+		this.bucketSize = bucketSize;
+		this.buckets = new Entry[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Adds the agent with the given activity end time. If the agent is already contained, its previous entry is
+	 * replaced.
+	 */
+	public void add(MobsimAgent agent, double activityEndTime) {
+		Entry entry = new Entry(agent, activityEndTime, bucketOf(activityEndTime));
+		Entry previous = this.entries.put(agent, entry);
+		if (previous != null) {
+			unlink(previous);
+		}
+		if (entry.bucket < this.cursor && this.due.isEmpty()) {
+			// nothing is due yet, so the calendar can simply start earlier
+			this.cursor = entry.bucket;
+		}
+		if (entry.bucket < this.cursor) {
+			entry.inHeap = true;
+			this.due.add(entry);
+		} else {
+			int slot = (int) (entry.bucket & this.mask);
+			Entry head = this.buckets[slot];
+			entry.next = head;
+			if (head != null) {
+				head.prev = entry;
+			}
+			this.buckets[slot] = entry;
+			this.bucketedCount++;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the agent was contained in the queue and is now removed
+	 */
+	public boolean remove(MobsimAgent agent) {
+		Entry entry = this.entries.remove(agent);
+		if (entry == null) {
+			return false;
+		}
+		unlink(entry);
+		return true;
+	}
+
+	public boolean contains(MobsimAgent agent) {
+		return this.entries.containsKey(agent);
+	}
+
+	/**
+	 * Removes and returns the agent with the earliest activity end time, if that time is not after the given time.
+	 *
+	 * @return the next agent whose activity has ended by <code>time</code>, or <code>null</code> if there is none.
+	 */
+	public MobsimAgent poll(double time) {
+		long timeBucket = bucketOf(time);
+		while (this.bucketedCount > 0 && this.cursor <= timeBucket) {
+			moveBucketToHeap(this.cursor);
+			this.cursor++;
+		}
+		if (this.bucketedCount == 0 && this.cursor <= timeBucket) {
+			this.cursor = timeBucket + 1;
+		}
+		Entry entry;
+		while ((entry = this.due.peek()) != null) {
+			if (entry.removed) {
+				this.due.poll();
+			} else if (entry.activityEndTime <= time) {
+				this.due.poll();
+				this.entries.remove(entry.agent);
+				return entry.agent;
+			} else {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the earliest activity end time in the queue, or {@link Double#POSITIVE_INFINITY} if the queue is empty.
+	 */
+	public double peekNextActivityEndTime() {
+		while (true) {
+			Entry entry = this.due.peek();
+			if (entry != null && entry.removed) {
+				this.due.poll();
+			} else if (entry != null) {
+				return entry.activityEndTime;
+			} else if (this.bucketedCount == 0) {
+				return Double.POSITIVE_INFINITY;
+			} else {
+				// nothing is due yet, so advance the calendar to the next bucket with entries; poll(...) would do the
+				// same once the time has come
+				moveBucketToHeap(this.cursor);
+				this.cursor++;
+			}
+		}
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	public boolean isEmpty() {
+		return this.entries.isEmpty();
+	}
+
+	/**
+	 * @return all entries, sorted in the order in which they would be polled.
+	 */
+	public List<Entry> getSortedEntries() {
+		List<Entry> list = new ArrayList<>(this.entries.values());
+		list.sort(COMPARATOR);
+		return list;
+	}
+
+	public void clear() {
+		this.entries.clear();
+		this.due.clear();
+		Arrays.fill(this.buckets, null);
+		this.bucketedCount = 0;
+		this.cursor = Long.MAX_VALUE;
+	}
+
+	private long bucketOf(double time) {
+		return (long) Math.floor(time / this.bucketSize);
+	}
+
+	private void moveBucketToHeap(long bucket) {
+		int slot = (int) (bucket & this.mask);
+		Entry entry = this.buckets[slot];
+		while (entry != null) {
+			Entry next = entry.next;
+			if (entry.bucket == bucket) {
+				// entries of later years stay in the bucket
+				unlink(entry);
+				entry.removed = false;
+				entry.inHeap = true;
+				this.due.add(entry);
+			}
+			entry = next;
+		}
+	}
+
+	private void unlink(Entry entry) {
+		if (entry.inHeap) {
+			// removing from the heap would take linear time; the entry is skipped once it reaches the head
+			entry.removed = true;
+			return;
+		}
+		if (entry.prev != null) {
+			entry.prev.next = entry.next;
+		} else {
+			this.buckets[(int) (entry.bucket & this.mask)] = entry.next;
+		}
+		if (entry.next != null) {
+			entry.next.prev = entry.prev;
+		}
+		entry.prev = null;
+		entry.next = null;
+		entry.removed = true;
+		this.bucketedCount--;
+	}
+
+	public static final class Entry {
+		private final MobsimAgent agent;
+		private final double activityEndTime;
+		private final long bucket;
+		private Entry prev = null;
+		private Entry next = null;
+		private boolean inHeap = false;
+		private boolean removed = false;
+
+		private Entry(MobsimAgent agent, double activityEndTime, long bucket) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+			this.bucket = bucket;
+		}
+
+		public MobsimAgent getAgent() {
+			return this.agent;
+		}
+
+		public double getActivityEndTime() {
+			return this.activityEndTime;
+		}
+	}
+}
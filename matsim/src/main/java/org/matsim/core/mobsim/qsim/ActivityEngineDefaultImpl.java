@@ -19,9 +19,8 @@
 
 package org.matsim.core.mobsim.qsim;
 
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.inject.Inject;
 
@@ -33,8 +32,9 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextWakeUpTime;
 
-class ActivityEngineDefaultImpl implements ActivityEngine {
+class ActivityEngineDefaultImpl implements ActivityEngine, HasNextWakeUpTime {
 	private static final Logger log = Logger.getLogger( ActivityEngineDefaultImpl.class ) ;
 
 	private final EventsManager eventsManager;
@@ -48,78 +48,89 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 //		this.eventsManager = eventsManager;
 //	}
 
-	/**
-	 * Agents cannot be added directly to the activityEndsList since that would
-	 * not be thread-safe when within-day replanning is used. There, an agent's
-	 * activity end time can be modified. As a result, the agent is located at
-	 * the wrong position in the activityEndsList until it is updated by using
-	 * rescheduleActivityEnd(...). However, if another agent is added to the list
-	 * in the mean time, it might be inserted at the wrong position.
-	 * cdobler, apr'12
-	 */
-	private static class AgentEntry {
-		AgentEntry( MobsimAgent agent, double activityEndTime ) {
-			this.agent = agent;
-			this.activityEndTime = activityEndTime;
-		}
-		private final MobsimAgent agent;
-		private final double activityEndTime;
-	}
-
 	private InternalInterface internalInterface;
 
 	/**
-	 * This list needs to be a "blocking" queue since this is needed for
-	 * thread-safety in the parallel qsim. cdobler, oct'10
+	 * Agents are ordered by their activity end time, and for equal times by descending agent id.  The calendar queue
+	 * allows to remove and re-add agents in constant time, which is needed when many activity end times are changed
+	 * by within-day replanning.
+	 * <p></p>
+	 * The queue itself is not thread-safe: agents arriving from the parallel netsim threads are passed to
+	 * handleActivity(...) through the synchronized internal interface of the QSim, and doSimStep(...) is never run
+	 * concurrently with other engines.  Only rescheduleActivityEnd(...) may be called from several within-day
+	 * replanning threads at once, and thus synchronizes on the queue.
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
-		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
-		if (cmp == 0) {
-			// Both depart at the same time -> let the one with the larger id be first (=smaller)
-			//
-			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-			// to say that the agent with the larger ID should be "smaller" one in the comparison.
-			// In practice, it seems
-			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-			// It is unclear why this convention is supposed to be helpful.
-			// kai & dominik, jul'12
-			//
-			return e1.agent.getId().compareTo(e0.agent.getId());
-		}
-		return cmp;
-	});
+	private final ActivityEndCalendarQueue activityEndsList = new ActivityEndCalendarQueue();
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
 
+	/**
+	 * Only set if the QSim is configured to use sharded engines, see {@link ShardedAgentProcessor}.
+	 */
+	private ShardedAgentProcessor shards = null;
+	private final List<MobsimAgent> endingAgents = new ArrayList<>();
+
 	@Override
 	public void onPrepareSim() {
-		// Nothing to do here
+		QSim qsim = internalInterface.getMobsim();
+		int numberOfThreads = qsim.getScenario().getConfig().qsim().getNumberOfThreads();
+		if (qsim.getEventsManager() instanceof CapturingEventsManager && numberOfThreads > 1) {
+			this.shards = new ShardedAgentProcessor((CapturingEventsManager) qsim.getEventsManager(), numberOfThreads, "ActivityEngine_PooledThread_");
+		}
 	}
 
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
-				unregisterAgentAtActivityLocation(agent);
-				agent.endActivityAndComputeNextState(time);
-				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
-			}
+		if (shards != null) {
+			doShardedSimStep(time);
+			return;
+		}
+		MobsimAgent agent;
+		while ((agent = activityEndsList.poll(time)) != null) {
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
 		}
 	}
 
+	@Override
+	public double getNextWakeUpTime(double now) {
+		synchronized (activityEndsList) {
+			return activityEndsList.peekNextActivityEndTime();
+		}
+	}
+
+	private void doShardedSimStep(double time) {
+		MobsimAgent agent;
+		do {
+			// agents handed on might end up in this engine again, so repeat until no agent is due anymore
+			endingAgents.clear();
+			while ((agent = activityEndsList.poll(time)) != null) {
+				endingAgents.add(agent);
+			}
+			shards.process(endingAgents, a -> {
+				unregisterAgentAtActivityLocation(a);
+				a.endActivityAndComputeNextState(time);
+			}, internalInterface::arrangeNextAgentState);
+		} while (!endingAgents.isEmpty());
+		endingAgents.clear();
+	}
+
 	@Override
 	public void afterSim() {
+		if (shards != null) {
+			// the threads are not needed anymore, even if the stuck events below fail
+			shards.shutdown();
+			shards = null;
+		}
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
-			if (entry.activityEndTime != Double.POSITIVE_INFINITY) {
+		for (ActivityEndCalendarQueue.Entry entry : activityEndsList.getSortedEntries()) {
+			if (entry.getActivityEndTime() != Double.POSITIVE_INFINITY) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
 				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
-				eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+				eventsManager.processEvent(new PersonStuckEvent(now, entry.getAgent().getId(), null, null));
 			}
 		}
 		activityEndsList.clear();
@@ -154,8 +165,7 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			final AgentEntry agentEntry = new AgentEntry(agent, agent.getActivityEndTime());
-			activityEndsList.add(agentEntry);
+			activityEndsList.add(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -186,17 +196,22 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 		
 		
-		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		synchronized (activityEndsList) {
+			rescheduleActivityEnd(agent, agent.getActivityEndTime());
+		}
+	}
+
+	private void rescheduleActivityEnd(final MobsimAgent agent, final double newActivityEndTime) {
+		boolean wasQueued = activityEndsList.remove(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
-		if (oldEntry == null) {
+		if (!wasQueued) {
 			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				activityEndsList.add(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -211,20 +226,8 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
-		}
-	}
-
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
-			}
+			activityEndsList.add(agent, newActivityEndTime);
 		}
-		return null;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CapturingEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Passes events on to the delegate, except for threads that currently capture their events into a buffer. This
+ * allows the {@link ShardedAgentProcessor} to let agents compute their next state in parallel, and to pass on the
+ * events they generate afterwards in a deterministic order.
+ */
+final class CapturingEventsManager implements EventsManager {
+
+	private final EventsManager delegate;
+	private final ThreadLocal<EventArray> buffers = new ThreadLocal<>();
+
+	CapturingEventsManager(EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	EventsManager getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * All events processed by the calling thread are added to the given buffer until {@link #stopCapturing()} is called.
+	 */
+	void startCapturing(EventArray buffer) {
+		this.buffers.set(buffer);
+	}
+
+	void stopCapturing() {
+		this.buffers.remove();
+	}
+
+	@Override
+	public void processEvent(Event event) {
+		EventArray buffer = this.buffers.get();
+		if (buffer != null) {
+			buffer.add(event);
+		} else {
+			this.delegate.processEvent(event);
+		}
+	}
+
+	@Override
+	public void addHandler(EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		this.delegate.afterSimStep(time);
+	}
+
+	@Override
+	public void finishProcessing() {
+		this.delegate.finishProcessing();
+	}
+}
@@ -21,9 +21,11 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
@@ -39,6 +41,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextWakeUpTime;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.facilities.Facility;
@@ -49,7 +52,7 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, HasNextWakeUpTime {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
 	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
@@ -74,6 +77,12 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	private final boolean withTravelTimeCheck;
 
+	/**
+	 * Only set if the QSim is configured to use sharded engines, see {@link ShardedAgentProcessor}.
+	 */
+	private ShardedAgentProcessor shards = null;
+	private final List<MobsimAgent> arrivingAgents = new ArrayList<>();
+
 	@Inject
 	public DefaultTeleportationEngine(Scenario scenario, EventsManager eventsManager) {
 		this(scenario, eventsManager, scenario.getConfig().qsim().isUsingTravelTimeCheckInTeleportation());
@@ -128,7 +137,38 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	@Override
 	public void doSimStep(double time) {
-		handleTeleportationArrivals(time);
+		if (shards != null) {
+			handleShardedTeleportationArrivals(time);
+		} else {
+			handleTeleportationArrivals(time);
+		}
+	}
+
+	@Override
+	public double getNextWakeUpTime(double now) {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
+	private void handleShardedTeleportationArrivals(double now) {
+		EventsManager qsimEvents = internalInterface.getMobsim().getEventsManager();
+		do {
+			// agents handed on might be teleported again with a travel time of 0, so repeat until no agent arrives anymore
+			arrivingAgents.clear();
+			while (!teleportationList.isEmpty() && teleportationList.peek().getFirst() <= now) {
+				arrivingAgents.add(teleportationList.poll().getSecond());
+			}
+			shards.process(arrivingAgents, personAgent -> {
+				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
+				double distance = personAgent.getExpectedTravelDistance();
+				// use the events manager of the qsim, so the event is captured together with the ones of the agent
+				qsimEvents.processEvent(new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
+				personAgent.endLegAndComputeNextState(now);
+			}, personAgent -> {
+				this.teleportationData.remove(personAgent.getId());
+				internalInterface.arrangeNextAgentState(personAgent);
+			});
+		} while (!arrivingAgents.isEmpty());
 	}
 
 	private void handleTeleportationArrivals(double now) {
@@ -152,10 +192,20 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	@Override
 	public void onPrepareSim() {
+		QSim qsim = internalInterface.getMobsim();
+		int numberOfThreads = qsim.getScenario().getConfig().qsim().getNumberOfThreads();
+		if (qsim.getEventsManager() instanceof CapturingEventsManager && numberOfThreads > 1) {
+			this.shards = new ShardedAgentProcessor((CapturingEventsManager) qsim.getEventsManager(), numberOfThreads, "TeleportationEngine_PooledThread_");
+		}
 	}
 
 	@Override
 	public void afterSim() {
+		if (shards != null) {
+			// the threads are not needed anymore, even if the stuck events below fail
+			shards.shutdown();
+			shards = null;
+		}
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
 			MobsimAgent agent = entry.getSecond();
@@ -32,6 +32,10 @@ import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 class MobsimListenerManager implements MatsimManager {
 
 	private final static Logger log = Logger.getLogger(MobsimListenerManager.class);
@@ -64,6 +68,19 @@ class MobsimListenerManager implements MatsimManager {
 		}
 	}
 
+	/**
+	 * @return all listeners which are notified before or after every sim step
+	 */
+	public List<MobsimListener> getSimStepListeners() {
+		List<MobsimListener> listeners = new ArrayList<>(Arrays.asList(this.listenerList.getListeners(MobsimBeforeSimStepListener.class)));
+		for (MobsimAfterSimStepListener listener : this.listenerList.getListeners(MobsimAfterSimStepListener.class)) {
+			if (!listeners.contains(listener)) {
+				listeners.add(listener);
+			}
+		}
+		return listeners;
+	}
+
 	/**
 	 * Creates the event and notifies all listeners
 	 */
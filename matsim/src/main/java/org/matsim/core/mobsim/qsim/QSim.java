@@ -133,6 +133,12 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	private final Map<MobsimEngine, AtomicLong> mobsimEngineRunTimes;
 	private ActivityEngine activityEngine;
 
+	/**
+	 * The engines and sim step listeners which are asked for their next wake-up time, or <code>null</code> if all
+	 * sim steps are simulated.
+	 */
+	private List<HasNextWakeUpTime> wakeUpTimeProviders = null;
+
 	{
 		if (analyzeRunTimes) this.mobsimEngineRunTimes = new HashMap<>();
 		else this.mobsimEngineRunTimes = null;
@@ -209,7 +215,10 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	@Inject
 	private QSim( final Scenario sc, EventsManager events, Injector childInjector ) {
 		this.scenario = sc;
-		if ( sc.getConfig().qsim().getNumberOfThreads() > 1) {
+		if ( sc.getConfig().qsim().getNumberOfThreads() > 1 && sc.getConfig().qsim().isUsingShardedActivityAndTeleportationEngines() ) {
+			// lets the activity and teleportation engines capture the events of agents processed in parallel
+			this.events = new CapturingEventsManager( EventsUtils.getParallelFeedableInstance( events ) );
+		} else if ( sc.getConfig().qsim().getNumberOfThreads() > 1) {
 			this.events = EventsUtils.getParallelFeedableInstance( events );
 		} else {
 			this.events = events;
@@ -286,6 +295,33 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
 			mobsimEngine.onPrepareSim();
 		}
+
+		initSkippingIdleSimSteps();
+	}
+
+	private void initSkippingIdleSimSteps() {
+		this.wakeUpTimeProviders = null;
+		if (!this.scenario.getConfig().qsim().isSkippingIdleSimSteps()) {
+			return;
+		}
+		List<Object> components = new ArrayList<>(this.mobsimEngines);
+		components.addAll(this.listenerManager.getSimStepListeners());
+		List<HasNextWakeUpTime> providers = new ArrayList<>();
+		List<String> others = new ArrayList<>();
+		for (Object component : components) {
+			if (component instanceof HasNextWakeUpTime) {
+				providers.add((HasNextWakeUpTime) component);
+			} else {
+				others.add(component.getClass().getName());
+			}
+		}
+		if (!others.isEmpty()) {
+			log.warn("idle sim steps are not skipped, since the following mobsim engines or sim step listeners cannot tell "
+					+ "when they have something to do next: " + others);
+			return;
+		}
+		log.info("skipping idle sim steps");
+		this.wakeUpTimeProviders = providers;
 	}
 
 	private void createAgents() {
@@ -410,14 +446,13 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		this.listenerManager.fireQueueSimulationAfterSimStepEvent(now);
 
 
-		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
-		boolean doContinue = (this.agentCounter.isLiving() && (this.stopTime > now));
-		if (qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime) {
-			doContinue = now <= qsimConfigGroup.getEndTime().seconds();
-		}
+		boolean doContinue = isContinuingAfter(now);
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (this.wakeUpTimeProviders != null) {
+				skipIdleSimSteps();
+			}
 		}
 
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
@@ -425,6 +460,41 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		return doContinue;
 	}
 
+	/**
+	 * @return true if the simulation needs to continue after the sim step at the given time
+	 */
+	private boolean isContinuingAfter(double time) {
+		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
+		boolean doContinue = (this.agentCounter.isLiving() && (this.stopTime > time));
+		if (qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime) {
+			doContinue = time <= qsimConfigGroup.getEndTime().seconds();
+		}
+		return doContinue;
+	}
+
+	/**
+	 * Advances the sim timer over the following sim steps in which no engine and no listener has something to do.
+	 * The timer is still incremented step by step, so the simulated steps have exactly the same times as without
+	 * skipping, and the simulation ends at the same time.
+	 */
+	private void skipIdleSimSteps() {
+		double time = this.simTimer.getTimeOfDay();
+		double wakeUpTime = Double.POSITIVE_INFINITY;
+		for (HasNextWakeUpTime provider : this.wakeUpTimeProviders) {
+			wakeUpTime = Math.min(wakeUpTime, provider.getNextWakeUpTime(time));
+			if (wakeUpTime <= time) {
+				return;
+			}
+		}
+		if (wakeUpTime == Double.POSITIVE_INFINITY && this.stopTime == Double.MAX_VALUE) {
+			// nothing will happen anymore, but there is no end time to jump to either
+			return;
+		}
+		while (time < wakeUpTime && isContinuingAfter(time)) {
+			time = this.simTimer.incrementTime();
+		}
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -534,7 +604,10 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			while (this.infoTime <= time) {
+				// more than one period may have passed if idle sim steps were skipped
+				this.infoTime += INFO_PERIOD;
+			}
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
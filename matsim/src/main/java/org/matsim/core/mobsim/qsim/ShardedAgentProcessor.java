@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ShardedAgentProcessor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.agents.BasicPlanAgentImpl;
+import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
+import org.matsim.core.mobsim.qsim.agents.TransitAgent;
+
+/**
+ * Processes the agents an engine hands on in one sim step in two phases:
+ * <ol>
+ * <li>The agents are split into contiguous shards, and the agents of each shard compute their next state on a
+ * separate thread. The events generated meanwhile are captured per agent.</li>
+ * <li>On the calling thread, for every agent in the original order, its captured events are passed on, and the agent
+ * is handed on to the next engine.</li>
+ * </ol>
+ * Thus, the events and the calls to the departure and activity handlers are in exactly the same order as if the
+ * agents were processed sequentially, while the (usually expensive) state transitions of the agents run in parallel.
+ * This requires that the state transition of an agent only modifies the agent itself. This is known for the plan based
+ * agents of the default agent factories only, see {@link #isShardable(MobsimAgent)}. If any other agent is to be
+ * processed in a sim step, all agents of the step are processed sequentially on the calling thread.
+ */
+final class ShardedAgentProcessor {
+
+	private static final int MIN_AGENTS_PER_SHARD = 32;
+
+	private final CapturingEventsManager events;
+	private final int numberOfShards;
+	private final String threadNamePrefix;
+	private final EventArray[] buffers;
+	private int[] eventEnds = new int[1024];
+	private ExecutorService pool = null;
+
+	ShardedAgentProcessor(CapturingEventsManager events, int numberOfShards, String threadNamePrefix) {
+		this.events = events;
+		this.numberOfShards = numberOfShards;
+		this.threadNamePrefix = threadNamePrefix;
+		this.buffers = new EventArray[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			this.buffers[i] = new EventArray();
+		}
+	}
+
+	/**
+	 * @param agents the agents in the order in which they have to be handed on
+	 * @param computeNextState is run in parallel for the agents of different shards
+	 * @param arrangeNextState is run sequentially on the calling thread, after the events generated by
+	 * <code>computeNextState</code> for the same agent were passed on
+	 */
+	void process(List<MobsimAgent> agents, Consumer<MobsimAgent> computeNextState, Consumer<MobsimAgent> arrangeNextState) {
+		int agentCount = agents.size();
+		int shardCount = Math.min(this.numberOfShards, agentCount / MIN_AGENTS_PER_SHARD);
+		if (shardCount < 2 || !areShardable(agents)) {
+			for (MobsimAgent agent : agents) {
+				computeNextState.accept(agent);
+				arrangeNextState.accept(agent);
+			}
+			return;
+		}
+		if (this.eventEnds.length < agentCount) {
+			this.eventEnds = new int[Math.max(agentCount, this.eventEnds.length * 2)];
+		}
+
+		List<Callable<Boolean>> tasks = new ArrayList<>(shardCount);
+		for (int s = 0; s < shardCount; s++) {
+			int shard = s;
+			int from = shardStart(s, shardCount, agentCount);
+			int to = shardStart(s + 1, shardCount, agentCount);
+			tasks.add(() -> {
+				EventArray buffer = this.buffers[shard];
+				buffer.clear();
+				this.events.startCapturing(buffer);
+				try {
+					for (int i = from; i < to; i++) {
+						computeNextState.accept(agents.get(i));
+						this.eventEnds[i] = buffer.size();
+					}
+				} finally {
+					this.events.stopCapturing();
+				}
+				return true;
+			});
+		}
+		try {
+			for (Future<Boolean> future : getPool().invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		EventsManager delegate = this.events.getDelegate();
+		for (int s = 0; s < shardCount; s++) {
+			EventArray buffer = this.buffers[s];
+			int eventIndex = 0;
+			for (int i = shardStart(s, shardCount, agentCount), to = shardStart(s + 1, shardCount, agentCount); i < to; i++) {
+				for (int end = this.eventEnds[i]; eventIndex < end; eventIndex++) {
+					delegate.processEvent(buffer.get(eventIndex));
+				}
+				arrangeNextState.accept(agents.get(i));
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the agent is known to only modify itself when computing its next state. Other agent
+	 * 		implementations, e.g. within-day agents, might access shared state from their state transitions.
+	 */
+	static boolean isShardable(MobsimAgent agent) {
+		Class<?> type = agent.getClass();
+		return type == PersonDriverAgentImpl.class || type == TransitAgent.class || type == BasicPlanAgentImpl.class;
+	}
+
+	private static boolean areShardable(List<MobsimAgent> agents) {
+		for (MobsimAgent agent : agents) {
+			if (!isShardable(agent)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int shardStart(int shard, int shardCount, int agentCount) {
+		return (int) ((long) shard * agentCount / shardCount);
+	}
+
+	private ExecutorService getPool() {
+		if (this.pool == null) {
+			AtomicInteger count = new AtomicInteger();
+			this.pool = Executors.newFixedThreadPool(this.numberOfShards, r -> {
+				Thread thread = new Thread(r, this.threadNamePrefix + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.pool;
+	}
+
+	void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+	}
+}
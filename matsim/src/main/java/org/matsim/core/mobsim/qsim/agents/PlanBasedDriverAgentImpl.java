@@ -18,7 +18,6 @@
  * *********************************************************************** */
 package org.matsim.core.mobsim.qsim.agents;
 
-import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -94,13 +93,14 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return null ;
 		}
 
-		List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		NetworkRoute route = (NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute();
+		final int routeLinkIdsSize = route.getNumberOfLinks();
 
 		// (3) if route has run dry, we return the destination link (except for one special case, which however may not be necessary any more):
-		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= routeLinkIds.size() ) {
+		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= routeLinkIdsSize ) {
 
 			// special case:
-			if (this.getCurrentLinkId().equals( this.getDestinationLinkId() ) && this.basicPlanAgentDelegate.getCurrentLinkIndex() > routeLinkIds.size()) {
+			if (this.getCurrentLinkId().equals( this.getDestinationLinkId() ) && this.basicPlanAgentDelegate.getCurrentLinkIndex() > routeLinkIdsSize) {
 				// this can happen if the last link in a route is a loop link. Don't ask, it can happen in special transit simulation cases... mrieser/jan2014
 
 				// the condition for arrival used to be "route has run dry AND destination link not attached to current link".  now with loop links,
@@ -117,7 +117,8 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 		}
 
 		// (4) otherwise (normal case): return the next link of the plan (after caching it):
-		this.cachedNextLinkId = routeLinkIds.get(this.basicPlanAgentDelegate.getCurrentLinkIndex());
+		// (the link index only increases during a leg, so routes with encoded links can decode them incrementally)
+		this.cachedNextLinkId = route.getLinkIds().get(this.basicPlanAgentDelegate.getCurrentLinkIndex());
 		return this.cachedNextLinkId;
 
 	}
@@ -130,8 +131,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return true ;
 		}
 
-		final List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
-		final int routeLinkIdsSize = routeLinkIds.size();
+		final int routeLinkIdsSize = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getNumberOfLinks();
 
 		// the standard condition used to be "route has run dry AND destination link not attached to current link":
 		// 2nd condition essentially meant "destination link EQUALS current link" but really stupid way of stating this.  Thus
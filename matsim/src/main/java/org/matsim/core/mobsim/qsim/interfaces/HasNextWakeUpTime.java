@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HasNextWakeUpTime.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+/**
+ * Implemented by {@link MobsimEngine}s and sim step listeners which can tell when they have something to do next.
+ * If the QSim is configured to skip idle sim steps, and all its engines and sim step listeners implement this
+ * interface, it jumps directly to the earliest of these times instead of simulating every time step.
+ */
+public interface HasNextWakeUpTime {
+
+	/**
+	 * Called by the QSim between sim steps.
+	 *
+	 * @param now the time of the next sim step that would be simulated without skipping
+	 * @return the earliest time at which a sim step is required (<code>now</code> if the next step is required), or
+	 * {@link Double#POSITIVE_INFINITY} if nothing is to be done until other components hand over agents.
+	 */
+	double getNextWakeUpTime(double now);
+
+}
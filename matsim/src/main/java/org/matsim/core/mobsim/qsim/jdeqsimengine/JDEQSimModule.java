@@ -22,8 +22,8 @@
  package org.matsim.core.mobsim.qsim.jdeqsimengine;
 
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.mobsim.jdeqsim.CalendarMessageQueue;
 import org.matsim.core.mobsim.jdeqsim.JDEQSimConfigGroup;
-import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.AbstractQSimModule;
 import org.matsim.core.mobsim.qsim.QSim;
 
@@ -41,7 +41,7 @@ public class JDEQSimModule extends AbstractQSimModule {
 	@Provides
 	@Singleton
 	public JDEQSimEngine provideJDEQSimulation(QSim qsim) {
-		SteppableScheduler scheduler = new SteppableScheduler(new MessageQueue());
+		SteppableScheduler scheduler = new SteppableScheduler(new CalendarMessageQueue());
 		return new JDEQSimEngine(
 				ConfigUtils.addOrGetModule(qsim.getScenario().getConfig(), JDEQSimConfigGroup.NAME,
 						JDEQSimConfigGroup.class),
@@ -50,6 +50,7 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		if (lookahead != null) {
 			lookahead.processEvent();
 			lookahead.handleMessage();
+			recycleMessage(lookahead);
 			lookahead = null;
 		}
 		while (!queue.isEmpty()) {
@@ -57,6 +58,7 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 			if (m != null && m.getMessageArrivalTime() <= time) {
 				m.processEvent();
 				m.handleMessage();
+				recycleMessage(m);
 			} else {
 				lookahead = m;
 				return;
@@ -65,6 +67,22 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		finished = true; // queue has run dry.
 	}
 
+	/**
+	 * @return the arrival time of the next message, or {@link Double#POSITIVE_INFINITY} if there is none.
+	 */
+	public double getNextMessageArrivalTime() {
+		double time = Double.POSITIVE_INFINITY;
+		if (lookahead != null) {
+			time = lookahead.getMessageArrivalTime();
+		}
+		// messages may have been added after the lookahead was taken from the queue
+		Message m = queue.peekNextMessage();
+		if (m != null) {
+			time = Math.min(time, m.getMessageArrivalTime());
+		}
+		return time;
+	}
+
 	public boolean isFinished() {
 		return finished;
 	}
@@ -21,6 +21,7 @@
 
  package org.matsim.core.mobsim.qsim.messagequeueengine;
 
+import org.matsim.core.mobsim.jdeqsim.CalendarMessageQueue;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.AbstractQSimModule;
 import org.matsim.core.mobsim.qsim.jdeqsimengine.SteppableScheduler;
@@ -30,7 +31,7 @@ public class MessageQueueModule extends AbstractQSimModule {
 
 	@Override
 	protected void configureQSim() {
-		bind(MessageQueue.class).asEagerSingleton();
+		bind(MessageQueue.class).to(CalendarMessageQueue.class).asEagerSingleton();
 		bind(SteppableScheduler.class).asEagerSingleton();
 		bind(MessageQueueEngine.class).asEagerSingleton();
 		
@@ -107,6 +107,12 @@ abstract class AbstractQLink implements QLinkI {
 
 	private boolean active = false;
 
+	/**
+	 * Number of sim steps this link was active since the last reset, used by the {@link NetsimLoadBalancer}.  Only modified
+	 * by the runner that handles this link.
+	 */
+	/*package*/ int simSteps = 0;
+
 	private TransitQLink transitQLink;
 	
 	private final QNodeI toQNode ;
@@ -430,6 +436,10 @@ abstract class AbstractQLink implements QLinkI {
 		this.netElementActivationRegistry = qSimEngineRunner;
 	}
 
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.netElementActivationRegistry;
+	}
+
 	@Override
 	public void registerDriverAgentWaitingForCar(final MobsimDriverAgent agent) {
 		final Id<Vehicle> vehicleId = agent.getPlannedVehicleId() ;
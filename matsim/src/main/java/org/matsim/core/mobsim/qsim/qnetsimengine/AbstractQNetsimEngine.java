@@ -44,6 +44,7 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextWakeUpTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
 import org.matsim.core.utils.misc.Time;
@@ -59,7 +60,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI {
+abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI, HasNextWakeUpTime {
 
 	private NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
@@ -89,6 +90,8 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 	private double infoTime = 0;
 	private List<A> engines;
+	private NetsimLoadBalancer loadBalancer = null;
+	private long runNanos = 0;
 	private InternalInterface internalInterface = null;
 	
 	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
@@ -163,7 +166,14 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		 */
 
 		this.engines = initQSimEngineRunners();
-		assignNetElementActivators();
+		double loadBalancingInterval = qsim.getScenario().getConfig().qsim().getNetsimLoadBalancingInterval();
+		if (loadBalancingInterval > 0 && this.engines.size() > 1 && NetsimLoadBalancer.supports(this.network)) {
+			this.loadBalancer = new NetsimLoadBalancer(this.network, loadBalancingInterval);
+			this.loadBalancer.assignInitially(this.engines);
+		} else {
+			assignNetElementActivators();
+		}
+		this.runNanos = 0;
 		initMultiThreading();
 	}
 	
@@ -185,6 +195,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		}
 
 		finishMultiThreading();
+		printRunnerUtilization();
 
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
@@ -222,12 +233,32 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	 */
 	@Override
 	public final void doSimStep(final double time) {
+		long start = System.nanoTime();
 		run(time);
+		this.runNanos += System.nanoTime() - start;
+
+		if (this.loadBalancer != null) {
+			this.loadBalancer.afterSimStep(time, this.engines);
+		}
 		
 		this.printSimLog(time);
 	}
 
 	
+	/**
+	 * Departing, waiting and driving vehicles keep their links and nodes active, so the network is idle only if no
+	 * link and no node is active.
+	 */
+	@Override
+	public final double getNextWakeUpTime(double now) {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			if (engine.hasActiveNetElements()) {
+				return now;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public final void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
@@ -277,6 +308,14 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		return this.network;
 	}
 
+	/**
+	 * @return the load balancer, or <code>null</code> if the nodes are assigned statically. Only available after
+	 * {@link #onPrepareSim()}.
+	 */
+	/*package*/ final NetsimLoadBalancer getLoadBalancer() {
+		return this.loadBalancer;
+	}
+
 	public final VehicularDepartureHandler getDepartureHandler() {
 		return dpHandler;
 	}
@@ -352,6 +391,27 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		log.info("sum all run times / num threads: " + sum / this.numOfThreads);
 	}
 
+	@Override
+	public final double[] getRunnerUtilization() {
+		double[] utilization = new double[this.engines.size()];
+		for (int i = 0; i < utilization.length; i++) {
+			utilization[i] = this.runNanos == 0 ? 0.0 : (double) this.engines.get(i).totalBusyNanos / this.runNanos;
+		}
+		return utilization;
+	}
+
+	private void printRunnerUtilization() {
+		double[] utilization = getRunnerUtilization();
+		StringBuilder sb = new StringBuilder("QSimEngineRunner utilization:");
+		for (int i = 0; i < utilization.length; i++) {
+			sb.append(String.format(" #%d: %.1f%%", i, 100 * utilization[i]));
+		}
+		if (this.loadBalancer != null) {
+			sb.append(", nodes were re-assigned ").append(this.loadBalancer.getRebalancingCount()).append(" times");
+		}
+		log.info(sb.toString());
+	}
+
 	@Override
 	public final NetsimInternalInterface getNetsimInternalInterface() {
 		return ii;
@@ -70,6 +70,13 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * Time spent in moveNodes() and moveLinks(), since the last check of the load balancer respectively since the start of
+	 * the simulation.  Only written by the runner's thread while the engine waits for it.
+	 */
+	/*package*/ long intervalBusyNanos = 0;
+	/*package*/ long totalBusyNanos = 0;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -91,6 +98,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
 			remainsActive = node.doSimStep(time);
+			if (node instanceof AbstractQNode) ((AbstractQNode) node).simSteps++;
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
@@ -105,6 +113,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 			link = simLinks.next();
 
 			remainsActive = link.doSimStep();
+			if (link instanceof AbstractQLink) ((AbstractQLink) link).simSteps++;
 
 			if (!remainsActive) simLinks.remove();
 		}
@@ -149,6 +158,26 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		return this.nodesQueue.size();
 	}
 
+	/*package*/ final boolean hasActiveNetElements() {
+		return !this.nodesQueue.isEmpty() || !this.linksList.isEmpty();
+	}
+
+	/*package*/ final void addBusyTime(long nanos) {
+		this.intervalBusyNanos += nanos;
+		this.totalBusyNanos += nanos;
+	}
+
+	/**
+	 * Removes all active nodes and links from this runner, so they can be re-assigned to other runners.  Must only be
+	 * called between sim steps.
+	 */
+	/*package*/ final void drainActiveNetElements(List<QNodeI> activeNodes, List<QLinkI> activeLinks) {
+		activeNodes.addAll(this.nodesQueue);
+		this.nodesQueue.clear();
+		activeLinks.addAll(this.linksList);
+		this.linksList.clear();
+	}
+
 	protected final void startMeasure() {
 		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();		
 	}
@@ -46,6 +46,12 @@ abstract class AbstractQNode implements QNodeI {
 	 */
 	private final AtomicBoolean active = new AtomicBoolean(false);
 
+	/**
+	 * Number of sim steps this node was active since the last reset, used by the {@link NetsimLoadBalancer}.  Only modified
+	 * by the runner that handles this node.
+	 */
+	/*package*/ int simSteps = 0;
+
 	// for Customizable
 	private final Map<String, Object> customAttributes = new HashMap<>();
 	
@@ -73,6 +79,10 @@ abstract class AbstractQNode implements QNodeI {
 		
 		this.activator = activator;
 	}
+
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.activator;
+	}
 	
 	/**
 	 * This method is called from QueueWithBuffer.addToBuffer(...) which is triggered at 
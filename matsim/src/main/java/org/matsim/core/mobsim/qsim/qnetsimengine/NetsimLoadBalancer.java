@@ -0,0 +1,297 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimLoadBalancer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Assigns the nodes, together with their outgoing links, to the {@link AbstractQNetsimEngineRunner}s in spatially
+ * contiguous blocks: the nodes are ordered along a Hilbert curve, and the ordered nodes are split into one block per
+ * runner with about the same estimated cost each.
+ *
+ * Periodically, the run times of the runners are compared. If they differ too much, the cost of every node is
+ * estimated from the number of sim steps its node and links were active, weighted by the time per step measured on
+ * its runner, and the blocks are re-assigned. Active nodes and links are moved to their new runner.
+ *
+ * All methods must only be called between sim steps, when no runner is working.
+ */
+final class NetsimLoadBalancer {
+	private static final Logger log = Logger.getLogger(NetsimLoadBalancer.class);
+
+	private static final int HILBERT_ORDER = 16;
+	private static final double IMBALANCE_TOLERANCE = 0.1;
+	/** share of the average node cost added to every node, so idle nodes are spread as well */
+	private static final double BASE_COST_SHARE = 0.01;
+
+	private final AbstractQNode[] nodes;
+	private final AbstractQLink[][] outLinks;
+	private final double interval;
+	private double nextCheckTime = Double.NaN;
+	private int rebalancingCount = 0;
+	/** replaces the measured busy times of the runners, by runner index, if set */
+	private IntToLongFunction busyNanosOverride = null;
+
+	NetsimLoadBalancer(QNetwork network, double interval) {
+		this.interval = interval;
+		List<AbstractQNode> nodeList = new ArrayList<>(network.getNetsimNodes().size());
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			nodeList.add((AbstractQNode) node);
+		}
+		this.nodes = sortAlongHilbertCurve(nodeList);
+		this.outLinks = new AbstractQLink[this.nodes.length][];
+		for (int i = 0; i < this.nodes.length; i++) {
+			List<AbstractQLink> links = new ArrayList<>();
+			for (Link outLink : this.nodes[i].getNode().getOutLinks().values()) {
+				links.add((AbstractQLink) network.getNetsimLink(outLink.getId()));
+			}
+			this.outLinks[i] = links.toArray(new AbstractQLink[0]);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if all nodes and links of the network can be re-assigned to other runners
+	 */
+	static boolean supports(QNetwork network) {
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			if (!(node instanceof AbstractQNode)) {
+				return false;
+			}
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				if (!(network.getNetsimLink(outLink.getId()) instanceof AbstractQLink)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Assigns the nodes to the runners, estimating the cost of a node by its number of in- and out-links.
+	 */
+	void assignInitially(List<? extends AbstractQNetsimEngineRunner> runners) {
+		double[] costs = new double[this.nodes.length];
+		for (int i = 0; i < this.nodes.length; i++) {
+			costs[i] = 1 + this.nodes[i].getNode().getInLinks().size() + this.outLinks[i].length;
+		}
+		int[] nodeCounts = assign(runners, costs);
+		for (int r = 0; r < runners.size(); r++) {
+			log.info("Assigned " + nodeCounts[r] + " nodes to QSimEngineRunner #" + r);
+		}
+	}
+
+	/**
+	 * Checks the load of the runners once per interval, and re-assigns the nodes if required.
+	 */
+	void afterSimStep(double time, List<? extends AbstractQNetsimEngineRunner> runners) {
+		if (Double.isNaN(this.nextCheckTime)) {
+			this.nextCheckTime = time + this.interval;
+			return;
+		}
+		if (time < this.nextCheckTime) {
+			return;
+		}
+		this.nextCheckTime = time + this.interval;
+
+		long maxNanos = 0;
+		long sumNanos = 0;
+		for (int r = 0; r < runners.size(); r++) {
+			long nanos = getIntervalBusyNanos(runners, r);
+			maxNanos = Math.max(maxNanos, nanos);
+			sumNanos += nanos;
+		}
+		double avgNanos = (double) sumNanos / runners.size();
+		if (maxNanos > (1 + IMBALANCE_TOLERANCE) * avgNanos) {
+			rebalance(runners);
+			this.rebalancingCount++;
+			log.info("re-assigned nodes to QSimEngineRunners at " + Time.writeTime(time) + ", slowest runner took "
+					+ String.format("%.0f%%", 100 * maxNanos / avgNanos) + " of the average time");
+		}
+		for (AbstractQNetsimEngineRunner runner : runners) {
+			runner.intervalBusyNanos = 0;
+		}
+		resetSimSteps();
+	}
+
+	int getRebalancingCount() {
+		return this.rebalancingCount;
+	}
+
+	/**
+	 * Replaces the measured busy time of each runner in every interval by the given one, so tests do not depend on
+	 * the actual run times.
+	 */
+	/*package*/ void setBusyNanosOverride(IntToLongFunction busyNanosByRunnerIndex) {
+		this.busyNanosOverride = busyNanosByRunnerIndex;
+	}
+
+	private long getIntervalBusyNanos(List<? extends AbstractQNetsimEngineRunner> runners, int runnerIndex) {
+		if (this.busyNanosOverride != null) {
+			return this.busyNanosOverride.applyAsLong(runnerIndex);
+		}
+		return runners.get(runnerIndex).intervalBusyNanos;
+	}
+
+	private void rebalance(List<? extends AbstractQNetsimEngineRunner> runners) {
+		// time per active sim step of a node or link, per runner
+		long[] runnerSteps = new long[runners.size()];
+		int[] runnerIndex = new int[this.nodes.length];
+		long[] nodeSteps = new long[this.nodes.length];
+		for (int i = 0; i < this.nodes.length; i++) {
+			runnerIndex[i] = runners.indexOf(this.nodes[i].getNetElementActivationRegistry());
+			long steps = this.nodes[i].simSteps;
+			for (AbstractQLink link : this.outLinks[i]) {
+				steps += link.simSteps;
+			}
+			nodeSteps[i] = steps;
+			if (runnerIndex[i] >= 0) {
+				runnerSteps[runnerIndex[i]] += steps;
+			}
+		}
+		double[] costs = new double[this.nodes.length];
+		double sumCosts = 0;
+		for (int i = 0; i < this.nodes.length; i++) {
+			int r = runnerIndex[i];
+			if (r >= 0 && runnerSteps[r] > 0) {
+				costs[i] = nodeSteps[i] * (double) getIntervalBusyNanos(runners, r) / runnerSteps[r];
+				sumCosts += costs[i];
+			}
+		}
+		double baseCost = Math.max(1e-9, BASE_COST_SHARE * sumCosts / this.nodes.length);
+		for (int i = 0; i < this.nodes.length; i++) {
+			costs[i] += baseCost;
+		}
+
+		List<QNodeI> activeNodes = new ArrayList<>();
+		List<QLinkI> activeLinks = new ArrayList<>();
+		for (AbstractQNetsimEngineRunner runner : runners) {
+			runner.drainActiveNetElements(activeNodes, activeLinks);
+		}
+		assign(runners, costs);
+		for (QNodeI node : activeNodes) {
+			((AbstractQNetsimEngineRunner) ((AbstractQNode) node).getNetElementActivationRegistry()).registerNodeAsActive(node);
+		}
+		for (QLinkI link : activeLinks) {
+			((AbstractQNetsimEngineRunner) ((AbstractQLink) link).getNetElementActivationRegistry()).registerLinkAsActive(link);
+		}
+	}
+
+	/**
+	 * Splits the nodes, in the order of the Hilbert curve, into blocks of about the same cost.
+	 *
+	 * @return the number of nodes assigned to each runner
+	 */
+	private int[] assign(List<? extends AbstractQNetsimEngineRunner> runners, double[] costs) {
+		double totalCost = 0;
+		for (double cost : costs) {
+			totalCost += cost;
+		}
+		int[] nodeCounts = new int[runners.size()];
+		int r = 0;
+		double cumulativeCost = 0;
+		for (int i = 0; i < this.nodes.length; i++) {
+			// switch to the next runner once the current one has its share of the cost
+			while (r < runners.size() - 1 && cumulativeCost + costs[i] / 2 > totalCost * (r + 1) / runners.size()) {
+				r++;
+			}
+			AbstractQNetsimEngineRunner runner = runners.get(r);
+			this.nodes[i].setNetElementActivationRegistry(runner);
+			for (AbstractQLink link : this.outLinks[i]) {
+				link.setNetElementActivationRegistry(runner);
+			}
+			nodeCounts[r]++;
+			cumulativeCost += costs[i];
+		}
+		return nodeCounts;
+	}
+
+	private void resetSimSteps() {
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodes[i].simSteps = 0;
+			for (AbstractQLink link : this.outLinks[i]) {
+				link.simSteps = 0;
+			}
+		}
+	}
+
+	private static AbstractQNode[] sortAlongHilbertCurve(List<AbstractQNode> nodes) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (AbstractQNode node : nodes) {
+			Coord coord = node.getNode().getCoord();
+			if (coord != null) {
+				minX = Math.min(minX, coord.getX());
+				minY = Math.min(minY, coord.getY());
+				maxX = Math.max(maxX, coord.getX());
+				maxY = Math.max(maxY, coord.getY());
+			}
+		}
+		int cells = 1 << HILBERT_ORDER;
+		double scale = (cells - 1) / Math.max(1e-9, Math.max(maxX - minX, maxY - minY));
+		long[] keys = new long[nodes.size()];
+		Integer[] order = new Integer[nodes.size()];
+		for (int i = 0; i < nodes.size(); i++) {
+			Coord coord = nodes.get(i).getNode().getCoord();
+			keys[i] = coord == null ? 0 : hilbertIndex((int) ((coord.getX() - minX) * scale), (int) ((coord.getY() - minY) * scale), cells);
+			order[i] = i;
+		}
+		// stable sort, so nodes at the same position keep the order of the network
+		Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+		AbstractQNode[] sorted = new AbstractQNode[nodes.size()];
+		for (int i = 0; i < order.length; i++) {
+			sorted[i] = nodes.get(order[i]);
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return the position of the cell (x, y) along the Hilbert curve filling a square of <code>n</code> x
+	 * <code>n</code> cells, where <code>n</code> is a power of 2
+	 */
+	static long hilbertIndex(int x, int y, int n) {
+		long d = 0;
+		for (int s = n / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
@@ -32,6 +32,14 @@ public interface QNetsimEngineI extends MobsimEngine, NetsimEngine {
 	Map<Id<Vehicle>, QVehicle> getVehicles();
 
 	void printEngineRunTimes();
+
+	/**
+	 * @return for every runner, the share of the time spent in the parallel part of the sim steps during which the runner
+	 * was busy, since the start of the simulation. Empty if the engine does not measure it.
+	 */
+	default double[] getRunnerUtilization() {
+		return new double[0];
+	}
 	
 	NetsimInternalInterface getNetsimInternalInterface();
 
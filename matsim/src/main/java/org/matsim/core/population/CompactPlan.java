@@ -0,0 +1,446 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A plan that stores its activities and legs in a few primitive arrays instead of one object (plus time, coord and
+ * attributes objects) per plan element.
+ *
+ * The plan elements are only created when {@link #getPlanElements()} (or one of the add methods) is called. From
+ * then on, the plan behaves exactly like {@link PlanImpl}: every call returns the same list with the same element
+ * instances, and changes to them are kept, until {@link #compact()} encodes the elements again. References to plan
+ * elements obtained before compacting are no longer part of the plan afterwards, so plans should only be compacted
+ * when nobody holds such references, e.g. between iterations.
+ *
+ * Score, type, person and attributes are kept as fields, so selecting and scoring plans does not expand them, and
+ * {@link PopulationUtils#copyFromTo(Plan, Plan)} copies a compact plan without expanding it. Replanning therefore
+ * only expands the plans it modifies, and the mobsim only the selected plans.
+ *
+ * Only {@link ActivityImpl}s, {@link LegImpl}s and network routes created by
+ * {@link RouteUtils#createLinkNetworkRouteImpl(Id, Id)} are encoded; other routes are kept as objects, plans with
+ * other plan element implementations are not compacted at all. Ids are stored by their {@link Id#index()},
+ * activity types and modes by their code in a dictionary shared by all plans.
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private static final Class<?> LINK_NETWORK_ROUTE_CLASS = RouteUtils.createLinkNetworkRouteImpl(null, null).getClass();
+
+	private static final int VALUES = 6;
+	private static final int IDS = 3;
+	private static final int NO_ID = -1;
+	private static final int NO_ROUTE = -2;
+	private static final int ROUTE_OBJECT = -3;
+
+	private static final Dictionary dictionary = new Dictionary();
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Customizable customizableDelegate;
+	private final Attributes attributes = new Attributes();
+
+	// the plan elements, only while the plan is expanded
+	private ArrayList<PlanElement> elements = null;
+
+	// encoded plan elements, only while the plan is compact
+	private int size = 0;
+	// activity type code, or ~mode code for legs
+	private int[] codes = null;
+	// activities: start time, end time, max. duration, x, y, z
+	// legs: departure time, travel time, route travel time, route distance, route travel cost, unused
+	// undefined times and missing coords are NaN
+	private double[] values = null;
+	// activities: link, facility, unused
+	// legs: route start link (or NO_ROUTE or ROUTE_OBJECT), route end link, route vehicle
+	private int[] ids = null;
+	private int[][] routeLinks = null;
+	private Route[] routes = null;
+	private Attributes[] elementAttributes = null;
+
+	CompactPlan() {
+		this.elements = new ArrayList<>();
+	}
+
+	/**
+	 * @return a compact copy of the given plan, or <code>null</code> if the plan contains plan elements that can not
+	 * 		be encoded. The plan elements are not copied, so the given plan must not be used anymore.
+	 */
+	static CompactPlan createFrom(Plan plan) {
+		if (!canEncode(plan.getPlanElements())) {
+			return null;
+		}
+		CompactPlan compact = new CompactPlan();
+		compact.score = plan.getScore();
+		compact.person = plan.getPerson();
+		compact.type = plan.getType();
+		AttributesUtils.copyTo(plan.getAttributes(), compact.attributes);
+		compact.getCustomAttributes().putAll(plan.getCustomAttributes());
+		compact.encode(plan.getPlanElements());
+		return compact;
+	}
+
+	boolean isCompact() {
+		return this.elements == null;
+	}
+
+	/**
+	 * Encodes the plan elements into arrays, if possible.
+	 *
+	 * @return <code>true</code> if the plan is compact afterwards.
+	 */
+	boolean compact() {
+		if (this.elements == null) {
+			return true;
+		}
+		if (!canEncode(this.elements)) {
+			return false;
+		}
+		encode(this.elements);
+		this.elements = null;
+		return true;
+	}
+
+	/**
+	 * Expands the plan if it is compact. The returned list (and its elements) stay the same until the next call of
+	 * {@link #compact()}; afterwards, a new list with equal, but new elements is created.
+	 */
+	@Override
+	public List<PlanElement> getPlanElements() {
+		if (this.elements == null) {
+			expand();
+		}
+		return this.elements;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		int numberOfElements = this.elements == null ? this.size : this.elements.size();
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + numberOfElements + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	private static boolean canEncode(List<PlanElement> elements) {
+		for (PlanElement pe : elements) {
+			if (pe.getClass() != ActivityImpl.class && pe.getClass() != LegImpl.class) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void encode(List<PlanElement> planElements) {
+		int n = planElements.size();
+		this.size = n;
+		this.codes = new int[n];
+		this.values = new double[n * VALUES];
+		this.ids = new int[n * IDS];
+		this.routeLinks = null;
+		this.routes = null;
+		this.elementAttributes = null;
+		Arrays.fill(this.values, Double.NaN);
+		Arrays.fill(this.ids, NO_ID);
+		for (int i = 0; i < n; i++) {
+			PlanElement pe = planElements.get(i);
+			int v = i * VALUES;
+			int d = i * IDS;
+			if (pe instanceof Activity) {
+				Activity act = (Activity) pe;
+				this.codes[i] = dictionary.code(act.getType());
+				this.values[v] = act.getStartTime().orElse(Double.NaN);
+				this.values[v + 1] = act.getEndTime().orElse(Double.NaN);
+				this.values[v + 2] = act.getMaximumDuration().orElse(Double.NaN);
+				Coord coord = act.getCoord();
+				if (coord != null) {
+					this.values[v + 3] = coord.getX();
+					this.values[v + 4] = coord.getY();
+					if (coord.hasZ()) {
+						this.values[v + 5] = coord.getZ();
+					}
+				}
+				this.ids[d] = index(act.getLinkId());
+				this.ids[d + 1] = index(act.getFacilityId());
+			} else {
+				Leg leg = (Leg) pe;
+				this.codes[i] = ~dictionary.code(leg.getMode());
+				this.values[v] = leg.getDepartureTime().orElse(Double.NaN);
+				this.values[v + 1] = leg.getTravelTime().orElse(Double.NaN);
+				encodeRoute(i, leg.getRoute());
+			}
+			if (!pe.getAttributes().isEmpty()) {
+				if (this.elementAttributes == null) {
+					this.elementAttributes = new Attributes[n];
+				}
+				Attributes copy = new Attributes();
+				AttributesUtils.copyTo(pe.getAttributes(), copy);
+				this.elementAttributes[i] = copy;
+			}
+		}
+	}
+
+	private void encodeRoute(int i, Route route) {
+		int d = i * IDS;
+		if (route == null) {
+			this.ids[d] = NO_ROUTE;
+			return;
+		}
+		if (route.getClass() != LINK_NETWORK_ROUTE_CLASS || route.getStartLinkId() == null || route.getEndLinkId() == null) {
+			if (this.routes == null) {
+				this.routes = new Route[this.size];
+			}
+			this.routes[i] = route;
+			this.ids[d] = ROUTE_OBJECT;
+			return;
+		}
+		NetworkRoute networkRoute = (NetworkRoute) route;
+		int v = i * VALUES;
+		this.values[v + 2] = route.getTravelTime().orElse(Double.NaN);
+		this.values[v + 3] = route.getDistance();
+		this.values[v + 4] = networkRoute.getTravelCost();
+		this.ids[d] = route.getStartLinkId().index();
+		this.ids[d + 1] = route.getEndLinkId().index();
+		this.ids[d + 2] = index(networkRoute.getVehicleId());
+		List<Id<Link>> linkIds = networkRoute.getLinkIds();
+		int[] links = new int[linkIds.size()];
+		for (int j = 0; j < links.length; j++) {
+			links[j] = linkIds.get(j).index();
+		}
+		if (this.routeLinks == null) {
+			this.routeLinks = new int[this.size][];
+		}
+		this.routeLinks[i] = links;
+	}
+
+	/**
+	 * Adds copies of the plan elements of this compact plan to the given list, as
+	 * {@link PopulationUtils#copyFromTo(Plan, Plan)} does, but without expanding this plan.
+	 */
+	void copyPlanElementsTo(List<PlanElement> out) {
+		if (this.elements != null) {
+			throw new IllegalStateException("plan is not compact");
+		}
+		decode(out, true);
+	}
+
+	private void expand() {
+		ArrayList<PlanElement> list = new ArrayList<>(this.size);
+		decode(list, false);
+		this.elements = list;
+		this.size = 0;
+		this.codes = null;
+		this.values = null;
+		this.ids = null;
+		this.routeLinks = null;
+		this.routes = null;
+		this.elementAttributes = null;
+	}
+
+	/**
+	 * @param copy whether the elements are copies for another plan: route objects are cloned then, and z coordinates
+	 * 		are dropped like in {@link PopulationUtils#copyFromTo(Activity, Activity)}.
+	 */
+	private void decode(List<PlanElement> list, boolean copy) {
+		for (int i = 0; i < this.size; i++) {
+			int v = i * VALUES;
+			int d = i * IDS;
+			PlanElement pe;
+			if (this.codes[i] >= 0) {
+				ActivityImpl act = new ActivityImpl(dictionary.string(this.codes[i]));
+				if (!Double.isNaN(this.values[v])) act.setStartTime(this.values[v]);
+				if (!Double.isNaN(this.values[v + 1])) act.setEndTime(this.values[v + 1]);
+				if (!Double.isNaN(this.values[v + 2])) act.setMaximumDuration(this.values[v + 2]);
+				if (!Double.isNaN(this.values[v + 3])) {
+					act.setCoord(copy || Double.isNaN(this.values[v + 5])
+							? new Coord(this.values[v + 3], this.values[v + 4])
+							: new Coord(this.values[v + 3], this.values[v + 4], this.values[v + 5]));
+				}
+				if (this.ids[d] != NO_ID) act.setLinkId(Id.get(this.ids[d], Link.class));
+				if (this.ids[d + 1] != NO_ID) act.setFacilityId(Id.get(this.ids[d + 1], ActivityFacility.class));
+				pe = act;
+			} else {
+				LegImpl leg = new LegImpl(dictionary.string(~this.codes[i]));
+				if (!Double.isNaN(this.values[v])) leg.setDepartureTime(this.values[v]);
+				if (!Double.isNaN(this.values[v + 1])) leg.setTravelTime(this.values[v + 1]);
+				Route route = decodeRoute(i);
+				leg.setRoute(copy && this.ids[d] == ROUTE_OBJECT ? route.clone() : route);
+				pe = leg;
+			}
+			if (this.elementAttributes != null && this.elementAttributes[i] != null) {
+				AttributesUtils.copyTo(this.elementAttributes[i], pe.getAttributes());
+			}
+			list.add(pe);
+		}
+	}
+
+	private Route decodeRoute(int i) {
+		int d = i * IDS;
+		if (this.ids[d] == NO_ROUTE) {
+			return null;
+		}
+		if (this.ids[d] == ROUTE_OBJECT) {
+			return this.routes[i];
+		}
+		int v = i * VALUES;
+		int[] links = this.routeLinks[i];
+		List<Id<Link>> linkIds = new ArrayList<>(links.length);
+		for (int link : links) {
+			linkIds.add(Id.get(link, Link.class));
+		}
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.get(this.ids[d], Link.class), linkIds, Id.get(this.ids[d + 1], Link.class));
+		if (!Double.isNaN(this.values[v + 2])) route.setTravelTime(this.values[v + 2]);
+		route.setDistance(this.values[v + 3]);
+		route.setTravelCost(this.values[v + 4]);
+		if (this.ids[d + 2] != NO_ID) route.setVehicleId(Id.get(this.ids[d + 2], Vehicle.class));
+		return route;
+	}
+
+	private static int index(Id<?> id) {
+		return id == null ? NO_ID : id.index();
+	}
+
+	/**
+	 * Activity types and modes, shared by all plans. Only grows, like the {@link Id} cache.
+	 */
+	private static final class Dictionary {
+		private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+		private volatile String[] strings = new String[64];
+		private int size = 0;
+
+		int code(String string) {
+			if (string == null) {
+				return 0;
+			}
+			Integer code = this.codes.get(string);
+			if (code == null) {
+				code = add(string);
+			}
+			return code;
+		}
+
+		private synchronized int add(String string) {
+			Integer code = this.codes.get(string);
+			if (code != null) {
+				return code;
+			}
+			// code 0 is reserved for null
+			int newCode = ++this.size;
+			String[] strings = this.strings;
+			if (newCode == strings.length) {
+				strings = Arrays.copyOf(strings, strings.length * 2);
+			}
+			strings[newCode] = string;
+			this.strings = strings;
+			this.codes.put(string, newCode);
+			return newCode;
+		}
+
+		String string(int code) {
+			return this.strings[code];
+		}
+	}
+}
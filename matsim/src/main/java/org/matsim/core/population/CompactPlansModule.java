@@ -0,0 +1,49 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+
+import com.google.inject.Inject;
+
+public final class CompactPlansModule extends AbstractModule {
+	@Override
+	public void install() {
+		if ( getConfig().plans().isCompactPlans() ) {
+			addControlerListenerBinding().to(PlansCompactor.class);
+		}
+	}
+
+	/**
+	 * Compacts the plans that were expanded or created during the iteration (by replanning, the mobsim, scoring, ...).
+	 */
+	static final class PlansCompactor implements IterationEndsListener {
+		@Inject
+		private Population population;
+
+		@Override
+		public void notifyIterationEnds(IterationEndsEvent event) {
+			PopulationUtils.compactPlans(this.population);
+		}
+	}
+}
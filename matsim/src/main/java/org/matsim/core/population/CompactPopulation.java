@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+
+/**
+ * A population that stores the plans of its persons as {@link CompactPlan}s. Plans are compacted when a person is
+ * added, and again whenever {@link #compactPlans()} is called, which also compacts plans that were added to persons
+ * later (e.g. by replanning).
+ */
+/* deliberately package */ final class CompactPopulation extends PopulationImpl {
+	private static final Logger log = Logger.getLogger(CompactPopulation.class);
+
+	CompactPopulation(PopulationFactory populationFactory) {
+		super(populationFactory);
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		compactPlans(p);
+		super.addPerson(p);
+	}
+
+	/**
+	 * Compacts the plans of all persons. Must not be called while plan elements are in use, e.g. during the mobsim.
+	 */
+	void compactPlans() {
+		long expanded = getPersons().values().parallelStream().mapToLong(CompactPopulation::compactPlans).sum();
+		if (expanded > 0) {
+			log.warn(expanded + " plans could not be compacted as they contain non-standard activities or legs.");
+		}
+	}
+
+	/**
+	 * @return the number of plans that could not be compacted
+	 */
+	private static long compactPlans(Person person) {
+		long notCompacted = 0;
+		List<Plan> plans = person.getPlans();
+		for (int i = 0; i < plans.size(); i++) {
+			Plan plan = plans.get(i);
+			if (plan instanceof CompactPlan) {
+				if (!((CompactPlan) plan).compact()) {
+					notCompacted++;
+				}
+				continue;
+			}
+			CompactPlan compact = CompactPlan.createFrom(plan);
+			if (compact == null) {
+				notCompacted++;
+				continue;
+			}
+			boolean selected = person.getSelectedPlan() == plan;
+			plans.set(i, compact);
+			if (selected) {
+				person.setSelectedPlan(compact);
+			}
+		}
+		return notCompacted;
+	}
+}
@@ -59,6 +59,7 @@ import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.DeltaEncodedNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
@@ -133,13 +134,29 @@ public final class PopulationUtils {
 			factory = new LinkNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new CompressedNetworkRouteFactory(network);
+		} else if (PlansConfigGroup.NetworkRouteType.DeltaEncodedNetworkRoute.equals(networkRouteType)) {
+			factory = new DeltaEncodedNetworkRouteFactory();
 		} else {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
+		if (plansConfigGroup.isCompactPlans()) {
+			return new CompactPopulation(new PopulationFactoryImpl(routeFactory));
+		}
 		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
 	}
 
+	/**
+	 * Stores the plans of the population in their compact form again, if the population was created with
+	 * {@link PlansConfigGroup#isCompactPlans()}. Otherwise, nothing happens. Must not be called while plan
+	 * elements are in use, e.g. during the mobsim.
+	 */
+	public static void compactPlans(Population population) {
+		if (population instanceof CompactPopulation) {
+			((CompactPopulation) population).compactPlans();
+		}
+	}
+
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
 	//		// yyyy my intuition would be to rather get this out of a standard scenario. kai, jun'16
 	//		RouteFactories routeFactory = new RouteFactories();
@@ -882,13 +899,18 @@ public final class PopulationUtils {
 		out.getPlanElements().clear();
 		out.setScore(in.getScore());
 		out.setType(in.getType());
-		for (PlanElement pe : in.getPlanElements()) {
-			if (pe instanceof Activity) {
-				out.getPlanElements().add(createActivity((Activity) pe));
-			} else if (pe instanceof Leg) {
-				out.getPlanElements().add( createLeg( (Leg) pe ) ) ;
-			} else {
-				throw new IllegalArgumentException("unrecognized plan element type discovered");
+		if (in instanceof CompactPlan && ((CompactPlan) in).isCompact()) {
+			// (copies the encoded elements, so the plan stays compact)
+			((CompactPlan) in).copyPlanElementsTo(out.getPlanElements());
+		} else {
+			for (PlanElement pe : in.getPlanElements()) {
+				if (pe instanceof Activity) {
+					out.getPlanElements().add(createActivity((Activity) pe));
+				} else if (pe instanceof Leg) {
+					out.getPlanElements().add( createLeg( (Leg) pe ) ) ;
+				} else {
+					throw new IllegalArgumentException("unrecognized plan element type discovered");
+				}
 			}
 		}
 		AttributesUtils.copyAttributesFromTo(in, out );
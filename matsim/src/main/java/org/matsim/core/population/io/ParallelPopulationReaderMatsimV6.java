@@ -0,0 +1,246 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the {@link PopulationReaderMatsimV6}.
+ *
+ * Reading is done in a pipeline: the xml file is decompressed and decoded by a read-ahead thread (see
+ * {@link org.matsim.core.utils.io.MatsimXmlParser#setReadAhead(boolean)}), the calling thread only tokenizes the xml
+ * and collects the tags of batches of persons, and a pool of threads creates the persons, plans, routes and
+ * attributes of these batches. The created persons are added to the population in the order of the file.
+ *
+ * Ids are created by the pool threads, so their indices ({@link org.matsim.api.core.v01.Id#index()}) depend on the
+ * timing of the threads. Hence the reader is only used if requested by {@code plans.parallelReading}.
+ *
+ * Population-level elements (name, attributes, coordinate reference system) are handled by the calling thread
+ * before the first person is read. Not compatible with population streaming, use {@link PopulationReaderMatsimV6}
+ * in this case.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+
+	private static final int PERSONS_PER_BATCH = 100;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ExecutorService executor = null;
+	private ThreadLocal<Interpreter> interpreters = null;
+	// batches in the order of the file, the persons of the first one are added next
+	private final Deque<Future<List<Person>>> pendingBatches = new ArrayDeque<>();
+	private List<Tag> currentBatch = new ArrayList<>();
+	private int personsInBatch = 0;
+	private int depth = 0;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.depth == 0 && !PERSON.equals(name)) {
+			super.startTag(name, atts, context);
+			return;
+		}
+		if (this.depth == 0 && this.executor == null) {
+			startThreads();
+		}
+		// copy the attributes, the object is re-used by the parser
+		this.currentBatch.add(new Tag(name, new AttributesImpl(atts), null));
+		this.depth++;
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.depth == 0) {
+			if (POPULATION.equals(name)) {
+				finishPersons();
+			}
+			super.endTag(name, content, context);
+			return;
+		}
+		this.currentBatch.add(new Tag(name, null, content));
+		this.depth--;
+		if (this.depth == 0) {
+			this.personsInBatch++;
+			if (this.personsInBatch == PERSONS_PER_BATCH) {
+				submitBatch();
+			}
+		}
+	}
+
+	private void startThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		// the coordinate transformation is known once the population attributes are read, i.e. before the first person
+		CoordinateTransformation transformation = getCoordinateTransformation();
+		this.interpreters = ThreadLocal.withInitial(() -> {
+			Interpreter interpreter = new Interpreter(transformation, this.scenario);
+			interpreter.putAttributeConverters(this.attributeConverters);
+			return interpreter;
+		});
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.numThreads, r -> {
+			Thread thread = new Thread(r, "PopulationReaderV6-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private void submitBatch() {
+		List<Tag> batch = this.currentBatch;
+		ThreadLocal<Interpreter> interpreters = this.interpreters;
+		this.pendingBatches.add(this.executor.submit(() -> interpreters.get().interpret(batch)));
+		this.currentBatch = new ArrayList<>();
+		this.personsInBatch = 0;
+		// limit the number of batches in memory, in case object construction is slower than parsing
+		while (this.pendingBatches.size() > 4 * this.numThreads) {
+			addNextBatch();
+		}
+	}
+
+	private void addNextBatch() {
+		try {
+			for (Person person : this.pendingBatches.poll().get()) {
+				addPerson(person);
+			}
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private void finishPersons() {
+		if (this.executor == null) {
+			return;
+		}
+		if (this.personsInBatch > 0) {
+			submitBatch();
+		}
+		while (!this.pendingBatches.isEmpty()) {
+			addNextBatch();
+		}
+		this.executor.shutdown();
+		this.executor = null;
+		this.interpreters = null;
+		log.info("Finished parallel population reading...");
+	}
+
+	private static final class Tag {
+		final String name;
+		// null for end tags
+		final Attributes atts;
+		final String content;
+
+		Tag(String name, Attributes atts, String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * Creates the persons of a batch, replaying the tags like the xml parser would.
+	 */
+	private static final class Interpreter extends PopulationReaderMatsimV6 {
+
+		private final Stack<String> context = new Stack<>();
+		private List<Person> persons = null;
+
+		Interpreter(CoordinateTransformation coordinateTransformation, Scenario scenario) {
+			super(coordinateTransformation, scenario);
+		}
+
+		List<Person> interpret(List<Tag> batch) {
+			this.persons = new ArrayList<>();
+			this.context.clear();
+			this.context.push(POPULATION);
+			for (Tag tag : batch) {
+				if (tag.atts != null) {
+					startTag(tag.name, tag.atts, this.context);
+					this.context.push(tag.name);
+				} else {
+					this.context.pop();
+					endTag(tag.name, tag.content, this.context);
+				}
+			}
+			List<Person> result = this.persons;
+			this.persons = null;
+			return result;
+		}
+
+		@Override
+		void addPerson(Person person) {
+			this.persons.add(person);
+		}
+	}
+}
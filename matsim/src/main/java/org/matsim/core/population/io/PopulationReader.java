@@ -56,6 +56,7 @@ public final class PopulationReader extends MatsimXmlParser {
 
 	private MatsimXmlParser delegate = null;
 	private final Scenario scenario;
+	private final int numThreads;
 
 	private Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
 
@@ -81,6 +82,11 @@ public final class PopulationReader extends MatsimXmlParser {
 		this.inputCRS = inputCRS;
 		this.targetCRS = targetCRS;
 		this.scenario = scenario;
+		// only on request, since ids created in parallel get their indices in a non-deterministic order
+		this.numThreads = !streaming && scenario.getConfig() != null && scenario.getConfig().plans().isParallelReading() ?
+				scenario.getConfig().global().getNumberOfThreads() : 1;
+		// decompress in a separate thread while the persons are created in parallel
+		this.setReadAhead(this.numThreads > 1);
 	}
 
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
@@ -114,11 +120,20 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-						        inputCRS,
-						        targetCRS,
-								this.scenario);
+				if (this.numThreads > 1 && !(this.scenario.getPopulation() instanceof StreamingPopulation)) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+							        inputCRS,
+							        targetCRS,
+									this.scenario,
+									this.numThreads);
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+							        inputCRS,
+							        targetCRS,
+									this.scenario);
+				}
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
 				log.info("using population_v6-reader.");
 				break;
@@ -134,6 +134,24 @@ import com.google.inject.Inject;
 	    }
 	}
 
+	/**
+	 * Creates a reader that only interprets persons, using the given coordinate transformation. Used by
+	 * {@link ParallelPopulationReaderMatsimV6}, which handles the population-level elements itself.
+	 */
+	PopulationReaderMatsimV6(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario) {
+		this.externalInputCRS = null;
+		this.targetCRS = null;
+		this.scenario = scenario;
+		this.plans = scenario.getPopulation();
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
+	/*package*/ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
 		attributesReader.putAttributeConverter( clazz , converter );
 	}
@@ -197,7 +215,7 @@ import com.google.inject.Inject;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -233,6 +251,10 @@ import com.google.inject.Inject;
 		}
 	}
 
+	/*package*/ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -0,0 +1,300 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DeltaEncodedNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which stores the links of the route as a byte array: the difference of the
+ * {@link Id#index() index} of each link to the index of the previous link is stored as a zig-zag encoded variable
+ * length integer. As consecutive links of a route mostly have close indices in networks read from a file, most
+ * links only need one or two bytes, compared to a reference plus list overhead for {@link LinkNetworkRouteImpl}.
+ *
+ * <p>The links are decoded on demand. {@link #getLinkIds()} returns an unmodifiable view on the encoded links which
+ * is cheap for sequential access (as done in the mobsim), {@link #getLinkIdIterator()} decodes the links one
+ * by one without any further objects. Like the route itself, the view must not be accessed by several threads at
+ * the same time; an iterator per thread can be used instead.</p>
+ */
+final class DeltaEncodedNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private byte[] data = EMPTY;
+	private int size = 0;
+	private LinkIdsView view = null;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	DeltaEncodedNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+	}
+
+	@Override
+	public DeltaEncodedNetworkRouteImpl clone() {
+		// the encoded links are never modified, but replaced as a whole, so they can be shared
+		DeltaEncodedNetworkRouteImpl clone = (DeltaEncodedNetworkRouteImpl) super.clone();
+		// the view is not, as it keeps the position of the last access
+		clone.view = null;
+		return clone;
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		LinkIdsView view = this.view;
+		if (view == null || view.data != this.data) {
+			view = new LinkIdsView(this.data, this.size);
+			this.view = view;
+		}
+		return view;
+	}
+
+	@Override
+	public Iterator<Id<Link>> getLinkIdIterator() {
+		return new LinkIdIterator(this.data, this.size);
+	}
+
+	@Override
+	public int getNumberOfLinks() {
+		return this.size;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.data = EMPTY;
+			this.size = 0;
+			return;
+		}
+		byte[] buffer = new byte[srcRoute.size() * 2];
+		int position = 0;
+		int previous = 0;
+		for (Id<Link> linkId : srcRoute) {
+			if (buffer.length - position < 5) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			int index = linkId.index();
+			position = writeVarInt(buffer, position, zigZag(index - previous));
+			previous = index;
+		}
+		this.data = Arrays.copyOf(buffer, position);
+		this.size = srcRoute.size();
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		NetworkRoute subRoute = RouteUtils.createLinkNetworkRouteImpl(getStartLinkId(), getLinkIds(), getEndLinkId())
+				.getSubRoute(fromLinkId, toLinkId);
+		NetworkRoute route = new DeltaEncodedNetworkRouteImpl(fromLinkId, toLinkId);
+		route.setLinkIds(fromLinkId, subRoute.getLinkIds(), toLinkId);
+		return route;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Iterator<Id<Link>> iterator = getLinkIdIterator(); iterator.hasNext(); ) {
+			desc.append(" ");
+			desc.append(iterator.next().toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.size > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + new ArrayList<>(this.getLinkIds());
+		str += " travelCost=" + this.getTravelCost();
+		return str;
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static int writeVarInt(byte[] buffer, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * A view on the encoded links. Decoding starts at the position of the last access, so iterating over the list by
+	 * index is as cheap as using an iterator. The position is updated in place, so no objects are created on access.
+	 */
+	private static final class LinkIdsView extends AbstractList<Id<Link>> implements RandomAccess {
+		private final byte[] data;
+		private final int size;
+		// the index of the last decoded link, the offset of the following link in the data, and the last link index
+		private int position = -1;
+		private int offset = 0;
+		private int linkIndex = 0;
+
+		LinkIdsView(byte[] data, int size) {
+			this.data = data;
+			this.size = size;
+		}
+
+		@Override
+		public Id<Link> get(int index) {
+			if (index < 0 || index >= this.size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+			}
+			int position = this.position;
+			int offset = this.offset;
+			int linkIndex = this.linkIndex;
+			if (position > index) {
+				position = -1;
+				offset = 0;
+				linkIndex = 0;
+			}
+			byte[] data = this.data;
+			while (position < index) {
+				int value = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = data[offset++];
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				linkIndex += unZigZag(value);
+				position++;
+			}
+			this.position = position;
+			this.offset = offset;
+			this.linkIndex = linkIndex;
+			return Id.get(linkIndex, Link.class);
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public Iterator<Id<Link>> iterator() {
+			return new LinkIdIterator(this.data, this.size);
+		}
+	}
+
+	private static final class LinkIdIterator implements Iterator<Id<Link>> {
+		private final byte[] data;
+		private final int size;
+		private int position = 0;
+		private int offset = 0;
+		private int linkIndex = 0;
+
+		LinkIdIterator(byte[] data, int size) {
+			this.data = data;
+			this.size = size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < this.size;
+		}
+
+		@Override
+		public Id<Link> next() {
+			if (this.position >= this.size) {
+				throw new NoSuchElementException();
+			}
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[this.offset++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			this.linkIndex += unZigZag(value);
+			this.position++;
+			return Id.get(this.linkIndex, Link.class);
+		}
+	}
+}
@@ -20,6 +20,7 @@
 
 package org.matsim.core.population.routes;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.matsim.api.core.v01.Id;
@@ -58,6 +59,21 @@ public interface NetworkRoute extends Route {
 	 */
 	public List<Id<Link>> getLinkIds();
 
+	/**
+	 * Iterates over the link ids of {@link #getLinkIds()}. Implementations that store the links in an encoded form
+	 * can do so without creating the list of link ids, so use this if the links only need to be traversed once.
+	 */
+	public default Iterator<Id<Link>> getLinkIdIterator() {
+		return getLinkIds().iterator();
+	}
+
+	/**
+	 * @return the number of links in {@link #getLinkIds()}
+	 */
+	public default int getNumberOfLinks() {
+		return getLinkIds().size();
+	}
+
 	/**
 	 * This method returns a new Route object with the subroute of this, using fromLinkId as the
 	 * subroute's startLink, toLinkId as the subroute's endLink, and the links in between fromLinkId
@@ -29,8 +29,10 @@ import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +52,14 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * If work stealing is enabled (see {@link GlobalConfigGroup#isWorkStealingReplanning()}), the plans are instead
+ * handled in small chunks by a thread pool of the module, where idle threads take over chunks from busy ones. This
+ * balances the load, but the assignment of plans to algorithm instances is no longer reproducible. The pool is reused
+ * in every iteration; its threads terminate when they are idle for a few seconds.
+ * <p></p>
+ * In all cases, the time needed to handle all plans is logged per module, and the figures of the last replanning are
+ * available via {@link #getLastPlanCount()}, {@link #getLastWallNanos()} and {@link #getLastBusyNanos()}.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,13 +69,22 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final boolean workStealing;
 
 	private PlanAlgoThread[] algothreads = null;
+	private ForkJoinPool pool = null;
+	private WorkStealingPlanExecutor executor = null;
+	private List<Plan> plans = null;
 	private Thread[] threads = null;
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
 
 	private int count = 0;
+	private long directBusyNanos = 0;
+
+	private int lastPlanCount = 0;
+	private long lastWallNanos = 0;
+	private long lastBusyNanos = 0;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -83,11 +102,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.isWorkStealingReplanning());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, false);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final boolean workStealing) {
 		this.numOfThreads = numOfThreads;
+		this.workStealing = workStealing;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,6 +129,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+		} else if (this.workStealing) {
+			initExecutor();
 		} else {
 			initThreads();
 		}
@@ -117,11 +143,17 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	@Override
 	public final void handlePlan(final Plan plan) {
-		if (this.directAlgo == null) {
+		if (this.executor != null) {
+			this.plans.add(plan);
+			this.count++;
+		} else if (this.directAlgo == null) {
 			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
 			this.count++;
 		} else {
+			long start = System.nanoTime();
 			this.directAlgo.run(plan);
+			this.directBusyNanos += System.nanoTime() - start;
+			this.count++;
 		}
 	}
 
@@ -135,8 +167,22 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
-		
-		if (this.directAlgo == null) {
+		long start = System.nanoTime();
+		long busyNanos = this.directBusyNanos;
+
+		if (this.executor != null) {
+			log.info("[" + this.name + "] handling " + this.count + " plans with " + this.executor.getParallelism() + " threads (work stealing)");
+			try {
+				this.executor.run(this.plans);
+			} catch (RuntimeException | Error e) {
+				throw new RuntimeException("Some plans could not be handled.", e);
+			}
+			busyNanos = this.executor.getBusyNanos();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			double busySeconds = busyNanos / 1e9;
+			log.info(String.format("[%s] handled %d plans in %.2f s (%.3f ms per plan, thread utilization %.0f%%)", this.name, this.count, seconds,
+					this.count == 0 ? 0.0 : busySeconds * 1000 / this.count, seconds == 0 ? 0.0 : 100 * busySeconds / seconds / this.executor.getParallelism()));
+		} else if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
@@ -153,17 +199,27 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e);
 			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+			for (PlanAlgoThread algothread : this.algothreads) {
+				busyNanos += algothread.busyNanos;
+			}
+			log.info(String.format("[%s] all %d threads finished, handled %d plans in %.2f s.", this.name, this.threads.length, this.count, (System.nanoTime() - start) / 1e9));
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
 			}
 		}
+		this.lastPlanCount = this.count;
+		this.lastWallNanos = this.directAlgo == null ? System.nanoTime() - start : busyNanos;
+		this.lastBusyNanos = busyNanos;
+
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.executor = null;
+		this.plans = null;
 		this.replanningContext = null;
 		this.count = 0;
+		this.directBusyNanos = 0;
 		
 		this.afterFinishReplanningHook();
 	}
@@ -193,10 +249,49 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void initExecutor() {
+		if (this.executor != null) {
+			throw new RuntimeException("executor is already initialized");
+		}
+		List<PlanAlgorithm> algos = new ArrayList<>(this.numOfThreads);
+		for (int i = 0; i < this.numOfThreads; i++) {
+			algos.add(getPlanAlgoInstance());
+		}
+		this.name = algos.get(0).getClass().getSimpleName();
+		Counter counter = new Counter("[" + this.name + "] handled plan # ");
+		if (this.pool == null) {
+			this.pool = WorkStealingPlanExecutor.createPool(this.numOfThreads, this.name);
+		}
+		this.executor = new WorkStealingPlanExecutor(this.pool, algos, this::getPlanAlgoInstance, counter);
+		this.plans = new ArrayList<>();
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
 
+	/**
+	 * @return the number of plans handled in the last replanning
+	 */
+	public final int getLastPlanCount() {
+		return this.lastPlanCount;
+	}
+
+	/**
+	 * @return the wall-clock time in nanoseconds needed to handle the plans of the last replanning
+	 */
+	public final long getLastWallNanos() {
+		return this.lastWallNanos;
+	}
+
+	/**
+	 * @return the time in nanoseconds all threads together spent running the plan algorithms in the last replanning.
+	 * Divided by the wall-clock time and the number of threads, this gives the thread utilization.
+	 */
+	public final long getLastBusyNanos() {
+		return this.lastBusyNanos;
+	}
+
 	private final static class ExceptionHandler implements UncaughtExceptionHandler {
 
 		private final AtomicReference<Throwable> hadException;
@@ -218,6 +313,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private long busyNanos = 0;
 
 		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
 			this.planAlgo = algo;
@@ -230,10 +326,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
+			long start = System.nanoTime();
 			for (Plan plan : this.plans) {
 				this.planAlgo.run(plan);
 				this.counter.incCounter();
 			}
+			this.busyNanos = System.nanoTime() - start;
 		}
 	}
 }
@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * WorkStealingPlanExecutor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.utils.misc.Counter;
+
+/**
+ * Runs plan algorithms on a list of plans using a {@link ForkJoinPool}. The plans are recursively split into
+ * chunks, so idle threads can steal chunks from busy ones. The pool is owned by the module using the executor (see
+ * {@link #createPool(int, String)}) and reused in every iteration. Its threads terminate when they were idle for
+ * {@link #KEEP_ALIVE_SECONDS}, so no threads are left behind between the replanning phases or after the run.
+ *
+ * Plan algorithms are usually not thread-safe. Each chunk thus borrows an algorithm instance exclusively and
+ * returns it afterwards; additional instances are only created if all existing ones are in use.
+ */
+final class WorkStealingPlanExecutor {
+
+	private static final int MAX_CHUNK_SIZE = 64;
+	private static final int CHUNKS_PER_THREAD = 16;
+
+	/*package*/ static final long KEEP_ALIVE_SECONDS = 10;
+
+	private final ForkJoinPool pool;
+	private final ConcurrentLinkedQueue<PlanAlgorithm> algorithms = new ConcurrentLinkedQueue<>();
+	private final Supplier<PlanAlgorithm> algorithmFactory;
+	private final Counter counter;
+	private final LongAdder busyNanos = new LongAdder();
+
+	WorkStealingPlanExecutor(ForkJoinPool pool, List<PlanAlgorithm> algorithms, Supplier<PlanAlgorithm> algorithmFactory, Counter counter) {
+		this.pool = pool;
+		this.algorithms.addAll(algorithms);
+		this.algorithmFactory = algorithmFactory;
+		this.counter = counter;
+	}
+
+	static ForkJoinPool createPool(int numberOfThreads, String name) {
+		return new ForkJoinPool(numberOfThreads, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName(name + "." + thread.getPoolIndex());
+			return thread;
+		}, null, false, 0, numberOfThreads + 256, 1, null, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Handles all plans and blocks until all are finished. Exceptions of the plan algorithms are re-thrown.
+	 */
+	void run(List<Plan> plans) {
+		if (plans.isEmpty()) {
+			return;
+		}
+		int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, plans.size() / (this.pool.getParallelism() * CHUNKS_PER_THREAD)));
+		this.pool.invoke(new PlansTask(plans, 0, plans.size(), chunkSize));
+	}
+
+	/**
+	 * @return the summed time all threads spent handling plans
+	 */
+	long getBusyNanos() {
+		return this.busyNanos.sum();
+	}
+
+	int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+	private PlanAlgorithm borrowAlgorithm() {
+		PlanAlgorithm algo = this.algorithms.poll();
+		if (algo == null) {
+			synchronized (this.algorithmFactory) {
+				algo = this.algorithmFactory.get();
+			}
+		}
+		return algo;
+	}
+
+	private final class PlansTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Plan> plans;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+
+		PlansTask(List<Plan> plans, int from, int to, int chunkSize) {
+			this.plans = plans;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > this.chunkSize) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new PlansTask(this.plans, this.from, mid, this.chunkSize), new PlansTask(this.plans, mid, this.to, this.chunkSize));
+				return;
+			}
+			long start = System.nanoTime();
+			PlanAlgorithm algo = borrowAlgorithm();
+			try {
+				for (int i = this.from; i < this.to; i++) {
+					algo.run(this.plans.get(i));
+					counter.incCounter();
+				}
+			} finally {
+				algorithms.add(algo);
+				busyNanos.add(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -26,8 +26,11 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.speedy.SpeedyALTFactory;
+import org.matsim.core.router.speedy.SpeedyCCHFactory;
 import org.matsim.core.router.util.*;
 
+import com.google.inject.Singleton;
+
 public class LeastCostPathCalculatorModule extends AbstractModule {
 
     @Override
@@ -47,6 +50,11 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.SpeedyALT)) {
             bind(LeastCostPathCalculatorFactory.class).to(SpeedyALTFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.SpeedyCCH)) {
+            // one factory, so all routers share the customizations of the hierarchy, which are discarded every iteration
+            bind(SpeedyCCHFactory.class).in(Singleton.class);
+            bind(LeastCostPathCalculatorFactory.class).to(SpeedyCCHFactory.class);
+            addControlerListenerBinding().to(SpeedyCCHFactory.class);
         }
     }
 
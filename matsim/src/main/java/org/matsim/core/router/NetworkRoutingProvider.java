@@ -26,12 +26,16 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.speedy.SpeedyCostSnapshot;
+import org.matsim.core.router.speedy.SpeedyCostSnapshots;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 import com.google.inject.name.Named;
@@ -51,6 +55,8 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	@Inject Map<String, TravelDisutilityFactory> travelDisutilityFactories;
 	@Inject SingleModeNetworksCache singleModeNetworksCache;
 	@Inject PlansCalcRouteConfigGroup plansCalcRouteConfigGroup;
+	@Inject ControlerConfigGroup controlerConfigGroup;
+	@Inject Provider<SpeedyCostSnapshots> speedyCostSnapshots;
 	@Inject Network network;
 	@Inject PopulationFactory populationFactory;
 	@Inject LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
@@ -116,10 +122,17 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+routingMode+".");
 		}
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
+		if (controlerConfigGroup.isUsingSpeedyCostSnapshots() && speedyCostSnapshots.get().isEnabled()) {
+			// one snapshot per iteration, shared by the routers of all threads
+			SpeedyCostSnapshot snapshot = speedyCostSnapshots.get().getSnapshot(filteredNetwork, routingMode, travelTime, travelDisutility);
+			travelDisutility = snapshot;
+			travelTime = snapshot;
+		}
 		LeastCostPathCalculator routeAlgo =
 				leastCostPathCalculatorFactory.createPathCalculator(
 						filteredNetwork,
-						travelDisutilityFactory.createTravelDisutility(travelTime),
+						travelDisutility,
 						travelTime);
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
@@ -0,0 +1,227 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.facilities.Facility;
+
+/**
+ * Caches routed trips, so trips with the same routing mode, origin, destination, subpopulation and departure time bin
+ * are only routed once. Origin and destination are identified by their link and coordinate.
+ * A cached trip is returned as a deep copy, with all defined times shifted by the difference between the requested
+ * departure time and the departure time of the originally routed trip. Trips with routes other than network routes and
+ * generic routes, e.g. transit routes with a boarding time, depend on the exact departure time and may hold further
+ * times the cache does not know about, so they are only reused for exactly the same departure time.
+ *
+ * The cache is shared by all {@link TripRouter}s and is thread-safe. It is bounded: once the configured maximum number
+ * of trips is reached, no further trips are added until it is cleared, which the {@link RouteCacheControlerListener}
+ * does at the start of every iteration.
+ *
+ * @see PlansCalcRouteConfigGroup#getRouteCacheSize()
+ */
+@Singleton
+public final class RouteCache {
+
+	private final int maxSize;
+	private final double timeBinSize;
+	private final Map<Key, CachedTrip> trips = new ConcurrentHashMap<>();
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+
+	@Inject
+	RouteCache(Config config) {
+		this(config.plansCalcRoute().getRouteCacheSize(), config.plansCalcRoute().getRouteCacheTimeBinSize());
+	}
+
+	public RouteCache(int maxSize, double timeBinSize) {
+		if (timeBinSize <= 0) {
+			throw new IllegalArgumentException("time bin size of the route cache must be positive, but is " + timeBinSize);
+		}
+		this.maxSize = maxSize;
+		this.timeBinSize = timeBinSize;
+	}
+
+	public boolean isEnabled() {
+		return this.maxSize > 0;
+	}
+
+	/**
+	 * @return a copy of the cached trip, or <code>null</code> if no trip is cached for the given parameters.
+	 */
+	List<? extends PlanElement> get(Key key, double departureTime) {
+		this.lookups.increment();
+		CachedTrip cached = this.trips.get(key);
+		if (cached == null || (!cached.shiftable && departureTime != cached.departureTime)) {
+			return null;
+		}
+		this.hits.increment();
+		return copy(cached.trip, departureTime - cached.departureTime);
+	}
+
+	void put(Key key, List<? extends PlanElement> trip, double departureTime) {
+		if (this.trips.size() < this.maxSize) {
+			this.trips.putIfAbsent(key, new CachedTrip(copy(trip, 0), departureTime));
+		}
+	}
+
+	Key createKey(String routingMode, Facility fromFacility, Facility toFacility, double departureTime, Person person) {
+		String subpopulation = person == null ? null : PopulationUtils.getSubpopulation(person);
+		return new Key(routingMode, fromFacility.getLinkId(), fromFacility.getCoord(), toFacility.getLinkId(), toFacility.getCoord(),
+				(int) (departureTime / this.timeBinSize), subpopulation);
+	}
+
+	/**
+	 * Removes all cached trips and resets the statistics.
+	 */
+	public void clear() {
+		this.trips.clear();
+		this.lookups.reset();
+		this.hits.reset();
+	}
+
+	public long getLookups() {
+		return this.lookups.sum();
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public int size() {
+		return this.trips.size();
+	}
+
+	/**
+	 * @return <code>true</code> if all times of the trip are known to {@link #copy(List, double)}, so the trip can be
+	 * 		shifted to another departure time.
+	 */
+	private static boolean isShiftable(List<? extends PlanElement> trip) {
+		for (PlanElement pe : trip) {
+			if (pe instanceof Leg) {
+				Route route = ((Leg) pe).getRoute();
+				if (route != null && !(route instanceof NetworkRoute) && route.getClass() != GenericRouteImpl.class) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static List<PlanElement> copy(List<? extends PlanElement> trip, double timeShift) {
+		List<PlanElement> copy = new ArrayList<>(trip.size());
+		for (PlanElement pe : trip) {
+			if (pe instanceof Leg) {
+				Leg leg = PopulationUtils.createLeg((Leg) pe);
+				if (timeShift != 0) {
+					leg.getDepartureTime().ifDefined(time -> leg.setDepartureTime(time + timeShift));
+				}
+				copy.add(leg);
+			} else if (pe instanceof Activity) {
+				Activity act = PopulationUtils.createActivity((Activity) pe);
+				if (timeShift != 0) {
+					act.getStartTime().ifDefined(time -> act.setStartTime(time + timeShift));
+					act.getEndTime().ifDefined(time -> act.setEndTime(time + timeShift));
+				}
+				copy.add(act);
+			} else {
+				throw new IllegalArgumentException("unrecognized plan element type " + pe.getClass());
+			}
+		}
+		return copy;
+	}
+
+	private static final class CachedTrip {
+		final List<PlanElement> trip;
+		final double departureTime;
+		final boolean shiftable;
+
+		CachedTrip(List<PlanElement> trip, double departureTime) {
+			this.trip = trip;
+			this.departureTime = departureTime;
+			this.shiftable = isShiftable(trip);
+		}
+	}
+
+	static final class Key {
+		private final String routingMode;
+		private final Id<Link> fromLinkId;
+		private final Coord fromCoord;
+		private final Id<Link> toLinkId;
+		private final Coord toCoord;
+		private final int timeBin;
+		private final String subpopulation;
+		private final int hash;
+
+		Key(String routingMode, Id<Link> fromLinkId, Coord fromCoord, Id<Link> toLinkId, Coord toCoord, int timeBin, String subpopulation) {
+			this.routingMode = routingMode;
+			this.fromLinkId = fromLinkId;
+			this.fromCoord = fromCoord;
+			this.toLinkId = toLinkId;
+			this.toCoord = toCoord;
+			this.timeBin = timeBin;
+			this.subpopulation = subpopulation;
+			this.hash = Objects.hash(routingMode, fromLinkId, fromCoord, toLinkId, toCoord, timeBin, subpopulation);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return this.hash == other.hash
+					&& this.timeBin == other.timeBin
+					&& Objects.equals(this.routingMode, other.routingMode)
+					&& Objects.equals(this.fromLinkId, other.fromLinkId)
+					&& Objects.equals(this.toLinkId, other.toLinkId)
+					&& Objects.equals(this.fromCoord, other.fromCoord)
+					&& Objects.equals(this.toCoord, other.toCoord)
+					&& Objects.equals(this.subpopulation, other.subpopulation);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
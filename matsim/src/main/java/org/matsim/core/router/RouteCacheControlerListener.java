@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCacheControlerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Clears the {@link RouteCache} at the start of every iteration, and writes its hit rate per iteration to
+ * <code>routecachestats.txt</code> in the output directory.
+ */
+final class RouteCacheControlerListener implements IterationStartsListener, IterationEndsListener, ShutdownListener {
+	private static final Logger log = Logger.getLogger(RouteCacheControlerListener.class);
+
+	private final RouteCache cache;
+	private final BufferedWriter out;
+
+	@Inject
+	RouteCacheControlerListener(RouteCache cache, OutputDirectoryHierarchy controlerIO) {
+		this.cache = cache;
+		this.out = IOUtils.getBufferedWriter(controlerIO.getOutputFilename("routecachestats.txt"));
+		try {
+			this.out.write("ITERATION\tlookups\thits\thitRate\tcachedTrips\n");
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		this.cache.clear();
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		long lookups = this.cache.getLookups();
+		long hits = this.cache.getHits();
+		double hitRate = lookups == 0 ? 0.0 : (double) hits / lookups;
+		log.info(String.format("route cache: %d lookups, %d hits (%.1f%%), %d cached trips", lookups, hits, 100 * hitRate, this.cache.size()));
+		try {
+			this.out.write(event.getIteration() + "\t" + lookups + "\t" + hits + "\t" + hitRate + "\t" + this.cache.size() + "\n");
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -63,6 +63,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 
 	private final Map<String, RoutingModule> routingModules = new HashMap<>();
 	private final FallbackRoutingModule fallbackRoutingModule;
+	private final RouteCache routeCache;
 
 	private Config config;
 	// (I need the config in the PlanRouter to figure out activity end times. And since the PlanRouter is not
@@ -86,7 +87,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 			return this ;
 		}
 		public TripRouter build() {
-			return new TripRouter( routingModuleProviders, config, fallbackRoutingModule ) ;
+			return new TripRouter( routingModuleProviders, config, fallbackRoutingModule, null ) ;
 		}
 	}
 
@@ -100,8 +101,9 @@ public final class TripRouter implements MatsimExtensionPoint {
 
 	@Inject
 	TripRouter( Map<String, Provider<RoutingModule>> routingModuleProviders, Config config,
-			FallbackRoutingModule fallbackRoutingModule ) {
+			FallbackRoutingModule fallbackRoutingModule, RouteCache routeCache ) {
 		this.fallbackRoutingModule = fallbackRoutingModule;
+		this.routeCache = routeCache != null && routeCache.isEnabled() ? routeCache : null;
 
 		for (Map.Entry<String, Provider<RoutingModule>> entry : routingModuleProviders.entrySet()) {
 			setRoutingModule(entry.getKey(), entry.getValue().get());
@@ -170,6 +172,15 @@ public final class TripRouter implements MatsimExtensionPoint {
 		RoutingModule module = routingModules.get( mainMode );
 
 		if (module != null) {
+			RouteCache.Key cacheKey = null;
+			if ( routeCache != null ) {
+				cacheKey = routeCache.createKey( mainMode, fromFacility, toFacility, departureTime, person );
+				List<? extends PlanElement> cachedTrip = routeCache.get( cacheKey, departureTime );
+				if ( cachedTrip != null ) {
+					return cachedTrip;
+				}
+			}
+
 			List<? extends PlanElement> trip =
 					module.calcRoute(
 						fromFacility,
@@ -183,6 +194,9 @@ public final class TripRouter implements MatsimExtensionPoint {
 			for (Leg leg: TripStructureUtils.getLegs(trip)) {
 				TripStructureUtils.setRoutingMode(leg, mainMode);
 			}
+			if ( cacheKey != null ) {
+				routeCache.put( cacheKey, trip, departureTime );
+			}
 			return trip;
 		}
 
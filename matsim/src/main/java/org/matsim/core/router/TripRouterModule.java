@@ -22,15 +22,19 @@
 
 package org.matsim.core.router;
 
+import com.google.inject.Singleton;
+import org.apache.log4j.Logger;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.network.algorithms.NetworkTurnInfoBuilder;
 import org.matsim.core.network.algorithms.NetworkTurnInfoBuilderI;
+import org.matsim.core.router.speedy.SpeedyCostSnapshots;
 import org.matsim.pt.config.TransitConfigGroup.TransitRoutingAlgorithmType;
 import org.matsim.pt.router.TransitRouterModule;
 
 
 public class TripRouterModule extends AbstractModule {
+    private static final Logger log = Logger.getLogger(TripRouterModule.class);
 
     @Override
     public void install() {
@@ -76,5 +80,22 @@ public class TripRouterModule extends AbstractModule {
         }
 
         this.bind( FallbackRoutingModule.class ).to( FallbackRoutingModuleDefaultImpl.class ) ;
+
+        if (routeConfigGroup.getRouteCacheSize() > 0 && routeConfigGroup.getRoutingRandomness() > 0) {
+            // the cached trips do not depend on the person, so all persons would get the route of the first one
+            log.warn("A route cache is configured, but the routingRandomness is " + routeConfigGroup.getRoutingRandomness()
+                    + ". The route cache is not used. Set the routingRandomness to 0 to use it.");
+            bind(RouteCache.class).toInstance(new RouteCache(0, routeConfigGroup.getRouteCacheTimeBinSize()));
+        } else {
+            bind(RouteCache.class).in(Singleton.class);
+            if (routeConfigGroup.getRouteCacheSize() > 0) {
+                addControlerListenerBinding().to(RouteCacheControlerListener.class);
+            }
+        }
+
+        bind(SpeedyCostSnapshots.class).in(Singleton.class);
+        if (getConfig().controler().isUsingSpeedyCostSnapshots()) {
+            addControlerListenerBinding().to(SpeedyCostSnapshots.class);
+        }
     }
 }
@@ -41,6 +41,8 @@ public class SpeedyALT implements LeastCostPathCalculator {
 	private final SpeedyALTData astarData;
 	private final TravelTime tt;
 	private final TravelDisutility td;
+	private final SpeedyCostSnapshot ttSnapshot;
+	private final SpeedyCostSnapshot tdSnapshot;
 	private final double[] data; // 3 entries per node: cost to node, time, distance
 	private int currentIteration = Integer.MIN_VALUE;
 	private final int[] iterationIds;
@@ -54,6 +56,8 @@ public class SpeedyALT implements LeastCostPathCalculator {
 		this.astarData = astarData;
 		this.tt = tt;
 		this.td = td;
+		this.ttSnapshot = tt instanceof SpeedyCostSnapshot ? (SpeedyCostSnapshot) tt : null;
+		this.tdSnapshot = td instanceof SpeedyCostSnapshot ? (SpeedyCostSnapshot) td : null;
 		this.data = new double[this.graph.nodeCount * 3];
 		this.iterationIds = new int[this.graph.nodeCount];
 		this.comingFrom = new int[this.graph.nodeCount];
@@ -128,9 +132,9 @@ public class SpeedyALT implements LeastCostPathCalculator {
 				Link link = this.graph.getLink(linkIdx);
 				int toNode = this.outLI.getToNodeIndex();
 
-				double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
+				double travelTime = this.ttSnapshot != null ? this.ttSnapshot.getTravelTime(linkIdx, currTime) : this.tt.getLinkTravelTime(link, currTime, person, vehicle);
 				double newTime = currTime + travelTime;
-				double travelCost = this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
+				double travelCost = this.tdSnapshot != null ? this.tdSnapshot.getTravelDisutility(linkIdx, currTime) : this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
 				double newCost = currCost + travelCost;
 
 				if (this.iterationIds[toNode] == this.currentIteration) {
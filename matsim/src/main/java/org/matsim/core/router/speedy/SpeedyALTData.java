@@ -7,6 +7,19 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
 import org.matsim.core.router.util.TravelDisutility;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,6 +31,10 @@ import java.util.concurrent.Future;
 /**
  * Preprocessed data for the ALT algorithm, see {@link SpeedyALT}.
  *
+ * The landmarks can optionally be cached in a directory. The cached data is identified by a checksum over the
+ * structure of the graph and the minimal travel disutility of each link, so it is only re-used if the preprocessing
+ * would lead to the same result.
+ *
  * This class is thread-safe and can safely be used by multiple threads.
  *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
@@ -26,6 +43,8 @@ class SpeedyALTData {
 
 	private final static Logger LOG = LogManager.getLogger(SpeedyALTData.class);
 
+	private final static int CACHE_FILE_VERSION = 1;
+
 	final SpeedyGraph graph;
 	private final int landmarksCount;
 	private final TravelDisutility travelCosts;
@@ -35,6 +54,14 @@ class SpeedyALTData {
 	private final double minTravelCostPerLength;
 
 	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts) {
+		this(graph, landmarksCount, travelCosts, 4, null);
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads used to calculate the landmark trees
+	 * @param cacheDirectory the directory to load the landmarks from and store them to, or <code>null</code> to not cache them
+	 */
+	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts, int numberOfThreads, File cacheDirectory) {
 		this.graph = graph;
 		this.landmarksCount = landmarksCount;
 		this.travelCosts = travelCosts;
@@ -42,11 +69,105 @@ class SpeedyALTData {
 		this.nodesData = new double[graph.nodeCount * (landmarksCount * 2)];
 		this.deadendData = new int[graph.nodeCount];
 
-		this.findDeadEnds();
-		this.calcLandmarks();
+		File cacheFile = cacheDirectory == null ? null : new File(cacheDirectory, "speedyALT_" + calcChecksum() + ".bin");
+		if (cacheFile != null && cacheFile.exists() && readCache(cacheFile)) {
+			LOG.info("read landmarks from " + cacheFile);
+		} else {
+			this.findDeadEnds();
+			this.calcLandmarks(Math.max(1, numberOfThreads));
+			if (cacheFile != null) {
+				writeCache(cacheFile);
+			}
+		}
 		this.minTravelCostPerLength = this.calcMinTravelCostPerLength();
 	}
 
+	/**
+	 * @return a checksum over everything the preprocessing depends on, i.e. the graph and the minimal travel disutilities
+	 */
+	private String calcChecksum() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = ByteBuffer.allocate(28);
+			buffer.putInt(CACHE_FILE_VERSION).putInt(this.landmarksCount).putInt(this.graph.nodeCount).putInt(this.graph.linkCount);
+			digest.update(buffer.array(), 0, buffer.position());
+			for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+				if (this.graph.getNode(nodeIdx) != null) {
+					buffer.clear();
+					buffer.putInt(nodeIdx);
+					digest.update(buffer.array(), 0, buffer.position());
+				}
+			}
+			for (int linkIdx = 0; linkIdx < this.graph.linkCount; linkIdx++) {
+				Link link = this.graph.getLink(linkIdx);
+				if (link == null) {
+					continue;
+				}
+				buffer.clear();
+				buffer.putInt(linkIdx);
+				buffer.putInt(link.getFromNode().getId().index());
+				buffer.putInt(link.getToNode().getId().index());
+				buffer.putDouble(this.travelCosts.getLinkMinimumTravelDisutility(link));
+				digest.update(buffer.array(), 0, buffer.position());
+			}
+			StringBuilder str = new StringBuilder();
+			for (byte b : digest.digest()) {
+				str.append(String.format("%02x", b));
+			}
+			return str.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private boolean readCache(File file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != CACHE_FILE_VERSION || in.readInt() != this.landmarksCount || in.readInt() != this.graph.nodeCount) {
+				LOG.warn("landmarks cache file " + file + " does not match the network, ignoring it.");
+				return false;
+			}
+			for (int i = 0; i < this.landmarksCount; i++) {
+				this.landmarksNodeIndices[i] = in.readInt();
+			}
+			for (int i = 0; i < this.deadendData.length; i++) {
+				this.deadendData[i] = in.readInt();
+			}
+			for (int i = 0; i < this.nodesData.length; i++) {
+				this.nodesData[i] = in.readDouble();
+			}
+			return true;
+		} catch (IOException e) {
+			LOG.warn("could not read landmarks cache file " + file + ", calculating landmarks instead.", e);
+			return false;
+		}
+	}
+
+	private void writeCache(File file) {
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			// write to a temporary file first, so concurrent runs never read a partially written file
+			File tmpFile = File.createTempFile("speedyALT", ".tmp", file.getParentFile());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+				out.writeInt(CACHE_FILE_VERSION);
+				out.writeInt(this.landmarksCount);
+				out.writeInt(this.graph.nodeCount);
+				for (int landmark : this.landmarksNodeIndices) {
+					out.writeInt(landmark);
+				}
+				for (int deadend : this.deadendData) {
+					out.writeInt(deadend);
+				}
+				for (double value : this.nodesData) {
+					out.writeDouble(value);
+				}
+			}
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			LOG.info("stored landmarks in " + file);
+		} catch (IOException e) {
+			LOG.warn("could not write landmarks cache file " + file, e);
+		}
+	}
+
 	private void findDeadEnds() {
 		LOG.info("find dead ends...");
 
@@ -128,7 +249,7 @@ class SpeedyALTData {
 		return otherNodeIndex;
 	}
 
-	private void calcLandmarks() {
+	private void calcLandmarks(int numberOfThreads) {
 		LOG.info("calculate landmarks...");
 		Node firstNode = null;
 		for (int i = 0; i < this.graph.nodeCount; i++) {
@@ -143,7 +264,8 @@ class SpeedyALTData {
 		}
 
 		Future<double[]>[] trees = new Future[this.landmarksCount * 2];
-		ExecutorService executor = Executors.newFixedThreadPool(4);
+		// the trees are calculated in parallel while the next landmarks are determined
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfThreads, this.landmarksCount * 2));
 
 		int firstLandmarkIndex = firstNode.getId().index();
 		this.landmarksNodeIndices[0] = firstLandmarkIndex;
@@ -158,15 +280,16 @@ class SpeedyALTData {
 			trees[i * 2 + 1] = executor.submit(() -> calculateTreeBackward(nextLandmark));
 		}
 
-		for (int i = 0; i < trees.length; i++) {
-			try {
+		try {
+			for (int i = 0; i < trees.length; i++) {
 				double[] data = trees[i].get();
 				setNodeData(data, i);
-			} catch (InterruptedException | ExecutionException e) {
-				LOG.error(e);
 			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Error while calculating landmarks", e);
+		} finally {
+			executor.shutdown();
 		}
-		executor.shutdown();
 	}
 
 	private double calcMinTravelCostPerLength() {
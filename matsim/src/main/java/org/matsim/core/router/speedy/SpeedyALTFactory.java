@@ -1,11 +1,15 @@
 package org.matsim.core.router.speedy;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
+import javax.inject.Inject;
+import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -16,6 +20,27 @@ public class SpeedyALTFactory implements LeastCostPathCalculatorFactory {
 
 	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
 	private final Map<SpeedyGraph, SpeedyALTData> landmarksData = new ConcurrentHashMap<>();
+	private final int numberOfThreads;
+	private final File cacheDirectory;
+
+	public SpeedyALTFactory() {
+		this(4, null);
+	}
+
+	@Inject
+	public SpeedyALTFactory(GlobalConfigGroup globalConfigGroup, ControlerConfigGroup controlerConfigGroup) {
+		this(globalConfigGroup.getNumberOfThreads(),
+				controlerConfigGroup.getLandmarksCacheDirectory() == null ? null : new File(controlerConfigGroup.getLandmarksCacheDirectory()));
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads used to preprocess the landmarks
+	 * @param cacheDirectory the directory in which preprocessed landmarks are cached, or <code>null</code> to disable the cache
+	 */
+	public SpeedyALTFactory(int numberOfThreads, File cacheDirectory) {
+		this.numberOfThreads = numberOfThreads;
+		this.cacheDirectory = cacheDirectory;
+	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
@@ -26,7 +51,7 @@ public class SpeedyALTFactory implements LeastCostPathCalculatorFactory {
 		}
 		SpeedyALTData landmarks = this.landmarksData.get(graph);
 		if (landmarks == null) {
-			landmarks = new SpeedyALTData(graph, 16, travelCosts);
+			landmarks = new SpeedyALTData(graph, 16, travelCosts, this.numberOfThreads, this.cacheDirectory);
 			this.landmarksData.put(graph, landmarks);
 		}
 		return new SpeedyALT(landmarks, travelTimes, travelCosts);
@@ -0,0 +1,215 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements a least-cost-path calculator based on Customizable Contraction Hierarchies (CCH), using a
+ * {@link SpeedyGraph} data structure.
+ *
+ * The metric-independent hierarchy ({@link SpeedyCCHData}) is calculated once per network and shared between
+ * all instances. The hierarchy is customized with the travel disutility lazily for every time bin in which a query
+ * starts ({@link SpeedyCCHMetric}). Instances created by the {@link SpeedyCCHFactory} with the same travel
+ * disutility share these customizations. A query then only needs to scan the ancestors of the start and end node
+ * in the elimination tree of the hierarchy, which is independent of the distance between the two nodes.
+ *
+ * The path is selected based on the travel disutility at the start of the time bin in which the query starts.
+ * Travel time and cost of the returned path are calculated along the path with the actual departure times, person
+ * and vehicle, just like in {@link SpeedyDijkstra}. Thus, the result is exact for travel disutilities that do not
+ * depend on the time of day, the person or the vehicle, and an approximation otherwise.
+ *
+ * Each customized time bin requires about 24 bytes per arc of the hierarchy, so this router is best suited for
+ * a large number of queries per travel disutility.
+ *
+ * This class is NOT thread-safe!
+ */
+public class SpeedyCCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCH.class);
+
+	private final SpeedyCCHData data;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final SpeedyCCHMetrics metrics;
+
+	private final double[] fwdCost;
+	private final double[] bwdCost;
+	private final int[] fwdPredArc;
+	private final int[] bwdPredArc;
+	private final int[] fwdPredNode;
+	private final int[] bwdPredNode;
+	private final int[] fwdIteration;
+	private int currentIteration = Integer.MIN_VALUE;
+	private int[] unpackStack = new int[64];
+
+	public SpeedyCCH(SpeedyCCHData data, TravelTime tt, TravelDisutility td, double timeBinSize) {
+		this(data, tt, td, new SpeedyCCHMetrics(data, timeBinSize));
+	}
+
+	/**
+	 * @param metrics the customizations of the hierarchy for the given travel disutility, possibly shared with other instances
+	 */
+	SpeedyCCH(SpeedyCCHData data, TravelTime tt, TravelDisutility td, SpeedyCCHMetrics metrics) {
+		this.data = data;
+		this.tt = tt;
+		this.td = td;
+		this.metrics = metrics;
+		this.fwdCost = new double[data.nodeCount];
+		this.bwdCost = new double[data.nodeCount];
+		this.fwdPredArc = new int[data.nodeCount];
+		this.bwdPredArc = new int[data.nodeCount];
+		this.fwdPredNode = new int[data.nodeCount];
+		this.bwdPredNode = new int[data.nodeCount];
+		this.fwdIteration = new int[data.nodeCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		int startRank = this.data.rank[startNode.getId().index()];
+		int endRank = this.data.rank[endNode.getId().index()];
+
+		if (startRank == endRank) {
+			List<Node> nodes = new ArrayList<>();
+			nodes.add(startNode);
+			return new Path(nodes, new ArrayList<>(), 0, 0);
+		}
+
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.fwdIteration, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+
+		SpeedyCCHMetric metric = this.metrics.get(this.td, startTime);
+		int[] parent = this.data.parent;
+
+		// initialize both search spaces, these are exactly the ancestors in the elimination tree
+		for (int r = startRank; r >= 0; r = parent[r]) {
+			this.fwdCost[r] = Double.POSITIVE_INFINITY;
+			this.fwdIteration[r] = this.currentIteration;
+		}
+		for (int r = endRank; r >= 0; r = parent[r]) {
+			this.bwdCost[r] = Double.POSITIVE_INFINITY;
+		}
+		this.fwdCost[startRank] = 0;
+		this.fwdPredNode[startRank] = -1;
+		this.bwdCost[endRank] = 0;
+		this.bwdPredNode[endRank] = -1;
+
+		for (int r = startRank; r >= 0; r = parent[r]) {
+			relax(r, this.fwdCost, this.fwdPredArc, this.fwdPredNode, metric.up);
+		}
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingRank = -1;
+		for (int r = endRank; r >= 0; r = parent[r]) {
+			relax(r, this.bwdCost, this.bwdPredArc, this.bwdPredNode, metric.down);
+			if (this.fwdIteration[r] == this.currentIteration) {
+				double cost = this.fwdCost[r] + this.bwdCost[r];
+				if (cost < bestCost) {
+					bestCost = cost;
+					meetingRank = r;
+				}
+			}
+		}
+
+		if (meetingRank < 0) {
+			LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+			LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+			LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+			return null;
+		}
+
+		return constructPath(metric, meetingRank, startNode, startTime, person, vehicle);
+	}
+
+	private void relax(int r, double[] cost, int[] predArc, int[] predNode, double[] weights) {
+		double currCost = cost[r];
+		if (currCost == Double.POSITIVE_INFINITY) {
+			return;
+		}
+		for (int arc = this.data.firstArc[r], end = this.data.firstArc[r + 1]; arc < end; arc++) {
+			int head = this.data.arcHead[arc];
+			double newCost = currCost + weights[arc];
+			if (newCost < cost[head]) {
+				cost[head] = newCost;
+				predArc[head] = arc;
+				predNode[head] = r;
+			}
+		}
+	}
+
+	private Path constructPath(SpeedyCCHMetric metric, int meetingRank, Node startNode, double startTime, Person person, Vehicle vehicle) {
+		List<Link> links = new ArrayList<>();
+
+		// upward part from the start node to the meeting node, collected in reverse order
+		int[] upwardRanks = new int[16];
+		int count = 0;
+		for (int r = meetingRank; r >= 0; r = this.fwdPredNode[r]) {
+			if (count == upwardRanks.length) {
+				upwardRanks = Arrays.copyOf(upwardRanks, count * 2);
+			}
+			upwardRanks[count++] = r;
+		}
+		for (int i = count - 1; i > 0; i--) {
+			unpack(metric, upwardRanks[i], upwardRanks[i - 1], links);
+		}
+		// downward part from the meeting node to the end node
+		for (int r = meetingRank; this.bwdPredNode[r] >= 0; r = this.bwdPredNode[r]) {
+			unpack(metric, r, this.bwdPredNode[r], links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(startNode);
+		double time = startTime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+	/**
+	 * Recursively replaces shortcuts by the links they represent, using an explicit stack.
+	 */
+	private void unpack(SpeedyCCHMetric metric, int fromRank, int toRank, List<Link> links) {
+		int size = 0;
+		this.unpackStack[size++] = fromRank;
+		this.unpackStack[size++] = toRank;
+		while (size > 0) {
+			int to = this.unpackStack[--size];
+			int from = this.unpackStack[--size];
+			boolean isUp = from < to;
+			int arc = isUp ? this.data.findArc(from, to) : this.data.findArc(to, from);
+			int via = isUp ? metric.upVia[arc] : metric.downVia[arc];
+			if (via >= 0) {
+				links.add(this.data.graph.getLink(via));
+			} else {
+				int middle = ~via;
+				if (size + 4 > this.unpackStack.length) {
+					this.unpackStack = Arrays.copyOf(this.unpackStack, this.unpackStack.length * 2);
+				}
+				// push the second part first, so the first part gets unpacked first
+				this.unpackStack[size++] = middle;
+				this.unpackStack[size++] = to;
+				this.unpackStack[size++] = from;
+				this.unpackStack[size++] = middle;
+			}
+		}
+	}
+}
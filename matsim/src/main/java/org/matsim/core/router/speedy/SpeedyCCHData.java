@@ -0,0 +1,341 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Metric-independent preprocessing for Customizable Contraction Hierarchies (CCH), see {@link SpeedyCCH}.
+ *
+ * Based on "Customizable Contraction Hierarchies" by Julian Dibbelt, Ben Strasser and Dorothea Wagner, 2016.
+ *
+ * The nodes are ordered by a geometric nested dissection: the nodes are recursively split at the median coordinate
+ * of the longer side of their bounding box, and the nodes on the smaller side of the cut get the highest ranks
+ * of the cell. The nodes are then contracted in this order, which results in an undirected, chordal supergraph of the
+ * network. Every node only stores its arcs to higher ranked nodes. All of this only depends on the structure of the
+ * network, not on travel times or costs, and thus only needs to be calculated once per network. The weights of the
+ * arcs are calculated in the customization, see {@link SpeedyCCHMetric}.
+ *
+ * Internally, nodes are identified by their rank.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCCHData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCHData.class);
+
+	private final static int MIN_CELL_SIZE = 4;
+
+	final SpeedyGraph graph;
+	/** number of nodes in the hierarchy, i.e. of the network */
+	final int nodeCount;
+	/** rank for each node index, -1 for unused node indices */
+	final int[] rank;
+	/** node index for each rank */
+	final int[] nodeIndex;
+	/** parent of each rank in the elimination tree, i.e. the lowest ranked upward neighbour, or -1 */
+	final int[] parent;
+	/** index of the first upward arc for each rank, with an additional entry at the end */
+	final int[] firstArc;
+	/** the rank of the head of each arc, sorted by rank for each tail */
+	final int[] arcHead;
+	/** the arc corresponding to each link, -1 for loop links and unused link indices */
+	final int[] linkArc;
+
+	SpeedyCCHData(SpeedyGraph graph) {
+		this.graph = graph;
+		int[] nodes = usedNodes(graph);
+		this.nodeCount = nodes.length;
+		this.rank = new int[graph.nodeCount];
+		this.nodeIndex = nodes;
+		this.parent = new int[this.nodeCount];
+		this.firstArc = new int[this.nodeCount + 1];
+
+		int[][] neighbours = undirectedNeighbours(graph);
+
+		LOG.info("calculate nested dissection order of " + this.nodeCount + " nodes...");
+		calculateOrder(nodes, neighbours);
+		Arrays.fill(this.rank, -1);
+		for (int r = 0; r < nodes.length; r++) {
+			this.rank[nodes[r]] = r;
+		}
+
+		LOG.info("contract nodes...");
+		this.arcHead = contract(neighbours);
+		LOG.info("contraction hierarchy has " + this.arcHead.length + " arcs.");
+
+		this.linkArc = new int[graph.linkCount];
+		Arrays.fill(this.linkArc, -1);
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link == null) {
+				continue;
+			}
+			int fromRank = this.rank[link.getFromNode().getId().index()];
+			int toRank = this.rank[link.getToNode().getId().index()];
+			if (fromRank != toRank) {
+				this.linkArc[linkIdx] = findArc(Math.min(fromRank, toRank), Math.max(fromRank, toRank));
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the arc from <code>lowerRank</code> to <code>higherRank</code>, or -1 if there is no such arc.
+	 */
+	int findArc(int lowerRank, int higherRank) {
+		int index = Arrays.binarySearch(this.arcHead, this.firstArc[lowerRank], this.firstArc[lowerRank + 1], higherRank);
+		return index < 0 ? -1 : index;
+	}
+
+	private static int[] usedNodes(SpeedyGraph graph) {
+		int count = 0;
+		for (int i = 0; i < graph.nodeCount; i++) {
+			if (graph.getNode(i) != null) {
+				count++;
+			}
+		}
+		int[] nodes = new int[count];
+		count = 0;
+		for (int i = 0; i < graph.nodeCount; i++) {
+			if (graph.getNode(i) != null) {
+				nodes[count++] = i;
+			}
+		}
+		return nodes;
+	}
+
+	private static int[][] undirectedNeighbours(SpeedyGraph graph) {
+		int[] degree = new int[graph.nodeCount];
+		LinkIterator outLI = graph.getOutLinkIterator();
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int toNodeIdx = outLI.getToNodeIndex();
+				if (toNodeIdx != nodeIdx) {
+					degree[nodeIdx]++;
+					degree[toNodeIdx]++;
+				}
+			}
+		}
+		int[][] neighbours = new int[graph.nodeCount][];
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			neighbours[nodeIdx] = new int[degree[nodeIdx]];
+		}
+		Arrays.fill(degree, 0);
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int toNodeIdx = outLI.getToNodeIndex();
+				if (toNodeIdx != nodeIdx) {
+					neighbours[nodeIdx][degree[nodeIdx]++] = toNodeIdx;
+					neighbours[toNodeIdx][degree[toNodeIdx]++] = nodeIdx;
+				}
+			}
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Re-arranges the nodes such that their position is their rank.
+	 */
+	private void calculateOrder(int[] nodes, int[][] neighbours) {
+		double[] x = new double[this.graph.nodeCount];
+		double[] y = new double[this.graph.nodeCount];
+		for (int nodeIdx : nodes) {
+			Coord coord = this.graph.getNode(nodeIdx).getCoord();
+			x[nodeIdx] = coord.getX();
+			y[nodeIdx] = coord.getY();
+		}
+		int[] cell = new int[this.graph.nodeCount]; // cell id of each node, to detect cut arcs
+		int nextCellId = 1;
+		int[] buffer = new int[nodes.length];
+
+		Deque<int[]> cells = new ArrayDeque<>();
+		cells.push(new int[] {0, nodes.length});
+		while (!cells.isEmpty()) {
+			int[] range = cells.pop();
+			int from = range[0];
+			int to = range[1];
+			if (to - from <= MIN_CELL_SIZE) {
+				continue;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int n = nodes[i];
+				minX = Math.min(minX, x[n]);
+				maxX = Math.max(maxX, x[n]);
+				minY = Math.min(minY, y[n]);
+				maxY = Math.max(maxY, y[n]);
+			}
+			double[] coords = (maxX - minX >= maxY - minY) ? x : y;
+			int mid = (from + to) >>> 1;
+			select(nodes, coords, from, to - 1, mid);
+
+			int leftCell = nextCellId++;
+			int rightCell = nextCellId++;
+			for (int i = from; i < mid; i++) {
+				cell[nodes[i]] = leftCell;
+			}
+			for (int i = mid; i < to; i++) {
+				cell[nodes[i]] = rightCell;
+			}
+			int leftBoundary = countBoundary(nodes, from, mid, rightCell, cell, neighbours);
+			int rightBoundary = countBoundary(nodes, mid, to, leftCell, cell, neighbours);
+
+			// the separator consists of the boundary nodes of the side with fewer boundary nodes
+			int separatorCell = leftBoundary <= rightBoundary ? leftCell : rightCell;
+			int otherCell = leftBoundary <= rightBoundary ? rightCell : leftCell;
+			int separatorCellId = nextCellId++;
+			for (int i = from; i < to; i++) {
+				int n = nodes[i];
+				if (cell[n] == separatorCell && isBoundary(n, otherCell, cell, neighbours)) {
+					cell[n] = separatorCellId;
+				}
+			}
+			// arrange as [left without separator, right without separator, separator]
+			int left = 0;
+			for (int i = from; i < to; i++) {
+				if (cell[nodes[i]] == leftCell) buffer[from + left++] = nodes[i];
+			}
+			int right = 0;
+			for (int i = from; i < to; i++) {
+				if (cell[nodes[i]] == rightCell) buffer[from + left + right++] = nodes[i];
+			}
+			int pos = from + left + right;
+			for (int i = from; i < to; i++) {
+				if (cell[nodes[i]] == separatorCellId) buffer[pos++] = nodes[i];
+			}
+			System.arraycopy(buffer, from, nodes, from, to - from);
+
+			cells.push(new int[] {from, from + left});
+			cells.push(new int[] {from + left, from + left + right});
+		}
+	}
+
+	private static int countBoundary(int[] nodes, int from, int to, int otherCell, int[] cell, int[][] neighbours) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (isBoundary(nodes[i], otherCell, cell, neighbours)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isBoundary(int node, int otherCell, int[] cell, int[][] neighbours) {
+		for (int neighbour : neighbours[node]) {
+			if (cell[neighbour] == otherCell) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Partially sorts the nodes between <code>left</code> and <code>right</code> (inclusive) by their coordinate,
+	 * such that the node at position <code>k</code> is at its sorted position (quickselect).
+	 */
+	private static void select(int[] nodes, double[] coords, int left, int right, int k) {
+		while (right > left) {
+			double pivot = coords[nodes[(left + right) >>> 1]];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coords[nodes[i]] < pivot) i++;
+				while (coords[nodes[j]] > pivot) j--;
+				if (i <= j) {
+					int tmp = nodes[i];
+					nodes[i] = nodes[j];
+					nodes[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Contracts the nodes in the order of their rank and calculates the elimination tree. When a node is contracted,
+	 * all of its upward neighbours get connected; as all of them are also neighbours of the lowest one of them
+	 * (the parent in the elimination tree), it is sufficient to pass them on to the parent.
+	 *
+	 * @return the heads of the upward arcs
+	 */
+	private int[] contract(int[][] neighbours) {
+		int[][] upward = new int[this.nodeCount][];
+		int[] upwardCount = new int[this.nodeCount];
+		for (int r = 0; r < this.nodeCount; r++) {
+			int[] nodeNeighbours = neighbours[this.nodeIndex[r]];
+			int[] up = new int[Math.max(4, nodeNeighbours.length)];
+			int count = 0;
+			for (int neighbour : nodeNeighbours) {
+				int neighbourRank = this.rank[neighbour];
+				if (neighbourRank > r) {
+					up[count++] = neighbourRank;
+				}
+			}
+			upward[r] = up;
+			upwardCount[r] = count;
+		}
+
+		int arcCount = 0;
+		for (int r = 0; r < this.nodeCount; r++) {
+			int[] up = upward[r];
+			Arrays.sort(up, 0, upwardCount[r]);
+			int count = 0;
+			for (int i = 0; i < upwardCount[r]; i++) {
+				if (count == 0 || up[count - 1] != up[i]) {
+					up[count++] = up[i];
+				}
+			}
+			upward[r] = Arrays.copyOf(up, count);
+			arcCount += count;
+			if (count == 0) {
+				this.parent[r] = -1;
+				continue;
+			}
+			int p = up[0];
+			this.parent[r] = p;
+			int[] parentUp = upward[p];
+			int parentCount = upwardCount[p];
+			if (parentUp.length < parentCount + count - 1) {
+				parentUp = Arrays.copyOf(parentUp, Math.max(parentUp.length * 2, parentCount + count - 1));
+				upward[p] = parentUp;
+			}
+			System.arraycopy(up, 1, parentUp, parentCount, count - 1);
+			upwardCount[p] = parentCount + count - 1;
+		}
+
+		int[] heads = new int[arcCount];
+		int arc = 0;
+		for (int r = 0; r < this.nodeCount; r++) {
+			this.firstArc[r] = arc;
+			System.arraycopy(upward[r], 0, heads, arc, upward[r].length);
+			arc += upward[r].length;
+			upward[r] = null;
+		}
+		this.firstArc[this.nodeCount] = arc;
+		return heads;
+	}
+
+	Node getNode(int rank) {
+		return this.graph.getNode(this.nodeIndex[rank]);
+	}
+}
@@ -0,0 +1,70 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCCH} instances. The metric-independent part of the hierarchy is calculated only once
+ * per network.
+ *
+ * The customizations of the hierarchy are shared by all instances created with the same travel disutility object,
+ * e.g. the {@link SpeedyCostSnapshot} shared by the routers of all threads. As the travel disutility usually changes
+ * with the travel times, the customizations are discarded at the start of each iteration (or when {@link #clear()} is
+ * called), and created again when they are next needed.
+ */
+public class SpeedyCCHFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyCCHData> hierarchies = new ConcurrentHashMap<>();
+	// weak keys, so the customizations are released together with the routers using them
+	private final Map<TravelDisutility, Map<SpeedyCCHData, SpeedyCCHMetrics>> metrics = new WeakHashMap<>();
+	private final double timeBinSize;
+
+	public SpeedyCCHFactory() {
+		this(3600);
+	}
+
+	/**
+	 * @param timeBinSize the duration in seconds for which the travel disutility is assumed to be constant when selecting paths
+	 */
+	public SpeedyCCHFactory(double timeBinSize) {
+		this.timeBinSize = timeBinSize;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		SpeedyCCHData hierarchy = this.hierarchies.computeIfAbsent(graph, SpeedyCCHData::new);
+		SpeedyCCHMetrics metrics;
+		synchronized (this.metrics) {
+			metrics = this.metrics.computeIfAbsent(travelCosts, td -> new ConcurrentHashMap<>())
+					.computeIfAbsent(hierarchy, h -> new SpeedyCCHMetrics(h, this.timeBinSize));
+		}
+		return new SpeedyCCH(hierarchy, travelTimes, travelCosts, metrics);
+	}
+
+	/**
+	 * Discards all customizations, so they are created again from the current travel disutilities.
+	 */
+	public void clear() {
+		synchronized (this.metrics) {
+			for (Map<SpeedyCCHData, SpeedyCCHMetrics> perHierarchy : this.metrics.values()) {
+				perHierarchy.values().forEach(SpeedyCCHMetrics::clear);
+			}
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		clear();
+	}
+}
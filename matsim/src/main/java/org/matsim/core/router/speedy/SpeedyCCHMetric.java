@@ -0,0 +1,99 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.Arrays;
+
+/**
+ * The weights of the arcs of a {@link SpeedyCCHData} hierarchy for one specific travel disutility at one specific
+ * time (customization).
+ *
+ * Each arc in the hierarchy connects a lower ranked node with a higher ranked one, and has a weight in both
+ * directions: <code>up</code> from the lower to the higher ranked node, and <code>down</code> in the opposite
+ * direction. Each weight stems either from a link of the network, or from a shortcut over a lower ranked middle node.
+ *
+ * The customization enumerates all lower triangles of the hierarchy in the order of the rank of their lowest node,
+ * thus all weights are final once the customization is finished and no witness search is required.
+ *
+ * This class is thread-safe once created, allowing a single metric to be used by multiple threads.
+ */
+class SpeedyCCHMetric {
+
+	static final int NO_VIA = Integer.MIN_VALUE;
+
+	final double[] up;
+	final double[] down;
+	/** the link index (if &gt;= 0) or the inverted rank of the middle node (if &lt; 0) the up weight stems from */
+	final int[] upVia;
+	/** the link index (if &gt;= 0) or the inverted rank of the middle node (if &lt; 0) the down weight stems from */
+	final int[] downVia;
+
+	SpeedyCCHMetric(SpeedyCCHData data, TravelDisutility td, double time, Person person) {
+		int arcCount = data.arcHead.length;
+		this.up = new double[arcCount];
+		this.down = new double[arcCount];
+		this.upVia = new int[arcCount];
+		this.downVia = new int[arcCount];
+		Arrays.fill(this.up, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.down, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.upVia, NO_VIA);
+		Arrays.fill(this.downVia, NO_VIA);
+
+		SpeedyGraph graph = data.graph;
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			int arc = data.linkArc[linkIdx];
+			if (arc < 0) {
+				continue;
+			}
+			Link link = graph.getLink(linkIdx);
+			double cost = td.getLinkTravelDisutility(link, time, person, null);
+			boolean isUp = data.rank[link.getFromNode().getId().index()] < data.rank[link.getToNode().getId().index()];
+			if (isUp) {
+				if (cost < this.up[arc]) {
+					this.up[arc] = cost;
+					this.upVia[arc] = linkIdx;
+				}
+			} else {
+				if (cost < this.down[arc]) {
+					this.down[arc] = cost;
+					this.downVia[arc] = linkIdx;
+				}
+			}
+		}
+
+		customize(data);
+	}
+
+	private void customize(SpeedyCCHData data) {
+		int[] firstArc = data.firstArc;
+		int[] heads = data.arcHead;
+		for (int x = 0; x < data.nodeCount; x++) {
+			int end = firstArc[x + 1];
+			for (int i = firstArc[x]; i < end; i++) {
+				int y = heads[i];
+				double xyUp = this.up[i];
+				double xyDown = this.down[i];
+				// all upward neighbours of x with a higher rank than y are also upward neighbours of y
+				int k = firstArc[y];
+				for (int j = i + 1; j < end; j++) {
+					int z = heads[j];
+					while (heads[k] != z) {
+						k++;
+					}
+					double yzUp = xyDown + this.up[j]; // y -> x -> z
+					if (yzUp < this.up[k]) {
+						this.up[k] = yzUp;
+						this.upVia[k] = ~x;
+					}
+					double yzDown = this.down[j] + xyUp; // z -> x -> y
+					if (yzDown < this.down[k]) {
+						this.down[k] = yzDown;
+						this.downVia[k] = ~x;
+					}
+				}
+			}
+		}
+	}
+}
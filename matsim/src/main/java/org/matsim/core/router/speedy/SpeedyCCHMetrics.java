@@ -0,0 +1,48 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The customizations ({@link SpeedyCCHMetric}) of a {@link SpeedyCCHData} hierarchy for one travel disutility, one
+ * per time bin. Each customization is created when it is first requested, and can then be used by all
+ * {@link SpeedyCCH} instances sharing this object. {@link #clear()} discards all customizations, so they are created
+ * again from the current travel disutilities.
+ *
+ * This class is thread-safe.
+ */
+final class SpeedyCCHMetrics {
+
+	private final SpeedyCCHData data;
+	private final double timeBinSize;
+	private final Person customizationPerson;
+	private final Map<Integer, SpeedyCCHMetric> metrics = new ConcurrentHashMap<>();
+
+	/**
+	 * @param timeBinSize the duration in seconds for which the travel disutility is assumed to be constant
+	 */
+	SpeedyCCHMetrics(SpeedyCCHData data, double timeBinSize) {
+		this.data = data;
+		this.timeBinSize = timeBinSize;
+		// some travel disutilities require a person, e.g. when randomizing
+		this.customizationPerson = PopulationUtils.getFactory().createPerson(Id.create("SpeedyCCH", Person.class));
+	}
+
+	/**
+	 * @param td the travel disutility, which must be the same for all calls until {@link #clear()} is called.
+	 * @return the customization for the time bin of the given time
+	 */
+	SpeedyCCHMetric get(TravelDisutility td, double time) {
+		int timeBin = (int) Math.floor(time / this.timeBinSize);
+		return this.metrics.computeIfAbsent(timeBin, bin -> new SpeedyCCHMetric(this.data, td, bin * this.timeBinSize, this.customizationPerson));
+	}
+
+	void clear() {
+		this.metrics.clear();
+	}
+}
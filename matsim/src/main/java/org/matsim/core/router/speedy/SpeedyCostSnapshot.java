@@ -0,0 +1,107 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Materializes the travel times and travel disutilities of all links of a {@link SpeedyGraph} per time bin into flat
+ * arrays, indexed by the link index of the graph. {@link SpeedyDijkstra} and {@link SpeedyALT} detect such a snapshot
+ * when it is passed to them as travel time or travel disutility, and read the values directly from the arrays instead
+ * of calling the (often deeply nested) original implementations for every link they relax.
+ *
+ * The values are sampled at the start of each time bin, using a placeholder person and no vehicle. Thus, a snapshot
+ * can only be used if the travel times and disutilities do not depend on the person or vehicle, e.g. if the routing
+ * randomness is disabled. Times after the last bin use the values of the last bin. The values are stored as
+ * <code>float</code>, rounded up, which requires 8 bytes per link and time bin.
+ *
+ * As the snapshot does not change once created, it should be re-created whenever the underlying travel times
+ * change, typically once per iteration.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+public final class SpeedyCostSnapshot implements TravelTime, TravelDisutility {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCostSnapshot.class);
+
+	private final TravelDisutility td;
+	private final double binSize;
+	private final int lastBin;
+	private final float[][] travelTimes;
+	private final float[][] travelDisutilities;
+
+	/**
+	 * @param binSize the duration of each time bin in seconds
+	 * @param endTime the time up to which time bins are created
+	 */
+	public SpeedyCostSnapshot(SpeedyGraph graph, TravelTime tt, TravelDisutility td, double binSize, double endTime) {
+		this.td = td;
+		this.binSize = binSize;
+		int binCount = Math.max(1, (int) Math.ceil(endTime / binSize));
+		this.lastBin = binCount - 1;
+		this.travelTimes = new float[binCount][graph.linkCount];
+		this.travelDisutilities = new float[binCount][graph.linkCount];
+
+		LOG.info("create snapshot of travel times and disutilities with " + binCount + " time bins for " + graph.linkCount + " links...");
+		// some travel disutilities require a person, e.g. when randomizing
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("SpeedyCostSnapshot", Person.class));
+		for (int bin = 0; bin < binCount; bin++) {
+			double time = bin * binSize;
+			float[] binTravelTimes = this.travelTimes[bin];
+			float[] binDisutilities = this.travelDisutilities[bin];
+			for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+				Link link = graph.getLink(linkIdx);
+				if (link != null) {
+					binTravelTimes[linkIdx] = roundUp(tt.getLinkTravelTime(link, time, person, null));
+					binDisutilities[linkIdx] = roundUp(td.getLinkTravelDisutility(link, time, person, null));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rounds up, so that the stored disutilities never fall below {@link TravelDisutility#getLinkMinimumTravelDisutility(Link)},
+	 * which {@link SpeedyALT} relies on.
+	 */
+	private static float roundUp(double value) {
+		float f = (float) value;
+		return f < value ? Math.nextUp(f) : f;
+	}
+
+	private int getBin(double time) {
+		int bin = (int) (time / this.binSize);
+		if (bin > this.lastBin) {
+			return this.lastBin;
+		}
+		return Math.max(bin, 0);
+	}
+
+	double getTravelTime(int linkIndex, double time) {
+		return this.travelTimes[getBin(time)][linkIndex];
+	}
+
+	double getTravelDisutility(int linkIndex, double time) {
+		return this.travelDisutilities[getBin(time)][linkIndex];
+	}
+
+	@Override
+	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+		return getTravelTime(link.getId().index(), time);
+	}
+
+	@Override
+	public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+		return getTravelDisutility(link.getId().index(), time);
+	}
+
+	@Override
+	public double getLinkMinimumTravelDisutility(Link link) {
+		return this.td.getLinkMinimumTravelDisutility(link);
+	}
+}
@@ -0,0 +1,102 @@
+package org.matsim.core.router.speedy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Provides one {@link SpeedyCostSnapshot} per network and routing mode. A snapshot is created when it is first
+ * requested in an iteration, from the travel time and travel disutility of that routing mode, and shared by all
+ * routers of the mode until the start of the next iteration, when the travel times have changed.
+ *
+ * The snapshots use the time bins of the travel time calculator. Like the snapshots themselves, this is only valid
+ * if the travel disutilities do not depend on the person. A snapshot would bake the random draw of a single person
+ * into the routes of all persons, so snapshots are disabled if there is routing randomness, see
+ * {@link #isEnabled()}.
+ *
+ * This class is thread-safe.
+ *
+ * @see ControlerConfigGroup#isUsingSpeedyCostSnapshots()
+ */
+@Singleton
+public final class SpeedyCostSnapshots implements IterationStartsListener {
+
+	private static final Logger log = Logger.getLogger(SpeedyCostSnapshots.class);
+
+	private final double binSize;
+	private final double endTime;
+	private final boolean enabled;
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<Network, Map<String, SpeedyCostSnapshot>> snapshots = new ConcurrentHashMap<>();
+
+	@Inject
+	SpeedyCostSnapshots(Config config) {
+		this(config.travelTimeCalculator().getTraveltimeBinSize(), config.travelTimeCalculator().getMaxTime(),
+				!hasRoutingRandomness(config));
+	}
+
+	/**
+	 * @param binSize the duration of each time bin in seconds
+	 * @param endTime the time up to which time bins are created
+	 */
+	public SpeedyCostSnapshots(double binSize, double endTime) {
+		this(binSize, endTime, true);
+	}
+
+	private SpeedyCostSnapshots(double binSize, double endTime, boolean enabled) {
+		this.binSize = binSize;
+		this.endTime = endTime;
+		this.enabled = enabled;
+	}
+
+	private static boolean hasRoutingRandomness(Config config) {
+		double routingRandomness = config.plansCalcRoute().getRoutingRandomness();
+		if (routingRandomness > 0 && config.controler().isUsingSpeedyCostSnapshots()) {
+			log.warn("Speedy cost snapshots are requested, but the " + PlansCalcRouteConfigGroup.GROUP_NAME + " routingRandomness is "
+					+ routingRandomness + ". A snapshot would use the same random draw for all persons, so snapshots are not used. "
+					+ "Set the routingRandomness to 0 to use them.");
+		}
+		return routingRandomness > 0;
+	}
+
+	/**
+	 * @return <code>false</code> if snapshots must not be used, as the travel disutilities differ between persons
+	 * 		due to routing randomness.
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * @return the snapshot of the given routing mode on the given network, which is created from the given travel time
+	 * 		and travel disutility if there is none in the current iteration yet.
+	 */
+	public SpeedyCostSnapshot getSnapshot(Network network, String routingMode, TravelTime tt, TravelDisutility td) {
+		return this.snapshots.computeIfAbsent(network, n -> new ConcurrentHashMap<>()).computeIfAbsent(routingMode,
+				mode -> new SpeedyCostSnapshot(this.graphs.computeIfAbsent(network, SpeedyGraph::new), tt, td, this.binSize, this.endTime));
+	}
+
+	/**
+	 * Discards all snapshots, so they are created again from the current travel times.
+	 */
+	public void clear() {
+		this.snapshots.clear();
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		clear();
+	}
+}
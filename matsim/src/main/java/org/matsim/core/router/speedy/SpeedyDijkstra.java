@@ -24,6 +24,8 @@ public class SpeedyDijkstra implements LeastCostPathCalculator {
 	private final SpeedyGraph graph;
 	private final TravelTime tt;
 	private final TravelDisutility td;
+	private final SpeedyCostSnapshot ttSnapshot;
+	private final SpeedyCostSnapshot tdSnapshot;
 	private final double[] data; // 3 entries per node: time, cost, distance
 	private int currentIteration = Integer.MIN_VALUE;
 	private final int[] iterationIds;
@@ -36,6 +38,8 @@ public class SpeedyDijkstra implements LeastCostPathCalculator {
 		this.graph = graph;
 		this.tt = tt;
 		this.td = td;
+		this.ttSnapshot = tt instanceof SpeedyCostSnapshot ? (SpeedyCostSnapshot) tt : null;
+		this.tdSnapshot = td instanceof SpeedyCostSnapshot ? (SpeedyCostSnapshot) td : null;
 		this.data = new double[graph.nodeCount * 3];
 		this.iterationIds = new int[graph.nodeCount];
 		this.comingFrom = new int[graph.nodeCount];
@@ -102,9 +106,9 @@ public class SpeedyDijkstra implements LeastCostPathCalculator {
 				Link link = this.graph.getLink(linkIdx);
 				int toNode = this.outLI.getToNodeIndex();
 
-				double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
+				double travelTime = this.ttSnapshot != null ? this.ttSnapshot.getTravelTime(linkIdx, currTime) : this.tt.getLinkTravelTime(link, currTime, person, vehicle);
 				double newTime = currTime + travelTime;
-				double newCost = currCost + this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
+				double newCost = currCost + (this.tdSnapshot != null ? this.tdSnapshot.getTravelDisutility(linkIdx, currTime) : this.td.getLinkTravelDisutility(link, currTime, person, vehicle));
 
 				if (this.iterationIds[toNode] == this.currentIteration) {
 					// this node was already visited in this route-query
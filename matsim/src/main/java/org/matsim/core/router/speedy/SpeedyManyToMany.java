@@ -0,0 +1,272 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.ParallelUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calculates least-cost travel costs, times and distances between many origins and many destinations at once,
+ * based on the Customizable Contraction Hierarchy of a {@link SpeedyGraph} (see {@link SpeedyCCH}).
+ *
+ * The implementation follows the idea of RPHAST ("Faster Batched Shortest Paths in Road Networks" by Delling,
+ * Goldberg and Werneck, 2011): First, the set of all nodes that can be reached from the destinations by downward
+ * searches in the hierarchy is determined once. For each origin, an upward search in the hierarchy is followed by a
+ * linear sweep over only this restricted set of nodes in descending order of their rank. Origins are distributed over
+ * multiple threads.
+ *
+ * The travel disutilities and travel times are evaluated at the departure time for all links, i.e. the results are
+ * exact for costs that do not depend on the time of day. The results are returned as primitive float matrices and
+ * not as paths, unreachable destinations have infinite values.
+ *
+ * The hierarchy is calculated once in the constructor, while each call to {@link #calculate} customizes it for the
+ * given travel disutility. This class is thread-safe.
+ */
+public class SpeedyManyToMany {
+
+	private final SpeedyCCHData data;
+
+	public SpeedyManyToMany(SpeedyGraph graph) {
+		this.data = new SpeedyCCHData(graph);
+	}
+
+	SpeedyManyToMany(SpeedyCCHData data) {
+		this.data = data;
+	}
+
+	public Result calculate(Node[] fromNodes, Node[] toNodes, double departureTime, TravelTime tt, TravelDisutility td, int numberOfThreads) {
+		// some travel disutilities require a person, e.g. when randomizing
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("SpeedyManyToMany", Person.class));
+		SpeedyCCHMetric metric = new SpeedyCCHMetric(this.data, td, departureTime, person);
+		ArcValues arcValues = new ArcValues(this.data, metric, tt, departureTime, person);
+
+		int[] targetRanks = new int[toNodes.length];
+		for (int i = 0; i < toNodes.length; i++) {
+			targetRanks[i] = this.data.rank[toNodes[i].getId().index()];
+		}
+		TargetSet targets = new TargetSet(this.data, targetRanks);
+
+		Result result = new Result(fromNodes.length, toNodes.length);
+		AtomicInteger nextRow = new AtomicInteger(0);
+		ParallelUtils.runInParallel(Math.max(1, Math.min(numberOfThreads, fromNodes.length)), "SpeedyManyToMany", thread -> {
+			RowCalculator calculator = new RowCalculator(this.data, metric, arcValues, targets);
+			int row;
+			while ((row = nextRow.getAndIncrement()) < fromNodes.length) {
+				calculator.calculate(this.data.rank[fromNodes[row].getId().index()], targetRanks, result, row);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * The results of a many-to-many calculation, indexed by the position of the origin and destination in the
+	 * arrays passed to {@link #calculate}.
+	 */
+	public static final class Result {
+		public final float[][] travelCosts;
+		public final float[][] travelTimes;
+		public final float[][] distances;
+
+		Result(int rows, int columns) {
+			this.travelCosts = new float[rows][columns];
+			this.travelTimes = new float[rows][columns];
+			this.distances = new float[rows][columns];
+		}
+	}
+
+	/**
+	 * Travel time and distance for both directions of each arc, following the least-cost unpacked path.
+	 */
+	private static final class ArcValues {
+		final double[] upTime;
+		final double[] downTime;
+		final double[] upDistance;
+		final double[] downDistance;
+
+		ArcValues(SpeedyCCHData data, SpeedyCCHMetric metric, TravelTime tt, double time, Person person) {
+			int arcCount = data.arcHead.length;
+			this.upTime = new double[arcCount];
+			this.downTime = new double[arcCount];
+			this.upDistance = new double[arcCount];
+			this.downDistance = new double[arcCount];
+
+			// shortcuts only consist of arcs with a lower ranked tail, so the values can be calculated in the order of the tails
+			for (int y = 0; y < data.nodeCount; y++) {
+				for (int arc = data.firstArc[y], end = data.firstArc[y + 1]; arc < end; arc++) {
+					int z = data.arcHead[arc];
+					int via = metric.upVia[arc];
+					if (via >= 0) {
+						Link link = data.graph.getLink(via);
+						this.upTime[arc] = tt.getLinkTravelTime(link, time, person, null);
+						this.upDistance[arc] = link.getLength();
+					} else if (via != SpeedyCCHMetric.NO_VIA) {
+						int x = ~via;
+						int xy = data.findArc(x, y);
+						int xz = data.findArc(x, z);
+						this.upTime[arc] = this.downTime[xy] + this.upTime[xz];
+						this.upDistance[arc] = this.downDistance[xy] + this.upDistance[xz];
+					}
+					via = metric.downVia[arc];
+					if (via >= 0) {
+						Link link = data.graph.getLink(via);
+						this.downTime[arc] = tt.getLinkTravelTime(link, time, person, null);
+						this.downDistance[arc] = link.getLength();
+					} else if (via != SpeedyCCHMetric.NO_VIA) {
+						int x = ~via;
+						int xy = data.findArc(x, y);
+						int xz = data.findArc(x, z);
+						this.downTime[arc] = this.downTime[xz] + this.upTime[xy];
+						this.downDistance[arc] = this.downDistance[xz] + this.upDistance[xy];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * All nodes reachable from the destinations by downward searches, i.e. all their ancestors in the elimination tree,
+	 * in descending order of their rank.
+	 */
+	private static final class TargetSet {
+		final int[] ranks;
+		final int[] position; // for each rank its position in ranks, or -1
+
+		TargetSet(SpeedyCCHData data, int[] targetRanks) {
+			this.position = new int[data.nodeCount];
+			Arrays.fill(this.position, -1);
+			int count = 0;
+			for (int target : targetRanks) {
+				for (int r = target; r >= 0 && this.position[r] < 0; r = data.parent[r]) {
+					this.position[r] = 0;
+					count++;
+				}
+			}
+			this.ranks = new int[count];
+			int pos = 0;
+			for (int r = data.nodeCount - 1; r >= 0; r--) {
+				if (this.position[r] == 0) {
+					this.ranks[pos] = r;
+					this.position[r] = pos;
+					pos++;
+				} else {
+					this.position[r] = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates one row of the result. Not thread-safe, every thread requires its own instance.
+	 */
+	private static final class RowCalculator {
+		private final SpeedyCCHData data;
+		private final SpeedyCCHMetric metric;
+		private final ArcValues arcValues;
+		private final TargetSet targets;
+		private final double[] upCost;
+		private final double[] upTime;
+		private final double[] upDistance;
+		private final double[] cost;
+		private final double[] time;
+		private final double[] distance;
+
+		RowCalculator(SpeedyCCHData data, SpeedyCCHMetric metric, ArcValues arcValues, TargetSet targets) {
+			this.data = data;
+			this.metric = metric;
+			this.arcValues = arcValues;
+			this.targets = targets;
+			this.upCost = new double[data.nodeCount];
+			this.upTime = new double[data.nodeCount];
+			this.upDistance = new double[data.nodeCount];
+			this.cost = new double[targets.ranks.length];
+			this.time = new double[targets.ranks.length];
+			this.distance = new double[targets.ranks.length];
+		}
+
+		void calculate(int sourceRank, int[] targetRanks, Result result, int row) {
+			int[] parent = this.data.parent;
+			int[] firstArc = this.data.firstArc;
+			int[] arcHead = this.data.arcHead;
+
+			// upward search, exactly along the ancestors of the source in the elimination tree
+			for (int r = sourceRank; r >= 0; r = parent[r]) {
+				this.upCost[r] = Double.POSITIVE_INFINITY;
+			}
+			this.upCost[sourceRank] = 0;
+			this.upTime[sourceRank] = 0;
+			this.upDistance[sourceRank] = 0;
+			for (int r = sourceRank; r >= 0; r = parent[r]) {
+				double currCost = this.upCost[r];
+				if (currCost == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				for (int arc = firstArc[r], end = firstArc[r + 1]; arc < end; arc++) {
+					int head = arcHead[arc];
+					double newCost = currCost + this.metric.up[arc];
+					if (newCost < this.upCost[head]) {
+						this.upCost[head] = newCost;
+						this.upTime[head] = this.upTime[r] + this.arcValues.upTime[arc];
+						this.upDistance[head] = this.upDistance[r] + this.arcValues.upDistance[arc];
+					}
+				}
+			}
+			// initialize the restricted set with the results of the upward search
+			int[] position = this.targets.position;
+			Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+			for (int r = sourceRank; r >= 0; r = parent[r]) {
+				int pos = position[r];
+				if (pos >= 0) {
+					this.cost[pos] = this.upCost[r];
+					this.time[pos] = this.upTime[r];
+					this.distance[pos] = this.upDistance[r];
+				}
+			}
+			// downward sweep, all upward neighbours of a node in the set are also in the set and already final
+			int[] ranks = this.targets.ranks;
+			for (int pos = 0; pos < ranks.length; pos++) {
+				int v = ranks[pos];
+				double bestCost = this.cost[pos];
+				int bestArc = -1;
+				int bestPos = -1;
+				for (int arc = firstArc[v], end = firstArc[v + 1]; arc < end; arc++) {
+					int headPos = position[arcHead[arc]];
+					double newCost = this.cost[headPos] + this.metric.down[arc];
+					if (newCost < bestCost) {
+						bestCost = newCost;
+						bestArc = arc;
+						bestPos = headPos;
+					}
+				}
+				if (bestArc >= 0) {
+					this.cost[pos] = bestCost;
+					this.time[pos] = this.time[bestPos] + this.arcValues.downTime[bestArc];
+					this.distance[pos] = this.distance[bestPos] + this.arcValues.downDistance[bestArc];
+				}
+			}
+
+			float[] costRow = result.travelCosts[row];
+			float[] timeRow = result.travelTimes[row];
+			float[] distanceRow = result.distances[row];
+			for (int col = 0; col < targetRanks.length; col++) {
+				int pos = position[targetRanks[col]];
+				double c = this.cost[pos];
+				if (c == Double.POSITIVE_INFINITY) {
+					costRow[col] = Float.POSITIVE_INFINITY;
+					timeRow[col] = Float.POSITIVE_INFINITY;
+					distanceRow[col] = Float.POSITIVE_INFINITY;
+				} else {
+					costRow[col] = (float) c;
+					timeRow[col] = (float) this.time[pos];
+					distanceRow[col] = (float) this.distance[pos];
+				}
+			}
+		}
+	}
+}
@@ -41,6 +41,7 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -54,9 +55,14 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
 
@@ -64,6 +70,15 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * With more than one scoring thread (see {@link PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}), the persons are
+ * distributed over shards by their {@link Id#index()}, each shard being processed by its own thread. The event handler
+ * methods only put the events, legs and activities into batches which are handed to the shard of the corresponding
+ * person, so the scoring functions of a person are still called in the order of the events, but the scoring of
+ * different persons does not serialize on one monitor any longer. The scoring functions are finished by the shard
+ * threads as well. This requires the scoring functions of different persons not to share any mutable state. An
+ * exception in a scoring function is rethrown by the next call of an event handler method. With one thread (the
+ * default), everything is done synchronously, as before.
  * 
  * @author michaz
  *
@@ -92,9 +107,24 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
+	private final int numberOfShards;
+	// only set while the scoring functions are filled by the shard threads, i.e. between init() and finishScoringFunctions()
+	private volatile Shard[] shards = null;
+
 	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup scoreConfig) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, scoreConfig.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfThreads) {
+		this.numberOfShards = Math.max(1, numberOfThreads);
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -109,37 +139,67 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	private void init() {
+		stopShards();
+		this.exception.set(null);
 		for (Person person : this.population.getPersons().values()) {
 			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
 		}
+		if (this.numberOfShards > 1) {
+			Shard[] shards = new Shard[this.numberOfShards];
+			for (int i = 0; i < shards.length; i++) {
+				shards[i] = new Shard(i);
+			}
+			for (Id<Person> personId : this.agentScorers.keySet()) {
+				shards[personId.index() % shards.length].personIds.add(personId);
+			}
+			for (Shard shard : shards) {
+				shard.thread.start();
+			}
+			this.shards = shards;
+		}
+	}
+
+	/**
+	 * Hands the event, leg or activity to the shard of the person, or scores it directly if there are no shards.
+	 */
+	private void process(Id<Person> personId, Object item) {
+		Shard[] shards = this.shards;
+		if (shards == null) {
+			synchronized (this) {
+				score(personId, item);
+			}
+		} else {
+			rethrowException();
+			shards[personId.index() % shards.length].add(personId, item);
+		}
+	}
+
+	private void score(Id<Person> personId, Object item) {
+		if (item instanceof PersonExperiencedLeg) {
+			scoreLeg((PersonExperiencedLeg) item);
+		} else if (item instanceof PersonExperiencedActivity) {
+			scoreActivity((PersonExperiencedActivity) item);
+		} else if (item instanceof LinkEnterEvent) {
+			getScoringFunctionForAgent(personId).handleEvent((LinkEnterEvent) item);
+		} else {
+			handlePersonEvent(getScoringFunctionForAgent(personId), (Event) item);
+		}
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} else if (o instanceof PersonScoreEvent) {
-					scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
-				}
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
+			Id<Person> personId = ((HasPersonId) o).getPersonId();
+			if (getScoringFunctionForAgent(personId) != null) {
+				process(personId, o);
 			}
 		}
 
@@ -161,16 +221,35 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		if ( o instanceof LinkEnterEvent ) {
 			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
 			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
+			if (getScoringFunctionForAgent( driverId ) != null) {
+				process(driverId, o);
 			}
 		}
 	}
 
+	private static void handlePersonEvent(ScoringFunction scoringFunction, Event o) {
+		if (o instanceof PersonStuckEvent) {
+			scoringFunction.agentStuck(o.getTime());
+		} else if (o instanceof PersonMoneyEvent) {
+			scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+			// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+			// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+		} else if (o instanceof PersonScoreEvent) {
+			scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
+		}
+//		else {
+			scoringFunction.handleEvent(o);
+			// passing this on in any case, see comment above.  kai, mar'17
+//		}
+	}
+
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
+		process(o.getAgentId(), o);
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -186,7 +265,11 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	public void handleActivity(PersonExperiencedActivity o) {
+		process(o.getAgentId(), o);
+	}
+
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -243,7 +326,42 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	public void finishScoringFunctions() {
-		// Rethrow an exception in a scoring function (user code) if there was one.
+		Shard[] shards = this.shards;
+		if (shards != null) {
+			// from now on, everything is processed directly again
+			this.shards = null;
+			CountDownLatch finished = new CountDownLatch(shards.length);
+			for (Shard shard : shards) {
+				// all events are already in the batches, so this is executed after them
+				shard.complete(() -> {
+					try {
+						for (Id<Person> personId : shard.personIds) {
+							finishScoringFunction(personId);
+						}
+					} finally {
+						shard.running = false;
+						finished.countDown();
+					}
+				});
+			}
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		rethrowException();
+		if (shards == null) {
+			for (Id<Person> personId : this.agentScorers.keySet()) {
+				finishScoringFunction(personId);
+			}
+		}
+	}
+
+	/**
+	 * Rethrows an exception in a scoring function (user code) if there was one.
+	 */
+	private void rethrowException() {
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
 			if (throwable instanceof RuntimeException) {
@@ -252,11 +370,21 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 				throw new RuntimeException(throwable);
 			}
 		}
-		for (ScoringFunction sf : this.agentScorers.values()) {
-			sf.finish();
-		}
-		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
-			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
+	}
+
+	private void finishScoringFunction(Id<Person> personId) {
+		ScoringFunction sf = this.agentScorers.get(personId);
+		sf.finish();
+		this.partialScores.get(personId).add(sf.getScore());
+	}
+
+	private void stopShards() {
+		Shard[] shards = this.shards;
+		if (shards != null) {
+			this.shards = null;
+			for (Shard shard : shards) {
+				shard.complete(() -> shard.running = false);
+			}
 		}
 	}
 
@@ -281,4 +409,106 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	/**
+	 * The persons of one shard, and the thread that calls their scoring functions. The events, legs and activities are
+	 * collected in batches, so handing them over to the thread neither allocates per item nor needs a lock that is
+	 * shared with the thread. The thread parks while there is no batch; the producers only unpark it if it is actually
+	 * waiting.
+	 */
+	private final class Shard implements Runnable {
+		private static final int BATCH_SIZE = 1024;
+
+		private final List<Id<Person>> personIds = new ArrayList<>();
+		private final Queue<Batch> queue = new ConcurrentLinkedQueue<>();
+		private final Queue<Batch> spareBatches = new ConcurrentLinkedQueue<>();
+		private final Thread thread;
+		private volatile boolean waiting = false;
+		// guarded by this shard, the events handling might call the handler methods from different threads
+		private Batch current = null;
+		// only accessed by the shard thread
+		private boolean running = true;
+
+		Shard(int index) {
+			this.thread = new Thread(this, "ScoringFunctionsForPopulation-" + index);
+			this.thread.setDaemon(true);
+		}
+
+		synchronized void add(Id<Person> personId, Object item) {
+			if (this.current == null) {
+				Batch batch = this.spareBatches.poll();
+				this.current = batch != null ? batch : new Batch();
+			}
+			Batch batch = this.current;
+			batch.personIds[batch.size] = personId;
+			batch.items[batch.size] = item;
+			batch.size++;
+			if (batch.size == BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		/**
+		 * Runs the given task in the shard thread after all items added so far.
+		 */
+		synchronized void complete(Runnable completion) {
+			flush();
+			Batch batch = new Batch();
+			batch.completion = completion;
+			enqueue(batch);
+		}
+
+		private void flush() {
+			if (this.current != null) {
+				enqueue(this.current);
+				this.current = null;
+			}
+		}
+
+		private void enqueue(Batch batch) {
+			this.queue.add(batch);
+			if (this.waiting) {
+				LockSupport.unpark(this.thread);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (this.running) {
+				Batch batch = this.queue.poll();
+				if (batch == null) {
+					this.waiting = true;
+					if (this.queue.isEmpty()) {
+						LockSupport.park(this);
+					}
+					this.waiting = false;
+					continue;
+				}
+				for (int i = 0; i < batch.size; i++) {
+					try {
+						score(batch.personIds[i], batch.items[i]);
+					} catch (Throwable e) {
+						// remember the first exception in a scoring function, it is rethrown by the next handler call
+						ScoringFunctionsForPopulation.this.exception.compareAndSet(null, e);
+					}
+					batch.personIds[i] = null;
+					batch.items[i] = null;
+				}
+				if (batch.completion != null) {
+					batch.completion.run();
+				} else {
+					batch.size = 0;
+					this.spareBatches.add(batch);
+				}
+			}
+		}
+	}
+
+	private static final class Batch {
+		@SuppressWarnings("unchecked")
+		final Id<Person>[] personIds = new Id[Shard.BATCH_SIZE];
+		final Object[] items = new Object[Shard.BATCH_SIZE];
+		int size = 0;
+		Runnable completion = null;
+	}
+
 }
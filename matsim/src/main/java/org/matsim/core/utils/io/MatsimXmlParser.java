@@ -58,6 +58,7 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 
 	private boolean isValidating = true;
 	private boolean isNamespaceAware = true;
+	private boolean readAhead = false;
 
 	private String localDtdBase = null;
 	// yy this is NOT working for me with "dtd", but it IS working with null. 
@@ -123,6 +124,15 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		this.isNamespaceAware = awareness;
 	}
 
+	/**
+	 * Sets, if files should be decompressed and decoded by a separate thread while this parser processes the already
+	 * read part. Only applies to {@link #readFile(String)}. Useful for large files whose tags are handled by other
+	 * threads anyway, so that the parsing thread becomes the bottleneck. By default the value is <code>false</code>.
+	 */
+	public final void setReadAhead(final boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+
 	/**
 	 * Sets the directory where to look for DTD and XSD files if they are not found
 	 * at the location specified in the XML.
@@ -146,7 +156,13 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public final void readFile(final String filename) throws UncheckedIOException {
 		log.info("starting to parse xml from file " + filename + " ...");
 		this.theSource = filename;
-		parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		if (this.readAhead) {
+			try (ReadAheadReader reader = new ReadAheadReader(IOUtils.getBufferedReader(filename))) {
+				parse(new InputSource(reader));
+			}
+		} else {
+			parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		}
 	}
 
 	@Override
@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReadAheadReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A reader that reads its source (including decompression and character decoding) in a separate thread, a few
+ * chunks ahead of the consumer.
+ */
+final class ReadAheadReader extends Reader {
+
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final int CHUNKS = 16;
+	private static final char[] END = new char[0];
+
+	private final BlockingQueue<char[]> chunks = new ArrayBlockingQueue<>(CHUNKS);
+	private final Thread thread;
+	private volatile IOException exception = null;
+	private char[] current = null;
+	private int position = 0;
+
+	ReadAheadReader(final Reader source) {
+		this.thread = new Thread(() -> {
+			try {
+				try {
+					while (true) {
+						char[] chunk = new char[CHUNK_SIZE];
+						int length = source.read(chunk);
+						if (length < 0) {
+							break;
+						}
+						this.chunks.put(length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length));
+					}
+				} catch (IOException e) {
+					this.exception = e;
+				}
+				this.chunks.put(END);
+			} catch (InterruptedException e) {
+				// the reader was closed
+			} finally {
+				try {
+					source.close();
+				} catch (IOException e) {
+					// ignore, the data was read
+				}
+			}
+		}, "ReadAheadReader");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (this.current == null || this.position == this.current.length) {
+			if (this.current == END) {
+				return -1;
+			}
+			try {
+				this.current = this.chunks.take();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			this.position = 0;
+			if (this.current == END && this.exception != null) {
+				throw this.exception;
+			}
+		}
+		int length = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current, this.position, cbuf, off, length);
+		this.position += length;
+		return length;
+	}
+
+	@Override
+	public void close() {
+		this.thread.interrupt();
+	}
+}
@@ -0,0 +1,74 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.misc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+public final class ParallelUtils {
+
+	private ParallelUtils() {
+	}
+
+	/**
+	 * Runs the given task once per thread, each with the index of its thread (<code>0</code> to
+	 * <code>numberOfThreads - 1</code>), and waits until all of them are finished. Tasks usually share the work by
+	 * taking items from a common counter, and keep their per-thread state (e.g. a router) in the task itself.
+	 *
+	 * @param threadName the name of the threads, followed by the thread index
+	 * @throws RuntimeException with the exception of the first failed task as cause, once all tasks are finished
+	 */
+	public static void runInParallel(int numberOfThreads, String threadName, IntConsumer task) {
+		AtomicInteger threadIndex = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads,
+				r -> new Thread(r, threadName + "-" + threadIndex.getAndIncrement()));
+		try {
+			List<Future<?>> futures = new ArrayList<>(numberOfThreads);
+			for (int i = 0; i < numberOfThreads; i++) {
+				int index = i;
+				futures.add(executor.submit(() -> task.accept(index)));
+			}
+			Throwable exception = null;
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (exception == null) {
+						exception = e.getCause();
+					}
+				}
+			}
+			if (exception != null) {
+				throw new RuntimeException("Error in " + threadName + " thread", exception);
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
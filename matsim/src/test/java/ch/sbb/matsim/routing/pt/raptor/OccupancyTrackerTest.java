@@ -3,12 +3,15 @@ package ch.sbb.matsim.routing.pt.raptor;
 import ch.sbb.matsim.routing.pt.raptor.OccupancyData.DepartureData;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
@@ -16,18 +19,21 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.functions.SubpopulationScoringParameters;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -143,6 +149,68 @@ public class OccupancyTrackerTest {
 		Assert.assertEquals(1, data.paxCountAtDeparture);
 	}
 
+	@Test
+	public void testGetPassengerCount() {
+		Fixture f = new Fixture();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		OccupancyData occData = new OccupancyData();
+		OccupancyTracker tracker = new OccupancyTracker(occData, f.scenario, new DefaultRaptorInVehicleCostCalculator(), events, new SubpopulationScoringParameters(f.scenario));
+		events.addHandler(tracker);
+
+		events.initProcessing();
+		f.generateEvents(events);
+
+		SwissRailRaptorData raptorData = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(f.scenario.getConfig()), f.scenario.getNetwork(), occData);
+		int stop1RouteStopIndex = 0;
+		int stop2RouteStopIndex = 1;
+		Assert.assertEquals(f.stop1, raptorData.routeStops[stop1RouteStopIndex].routeStop.getStopFacility().getId());
+
+		Assert.assertEquals(0, occData.getPassengerCount(raptorData, stop1RouteStopIndex, getDepartureIndex(raptorData, f.dep0)));
+		Assert.assertEquals(2, occData.getPassengerCount(raptorData, stop1RouteStopIndex, getDepartureIndex(raptorData, f.dep1)));
+		Assert.assertEquals(2, occData.getPassengerCount(raptorData, stop1RouteStopIndex, getDepartureIndex(raptorData, f.dep2)));
+		Assert.assertEquals(3, occData.getPassengerCount(raptorData, stop1RouteStopIndex, getDepartureIndex(raptorData, f.dep3)));
+		Assert.assertEquals(0, occData.getPassengerCount(raptorData, stop1RouteStopIndex, getDepartureIndex(raptorData, f.dep4)));
+		Assert.assertEquals(1, occData.getPassengerCount(raptorData, stop1RouteStopIndex, getDepartureIndex(raptorData, f.dep5)));
+
+		// no vehicle departed at stop2 yet
+		Assert.assertEquals(0, occData.getPassengerCount(raptorData, stop2RouteStopIndex, getDepartureIndex(raptorData, f.dep1)));
+	}
+
+	@Test
+	public void testGetPassengerCount_updatedByNewEvents() {
+		Fixture f = new Fixture();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		OccupancyData occData = new OccupancyData();
+		OccupancyTracker tracker = new OccupancyTracker(occData, f.scenario, new DefaultRaptorInVehicleCostCalculator(), events, new SubpopulationScoringParameters(f.scenario));
+		events.addHandler(tracker);
+
+		SwissRailRaptorData raptorData = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(f.scenario.getConfig()), f.scenario.getNetwork(), occData);
+		int stop1RouteStopIndex = 0;
+		int dep3Index = getDepartureIndex(raptorData, f.dep3);
+
+		// builds the query-cache before any data was recorded
+		Assert.assertEquals(0, occData.getPassengerCount(raptorData, stop1RouteStopIndex, dep3Index));
+
+		events.initProcessing();
+		f.generateEvents(events);
+
+		Assert.assertEquals(3, occData.getPassengerCount(raptorData, stop1RouteStopIndex, dep3Index));
+
+		tracker.reset(1);
+		Assert.assertEquals(0, occData.getPassengerCount(raptorData, stop1RouteStopIndex, dep3Index));
+	}
+
+	private static int getDepartureIndex(SwissRailRaptorData raptorData, Id<Departure> departureId) {
+		for (int i = 0; i < raptorData.departureIds.length; i++) {
+			if (raptorData.departureIds[i].equals(departureId)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(departureId.toString());
+	}
+
 	private static class Fixture {
 
 		Id<Vehicle> veh0 = Id.create("veh0", Vehicle.class);
@@ -185,11 +253,30 @@ public class OccupancyTrackerTest {
 
 		public Fixture() {
 			this.scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			Network network = this.scenario.getNetwork();
+			Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+			Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+			Id<Link> linkId = Id.create("1", Link.class);
+			NetworkUtils.createAndAddLink(network, linkId, node1, node2, 1000, 10, 1000, 1);
+
 			TransitSchedule schedule = this.scenario.getTransitSchedule();
 			TransitScheduleFactory factory = schedule.getFactory();
+			TransitStopFacility stopFacility1 = factory.createTransitStopFacility(this.stop1, new Coord(0, 0), false);
+			stopFacility1.setLinkId(linkId);
+			schedule.addStopFacility(stopFacility1);
+			TransitStopFacility stopFacility2 = factory.createTransitStopFacility(this.stop2, new Coord(1000, 0), false);
+			stopFacility2.setLinkId(linkId);
+			schedule.addStopFacility(stopFacility2);
+
 			TransitLine line = factory.createTransitLine(this.line1);
 			schedule.addTransitLine(line);
-			TransitRoute route = factory.createTransitRoute(this.route1, null, Collections.emptyList(), "bus");
+			TransitRouteStop routeStop1 = factory.createTransitRouteStop(stopFacility1, 0, 0);
+			TransitRouteStop routeStop2 = factory.createTransitRouteStop(stopFacility2, 300, 300);
+			TransitRoute route = factory.createTransitRoute(this.route1, RouteUtils.createLinkNetworkRouteImpl(linkId, linkId), Arrays.asList(routeStop1, routeStop2), "bus");
+			Id<Departure>[] departureIds = new Id[] { this.dep0, this.dep1, this.dep2, this.dep3, this.dep4, this.dep5 };
+			for (int i = 0; i < departureIds.length; i++) {
+				route.addDeparture(factory.createDeparture(departureIds[i], Time.parseTime("07:00:00") + i * 600));
+			}
 			line.addRoute(route);
 		}
 
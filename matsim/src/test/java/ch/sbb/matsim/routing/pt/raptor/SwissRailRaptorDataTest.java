@@ -5,15 +5,22 @@
 package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.File;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -82,4 +89,59 @@ public class SwissRailRaptorDataTest {
         Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParallelTransfers() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        raptorConfig.setNumberOfThreads(1);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        raptorConfig.setNumberOfThreads(4);
+        SwissRailRaptorData data2 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        Assert.assertTrue(data.transfers.length > 0);
+        assertSameTransfers(data, data2);
+    }
+
+    @Test
+    public void testTransferCache() {
+        Fixture f = new Fixture();
+        f.init();
+
+        String cacheFile = new File(this.utils.getOutputDirectory(), "transfers.cache").getAbsolutePath();
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        raptorConfig.setTransferCacheFile(cacheFile);
+        SwissRailRaptorData data2 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertTrue("cache file should have been written.", new File(cacheFile).exists());
+        Assert.assertArrayEquals("no temporary file should be left.", new String[] { "transfers.cache" }, new File(cacheFile).getParentFile().list());
+        SwissRailRaptorData data3 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        assertSameTransfers(data, data2);
+        assertSameTransfers(data, data3);
+
+        // a changed schedule must invalidate the cache
+        Id<TransitStopFacility> stopId9 = Id.create(9, TransitStopFacility.class);
+        Id<TransitStopFacility> stopId19 = Id.create(19, TransitStopFacility.class);
+        f.schedule.getMinimalTransferTimes().set(stopId19, stopId9, 345);
+        SwissRailRaptorData data4 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertEquals("number of transfers should have incrased.", data.transfers.length + 1, data4.transfers.length);
+    }
+
+    private static void assertSameTransfers(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assert.assertEquals(expected.transfers.length, actual.transfers.length);
+        for (int i = 0; i < expected.transfers.length; i++) {
+            SwissRailRaptorData.RTransfer t1 = expected.transfers[i];
+            SwissRailRaptorData.RTransfer t2 = actual.transfers[i];
+            Assert.assertEquals(t1.fromRouteStop, t2.fromRouteStop);
+            Assert.assertEquals(t1.toRouteStop, t2.toRouteStop);
+            Assert.assertEquals(t1.transferTime, t2.transferTime);
+            Assert.assertEquals(t1.transferDistance, t2.transferDistance);
+        }
+        for (int i = 0; i < expected.routeStops.length; i++) {
+            Assert.assertEquals(expected.routeStops[i].indexFirstTransfer, actual.routeStops[i].indexFirstTransfer);
+            Assert.assertEquals(expected.routeStops[i].countTransfers, actual.routeStops[i].countTransfers);
+        }
+    }
+}
@@ -699,6 +699,97 @@ public class SwissRailRaptorTest {
         assertRaptorRoute(routes.get(5), "06:40:12", "07:11:56", 1, 7.3466666);
     }
 
+    @Test
+    public void testRangeQuery_parallel() {
+        Fixture f = new Fixture();
+        f.init();
+        SwissRailRaptor raptor = createTransitRouter(f.schedule, f.config, f.network);
+
+        Coord fromCoord = new Coord(3800, 5100);
+        Coord toCoord = new Coord(28100, 4950);
+        double depTime = 5.0 * 3600 + 50 * 60;
+        List<RaptorRoute> expected = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null);
+
+        for (int threads = 1; threads <= 4; threads++) {
+            List<RaptorRoute> routes = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null, threads);
+            assertSameRoutes(expected, routes);
+        }
+
+        // the sequential query must not be influenced by the parallel ones
+        List<RaptorRoute> routes = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null);
+        assertSameRoutes(expected, routes);
+    }
+
+    /**
+     * Two routes from the same stop to the same stop, the second one departing a minute later, but being much slower.
+     * The sequential range query handles the earlier departure first, and the slower route does not improve its
+     * arrival cost, so it is not found. With two threads, each departure is handled in a chunk of its own, with empty
+     * labels, so the slower route is found by the second chunk, but must be pruned when merging the chunks.
+     */
+    @Test
+    public void testRangeQuery_parallelPrunesRoutesOfLaterChunks() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        config.transitRouter().setSearchRadius(500.0);
+        config.transitRouter().setMaxBeelineWalkConnectionDistance(100.0);
+        Scenario scenario = ScenarioUtils.createScenario(config);
+
+        Network network = scenario.getNetwork();
+        Node node0 = network.getFactory().createNode(Id.create("0", Node.class), new Coord(0, 1000));
+        Node node1 = network.getFactory().createNode(Id.create("1", Node.class), new Coord(25000, 1000));
+        network.addNode(node0);
+        network.addNode(node1);
+        Link link = network.getFactory().createLink(Id.create("0", Link.class), node0, node1);
+        network.addLink(link);
+
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitScheduleFactory sb = schedule.getFactory();
+        TransitStopFacility stop0 = sb.createTransitStopFacility(Id.create("0", TransitStopFacility.class), new Coord(0, 1002), false);
+        TransitStopFacility stop1 = sb.createTransitStopFacility(Id.create("1", TransitStopFacility.class), new Coord(25000, 1002), false);
+        schedule.addStopFacility(stop0);
+        schedule.addStopFacility(stop1);
+        stop0.setLinkId(link.getId());
+        stop1.setLinkId(link.getId());
+
+        TransitLine line = sb.createTransitLine(Id.create("line", TransitLine.class));
+        schedule.addTransitLine(line);
+        String[] routeIds = { "fast", "slow" };
+        double[] departureTimes = { 8.0 * 3600, 8.0 * 3600 + 60 };
+        double[] travelTimes = { 10 * 60.0, 60 * 60.0 };
+        for (int i = 0; i < routeIds.length; i++) {
+            NetworkRoute netRoute = RouteUtils.createLinkNetworkRouteImpl(link.getId(), link.getId());
+            List<TransitRouteStop> stops = new ArrayList<>();
+            stops.add(sb.createTransitRouteStopBuilder(stop0).departureOffset(0.0).build());
+            stops.add(sb.createTransitRouteStopBuilder(stop1).arrivalOffset(travelTimes[i]).build());
+            TransitRoute route = sb.createTransitRoute(Id.create(routeIds[i], TransitRoute.class), netRoute, stops, "train");
+            route.addDeparture(sb.createDeparture(Id.create(routeIds[i], Departure.class), departureTimes[i]));
+            line.addRoute(route);
+        }
+
+        SwissRailRaptor raptor = createTransitRouter(schedule, config, network);
+        FakeFacility fromFacility = new FakeFacility(new Coord(0, 1102));
+        FakeFacility toFacility = new FakeFacility(new Coord(25000, 1102));
+        double depTime = 8.0 * 3600;
+
+        List<RaptorRoute> expected = raptor.calcRoutes(fromFacility, toFacility, depTime - 300, depTime, depTime + 1800, null);
+        Assert.assertEquals(1, expected.size());
+
+        List<RaptorRoute> routes = raptor.calcRoutes(fromFacility, toFacility, depTime - 300, depTime, depTime + 1800, null, 2);
+        assertSameRoutes(expected, routes);
+    }
+
+    private static void assertSameRoutes(List<RaptorRoute> expected, List<RaptorRoute> routes) {
+        Assert.assertEquals("wrong number of routes", expected.size(), routes.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RaptorRoute e = expected.get(i);
+            RaptorRoute route = routes.get(i);
+            Assert.assertEquals("wrong number of transfers", e.getNumberOfTransfers(), route.getNumberOfTransfers());
+            Assert.assertEquals("wrong departure time", e.getDepartureTime(), route.getDepartureTime(), 0.0);
+            Assert.assertEquals("wrong travel time", e.getTravelTime(), route.getTravelTime(), 0.0);
+            Assert.assertEquals("wrong cost", e.getTotalCosts(), route.getTotalCosts(), 0.0);
+        }
+    }
+
     private void assertRaptorRoute(RaptorRoute route, String depTime, String arrTime, int expectedTransfers, double expectedCost) {
         Assert.assertEquals("wrong number of transfers", expectedTransfers, route.getNumberOfTransfers());
         Assert.assertEquals("wrong departure time", Time.parseTime(depTime), route.getDepartureTime(), 0.99);
@@ -385,6 +385,46 @@ public class SwissRailRaptorTreeTest {
         Assert.assertNull(stage5.line); // egress_walk
     }
 
+    @Test
+    public void testMultipleDepartureTimes_parallel() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        List<TransitStopFacility> fromStops = new ArrayList<>();
+        fromStops.add(f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class)));
+        fromStops.add(f.schedule.getFacilities().get(Id.create(4, TransitStopFacility.class)));
+        double[] depTimes = new double[13];
+        for (int i = 0; i < depTimes.length; i++) {
+            depTimes[i] = 7*3600 + i * 5*60;
+        }
+
+        List<Map<Id<TransitStopFacility>, TravelInfo>> trees = raptor.calcTrees(fromStops, depTimes, raptorParams, null, 3);
+        Assert.assertEquals(depTimes.length, trees.size());
+
+        for (int i = 0; i < depTimes.length; i++) {
+            Map<Id<TransitStopFacility>, TravelInfo> expected = raptor.calcTree(fromStops, depTimes[i], raptorParams, null);
+            Map<Id<TransitStopFacility>, TravelInfo> actual = trees.get(i);
+            Assert.assertEquals(expected.keySet(), actual.keySet());
+            for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : expected.entrySet()) {
+                TravelInfo expectedInfo = e.getValue();
+                TravelInfo actualInfo = actual.get(e.getKey());
+                Assert.assertEquals(expectedInfo.departureStop, actualInfo.departureStop);
+                Assert.assertEquals(expectedInfo.transferCount, actualInfo.transferCount);
+                Assert.assertEquals(expectedInfo.ptDepartureTime, actualInfo.ptDepartureTime, 0.0);
+                Assert.assertEquals(expectedInfo.ptArrivalTime, actualInfo.ptArrivalTime, 0.0);
+                Assert.assertEquals(expectedInfo.travelCost, actualInfo.travelCost, 0.0);
+                Assert.assertEquals(expectedInfo.waitingCost, actualInfo.waitingCost, 0.0);
+            }
+        }
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assert.assertNotNull("Stop " + stopId + " is not reachable.", info);
@@ -22,7 +22,10 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
 
@@ -68,6 +71,44 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/**
+	 * Exceptions of handlers of core events are passed on unchanged.
+	 */
+	@Test
+	public void testProcessEvent_ExceptionInCoreEventHandler() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		PersonStuckEventHandler handler = e -> {
+			throw new ArithmeticException();
+		};
+		manager.addHandler(handler);
+		manager.initProcessing();
+		try {
+			manager.processEvent(new PersonStuckEvent(123.45, Id.createPersonId(1), Id.createLinkId(1), "car"));
+			manager.finishProcessing();
+			Assert.fail("expected exception, but got none.");
+		} catch (final ArithmeticException e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	/**
+	 * Two handlers implementing different handler interfaces for the same event class must both be called.
+	 */
+	@Test
+	public void testProcessEvent_DifferentInterfacesForSameEvent() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		OtherCountingMyEventHandler otherHandler = new OtherCountingMyEventHandler();
+		manager.addHandler(handler);
+		manager.addHandler(otherHandler);
+		manager.initProcessing();
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new MyEvent(234.56));
+		manager.finishProcessing();
+		Assert.assertEquals("EventHandler was not called.", 2, handler.counter);
+		Assert.assertEquals("EventHandler was not called.", 2, otherHandler.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -94,6 +135,22 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static interface OtherMyEventHandler extends EventHandler {
+		public void handleEvent(final MyEvent e);
+	}
+
+	/*package*/ static class OtherCountingMyEventHandler implements OtherMyEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.counter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
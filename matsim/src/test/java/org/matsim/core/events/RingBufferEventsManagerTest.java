@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.vehicles.Vehicle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void allHandlersSeeAllEvents() {
+		// the buffer is much smaller than the number of events, so the producer has to wait for the consumers
+		EventsManager m = new RingBufferEventsManager(false, 2, 16);
+		EventsManagerImplTest.CountingMyEventHandler custom = new EventsManagerImplTest.CountingMyEventHandler();
+		LinkEnterCounter linkEnter = new LinkEnterCounter();
+		BasicCounter basic = new BasicCounter();
+		m.addHandler(custom);
+		m.addHandler(linkEnter);
+		m.addHandler(basic);
+
+		m.initProcessing();
+		for (int i = 0; i < 10000; i++) {
+			m.processEvent(new EventsManagerImplTest.MyEvent(i));
+			m.processEvent(new LinkEnterEvent(i, Id.create(1, Vehicle.class), Id.create(1, Link.class)));
+		}
+		m.finishProcessing();
+
+		assertEquals(10000, custom.counter);
+		assertEquals(10000, linkEnter.counter);
+		assertEquals(20000, basic.counter);
+		assertEquals(9999.0, linkEnter.lastTime, 0.0);
+	}
+
+	@Test
+	public void exceptionInHandler() {
+		EventsManager m = new RingBufferEventsManager(false, 1, 16);
+		EventsManagerImplTest.CrashingMyEventHandler handler = new EventsManagerImplTest.CrashingMyEventHandler();
+		m.addHandler(handler);
+
+		m.initProcessing();
+		m.processEvent(new EventsManagerImplTest.MyEvent(5));
+		RuntimeException e = assertThrows(RuntimeException.class, m::finishProcessing);
+
+		assertEquals(1, handler.counter);
+		assertTrue(e.getCause() instanceof ArithmeticException);
+	}
+
+	@Test
+	public void processedEventsAreCleared() {
+		RingBufferEventsManager m = new RingBufferEventsManager(true, 2, 16);
+		m.addHandler(new LinkEnterCounter());
+		m.addHandler(new BasicCounter());
+
+		m.initProcessing();
+		for (int i = 0; i < 10; i++) {
+			m.processEvent(new LinkEnterEvent(i, Id.create(1, Vehicle.class), Id.create(1, Link.class)));
+		}
+		m.afterSimStep(10);
+		assertEquals(0, m.getBufferedEventsCount());
+
+		for (int i = 10; i < 100; i++) {
+			m.processEvent(new LinkEnterEvent(i, Id.create(1, Vehicle.class), Id.create(1, Link.class)));
+		}
+		m.finishProcessing();
+		assertEquals(0, m.getBufferedEventsCount());
+	}
+
+	@Test
+	public void lateHandler() {
+		EventsManager m = new RingBufferEventsManager(false, 1, 16);
+		m.initProcessing();
+
+		assertThrows(IllegalStateException.class, () -> m.addHandler(new EventsManagerImplTest.CountingMyEventHandler()));
+
+		m.finishProcessing();
+	}
+
+	private static class LinkEnterCounter implements LinkEnterEventHandler {
+		private int counter = 0;
+		private double lastTime = -1;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			// handlers are only called from one thread, in the order the events were published
+			assertTrue(event.getTime() > this.lastTime);
+			this.lastTime = event.getTime();
+			this.counter++;
+		}
+	}
+
+	private static class BasicCounter implements BasicEventHandler {
+		private int counter = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.counter++;
+		}
+	}
+}
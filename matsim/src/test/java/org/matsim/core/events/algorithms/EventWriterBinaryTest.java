@@ -0,0 +1,177 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		Id<Person> person = Id.create("person<1>", Person.class);
+		Id<Vehicle> vehicle = Id.create("veh 1", Vehicle.class);
+		Id<Link> link = Id.create("link-\u00e4", Link.class);
+		List<Event> expected = new ArrayList<>();
+		expected.add(new ActivityEndEvent(10.0, person, link, Id.create("home", ActivityFacility.class), "home", new Coord(100.5, -20.0)));
+		expected.add(new ActivityEndEvent(10.0, person, link, null, "home", null));
+		expected.add(new PersonDepartureEvent(10.0, person, link, "car"));
+		expected.add(new PersonEntersVehicleEvent(10.0, person, vehicle));
+		expected.add(new VehicleEntersTrafficEvent(10.0, person, link, vehicle, "car", 1.0));
+		expected.add(new LinkLeaveEvent(11.0, vehicle, link));
+		expected.add(new LinkEnterEvent(11.0, vehicle, Id.create("2", Link.class)));
+		expected.add(new VehicleLeavesTrafficEvent(12.5, person, link, vehicle, "car", 0.25));
+		expected.add(new PersonLeavesVehicleEvent(12.5, person, vehicle));
+		expected.add(new PersonArrivalEvent(12.5, person, link, "car"));
+		expected.add(new ActivityStartEvent(12.5, person, link, null, "work", new Coord(1.0, 2.0)));
+		expected.add(new PersonMoneyEvent(13.0, person, -2.5, "toll", "operator"));
+		GenericEvent generic = new GenericEvent("TEST", 14.0);
+		generic.getAttributes().put("dummy", null);
+		generic.getAttributes().put("answer", "42");
+		expected.add(generic);
+
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(new File(filename));
+		expected.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		List<Event> actual = readEvents(filename);
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+		Assert.assertTrue(((GenericEvent) actual.get(actual.size() - 1)).getAttributes().containsKey("dummy"));
+	}
+
+	@Test
+	public void testManyBlocks() {
+		String filename = this.utils.getOutputDirectory() + "events";
+		EventWriterBinary writer = new EventWriterBinary(new File(filename));
+		int count = 200_000;
+		for (int i = 0; i < count; i++) {
+			writer.handleEvent(new LinkEnterEvent(i, Id.create(i % 1000, Vehicle.class), Id.create(i, Link.class)));
+		}
+		writer.closeFile();
+
+		// the format is detected from the file contents, not only from the file name
+		List<Event> actual = readEvents(filename);
+		Assert.assertEquals(count, actual.size());
+		for (int i = 0; i < count; i += 997) {
+			LinkEnterEvent event = (LinkEnterEvent) actual.get(i);
+			Assert.assertEquals(i, event.getTime(), 0.0);
+			Assert.assertEquals(Id.create(i % 1000, Vehicle.class), event.getVehicleId());
+			Assert.assertEquals(Id.create(i, Link.class), event.getLinkId());
+		}
+	}
+
+	@Test
+	public void testDictionaryReset() {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		// a tiny dictionary, so it is replaced by a new one in almost every block
+		EventWriterBinary writer = new EventWriterBinary(new File(filename), 10);
+		int count = 300_000;
+		for (int i = 0; i < count; i++) {
+			writer.handleEvent(new PersonMoneyEvent(i, Id.create(i % 1000, Person.class), i * 0.5, "toll", "operator"));
+		}
+		writer.closeFile();
+
+		List<Event> actual = readEvents(filename);
+		Assert.assertEquals(count, actual.size());
+		for (int i = 0; i < count; i += 997) {
+			PersonMoneyEvent event = (PersonMoneyEvent) actual.get(i);
+			Assert.assertEquals(i, event.getTime(), 0.0);
+			Assert.assertEquals(Id.create(i % 1000, Person.class), event.getPersonId());
+			Assert.assertEquals(i * 0.5, event.getAmount(), 0.0);
+			Assert.assertEquals("toll", event.getPurpose());
+		}
+	}
+
+	@Test
+	public void testReadRemoteUrl() throws MalformedURLException {
+		MatsimEventsReader reader = new MatsimEventsReader(EventsUtils.createEventsManager());
+		URL url = new URL("http://localhost/events.bin");
+		Assert.assertThrows(UnsupportedOperationException.class, () -> reader.readURL(url));
+	}
+
+	@Test
+	public void testCustomEventMapper() {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(new File(filename));
+		writer.handleEvent(new GenericEvent("custom", 5.0));
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(events);
+		reader.addCustomEventMapper("custom", event -> new LinkLeaveEvent(event.getTime(), Id.create(1, Vehicle.class), Id.create(2, Link.class)));
+		reader.readFile(filename);
+		events.finishProcessing();
+
+		Assert.assertEquals(1, collector.getEvents().size());
+		Assert.assertTrue(collector.getEvents().get(0) instanceof LinkLeaveEvent);
+		Assert.assertEquals(5.0, collector.getEvents().get(0).getTime(), 0.0);
+	}
+
+	private static List<Event> readEvents(String filename) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(filename);
+		events.finishProcessing();
+		return new ArrayList<>(collector.getEvents());
+	}
+}
@@ -237,6 +237,306 @@ public class HermesTest {
 		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Same as {@link #testTwoAgent()}, but every link is simulated in its own region, so agents are handed over
+	 * between regions on each link change. The events must be the same as without partitioning.
+	 */
+	@Test
+	public void testTwoAgentPartitioned() {
+		List<String> expected = runTwoAgents(1);
+		List<String> actual = runTwoAgents(3);
+		Assert.assertEquals("wrong number of events.", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("wrong event.", expected.get(i), actual.get(i));
+		}
+	}
+
+	private List<String> runTwoAgents(int numberOfRegions) {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		Fixture f = new Fixture();
+		f.config.hermes().setNumberOfRegions(numberOfRegions);
+		f.config.global().setNumberOfThreads(numberOfRegions);
+
+		for (int i = 0; i < 2; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime((6+i)*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		createHermes(f, events).run();
+
+		Assert.assertFalse("no events.", collector.getEvents().isEmpty());
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Many agents want to enter a short link of another region at the same time. Agents are only handed over to the
+	 * next region if the link has space left, the others have to wait on their link.
+	 */
+	@Test
+	public void testStorageCapacityAtRegionBoundaries() {
+		for (int numberOfRegions : new int[] { 1, 3 }) {
+			Id.resetCaches();
+			ScenarioImporter.flush();
+			Fixture f = new Fixture();
+			f.config.hermes().setNumberOfRegions(numberOfRegions);
+			f.config.global().setNumberOfThreads(numberOfRegions);
+			// room for two vehicles, which leave the link every 10 seconds
+			f.link2.setLength(15);
+			f.link2.setNumberOfLanes(1);
+			f.link2.setCapacity(360);
+			// stuck vehicles would be pushed onto the full link
+			f.config.hermes().setStuckTime(Integer.MAX_VALUE);
+
+			int agentCount = 10;
+			for (int i = 0; i < agentCount; i++) {
+				Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+				Plan plan = PersonUtils.createAndAddPlan(person, true);
+				Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+				a1.setEndTime(6*3600);
+				Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+				TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+				NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+				route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+				leg.setRoute(route);
+				PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+				f.plans.addPerson(person);
+			}
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+
+			createHermes(f, events).run();
+
+			// the vehicles on link 2, where the leave events of a second are processed before its enter events
+			List<Event> linkEvents = new ArrayList<>();
+			int arrivals = 0;
+			for (Event event : collector.getEvents()) {
+				if (event instanceof LinkEnterEvent && ((LinkEnterEvent) event).getLinkId().equals(f.link2.getId())
+						|| event instanceof LinkLeaveEvent && ((LinkLeaveEvent) event).getLinkId().equals(f.link2.getId())) {
+					linkEvents.add(event);
+				} else if (event instanceof PersonArrivalEvent) {
+					arrivals++;
+				}
+			}
+			linkEvents.sort((e0, e1) -> {
+				int cmp = Double.compare(e0.getTime(), e1.getTime());
+				return cmp != 0 ? cmp : Boolean.compare(e0 instanceof LinkEnterEvent, e1 instanceof LinkEnterEvent);
+			});
+			int vehicles = 0;
+			int maxVehicles = 0;
+			for (Event event : linkEvents) {
+				vehicles += event instanceof LinkEnterEvent ? 1 : -1;
+				maxVehicles = Math.max(maxVehicles, vehicles);
+			}
+			Assert.assertEquals("wrong number of events on link 2.", 2 * agentCount, linkEvents.size());
+			Assert.assertEquals("storage capacity of link 2 exceeded.", 2, maxVehicles);
+			Assert.assertEquals("wrong number of arrivals.", agentCount, arrivals);
+		}
+	}
+
+	/**
+	 * Events are handed over to the events manager after every simulated second. The order and times of the
+	 * events must be the same as when all events are processed after the simulation.
+	 */
+	@Test
+	public void testEventsFlushInterval() {
+		List<Event> allEvents = new ArrayList<>();
+		for (int flushInterval : new int[] { 0, 1 }) {
+			Id.resetCaches();
+			ScenarioImporter.flush();
+			Fixture f = new Fixture();
+			f.config.hermes().setEventsFlushInterval(flushInterval);
+
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+
+			createHermes(f, events).run();
+
+			if (flushInterval == 0) {
+				allEvents.addAll(collector.getEvents());
+			} else {
+				Assert.assertEquals("wrong number of events.", allEvents.size(), collector.getEvents().size());
+				for (int i = 0; i < allEvents.size(); i++) {
+					Assert.assertEquals("wrong event.", allEvents.get(i).toString(), collector.getEvents().get(i).toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * With a maximal number of buffered events, the events are handed over to the events manager as soon as that
+	 * number is reached, also without a flush interval. The order and times of the events must not change.
+	 */
+	@Test
+	public void testMaxBufferedEvents() {
+		for (int regions : new int[] { 1, 3 }) {
+			List<String> allEvents = new ArrayList<>();
+			for (int maxBufferedEvents : new int[] { 0, 20 }) {
+				Id.resetCaches();
+				ScenarioImporter.flush();
+				Fixture f = new Fixture();
+				f.config.hermes().setEventsFlushInterval(0);
+				f.config.hermes().setMaxBufferedEvents(maxBufferedEvents);
+				f.config.hermes().setNumberOfRegions(regions);
+
+				for (int i = 0; i < 50; i++) {
+					Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+					Plan plan = PersonUtils.createAndAddPlan(person, true);
+					Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+					a1.setEndTime(6*3600 + i * 60);
+					Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+					TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+					NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+					route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+					leg.setRoute(route);
+					PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+					f.plans.addPerson(person);
+				}
+
+				EventsManager events = EventsUtils.createEventsManager();
+				EventsCollector collector = new EventsCollector();
+				events.addHandler(collector);
+
+				Hermes hermes = createHermes(f, events);
+				hermes.run();
+
+				if (maxBufferedEvents == 0) {
+					Assert.assertTrue("all events should be buffered: " + hermes.getPeakBufferedEvents(), hermes.getPeakBufferedEvents() > 100);
+					for (Event event : collector.getEvents()) {
+						allEvents.add(event.toString());
+					}
+				} else {
+					// the limit may be exceeded by the events of one time step
+					Assert.assertTrue("too many buffered events: " + hermes.getPeakBufferedEvents(), hermes.getPeakBufferedEvents() < maxBufferedEvents + 10);
+					Assert.assertEquals("wrong number of events.", allEvents.size(), collector.getEvents().size());
+					for (int i = 0; i < allEvents.size(); i++) {
+						Assert.assertEquals("wrong event.", allEvents.get(i), collector.getEvents().get(i).toString());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the same scenario twice with incremental plan imports. The plan of the first person is replaced by a
+	 * later departure before the second run, while the plan of the second person is reused.
+	 */
+	@Test
+	public void testIncrementalPlanImport() {
+		Fixture f = new Fixture();
+		f.config.hermes().setIncrementalPlanImport(true);
+
+		for (int i = 0; i < 2; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime((6+i)*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		LinkEnterEventCollector collector = new LinkEnterEventCollector();
+		events.addHandler(collector);
+
+		createHermes(f, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+
+		// same as replanning: a modified copy of the plan is selected
+		Person person = f.plans.getPersons().get(Id.create(0, Person.class));
+		Plan newPlan = PersonUtils.createAndAddPlan(person, true);
+		PopulationUtils.copyFromTo(person.getPlans().get(0), newPlan);
+		PopulationUtils.getFirstActivity(newPlan).setEndTime(8*3600);
+
+		collector.reset(1);
+		createHermes(f.scenario, events, false).run();
+
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 7.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 11, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in third event.", 8.0*3600, collector.events.get(2).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in fourth event.", 8.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testIncrementalPlanImportWithPlanModifiedInPlace() {
+		Fixture f = new Fixture();
+		f.config.hermes().setIncrementalPlanImport(true);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(6*3600);
+		Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+		NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		f.plans.addPerson(person);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		LinkEnterEventCollector collector = new LinkEnterEventCollector();
+		events.addHandler(collector);
+
+		createHermes(f, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 2, collector.events.size());
+
+		// same as time mutation: the selected plan itself is modified
+		a1.setEndTime(7*3600);
+		collector.reset(1);
+		createHermes(f.scenario, events, false).run();
+		Assert.assertEquals("wrong number of link enter events.", 2, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 7.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+
+		// same as re-routing: the route of the selected plan is replaced
+		PopulationUtils.getLastActivity(plan).setLinkId(f.link2.getId());
+		NetworkRoute shorterRoute = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link2.getId());
+		shorterRoute.setLinkIds(f.link1.getId(), f.linkIdsNone, f.link2.getId());
+		leg.setRoute(shorterRoute);
+		collector.reset(2);
+		createHermes(f.scenario, events, false).run();
+		Assert.assertEquals("wrong number of link enter events.", 1, collector.events.size());
+		Assert.assertEquals("wrong link in first event.", f.link2.getId(), collector.events.get(0).getLinkId());
+	}
+
 	/**
 	 * A single agent is simulated that uses teleportation for its one and only leg.
 	 *
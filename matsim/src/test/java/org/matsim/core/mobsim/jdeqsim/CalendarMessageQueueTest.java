@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarMessageQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
+
+public class CalendarMessageQueueTest {
+
+	@Test
+	public void testOrder() {
+		CalendarMessageQueue mq = new CalendarMessageQueue();
+		Message m1 = createMessage(5.5, 0);
+		Message m2 = createMessage(2.0, 0);
+		Message m3 = createMessage(2.0, 10);
+		Message m4 = createMessage(2.0, 0);
+		Message m5 = createMessage(2.7, 0);
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.putMessage(m4);
+		mq.putMessage(m5);
+		Assert.assertEquals(5, mq.getQueueSize());
+
+		// higher priority first, then in the order in which the messages were put into the queue
+		Assert.assertSame(m3, mq.peekNextMessage());
+		Assert.assertSame(m3, mq.getNextMessage());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertSame(m4, mq.getNextMessage());
+		Assert.assertSame(m5, mq.getNextMessage());
+		Assert.assertSame(m1, mq.getNextMessage());
+		Assert.assertNull(mq.getNextMessage());
+		Assert.assertEquals(0, mq.getQueueSize());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	@Test
+	public void testRemoveMessage() {
+		CalendarMessageQueue mq = new CalendarMessageQueue();
+		Message m1 = createMessage(1, 0);
+		Message m2 = createMessage(2, 0);
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.removeMessage(m1);
+		Assert.assertEquals(1, mq.getQueueSize());
+		Assert.assertFalse(mq.isEmpty());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertTrue(mq.isEmpty());
+
+		mq.putMessage(m2 = createMessage(3, 0));
+		mq.removeMessage(m2);
+		Assert.assertEquals(0, mq.getQueueSize());
+		Assert.assertNull(mq.getNextMessage());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	@Test
+	public void testMessagesBeyondTimeWindow() {
+		CalendarMessageQueue mq = new CalendarMessageQueue(1.0, 4);
+		Message m1 = createMessage(100, 0);
+		Message m2 = createMessage(Double.POSITIVE_INFINITY, 0);
+		Message m3 = createMessage(7.5, 0);
+		Message m4 = createMessage(1, 0);
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.putMessage(m4);
+		Assert.assertSame(m4, mq.getNextMessage());
+		Assert.assertSame(m3, mq.getNextMessage());
+		// a message earlier than the previous one is still returned first
+		Message m5 = createMessage(3, 0);
+		mq.putMessage(m5);
+		Assert.assertSame(m5, mq.getNextMessage());
+		Assert.assertSame(m1, mq.getNextMessage());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	/**
+	 * Compares the order of the messages with the one of the {@link MessageQueue}, with messages being put into the
+	 * queues and removed from them in between. The arrival times are unique, as the order of messages which are equal
+	 * in arrival time and priority is not defined by the {@link MessageQueue}.
+	 */
+	@Test
+	public void testSameOrderAsMessageQueue() {
+		Random random = new Random(4711);
+		MessageQueue expected = new MessageQueue();
+		CalendarMessageQueue actual = new CalendarMessageQueue(0.5, 64);
+		Map<Message, Message> partners = new HashMap<>();
+		List<Message> pending = new ArrayList<>();
+		double now = 0;
+		for (int i = 0; i < 20000; i++) {
+			int action = random.nextInt(10);
+			if (action < 5) {
+				double time = now + (random.nextInt(10) == 0 ? random.nextDouble() * 1000 : random.nextInt(20) * 0.25) + i * 1e-6;
+				int priority = random.nextInt(3) * 50;
+				Message e = createMessage(time, priority);
+				Message a = createMessage(time, priority);
+				expected.putMessage(e);
+				actual.putMessage(a);
+				partners.put(e, a);
+				pending.add(e);
+			} else if (action < 6 && !pending.isEmpty()) {
+				Message e = pending.remove(random.nextInt(pending.size()));
+				expected.removeMessage(e);
+				actual.removeMessage(partners.remove(e));
+			} else {
+				Message e = expected.getNextMessage();
+				Message a = actual.getNextMessage();
+				if (e == null) {
+					Assert.assertNull(a);
+				} else {
+					Assert.assertSame(partners.remove(e), a);
+					pending.remove(e);
+					now = e.getMessageArrivalTime();
+				}
+			}
+			Assert.assertEquals(expected.getQueueSize(), actual.getQueueSize());
+		}
+	}
+
+	private static Message createMessage(double time, int priority) {
+		Message m = new DummyMessage();
+		m.setMessageArrivalTime(time);
+		m.setPriority(priority);
+		return m;
+	}
+
+}
@@ -21,6 +21,11 @@
 
  package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
@@ -71,5 +76,56 @@ public class TestScheduler {
 		Assert.assertEquals(1.0, scheduler.getSimTime(), 0.0);
 	}
 
+	// two schedulers running concurrently must each recycle their own messages, and never hand out a message of the other
+	@Test
+	public void testConcurrentSchedulersRecycleOwnMessages() throws InterruptedException {
+		JDEQSimConfigGroup.setGC_MESSAGES(false);
+		int messagesPerRound = 1000;
+		Scheduler[] schedulers = new Scheduler[2];
+		@SuppressWarnings("unchecked")
+		Set<Message>[] usedMessages = new Set[2];
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < threads.length; t++) {
+			Scheduler scheduler = new Scheduler(new CalendarMessageQueue());
+			Set<Message> messages = Collections.newSetFromMap(new IdentityHashMap<>());
+			schedulers[t] = scheduler;
+			usedMessages[t] = messages;
+			threads[t] = new Thread(() -> {
+				SimUnit unit = new DummySimUnit(scheduler);
+				double time = 0;
+				for (int round = 0; round < 50; round++) {
+					for (int i = 0; i < messagesPerRound; i++) {
+						EnterRoadMessage m = scheduler.messagePool.getEnterRoadMessage(null);
+						if (m.scheduler != scheduler || !m.isAlive()) {
+							throw new IllegalStateException("message of another scheduler or not revived");
+						}
+						messages.add(m);
+						unit.sendMessage(m, unit, time + i);
+						scheduler.unschedule(m); // killed messages are recycled once the queue discards them
+					}
+					time += messagesPerRound;
+					unit.sendMessage(new DummyMessage(), unit, time);
+					scheduler.startSimulation();
+				}
+			});
+			threads[t].setUncaughtExceptionHandler((thread, e) -> failure.compareAndSet(null, e));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertNull(failure.get());
+		for (int t = 0; t < threads.length; t++) {
+			Assert.assertEquals(messagesPerRound, usedMessages[t].size());
+			Assert.assertEquals(messagesPerRound, schedulers[t].messagePool.size());
+		}
+		for (Message m : usedMessages[0]) {
+			Assert.assertFalse(usedMessages[1].contains(m));
+		}
+	}
 
 }
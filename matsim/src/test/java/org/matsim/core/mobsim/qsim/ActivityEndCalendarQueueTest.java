@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndCalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class ActivityEndCalendarQueueTest {
+
+	@Test
+	public void testOrderByTimeAndId() {
+		ActivityEndCalendarQueue queue = new ActivityEndCalendarQueue();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+		MobsimAgent a3 = createAgent("3");
+		MobsimAgent a4 = createAgent("4");
+
+		queue.add(a1, 100.0);
+		queue.add(a2, 100.0);
+		queue.add(a3, 99.5);
+		queue.add(a4, 100.5);
+		Assert.assertEquals(4, queue.size());
+
+		Assert.assertNull(queue.poll(99.0));
+		Assert.assertSame(a3, queue.poll(100.0));
+		// equal times: larger id first
+		Assert.assertSame(a2, queue.poll(100.0));
+		Assert.assertSame(a1, queue.poll(100.0));
+		Assert.assertNull(queue.poll(100.0));
+		Assert.assertSame(a4, queue.poll(101.0));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testRemoveAndReschedule() {
+		ActivityEndCalendarQueue queue = new ActivityEndCalendarQueue();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+		MobsimAgent a3 = createAgent("3");
+
+		queue.add(a1, 10.0);
+		queue.add(a2, 20.0);
+		queue.add(a3, 30.0);
+
+		Assert.assertTrue(queue.remove(a2));
+		Assert.assertFalse(queue.remove(a2));
+		Assert.assertFalse(queue.contains(a2));
+
+		// reschedule a3 before a1, and a1 into the far future beyond the ring of buckets
+		queue.add(a3, 5.0);
+		queue.add(a1, 1_000_000.0);
+		Assert.assertEquals(2, queue.size());
+		Assert.assertEquals(5.0, queue.peekNextActivityEndTime(), 0.0);
+
+		Assert.assertSame(a3, queue.poll(40.0));
+		Assert.assertNull(queue.poll(50.0));
+		Assert.assertEquals(1_000_000.0, queue.peekNextActivityEndTime(), 0.0);
+		Assert.assertNull(queue.poll(999_999.0));
+		Assert.assertSame(a1, queue.poll(1_000_000.0));
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertEquals(Double.POSITIVE_INFINITY, queue.peekNextActivityEndTime(), 0.0);
+	}
+
+	@Test
+	public void testRemoveDueAgent() {
+		ActivityEndCalendarQueue queue = new ActivityEndCalendarQueue();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+
+		queue.add(a1, 10.0);
+		queue.add(a2, 10.0);
+		Assert.assertSame(a2, queue.poll(10.0));
+		// a1 is already in the heap of due agents
+		Assert.assertTrue(queue.remove(a1));
+		Assert.assertNull(queue.poll(10.0));
+
+		// adding an agent with an end time in the past makes it due immediately
+		queue.add(a1, 3.0);
+		Assert.assertSame(a1, queue.poll(10.0));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(4711);
+		ActivityEndCalendarQueue queue = new ActivityEndCalendarQueue(1.0, 1024);
+		PriorityQueue<ActivityEndCalendarQueue.Entry> expected = new PriorityQueue<>(ActivityEndCalendarQueue.COMPARATOR);
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			MobsimAgent agent = createAgent(Integer.toString(i));
+			agents.add(agent);
+			// use a range larger than the ring, and some equal times
+			double time = random.nextInt(5000) + (random.nextBoolean() ? 0.0 : random.nextDouble());
+			queue.add(agent, time);
+		}
+		for (int i = 0; i < 500; i++) {
+			MobsimAgent agent = agents.get(random.nextInt(agents.size()));
+			queue.add(agent, random.nextInt(5000));
+		}
+		expected.addAll(queue.getSortedEntries());
+
+		List<MobsimAgent> polled = new ArrayList<>();
+		for (double time = 0; time <= 5000; time += 1.0) {
+			MobsimAgent agent;
+			while ((agent = queue.poll(time)) != null) {
+				polled.add(agent);
+			}
+		}
+		Assert.assertEquals(expected.size(), polled.size());
+		for (MobsimAgent agent : polled) {
+			Assert.assertSame(expected.poll().getAgent(), agent);
+		}
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertTrue(queue.getSortedEntries().isEmpty());
+	}
+
+	private static MobsimAgent createAgent(String id) {
+		MobsimAgent agent = mock(MobsimAgent.class);
+		when(agent.getId()).thenReturn(Id.createPersonId(id));
+		return agent;
+	}
+}
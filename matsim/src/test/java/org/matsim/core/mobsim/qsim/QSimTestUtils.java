@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimTestUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.listeners.MobsimListener;
+import org.matsim.testcases.utils.EventsCollector;
+
+/**
+ * Helpers for tests which compare the events of QSim runs with different settings.
+ */
+public final class QSimTestUtils {
+
+	private QSimTestUtils() {
+	}
+
+	/**
+	 * Prepares the scenario for the simulation and runs a QSim with the default modules and the given listeners.
+	 *
+	 * @return all events as strings, in the order in which they were thrown
+	 */
+	public static List<String> runQSim(Scenario scenario, MobsimListener... listeners) {
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, events);
+		for (MobsimListener listener : listeners) {
+			qsim.addQueueSimulationListeners(listener);
+		}
+		qsim.run();
+
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a person to the population, with a plan of the given activities and a leg of the given mode between each
+	 * two of them.
+	 */
+	public static Person addPerson(Scenario scenario, int id, String mode, Activity... activities) {
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Person person = pf.createPerson(Id.createPersonId(id));
+		Plan plan = pf.createPlan();
+		for (int i = 0; i < activities.length; i++) {
+			if (i > 0) {
+				plan.addLeg(pf.createLeg(mode));
+			}
+			plan.addActivity(activities[i]);
+		}
+		person.addPlan(plan);
+		scenario.getPopulation().addPerson(person);
+		return person;
+	}
+}
@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ShardedAgentEnginesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ShardedAgentEnginesTest {
+
+	@Test
+	public void testSameEventsAsSequentialEngines() {
+		List<String> sequential = runQSim(1, false);
+		List<String> sharded = runQSim(4, true);
+
+		Assert.assertEquals(sequential.size(), sharded.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			Assert.assertEquals("event " + i, sequential.get(i), sharded.get(i));
+		}
+	}
+
+	@Test
+	public void testThreadsAreShutDownAfterSim() throws InterruptedException {
+		runQSim(4, true);
+
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("ActivityEngine_PooledThread_") || thread.getName().startsWith("TeleportationEngine_PooledThread_")) {
+				thread.join(10_000);
+				Assert.assertFalse(thread.getName() + " is still alive", thread.isAlive());
+			}
+		}
+	}
+
+	/**
+	 * Agents other than the ones of the default agent factories might modify shared state in their state transitions,
+	 * so they must not be processed in parallel.
+	 */
+	@Test
+	public void testUnknownAgentsAreProcessedSequentially() {
+		MobsimAgent agent = (MobsimAgent) Proxy.newProxyInstance(MobsimAgent.class.getClassLoader(), new Class<?>[] { MobsimAgent.class }, (proxy, method, args) -> null);
+		Assert.assertFalse(ShardedAgentProcessor.isShardable(agent));
+
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			agents.add(agent);
+		}
+		ShardedAgentProcessor processor = new ShardedAgentProcessor(new CapturingEventsManager(EventsUtils.createEventsManager()), 4, "Test_PooledThread_");
+		Thread caller = Thread.currentThread();
+		List<Thread> threads = new ArrayList<>();
+		processor.process(agents, a -> threads.add(Thread.currentThread()), a -> Assert.assertSame(caller, Thread.currentThread()));
+		processor.shutdown();
+
+		Assert.assertEquals(agents.size(), threads.size());
+		for (Thread thread : threads) {
+			Assert.assertSame(caller, thread);
+		}
+	}
+
+	private static List<String> runQSim(int numberOfThreads, boolean sharded) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setUsingShardedActivityAndTeleportationEngines(sharded);
+		config.qsim().setEndTime(24 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario, 1000);
+		return QSimTestUtils.runQSim(scenario);
+	}
+
+	/**
+	 * Creates walking agents whose activities end in a few distinct time steps, so many agents are processed at once.
+	 */
+	private static void createScenario(Scenario scenario, int agentCount) {
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(500, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(1000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 500, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 500, 10, 3600, 1);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < agentCount; i++) {
+			Activity home = pf.createActivityFromLinkId("home", Id.create("1", Link.class));
+			home.setCoord(new Coord(0, 0));
+			home.setEndTime(6 * 3600 + (i % 5) * 60);
+			Activity work = pf.createActivityFromLinkId("work", Id.create("2", Link.class));
+			work.setCoord(new Coord(1000 + (i % 3) * 100, 0));
+			work.setEndTime(16 * 3600 + (i % 7) * 60);
+			Activity home2 = pf.createActivityFromLinkId("home", Id.create("1", Link.class));
+			home2.setCoord(new Coord(0, 0));
+			QSimTestUtils.addPerson(scenario, i, TransportMode.walk, home, work, home2);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SkippingIdleSimStepsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextWakeUpTime;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.VariableIntervalTimeVariantLinkFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.SnapshotWriter;
+
+public class SkippingIdleSimStepsTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsAsWithoutSkipping() {
+		StepCounter withoutSkipping = new StepCounter();
+		List<String> expected = runQSim(false, withoutSkipping);
+		StepCounter withSkipping = new StepCounter();
+		List<String> actual = runQSim(true, withSkipping);
+
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("event " + i, expected.get(i), actual.get(i));
+		}
+		// the simulation ends at the same time, but most of the steps in between are skipped
+		Assert.assertEquals(withoutSkipping.lastTime, withSkipping.lastTime, 0.0);
+		Assert.assertTrue(withSkipping.count * 5 < withoutSkipping.count);
+	}
+
+	@Test
+	public void testNoSkippingWithOtherListener() {
+		StepCounter skippable = new StepCounter();
+		runQSim(false, skippable);
+		NonSkippableStepCounter nonSkippable = new NonSkippableStepCounter();
+		runQSim(true, nonSkippable);
+		Assert.assertEquals(skippable.count, nonSkippable.count);
+	}
+
+	/**
+	 * In a full run, the snapshot writer manager is registered as sim step listener, also without any snapshot
+	 * writers. Idle sim steps are still skipped, and snapshots are still taken at every snapshot period.
+	 */
+	@Test
+	public void testSkippingInControler() {
+		StepCounter counter = new StepCounter();
+		List<Double> snapshotTimes = new ArrayList<>();
+		runControler(counter, null, utils.getOutputDirectory() + "withoutWriters/");
+		Assert.assertTrue("too many sim steps: " + counter.count, counter.count < 3 * 3600);
+
+		counter = new StepCounter();
+		runControler(counter, new SnapshotTimesWriter(snapshotTimes), utils.getOutputDirectory() + "withWriter/");
+		Assert.assertTrue("too many sim steps: " + counter.count, counter.count < 3 * 3600);
+		Assert.assertFalse(snapshotTimes.isEmpty());
+		for (int i = 0; i < snapshotTimes.size(); i++) {
+			Assert.assertEquals("snapshot " + i, snapshotTimes.get(0) + i * 3600, snapshotTimes.get(i), 0.0);
+		}
+	}
+
+	private static void runControler(StepCounter counter, SnapshotWriter snapshotWriter, String outputDirectory) {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setOutputDirectory(outputDirectory);
+		config.controler().setLastIteration(0);
+		config.controler().setWriteSnapshotsInterval(1);
+		config.controler().setCreateGraphs(false);
+		config.controler().setDumpDataAtEnd(false);
+		config.qsim().setSkippingIdleSimSteps(true);
+		config.qsim().setEndTime(30 * 3600);
+		config.qsim().setSnapshotPeriod(3600);
+		config.network().setTimeVariantNetwork(true);
+		for (String type : new String[] { "home", "work" }) {
+			ActivityParams params = new ActivityParams(type);
+			params.setTypicalDuration(8 * 3600);
+			config.planCalcScore().addActivityParams(params);
+		}
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario);
+
+		Controler controler = new Controler(scenario);
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addMobsimListenerBinding().toInstance(counter);
+				if (snapshotWriter != null) {
+					addSnapshotWriterBinding().toInstance(snapshotWriter);
+				}
+			}
+		});
+		controler.run();
+	}
+
+	private static List<String> runQSim(boolean skipping, MobsimBeforeSimStepListener listener) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setSkippingIdleSimSteps(skipping);
+		config.qsim().setEndTime(30 * 3600);
+		config.network().setTimeVariantNetwork(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario);
+		return QSimTestUtils.runQSim(scenario, listener);
+	}
+
+	/**
+	 * Creates a few agents driving and walking at different times of the day, with a network change event in
+	 * between.
+	 */
+	private static void createScenario(Scenario scenario) {
+		Network network = scenario.getNetwork();
+		((NetworkFactory) network.getFactory()).setLinkFactory(new VariableIntervalTimeVariantLinkFactory());
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(3000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000, 10, 3600, 1);
+		Link link3 = NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node3, node4, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("4", Link.class), node4, node1, 3000, 10, 3600, 1);
+
+		NetworkChangeEvent change = new NetworkChangeEvent(12 * 3600 + 0.5);
+		change.addLink(link2);
+		change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 2));
+		NetworkUtils.addNetworkChangeEvent(network, change);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 20; i++) {
+			String mode = i % 2 == 0 ? TransportMode.car : TransportMode.walk;
+			Activity home = pf.createActivityFromLinkId("home", link1.getId());
+			home.setCoord(new Coord(500, 0));
+			home.setEndTime(6 * 3600 + i * 2345.6);
+			Activity work = pf.createActivityFromLinkId("work", link3.getId());
+			work.setCoord(new Coord(2500, 0));
+			work.setMaximumDuration(8 * 3600);
+			Activity home2 = pf.createActivityFromLinkId("home", link1.getId());
+			home2.setCoord(new Coord(500, 0));
+			QSimTestUtils.addPerson(scenario, i, mode, home, work, home2);
+		}
+	}
+
+	private static class SnapshotTimesWriter implements SnapshotWriter {
+		private final List<Double> times;
+
+		SnapshotTimesWriter(List<Double> times) {
+			this.times = times;
+		}
+
+		@Override
+		public void beginSnapshot(double time) {
+			this.times.add(time);
+		}
+
+		@Override
+		public void endSnapshot() {
+		}
+
+		@Override
+		public void addAgent(AgentSnapshotInfo position) {
+		}
+
+		@Override
+		public void finish() {
+		}
+	}
+
+	private static class NonSkippableStepCounter implements MobsimBeforeSimStepListener {
+		int count = 0;
+		double lastTime = Double.NaN;
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+			this.count++;
+			this.lastTime = e.getSimulationTime();
+		}
+	}
+
+	private static class StepCounter extends NonSkippableStepCounter implements HasNextWakeUpTime {
+		@Override
+		public double getNextWakeUpTime(double now) {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+}
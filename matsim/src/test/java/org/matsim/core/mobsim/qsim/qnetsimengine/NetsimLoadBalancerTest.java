@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimLoadBalancerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimTestUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class NetsimLoadBalancerTest {
+
+	@Test
+	public void testHilbertIndex() {
+		int n = 8;
+		Set<Long> indices = new HashSet<>();
+		long[][] index = new long[n][n];
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				index[x][y] = NetsimLoadBalancer.hilbertIndex(x, y, n);
+				Assert.assertTrue(index[x][y] >= 0 && index[x][y] < n * n);
+				indices.add(index[x][y]);
+			}
+		}
+		Assert.assertEquals(n * n, indices.size());
+
+		// consecutive cells along the curve are neighbors
+		int[][] cells = new int[n * n][];
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				cells[(int) index[x][y]] = new int[] { x, y };
+			}
+		}
+		for (int i = 1; i < n * n; i++) {
+			int distance = Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]);
+			Assert.assertEquals(1, distance);
+		}
+	}
+
+	/**
+	 * The assignment of nodes and links to the runners must not influence the simulation, only the order of events
+	 * within a time step may differ. The first runner is reported to be three times as busy as the others, so the
+	 * nodes are re-assigned in every interval, independent of the actual run times.
+	 */
+	@Test
+	public void testSameEventsWithLoadBalancing() {
+		List<String> staticAssignment = runQSim(0.0);
+		ImbalanceInjector injector = new ImbalanceInjector();
+		List<String> balanced = runQSim(60.0, injector);
+		Assert.assertTrue(injector.loadBalancer.getRebalancingCount() > 0);
+		Assert.assertEquals(staticAssignment, balanced);
+	}
+
+	private static List<String> runQSim(double loadBalancingInterval, MobsimListener... listeners) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(3);
+		config.qsim().setNetsimLoadBalancingInterval(loadBalancingInterval);
+		config.qsim().setEndTime(12 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario, 10, 500);
+		List<String> result = QSimTestUtils.runQSim(scenario, listeners);
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * Creates a grid network, with all agents driving through one corner of the grid, so the load is unevenly
+	 * distributed.
+	 */
+	private static void createScenario(Scenario scenario, int gridSize, int agentCount) {
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[gridSize][gridSize];
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 200, y * 200));
+			}
+		}
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				if (x + 1 < gridSize) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < gridSize) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < agentCount; i++) {
+			Id<Link> fromLink = Id.create("0_" + (i % 3) + "-1_" + (i % 3), Link.class);
+			Id<Link> toLink = Id.create("3_" + (i % 4) + "-4_" + (i % 4), Link.class);
+			Activity home = pf.createActivityFromLinkId("home", fromLink);
+			home.setCoord(new Coord(100, (i % 3) * 200));
+			home.setEndTime(6 * 3600 + (i % 20) * 10);
+			Activity work = pf.createActivityFromLinkId("work", toLink);
+			work.setCoord(new Coord(700, (i % 4) * 200));
+			QSimTestUtils.addPerson(scenario, i, TransportMode.car, home, work);
+		}
+	}
+
+	private static void addLinks(Network network, Node a, Node b) {
+		NetworkUtils.createAndAddLink(network, Id.create(a.getId() + "-" + b.getId(), Link.class), a, b, 200, 10, 600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(b.getId() + "-" + a.getId(), Link.class), b, a, 200, 10, 600, 1);
+	}
+
+	/**
+	 * Reports the first runner to be three times as busy as the others in every interval.
+	 */
+	private static class ImbalanceInjector implements MobsimInitializedListener {
+		NetsimLoadBalancer loadBalancer;
+
+		@Override
+		public void notifyMobsimInitialized(MobsimInitializedEvent e) {
+			QSim qsim = (QSim) e.getQueueSimulation();
+			AbstractQNetsimEngine<?> engine = (AbstractQNetsimEngine<?>) qsim.getChildInjector().getInstance(QNetsimEngineI.class);
+			this.loadBalancer = engine.getLoadBalancer();
+			this.loadBalancer.setBusyNanosOverride(runnerIndex -> runnerIndex == 0 ? 3_000_000 : 1_000_000);
+		}
+	}
+}
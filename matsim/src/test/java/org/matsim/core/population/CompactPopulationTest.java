@@ -0,0 +1,283 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPopulationTest {
+
+	private static Population createPopulation() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setCompactPlans(true);
+		Population population = PopulationUtils.createPopulation(config);
+		Assert.assertTrue(population instanceof CompactPopulation);
+		return population;
+	}
+
+	private static Plan createPlan(PopulationFactory pf) {
+		Plan plan = pf.createPlan();
+		plan.setScore(12.5);
+		plan.setType("test");
+		plan.getAttributes().putAttribute("planAttribute", "value");
+
+		Activity home = pf.createActivityFromCoord("home", new Coord(100, 200, 5));
+		home.setLinkId(Id.create("1", Link.class));
+		home.setFacilityId(Id.create("f1", ActivityFacility.class));
+		home.setEndTime(7 * 3600);
+		home.getAttributes().putAttribute("actAttribute", 42);
+		plan.addActivity(home);
+
+		Leg car = pf.createLeg("car");
+		car.setDepartureTime(7 * 3600);
+		car.setTravelTime(600);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class),
+				Arrays.asList(Id.create("2", Link.class), Id.create("3", Link.class)), Id.create("4", Link.class));
+		route.setTravelTime(590);
+		route.setDistance(1234.5);
+		route.setTravelCost(3.5);
+		route.setVehicleId(Id.create("v1", Vehicle.class));
+		car.setRoute(route);
+		plan.addLeg(car);
+
+		Activity work = pf.createActivityFromLinkId("work", Id.create("4", Link.class));
+		work.setStartTime(7 * 3600 + 600);
+		work.setMaximumDuration(8 * 3600);
+		plan.addActivity(work);
+
+		Leg walk = pf.createLeg("walk");
+		Route genericRoute = RouteUtils.createGenericRouteImpl(Id.create("4", Link.class), Id.create("1", Link.class));
+		genericRoute.setDistance(800);
+		walk.setRoute(genericRoute);
+		walk.getAttributes().putAttribute("legAttribute", true);
+		plan.addLeg(walk);
+
+		Activity home2 = pf.createActivityFromCoord("home", new Coord(100, 200));
+		plan.addActivity(home2);
+		return plan;
+	}
+
+	private static void assertPlan(Plan plan) {
+		Assert.assertEquals(12.5, plan.getScore(), 0.0);
+		Assert.assertEquals("test", plan.getType());
+		Assert.assertEquals("value", plan.getAttributes().getAttribute("planAttribute"));
+		Assert.assertEquals(5, plan.getPlanElements().size());
+
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals("home", home.getType());
+		Assert.assertEquals(new Coord(100, 200, 5), home.getCoord());
+		Assert.assertEquals(Id.create("1", Link.class), home.getLinkId());
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), home.getFacilityId());
+		Assert.assertEquals(7 * 3600, home.getEndTime().seconds(), 0.0);
+		Assert.assertTrue(home.getStartTime().isUndefined());
+		Assert.assertTrue(home.getMaximumDuration().isUndefined());
+		Assert.assertEquals(42, home.getAttributes().getAttribute("actAttribute"));
+
+		Leg car = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals("car", car.getMode());
+		Assert.assertEquals(7 * 3600, car.getDepartureTime().seconds(), 0.0);
+		Assert.assertEquals(600, car.getTravelTime().seconds(), 0.0);
+		NetworkRoute route = (NetworkRoute) car.getRoute();
+		Assert.assertEquals(Id.create("1", Link.class), route.getStartLinkId());
+		Assert.assertEquals(Id.create("4", Link.class), route.getEndLinkId());
+		Assert.assertEquals(Arrays.asList(Id.create("2", Link.class), Id.create("3", Link.class)), route.getLinkIds());
+		Assert.assertEquals(590, route.getTravelTime().seconds(), 0.0);
+		Assert.assertEquals(1234.5, route.getDistance(), 0.0);
+		Assert.assertEquals(3.5, route.getTravelCost(), 0.0);
+		Assert.assertEquals(Id.create("v1", Vehicle.class), route.getVehicleId());
+
+		Activity work = (Activity) plan.getPlanElements().get(2);
+		Assert.assertEquals("work", work.getType());
+		Assert.assertNull(work.getCoord());
+		Assert.assertNull(work.getFacilityId());
+		Assert.assertEquals(7 * 3600 + 600, work.getStartTime().seconds(), 0.0);
+		Assert.assertEquals(8 * 3600, work.getMaximumDuration().seconds(), 0.0);
+		Assert.assertTrue(work.getEndTime().isUndefined());
+
+		Leg walk = (Leg) plan.getPlanElements().get(3);
+		Assert.assertEquals("walk", walk.getMode());
+		Assert.assertTrue(walk.getDepartureTime().isUndefined());
+		Assert.assertTrue(walk.getTravelTime().isUndefined());
+		Assert.assertFalse(walk.getRoute() instanceof NetworkRoute);
+		Assert.assertEquals(800, walk.getRoute().getDistance(), 0.0);
+		Assert.assertEquals(true, walk.getAttributes().getAttribute("legAttribute"));
+
+		Activity home2 = (Activity) plan.getPlanElements().get(4);
+		Assert.assertEquals(new Coord(100, 200), home2.getCoord());
+		Assert.assertFalse(home2.getCoord().hasZ());
+		Assert.assertNull(home2.getLinkId());
+	}
+
+	@Test
+	public void testCompactOnAddPerson() {
+		Population population = createPopulation();
+		PopulationFactory pf = population.getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		Plan plan = createPlan(pf);
+		person.addPlan(plan);
+		person.setSelectedPlan(plan);
+		population.addPerson(person);
+
+		Plan compact = person.getSelectedPlan();
+		Assert.assertTrue(compact instanceof CompactPlan);
+		Assert.assertTrue(((CompactPlan) compact).isCompact());
+		Assert.assertSame(person, compact.getPerson());
+		Assert.assertEquals(1, person.getPlans().size());
+
+		assertPlan(compact);
+		Assert.assertFalse(((CompactPlan) compact).isCompact());
+
+		PopulationUtils.compactPlans(population);
+		Assert.assertSame(compact, person.getSelectedPlan());
+		Assert.assertTrue(((CompactPlan) compact).isCompact());
+		assertPlan(compact);
+	}
+
+	@Test
+	public void testCompactPlansAddedLater() {
+		Population population = createPopulation();
+		PopulationFactory pf = population.getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		population.addPerson(person);
+
+		Plan plan1 = createPlan(pf);
+		Plan plan2 = createPlan(pf);
+		person.addPlan(plan1);
+		person.addPlan(plan2);
+		person.setSelectedPlan(plan2);
+
+		PopulationUtils.compactPlans(population);
+		Assert.assertEquals(2, person.getPlans().size());
+		for (Plan plan : person.getPlans()) {
+			Assert.assertTrue(plan instanceof CompactPlan);
+			Assert.assertTrue(((CompactPlan) plan).isCompact());
+		}
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		assertPlan(person.getPlans().get(0));
+		assertPlan(person.getPlans().get(1));
+	}
+
+	@Test
+	public void testModifyCompactPlan() {
+		Population population = createPopulation();
+		PopulationFactory pf = population.getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		person.addPlan(createPlan(pf));
+		population.addPerson(person);
+
+		Plan plan = person.getPlans().get(0);
+		((Activity) plan.getPlanElements().get(2)).setEndTime(17 * 3600);
+		plan.addLeg(pf.createLeg("bike"));
+		plan.addActivity(pf.createActivityFromLinkId("shop", Id.create("5", Link.class)));
+
+		PopulationUtils.compactPlans(population);
+		Assert.assertTrue(((CompactPlan) plan).isCompact());
+		Assert.assertEquals(7, plan.getPlanElements().size());
+		Assert.assertEquals(17 * 3600, ((Activity) plan.getPlanElements().get(2)).getEndTime().seconds(), 0.0);
+		Assert.assertEquals("bike", ((Leg) plan.getPlanElements().get(5)).getMode());
+		Assert.assertEquals("shop", ((Activity) plan.getPlanElements().get(6)).getType());
+	}
+
+	@Test
+	public void testPlanElementsStayTheSameUntilCompacted() {
+		Population population = createPopulation();
+		PopulationFactory pf = population.getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		person.addPlan(createPlan(pf));
+		population.addPerson(person);
+
+		Plan plan = person.getPlans().get(0);
+		List<PlanElement> elements = plan.getPlanElements();
+		Activity work = (Activity) elements.get(2);
+		Assert.assertSame(elements, plan.getPlanElements());
+		Assert.assertSame(work, plan.getPlanElements().get(2));
+
+		plan.addLeg(pf.createLeg("bike"));
+		Assert.assertSame(elements, plan.getPlanElements());
+		Assert.assertSame(work, plan.getPlanElements().get(2));
+		Assert.assertEquals(6, elements.size());
+
+		PopulationUtils.compactPlans(population);
+		Assert.assertNotSame(elements, plan.getPlanElements());
+		Assert.assertNotSame(work, plan.getPlanElements().get(2));
+		Assert.assertEquals(6, plan.getPlanElements().size());
+		Assert.assertEquals("work", ((Activity) plan.getPlanElements().get(2)).getType());
+	}
+
+	@Test
+	public void testCopyCompactPlan() {
+		Population population = createPopulation();
+		PopulationFactory pf = population.getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		Plan plan = createPlan(pf);
+		person.addPlan(plan);
+		person.setSelectedPlan(plan);
+		population.addPerson(person);
+
+		CompactPlan compact = (CompactPlan) person.getSelectedPlan();
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(compact.isCompact());
+		Assert.assertSame(copy, person.getSelectedPlan());
+		Assert.assertEquals(12.5, copy.getScore(), 0.0);
+		Assert.assertEquals("test", copy.getType());
+		Assert.assertEquals("value", copy.getAttributes().getAttribute("planAttribute"));
+
+		// same result as copying the plan elements one by one
+		Plan expected = pf.createPlan();
+		PopulationUtils.copyFromTo(createPlan(pf), expected);
+		Assert.assertEquals(expected.getPlanElements().size(), copy.getPlanElements().size());
+		for (int i = 0; i < expected.getPlanElements().size(); i++) {
+			Assert.assertEquals(expected.getPlanElements().get(i).toString(), copy.getPlanElements().get(i).toString());
+			Assert.assertEquals(expected.getPlanElements().get(i).getAttributes().getAsMap(),
+					copy.getPlanElements().get(i).getAttributes().getAsMap());
+		}
+		Assert.assertFalse(((Activity) copy.getPlanElements().get(0)).getCoord().hasZ());
+
+		// the copy does not share any objects with the original plan
+		Leg walkCopy = (Leg) copy.getPlanElements().get(3);
+		walkCopy.getRoute().setDistance(900);
+		((NetworkRoute) ((Leg) copy.getPlanElements().get(1)).getRoute()).setLinkIds(Id.create("1", Link.class),
+				Arrays.asList(Id.create("5", Link.class)), Id.create("4", Link.class));
+		Assert.assertTrue(compact.isCompact());
+		assertPlan(compact);
+		Assert.assertNotSame(walkCopy.getRoute(), ((Leg) compact.getPlanElements().get(3)).getRoute());
+	}
+}
@@ -34,14 +34,17 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.misc.CRCChecksum;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 
 /**
  * @author thibautd
@@ -321,4 +324,51 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelReading() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory pf = population.getFactory();
+		for ( int i = 0 ; i < 1234 ; i++ ) {
+			// ids are not sorted, so the order of the file is the only order to keep
+			final Person person = pf.createPerson( Id.createPersonId( (i * 7919) % 1234 ) );
+			person.getAttributes().putAttribute( "age" , i % 90 );
+			for ( int p = 0 ; p < 2 ; p++ ) {
+				final Plan plan = pf.createPlan();
+				plan.setScore( (double) p );
+				final Activity home = pf.createActivityFromCoord( "home" , new Coord( i , p ) );
+				home.setEndTime( 8 * 3600 + i );
+				plan.addActivity( home );
+				final Leg leg = pf.createLeg( "walk" );
+				leg.setRoute( new GenericRouteImpl( Id.create( i , Link.class ) , Id.create( p , Link.class ) ) );
+				leg.getAttributes().putAttribute( "plan" , p );
+				plan.addLeg( leg );
+				plan.addActivity( pf.createActivityFromLinkId( "work" , Id.create( p , Link.class ) ) );
+				person.addPlan( plan );
+			}
+			population.addPerson( person );
+		}
+		final String file = utils.getOutputDirectory()+"/population.xml.gz";
+		new PopulationWriter( population ).writeV6( file );
+
+		final Config sequentialConfig = ConfigUtils.createConfig();
+		sequentialConfig.global().setNumberOfThreads( 1 );
+		final Scenario sequential = ScenarioUtils.createScenario( sequentialConfig );
+		new PopulationReader( sequential ).readFile( file );
+
+		final Config parallelConfig = ConfigUtils.createConfig();
+		parallelConfig.global().setNumberOfThreads( 4 );
+		parallelConfig.plans().setParallelReading( true );
+		final Scenario parallel = ScenarioUtils.createScenario( parallelConfig );
+		new PopulationReader( parallel ).readFile( file );
+
+		Assert.assertEquals( new ArrayList<>( population.getPersons().keySet() ) ,
+				new ArrayList<>( parallel.getPopulation().getPersons().keySet() ) );
+
+		final String sequentialFile = utils.getOutputDirectory()+"/sequential.xml";
+		final String parallelFile = utils.getOutputDirectory()+"/parallel.xml";
+		new PopulationWriter( sequential.getPopulation() ).writeV6( sequentialFile );
+		new PopulationWriter( parallel.getPopulation() ).writeV6( parallelFile );
+		Assert.assertEquals( CRCChecksum.getCRCFromFile( sequentialFile ) , CRCChecksum.getCRCFromFile( parallelFile ) );
+	}
 }
@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DeltaEncodedNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+
+public class DeltaEncodedNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return new DeltaEncodedNetworkRouteImpl(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+		NetworkRoute route1 = new DeltaEncodedNetworkRouteImpl(id1, id2);
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		NetworkRoute route2 = route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+		Assert.assertEquals(srcRoute.subList(0, 2), route2.getLinkIds());
+	}
+
+	@Test
+	public void testLargeIndexDifferences() {
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		Random random = new Random(20210304);
+		for (int i = 0; i < 1000; i++) {
+			// mix of close links, links far away and repeated links
+			String id = (i % 3 == 0) ? "far" + random.nextInt(100000) : "near" + (i % 50);
+			srcRoute.add(Id.create(id, Link.class));
+		}
+		Id<Link> startLinkId = Id.create("start", Link.class);
+		Id<Link> endLinkId = Id.create("end", Link.class);
+		NetworkRoute route = new DeltaEncodedNetworkRouteImpl(startLinkId, endLinkId);
+		route.setLinkIds(startLinkId, srcRoute, endLinkId);
+
+		Assert.assertEquals(srcRoute.size(), route.getNumberOfLinks());
+		Assert.assertEquals(srcRoute, route.getLinkIds());
+
+		List<Id<Link>> iterated = new ArrayList<>();
+		for (Iterator<Id<Link>> iterator = route.getLinkIdIterator(); iterator.hasNext(); ) {
+			iterated.add(iterator.next());
+		}
+		Assert.assertEquals(srcRoute, iterated);
+
+		// random access, including going backwards
+		List<Id<Link>> linkIds = route.getLinkIds();
+		for (int i = 0; i < 200; i++) {
+			int index = random.nextInt(srcRoute.size());
+			Assert.assertSame(srcRoute.get(index), linkIds.get(index));
+		}
+	}
+
+	@Test
+	public void testGetLinkIds_sameAsLinkNetworkRoute() {
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			srcRoute.add(Id.create("link" + (i * 7 % 31), Link.class));
+		}
+		Id<Link> startLinkId = Id.create("start", Link.class);
+		Id<Link> endLinkId = Id.create("end", Link.class);
+		NetworkRoute route = new DeltaEncodedNetworkRouteImpl(startLinkId, endLinkId);
+		route.setLinkIds(startLinkId, srcRoute, endLinkId);
+		NetworkRoute reference = RouteUtils.createLinkNetworkRouteImpl(startLinkId, srcRoute, endLinkId);
+
+		List<Id<Link>> linkIds = route.getLinkIds();
+		List<Id<Link>> referenceIds = reference.getLinkIds();
+		// the access pattern of the mobsim: the current and the next link
+		for (int i = 0; i < srcRoute.size(); i++) {
+			Assert.assertSame(referenceIds.get(i), linkIds.get(i));
+			if (i + 1 < srcRoute.size()) {
+				Assert.assertSame(referenceIds.get(i + 1), linkIds.get(i + 1));
+			}
+		}
+		// the same index again, going backwards and skipping ahead
+		int[] indices = { 99, 99, 0, 0, 50, 49, 51, 98, 1, 2 };
+		for (int index : indices) {
+			Assert.assertSame(referenceIds.get(index), linkIds.get(index));
+		}
+
+		// a clone has its own position
+		NetworkRoute clone = route.clone();
+		List<Id<Link>> cloneIds = clone.getLinkIds();
+		Assert.assertNotSame(linkIds, cloneIds);
+		for (int i = 0; i < srcRoute.size(); i++) {
+			Assert.assertSame(referenceIds.get(i), cloneIds.get(i));
+			Assert.assertSame(referenceIds.get(srcRoute.size() - 1 - i), linkIds.get(srcRoute.size() - 1 - i));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetLinkIds_outOfBounds() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		NetworkRoute route = new DeltaEncodedNetworkRouteImpl(id1, id2);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		route.setLinkIds(id1, srcRoute, id2);
+		route.getLinkIds().get(1);
+	}
+
+	@Test
+	public void testPopulationRouteType() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNetworkRouteType(PlansConfigGroup.NetworkRouteType.DeltaEncodedNetworkRoute);
+		Population population = PopulationUtils.createPopulation(config);
+		RouteFactories factories = population.getFactory().getRouteFactories();
+		NetworkRoute route = factories.createRoute(NetworkRoute.class, Id.create(1, Link.class), Id.create(2, Link.class));
+		Assert.assertTrue(route instanceof DeltaEncodedNetworkRouteImpl);
+		Assert.assertEquals(NetworkRoute.class, factories.getRouteClassForType(route.getRouteType()));
+	}
+}
@@ -20,12 +20,19 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +67,83 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_workStealing() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, true);
+			testee.prepareReplanning(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testWorkStealing_allPlansHandledOnce() {
+		Map<Plan, Integer> handled = new ConcurrentHashMap<>();
+		CountingModule testee = new CountingModule(4, handled);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		for (int iteration = 0; iteration < 2; iteration++) {
+			testee.prepareReplanning(null);
+			for (Plan plan : plans) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+		}
+		Assert.assertEquals(plans.size(), handled.size());
+		for (Plan plan : plans) {
+			Assert.assertEquals(2, handled.get(plan).intValue());
+		}
+	}
+
+	@Test
+	public void testWorkStealing_poolIsReusedPerModule() {
+		Set<Thread> threadsA = ConcurrentHashMap.newKeySet();
+		Set<Thread> threadsB = ConcurrentHashMap.newKeySet();
+		ThreadRecordingModule moduleA = new ThreadRecordingModule(2, threadsA);
+		ThreadRecordingModule moduleB = new ThreadRecordingModule(2, threadsB);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			for (ThreadRecordingModule module : new ThreadRecordingModule[] { moduleA, moduleB }) {
+				module.prepareReplanning(null);
+				for (int i = 0; i < 200; i++) {
+					module.handlePlan(PopulationUtils.createPlan());
+				}
+				module.finishReplanning();
+			}
+		}
+		// the calling thread may help with the work
+		threadsA.remove(Thread.currentThread());
+		threadsB.remove(Thread.currentThread());
+		Assert.assertFalse(threadsA.isEmpty());
+		for (Thread thread : threadsA) {
+			Assert.assertFalse("modules must not share their threads", threadsB.contains(thread));
+		}
+	}
+
+	@Test
+	public void testMetrics() {
+		for (int numberOfThreads : new int[] { 0, 2 }) {
+			for (boolean workStealing : new boolean[] { false, true }) {
+				SleepingModule testee = new SleepingModule(numberOfThreads, workStealing);
+				testee.prepareReplanning(null);
+				for (int i = 0; i < 20; i++) {
+					testee.handlePlan(PopulationUtils.createPlan());
+				}
+				testee.finishReplanning();
+				Assert.assertEquals(20, testee.getLastPlanCount());
+				Assert.assertTrue(testee.getLastBusyNanos() >= 20 * 1_000_000L);
+				Assert.assertTrue(testee.getLastWallNanos() >= testee.getLastBusyNanos() / Math.max(1, numberOfThreads));
+			}
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,12 +158,55 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final boolean workStealing) {
+			super(nOfThreads, workStealing);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final Map<Plan, Integer> handled;
+		public CountingModule(final int nOfThreads, final Map<Plan, Integer> handled) {
+			super(nOfThreads, true);
+			this.handled = handled;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return plan -> this.handled.merge(plan, 1, Integer::sum);
+		}
+	}
+
+	private static class ThreadRecordingModule extends AbstractMultithreadedModule {
+		private final Set<Thread> threads;
+		public ThreadRecordingModule(final int nOfThreads, final Set<Thread> threads) {
+			super(nOfThreads, true);
+			this.threads = threads;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return plan -> this.threads.add(Thread.currentThread());
+		}
+	}
+
+	private static class SleepingModule extends AbstractMultithreadedModule {
+		public SleepingModule(final int nOfThreads, final boolean workStealing) {
+			super(nOfThreads, workStealing);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return plan -> {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			};
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCacheTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.DefaultTransitPassengerRoute;
+import org.matsim.pt.routes.TransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class RouteCacheTest {
+
+	@Test
+	public void testCachedTripsAreReused() {
+		CountingRoutingModule module = new CountingRoutingModule();
+		RouteCache cache = new RouteCache(100, 900);
+		TripRouter router = createTripRouter(module, cache);
+
+		Facility home = createFacility("home", "1", 0, 0);
+		Facility work = createFacility("work", "2", 5000, 0);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("1", Person.class));
+
+		Leg leg1 = (Leg) router.calcRoute("car", home, work, 7 * 3600 + 100, person).get(0);
+		Leg leg2 = (Leg) router.calcRoute("car", home, work, 7 * 3600 + 400, person).get(0);
+		Assert.assertEquals(1, module.calls);
+		Assert.assertNotSame(leg1, leg2);
+		Assert.assertEquals(7 * 3600 + 400, leg2.getDepartureTime().seconds(), 1e-8);
+		Assert.assertEquals(leg1.getTravelTime().seconds(), leg2.getTravelTime().seconds(), 1e-8);
+		Assert.assertEquals("car", TripStructureUtils.getRoutingMode(leg2));
+
+		// different departure time bin, destination or mode
+		router.calcRoute("car", home, work, 7 * 3600 + 1000, person);
+		router.calcRoute("car", work, home, 7 * 3600 + 100, person);
+		router.calcRoute("bike", home, work, 7 * 3600 + 100, person);
+		Assert.assertEquals(4, module.calls);
+
+		Assert.assertEquals(5, cache.getLookups());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(4, cache.size());
+
+		cache.clear();
+		router.calcRoute("car", home, work, 7 * 3600 + 100, person);
+		Assert.assertEquals(5, module.calls);
+		Assert.assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		CountingRoutingModule module = new CountingRoutingModule();
+		RouteCache cache = new RouteCache(2, 900);
+		TripRouter router = createTripRouter(module, cache);
+
+		Facility a = createFacility("a", "1", 0, 0);
+		Facility b = createFacility("b", "2", 1000, 0);
+		Facility c = createFacility("c", "3", 2000, 0);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("1", Person.class));
+
+		router.calcRoute("car", a, b, 0, person);
+		router.calcRoute("car", b, c, 0, person);
+		router.calcRoute("car", c, a, 0, person);
+		router.calcRoute("car", c, a, 0, person);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(4, module.calls);
+
+		router.calcRoute("car", a, b, 0, person);
+		Assert.assertEquals(4, module.calls);
+	}
+
+	@Test
+	public void testDisabledCache() {
+		CountingRoutingModule module = new CountingRoutingModule();
+		RouteCache cache = new RouteCache(0, 900);
+		TripRouter router = createTripRouter(module, cache);
+
+		Facility home = createFacility("home", "1", 0, 0);
+		Facility work = createFacility("work", "2", 5000, 0);
+		router.calcRoute("car", home, work, 0, null);
+		router.calcRoute("car", home, work, 0, null);
+		Assert.assertEquals(2, module.calls);
+		Assert.assertEquals(0, cache.getLookups());
+	}
+
+	@Test
+	public void testTransitTripsAreOnlyReusedForSameDepartureTime() {
+		CountingRoutingModule module = new CountingTransitRoutingModule();
+		RouteCache cache = new RouteCache(100, 900);
+		TripRouter router = createTripRouter(module, cache);
+
+		Facility home = createFacility("home", "1", 0, 0);
+		Facility work = createFacility("work", "2", 5000, 0);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("1", Person.class));
+
+		Leg leg1 = (Leg) router.calcRoute("pt", home, work, 7 * 3600 + 100, person).get(0);
+		Leg leg2 = (Leg) router.calcRoute("pt", home, work, 7 * 3600 + 100, person).get(0);
+		Assert.assertEquals(1, module.calls);
+		Assert.assertNotSame(leg1.getRoute(), leg2.getRoute());
+		Assert.assertEquals(7 * 3600 + 400, ((TransitPassengerRoute) leg2.getRoute()).getBoardingTime().seconds(), 1e-8);
+
+		// same time bin, but the boarding time of the cached trip would be wrong
+		Leg leg3 = (Leg) router.calcRoute("pt", home, work, 7 * 3600 + 200, person).get(0);
+		Assert.assertEquals(2, module.calls);
+		Assert.assertEquals(7 * 3600 + 500, ((TransitPassengerRoute) leg3.getRoute()).getBoardingTime().seconds(), 1e-8);
+		Assert.assertEquals(1, cache.getHits());
+	}
+
+	private static TripRouter createTripRouter(RoutingModule module, RouteCache cache) {
+		Provider<RoutingModule> provider = () -> module;
+		Map<String, Provider<RoutingModule>> modules = new HashMap<>();
+		modules.put("car", provider);
+		modules.put("bike", provider);
+		modules.put("pt", provider);
+		return new TripRouter(modules, ConfigUtils.createConfig(), new FallbackRoutingModuleDefaultImpl(), cache);
+	}
+
+	private static Facility createFacility(String type, String linkId, double x, double y) {
+		Activity act = PopulationUtils.createActivityFromCoordAndLinkId(type, new Coord(x, y), Id.create(linkId, Link.class));
+		return FacilitiesUtils.wrapActivity(act);
+	}
+
+	private static class CountingRoutingModule implements RoutingModule {
+		int calls = 0;
+
+		@Override
+		public List<? extends PlanElement> calcRoute(Facility fromFacility, Facility toFacility, double departureTime, Person person) {
+			this.calls++;
+			Leg leg = PopulationUtils.createLeg("car");
+			leg.setDepartureTime(departureTime);
+			leg.setTravelTime(CoordUtils.calcEuclideanDistance(fromFacility.getCoord(), toFacility.getCoord()) / 10.0);
+			return Collections.singletonList(leg);
+		}
+	}
+
+	/**
+	 * Boards a transit line 5 minutes after the departure.
+	 */
+	private static class CountingTransitRoutingModule extends CountingRoutingModule {
+		@Override
+		public List<? extends PlanElement> calcRoute(Facility fromFacility, Facility toFacility, double departureTime, Person person) {
+			Leg leg = (Leg) super.calcRoute(fromFacility, toFacility, departureTime, person).get(0);
+			leg.setMode("pt");
+			DefaultTransitPassengerRoute route = new DefaultTransitPassengerRoute(fromFacility.getLinkId(), toFacility.getLinkId(),
+					Id.create("a", TransitStopFacility.class), Id.create("b", TransitStopFacility.class),
+					Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class));
+			route.setBoardingTime(departureTime + 300);
+			leg.setRoute(route);
+			return Collections.singletonList(leg);
+		}
+	}
+}
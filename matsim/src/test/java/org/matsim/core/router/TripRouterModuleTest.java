@@ -29,9 +29,14 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.ControlerDefaults;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.testcases.MatsimTestUtils;
@@ -56,4 +61,29 @@ public class TripRouterModuleTest {
         }
     }
 
+    @Test
+    public void testRouteCacheIsDisabledWithRoutingRandomness() {
+        Config config = ConfigUtils.createConfig();
+        config.plansCalcRoute().setRouteCacheSize(100);
+        config.plansCalcRoute().setRoutingRandomness(3.0);
+        Assert.assertFalse(createRouteCache(config).isEnabled());
+
+        config.plansCalcRoute().setRoutingRandomness(0.0);
+        Assert.assertTrue(createRouteCache(config).isEnabled());
+    }
+
+    private static RouteCache createRouteCache(Config config) {
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        com.google.inject.Injector injector = Injector.createInjector(config, new AbstractModule() {
+            @Override
+            public void install() {
+                install(new TripRouterModule());
+                install(new ScenarioByInstanceModule(scenario));
+                addTravelTimeBinding("car").toInstance(new FreespeedTravelTimeAndDisutility(config.planCalcScore()));
+                addTravelDisutilityFactoryBinding("car").toInstance(new OnlyTimeDependentTravelDisutilityFactory());
+            }
+        });
+        return injector.getInstance(RouteCache.class);
+    }
+
 }
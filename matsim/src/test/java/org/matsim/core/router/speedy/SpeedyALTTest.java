@@ -20,11 +20,18 @@
 
 package org.matsim.core.router.speedy;
 
+import java.io.File;
+
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.scenario.ScenarioUtils;
 
 /**
  * @author mrieser
@@ -38,5 +45,34 @@ public class SpeedyALTTest extends AbstractLeastCostPathCalculatorTest {
 		SpeedyALTData altData = new SpeedyALTData(g, 16, travelTimeCostCalculator);
 		return new SpeedyALT(altData, travelTimeCostCalculator, travelTimeCostCalculator);
 	}
+
+	public void testLandmarksCache() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph g = new SpeedyGraph(scenario.getNetwork());
+		File cacheDirectory = new File(getOutputDirectory(), "landmarks");
+
+		SpeedyALTData calculated = new SpeedyALTData(g, 4, travelTimeCostCalculator, 2, cacheDirectory);
+		File[] cacheFiles = cacheDirectory.listFiles();
+		assertNotNull(cacheFiles);
+		assertEquals(1, cacheFiles.length);
+
+		SpeedyALTData cached = new SpeedyALTData(g, 4, travelTimeCostCalculator, 2, cacheDirectory);
+		for (Node node : scenario.getNetwork().getNodes().values()) {
+			int nodeIdx = node.getId().index();
+			assertEquals(calculated.getNodeDeadend(nodeIdx), cached.getNodeDeadend(nodeIdx));
+			for (int l = 0; l < 4; l++) {
+				assertEquals(calculated.getTravelCostFromLandmark(nodeIdx, l), cached.getTravelCostFromLandmark(nodeIdx, l), 0.0);
+				assertEquals(calculated.getTravelCostToLandmark(nodeIdx, l), cached.getTravelCostToLandmark(nodeIdx, l), 0.0);
+			}
+		}
+
+		// different travel disutilities must not use the cached data
+		PlanCalcScoreConfigGroup scoreConfig = new PlanCalcScoreConfigGroup();
+		scoreConfig.setPerforming_utils_hr(12.0);
+		new SpeedyALTData(g, 4, new FreespeedTravelTimeAndDisutility(scoreConfig), 2, cacheDirectory);
+		assertEquals(2, cacheDirectory.listFiles().length);
+	}
 	
 }
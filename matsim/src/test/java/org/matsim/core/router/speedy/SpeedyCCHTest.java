@@ -0,0 +1,137 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyCCHTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+public class SpeedyCCHTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph g = new SpeedyGraph(network);
+		SpeedyCCHData cchData = new SpeedyCCHData(g);
+		return new SpeedyCCH(cchData, travelTimeCostCalculator, travelTimeCostCalculator, 3600);
+	}
+
+	public void testSameResultsAsDijkstra() {
+		Random random = new Random(20210417);
+		Network network = RandomGridNetworks.create(random, 30);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, travelTimeCostCalculator, travelTimeCostCalculator);
+		SpeedyCCH cch = new SpeedyCCH(new SpeedyCCHData(graph), travelTimeCostCalculator, travelTimeCostCalculator, 3600);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 1000; i++) {
+			Node fromNode = nodes[random.nextInt(nodes.length)];
+			Node toNode = nodes[random.nextInt(nodes.length)];
+			double departureTime = 6 * 3600 + random.nextInt(3600);
+			Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, departureTime, null, null);
+			Path actual = cch.calcLeastCostPath(fromNode, toNode, departureTime, null, null);
+			if (expected == null) {
+				Assert.assertNull("route " + i, actual);
+				continue;
+			}
+			Assert.assertNotNull("route " + i, actual);
+			Assert.assertEquals("route " + i, expected.travelCost, actual.travelCost, 1e-6);
+			Assert.assertEquals("route " + i, expected.travelTime, actual.travelTime, 1e-6);
+			Assert.assertEquals("route " + i, fromNode, actual.getFromNode());
+			Assert.assertEquals("route " + i, toNode, actual.getToNode());
+			for (int l = 0; l < actual.links.size(); l++) {
+				Link link = actual.links.get(l);
+				Assert.assertEquals("route " + i, actual.nodes.get(l), link.getFromNode());
+				Assert.assertEquals("route " + i, actual.nodes.get(l + 1), link.getToNode());
+			}
+		}
+	}
+
+	public void testFactorySharesCustomizations() {
+		Network network = RandomGridNetworks.create(new Random(20210417), 10);
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		CountingTravelDisutility td = new CountingTravelDisutility(freespeed);
+		SpeedyCCHFactory factory = new SpeedyCCHFactory();
+		LeastCostPathCalculator cch1 = factory.createPathCalculator(network, td, freespeed);
+		LeastCostPathCalculator cch2 = factory.createPathCalculator(network, td, freespeed);
+
+		// not all nodes are connected, look for a destination that can be reached
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), freespeed, freespeed);
+		Node fromNode = nodes[0];
+		Node toNode = null;
+		for (int i = nodes.length - 1; toNode == null; i--) {
+			Path reachable = dijkstra.calcLeastCostPath(fromNode, nodes[i], 8 * 3600, null, null);
+			if (reachable != null && !reachable.links.isEmpty()) {
+				toNode = nodes[i];
+			}
+		}
+
+		Path path = cch1.calcLeastCostPath(fromNode, toNode, 8 * 3600, null, null);
+		Assert.assertNotNull(path);
+		int customizationCalls = td.calls - path.links.size();
+		Assert.assertTrue(customizationCalls > 0);
+
+		// the second router uses the customization of the first, and only calculates the cost along the path
+		td.calls = 0;
+		Path path2 = cch2.calcLeastCostPath(fromNode, toNode, 8 * 3600 + 60, null, null);
+		Assert.assertEquals(path.links, path2.links);
+		Assert.assertEquals(path.links.size(), td.calls);
+
+		// after clearing, e.g. at the start of the next iteration, the hierarchy is customized again
+		factory.clear();
+		td.calls = 0;
+		cch2.calcLeastCostPath(fromNode, toNode, 8 * 3600, null, null);
+		Assert.assertEquals(customizationCalls + path.links.size(), td.calls);
+	}
+
+	private static class CountingTravelDisutility implements TravelDisutility {
+		private final TravelDisutility delegate;
+		private int calls = 0;
+
+		CountingTravelDisutility(TravelDisutility delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			this.calls++;
+			return this.delegate.getLinkTravelDisutility(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyCostSnapshotTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class SpeedyCostSnapshotTest {
+
+	@Test
+	public void testTimeBins() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		Link link = network.getLinks().get(Id.create("20", Link.class));
+
+		TimeDependentCosts costs = new TimeDependentCosts();
+		SpeedyCostSnapshot snapshot = new SpeedyCostSnapshot(new SpeedyGraph(network), costs, costs, 900, 3600);
+
+		Assert.assertEquals(costs.getLinkTravelTime(link, 0, null, null), snapshot.getLinkTravelTime(link, 0, null, null), 1e-3);
+		Assert.assertEquals(costs.getLinkTravelTime(link, 900, null, null), snapshot.getLinkTravelTime(link, 1000, null, null), 1e-3);
+		Assert.assertEquals(costs.getLinkTravelDisutility(link, 1800, null, null), snapshot.getLinkTravelDisutility(link, 2699, null, null), 1e-3);
+		// times after the last bin use the last bin
+		Assert.assertEquals(costs.getLinkTravelTime(link, 2700, null, null), snapshot.getLinkTravelTime(link, 36000, null, null), 1e-3);
+		// values are rounded up
+		Assert.assertTrue(snapshot.getLinkTravelDisutility(link, 0, null, null) >= costs.getLinkTravelDisutility(link, 0, null, null));
+	}
+
+	@Test
+	public void testSameCostsAsOriginal() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		SpeedyGraph graph = new SpeedyGraph(network);
+		TimeDependentCosts costs = new TimeDependentCosts();
+		SpeedyCostSnapshot snapshot = new SpeedyCostSnapshot(graph, costs, costs, 900, 24 * 3600);
+
+		SpeedyDijkstra original = new SpeedyDijkstra(graph, costs, costs);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, snapshot, snapshot);
+		SpeedyALT alt = new SpeedyALT(new SpeedyALTData(graph, 4, snapshot), snapshot, snapshot);
+
+		for (Node fromNode : network.getNodes().values()) {
+			for (Node toNode : network.getNodes().values()) {
+				for (double time = 0; time < 24 * 3600; time += 3 * 3600) {
+					Path expected = original.calcLeastCostPath(fromNode, toNode, time, null, null);
+					Path actual1 = dijkstra.calcLeastCostPath(fromNode, toNode, time, null, null);
+					Path actual2 = alt.calcLeastCostPath(fromNode, toNode, time, null, null);
+					Assert.assertEquals(expected.travelCost, actual1.travelCost, 1e-2);
+					Assert.assertEquals(expected.travelCost, actual2.travelCost, 1e-2);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSnapshotsAreSharedWithinIteration() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		Link link = network.getLinks().get(Id.create("20", Link.class));
+		SpeedyCostSnapshots snapshots = new SpeedyCostSnapshots(900, 3600);
+
+		TimeDependentCosts costs = new TimeDependentCosts();
+		SpeedyCostSnapshot car = snapshots.getSnapshot(network, "car", costs, costs);
+		Assert.assertSame(car, snapshots.getSnapshot(network, "car", costs, new TimeDependentCosts()));
+		Assert.assertNotSame(car, snapshots.getSnapshot(network, "bike", costs, costs));
+
+		// travel times changed in the last iteration
+		costs.factor = 2.0;
+		Assert.assertSame(car, snapshots.getSnapshot(network, "car", costs, costs));
+		snapshots.notifyIterationStarts(null);
+		SpeedyCostSnapshot newCar = snapshots.getSnapshot(network, "car", costs, costs);
+		Assert.assertNotSame(car, newCar);
+		Assert.assertEquals(2.0 * car.getLinkTravelTime(link, 0, null, null), newCar.getLinkTravelTime(link, 0, null, null), 1e-3);
+	}
+
+	@Test
+	public void testDisabledWithRoutingRandomness() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setUsingSpeedyCostSnapshots(true);
+		config.plansCalcRoute().setRoutingRandomness(3.0);
+		Assert.assertFalse(new SpeedyCostSnapshots(config).isEnabled());
+
+		config.plansCalcRoute().setRoutingRandomness(0.0);
+		Assert.assertTrue(new SpeedyCostSnapshots(config).isEnabled());
+	}
+
+	/**
+	 * Travel times and costs that are constant within each time bin of 900 seconds, but differ between bins and links.
+	 */
+	private static class TimeDependentCosts implements TravelTime, TravelDisutility {
+		double factor = 1.0;
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			int bin = (int) (time / 900);
+			return this.factor * link.getLength() / link.getFreespeed() * (1.0 + ((bin + link.getId().index()) % 4) / 3.0);
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle) / 3.0 + link.getLength() / 1000.0;
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed() / 3.0 + link.getLength() / 1000.0;
+		}
+	}
+}
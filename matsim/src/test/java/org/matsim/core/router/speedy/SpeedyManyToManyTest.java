@@ -0,0 +1,75 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyManyToManyTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+public class SpeedyManyToManyTest {
+
+	@Test
+	public void testSameResultsAsDijkstra() {
+		Random random = new Random(20210501);
+		Network network = RandomGridNetworks.create(random, 25);
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Node[] fromNodes = new Node[40];
+		Node[] toNodes = new Node[60];
+		for (int i = 0; i < fromNodes.length; i++) {
+			fromNodes[i] = nodes[random.nextInt(nodes.length)];
+		}
+		for (int i = 0; i < toNodes.length; i++) {
+			toNodes[i] = nodes[random.nextInt(nodes.length)];
+		}
+		toNodes[0] = fromNodes[0];
+
+		SpeedyManyToMany.Result result = new SpeedyManyToMany(graph).calculate(fromNodes, toNodes, 8 * 3600, costs, costs, 4);
+
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, costs, costs);
+		for (int i = 0; i < fromNodes.length; i++) {
+			for (int j = 0; j < toNodes.length; j++) {
+				Path path = dijkstra.calcLeastCostPath(fromNodes[i], toNodes[j], 8 * 3600, null, null);
+				if (path == null) {
+					Assert.assertEquals(Float.POSITIVE_INFINITY, result.travelCosts[i][j], 0.0);
+					continue;
+				}
+				double distance = 0;
+				for (Link link : path.links) {
+					distance += link.getLength();
+				}
+				Assert.assertEquals(path.travelCost, result.travelCosts[i][j], 1e-4 * Math.max(1.0, path.travelCost));
+				Assert.assertEquals(path.travelTime, result.travelTimes[i][j], 1e-4 * Math.max(1.0, path.travelTime));
+				Assert.assertEquals(distance, result.distances[i][j], 1e-4 * Math.max(1.0, distance));
+			}
+		}
+		Assert.assertEquals(0.0, result.travelCosts[0][0], 0.0);
+	}
+}
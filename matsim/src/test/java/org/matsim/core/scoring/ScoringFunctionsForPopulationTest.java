@@ -27,21 +27,30 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -126,6 +135,103 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	@Test
+	public void testParallelScoringGivesSameScores() {
+		Config config = ConfigUtils.createConfig();
+		for (String type : new String[] { "home", "work" }) {
+			PlanCalcScoreConfigGroup.ActivityParams params = new PlanCalcScoreConfigGroup.ActivityParams(type);
+			params.setTypicalDuration(type.equals("home") ? 16 * 3600 : 8 * 3600);
+			config.planCalcScore().addActivityParams(params);
+		}
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 500; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.create(i, Person.class)));
+		}
+
+		ScoringFunctionsForPopulation serial = score(scenario, 1);
+		ScoringFunctionsForPopulation parallel = score(scenario, 4);
+
+		for (Person person : population.getPersons().values()) {
+			double expected = serial.getScoringFunctionForAgent(person.getId()).getScore();
+			Assert.assertEquals(expected, parallel.getScoringFunctionForAgent(person.getId()).getScore(), 0.0);
+		}
+	}
+
+	@Test
+	public void testParallelScoringRethrowsExceptions() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 100; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.create(i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		ScoringFunctionFactory scoringFunctionFactory = agentId -> new RecordingScoringFunction() {
+			@Override
+			public void addScore(double amount) {
+				throw new IllegalStateException("failing scoring function");
+			}
+		};
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, new EventsToActivities(),
+				new EventsToLegs(scenario), population, scoringFunctionFactory, 2);
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+
+		try {
+			eventsManager.initProcessing();
+			for (Person person : population.getPersons().values()) {
+				eventsManager.processEvent(new PersonScoreEvent(7*3600, person.getId(), 1.0, "testing"));
+			}
+			eventsManager.finishProcessing();
+			sf.finishScoringFunctions();
+			Assert.fail("expected the exception of the scoring function");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (!(cause instanceof IllegalStateException) && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			Assert.assertEquals("failing scoring function", cause.getMessage());
+		}
+	}
+
+	private static ScoringFunctionsForPopulation score(Scenario scenario, int numberOfThreads) {
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsToActivities eventsToActivities = new EventsToActivities(controlerListenerManager);
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		eventsManager.addHandler(new EventsToLegsAndActivities(eventsToLegs, eventsToActivities));
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs,
+				scenario.getPopulation(), new CharyparNagelScoringFunctionFactory(scenario), numberOfThreads);
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+
+		eventsManager.initProcessing();
+		Id<Link> homeLink = Id.create("home", Link.class);
+		Id<Link> workLink = Id.create("work", Link.class);
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			Id<Person> personId = person.getId();
+			int i = Integer.parseInt(personId.toString());
+			double time = 6 * 3600 + i * 7;
+			eventsManager.processEvent(new ActivityEndEvent(time, personId, homeLink, null, "home"));
+			eventsManager.processEvent(new PersonDepartureEvent(time, personId, homeLink, "walk"));
+			eventsManager.processEvent(new PersonArrivalEvent(time + 600 + i, personId, workLink, "walk"));
+			eventsManager.processEvent(new ActivityStartEvent(time + 600 + i, personId, workLink, null, "work"));
+			eventsManager.processEvent(new PersonMoneyEvent(time + 3600, personId, -i / 100.0, "toll", "operator"));
+			if (i % 10 == 0) {
+				eventsManager.processEvent(new PersonStuckEvent(time + 7200, personId, workLink, "walk"));
+				continue;
+			}
+			eventsManager.processEvent(new ActivityEndEvent(time + 8 * 3600, personId, workLink, null, "work"));
+			eventsManager.processEvent(new PersonDepartureEvent(time + 8 * 3600, personId, workLink, "walk"));
+			eventsManager.processEvent(new PersonArrivalEvent(time + 8 * 3600 + 900, personId, homeLink, "walk"));
+			eventsManager.processEvent(new ActivityStartEvent(time + 8 * 3600 + 900, personId, homeLink, null, "home"));
+		}
+		eventsManager.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0, false);
+		sf.finishScoringFunctions();
+		return sf;
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
@@ -0,0 +1,64 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelUtilsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.misc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelUtilsTest {
+
+	@Test
+	public void testRunInParallel() {
+		AtomicIntegerArray calls = new AtomicIntegerArray(4);
+		AtomicInteger nextItem = new AtomicInteger(0);
+		AtomicInteger handledItems = new AtomicInteger(0);
+		ParallelUtils.runInParallel(4, "test", thread -> {
+			calls.incrementAndGet(thread);
+			while (nextItem.getAndIncrement() < 1000) {
+				handledItems.incrementAndGet();
+			}
+		});
+		for (int i = 0; i < 4; i++) {
+			Assert.assertEquals(1, calls.get(i));
+		}
+		Assert.assertEquals(1000, handledItems.get());
+	}
+
+	@Test
+	public void testExceptionIsPassedOnAfterAllTasksFinished() {
+		AtomicInteger finishedTasks = new AtomicInteger(0);
+		try {
+			ParallelUtils.runInParallel(3, "test", thread -> {
+				if (thread == 1) {
+					throw new ArithmeticException();
+				}
+				finishedTasks.incrementAndGet();
+			});
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+		Assert.assertEquals(2, finishedTasks.get());
+	}
+}